@@ -0,0 +1,275 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.processor;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates {@code GeneratedPreferenceControllerRegistry}, which creates every public
+ * {@code BasePreferenceController} of the compilation from its class name through a
+ * {@code switch}, so that the controllers declared in xml are created without reflection and
+ * without registering anything up front.
+ *
+ * <p>Only controllers with a public {@code (Context)} or {@code (Context, String)} constructor
+ * are included. Kotlin controllers are included too, as kapt runs the processor over their
+ * stubs.
+ */
+@SupportedAnnotationTypes("*")
+public class PreferenceControllerRegistryProcessor extends AbstractProcessor {
+
+    private static final String PACKAGE = "com.android.settings.core";
+    private static final String CONTROLLER_CLASS = PACKAGE + ".BasePreferenceController";
+    private static final String CONTEXT_CLASS = "android.content.Context";
+    private static final String STRING_CLASS = "java.lang.String";
+    private static final ClassName CONTROLLER = ClassName.get(PACKAGE, "BasePreferenceController");
+    private static final ClassName CONTEXT = ClassName.get("android.content", "Context");
+    private static final ClassName REGISTRY =
+            ClassName.get(PACKAGE, "PreferenceControllerRegistry");
+    private static final String GENERATED_CLASS = "GeneratedPreferenceControllerRegistry";
+    // Keeps every generated switch far below the 64K bytecode limit of a method.
+    private static final int CONTROLLERS_PER_METHOD = 250;
+
+    private boolean mGenerated;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        // All the controllers are sources of the first round; the later rounds only contain
+        // classes generated by other processors.
+        if (mGenerated || roundEnv.getRootElements().isEmpty()) {
+            return false;
+        }
+        final TypeElement controllerType =
+                processingEnv.getElementUtils().getTypeElement(CONTROLLER_CLASS);
+        if (controllerType == null) {
+            return false;
+        }
+        mGenerated = true;
+
+        // Key: binary class name, as used in xml and by Class.forName().
+        final TreeMap<String, Controller> controllers = new TreeMap<>();
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            collectControllers(type, controllerType.asType(), controllers);
+        }
+        try {
+            generateRegistry(controllers).writeTo(processingEnv.getFiler());
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Failed to generate " + GENERATED_CLASS + ": " + e);
+        }
+        return false;
+    }
+
+    private void collectControllers(TypeElement type, TypeMirror controllerType,
+            TreeMap<String, Controller> controllers) {
+        if (!type.getModifiers().contains(Modifier.PUBLIC)) {
+            return;
+        }
+        if (type.getEnclosingElement().getKind() != ElementKind.PACKAGE
+                && !type.getModifiers().contains(Modifier.STATIC)) {
+            return;
+        }
+        for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+            collectControllers(nested, controllerType, controllers);
+        }
+        if (type.getKind() != ElementKind.CLASS
+                || type.getModifiers().contains(Modifier.ABSTRACT)
+                || !type.getTypeParameters().isEmpty()
+                || !processingEnv.getTypeUtils().isAssignable(type.asType(), controllerType)) {
+            return;
+        }
+        final Controller controller = new Controller(ClassName.get(type));
+        for (ExecutableElement constructor :
+                ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (!constructor.getModifiers().contains(Modifier.PUBLIC)
+                    || !constructor.getThrownTypes().isEmpty()) {
+                continue;
+            }
+            final List<? extends VariableElement> params = constructor.getParameters();
+            if (params.size() == 1 && isType(params.get(0), CONTEXT_CLASS)) {
+                controller.mHasContextConstructor = true;
+            } else if (params.size() == 2 && isType(params.get(0), CONTEXT_CLASS)
+                    && isType(params.get(1), STRING_CLASS)) {
+                controller.mHasKeyConstructor = true;
+            }
+        }
+        if (controller.mHasContextConstructor || controller.mHasKeyConstructor) {
+            controllers.put(
+                    processingEnv.getElementUtils().getBinaryName(type).toString(), controller);
+        }
+    }
+
+    private boolean isType(VariableElement param, String className) {
+        return processingEnv.getTypeUtils().erasure(param.asType()).toString().equals(className);
+    }
+
+    private JavaFile generateRegistry(TreeMap<String, Controller> controllers) {
+        // The class names are spread over the methods by hash code, so each lookup only runs a
+        // single switch.
+        final int methodCount =
+                Math.max(1, (controllers.size() + CONTROLLERS_PER_METHOD - 1)
+                        / CONTROLLERS_PER_METHOD);
+        final List<List<Map.Entry<String, Controller>>> buckets = new ArrayList<>();
+        for (int i = 0; i < methodCount; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (Map.Entry<String, Controller> entry : controllers.entrySet()) {
+            buckets.get(Math.floorMod(entry.getKey().hashCode(), methodCount)).add(entry);
+        }
+
+        final TypeSpec.Builder registry = TypeSpec.classBuilder(GENERATED_CLASS)
+                .addModifiers(Modifier.FINAL)
+                .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+                        .addMember("value", "$S", "deprecation")
+                        .build())
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addModifiers(Modifier.PRIVATE)
+                        .build());
+        addLookup(registry, buckets, "getConstructors", TypeName.INT, "0", false, false,
+                controller -> true,
+                (code, controller) -> code.addStatement("return $L",
+                        getConstructorsFlags(controller)));
+        addLookup(registry, buckets, "newInstance", CONTROLLER, "null", true, false,
+                controller -> controller.mHasContextConstructor,
+                (code, controller) -> code.addStatement("return new $T(context)",
+                        controller.mClassName));
+        addLookup(registry, buckets, "newInstance", CONTROLLER, "null", true, true,
+                controller -> controller.mHasKeyConstructor,
+                (code, controller) -> code.addStatement("return new $T(context, key)",
+                        controller.mClassName));
+        return JavaFile.builder(PACKAGE, registry.build())
+                .addFileComment("Generated by $L, do not edit.", getClass().getSimpleName())
+                .build();
+    }
+
+    /**
+     * Adds {@code name}, which dispatches to one switch method per bucket, and the switch methods.
+     * The switches only know the controllers matching {@code filter}, and return
+     * {@code defaultValue} for the other class names.
+     */
+    private static void addLookup(TypeSpec.Builder registry,
+            List<List<Map.Entry<String, Controller>>> buckets, String name, TypeName returnType,
+            String defaultValue, boolean hasContext, boolean hasKey, Predicate<Controller> filter,
+            CaseWriter caseWriter) {
+        final String suffix = hasKey ? "WithKey" : "";
+        final MethodSpec.Builder lookup = createLookupMethod(name, returnType, hasContext, hasKey)
+                .addModifiers(Modifier.STATIC)
+                .beginControlFlow("switch ($T.floorMod(className.hashCode(), $L))",
+                        Math.class, buckets.size());
+        for (int i = 0; i < buckets.size(); i++) {
+            final String bucketName = name + suffix + i;
+            final MethodSpec.Builder bucket =
+                    createLookupMethod(bucketName, returnType, hasContext, hasKey)
+                            .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                            .beginControlFlow("switch (className)");
+            for (Map.Entry<String, Controller> entry : buckets.get(i)) {
+                if (!filter.test(entry.getValue())) {
+                    continue;
+                }
+                final CodeBlock.Builder code = CodeBlock.builder();
+                caseWriter.write(code, entry.getValue());
+                bucket.addCode("case $S:\n$>", entry.getKey())
+                        .addCode(code.build())
+                        .addCode("$<");
+            }
+            bucket.addCode("default:\n$>")
+                    .addStatement("return $L", defaultValue)
+                    .addCode("$<")
+                    .endControlFlow();
+            registry.addMethod(bucket.build());
+
+            lookup.addCode("case $L:\n$>", i)
+                    .addStatement("return $N($L)", bucketName, getArguments(hasContext, hasKey))
+                    .addCode("$<");
+        }
+        lookup.addCode("default:\n$>")
+                .addStatement("return $L", defaultValue)
+                .addCode("$<")
+                .endControlFlow();
+        registry.addMethod(lookup.build());
+    }
+
+    private static MethodSpec.Builder createLookupMethod(String name, TypeName returnType,
+            boolean hasContext, boolean hasKey) {
+        final MethodSpec.Builder method = MethodSpec.methodBuilder(name).returns(returnType);
+        if (hasContext) {
+            method.addParameter(CONTEXT, "context");
+        }
+        method.addParameter(String.class, "className");
+        if (hasKey) {
+            method.addParameter(String.class, "key");
+        }
+        return method;
+    }
+
+    private static String getArguments(boolean hasContext, boolean hasKey) {
+        return (hasContext ? "context, " : "") + "className" + (hasKey ? ", key" : "");
+    }
+
+    private static CodeBlock getConstructorsFlags(Controller controller) {
+        if (controller.mHasContextConstructor && controller.mHasKeyConstructor) {
+            return CodeBlock.of("$T.CONTEXT_CONSTRUCTOR | $T.KEY_CONSTRUCTOR", REGISTRY, REGISTRY);
+        }
+        return CodeBlock.of("$T.$L", REGISTRY,
+                controller.mHasContextConstructor ? "CONTEXT_CONSTRUCTOR" : "KEY_CONSTRUCTOR");
+    }
+
+    private interface CaseWriter {
+        void write(CodeBlock.Builder code, Controller controller);
+    }
+
+    private static class Controller {
+        final ClassName mClassName;
+        boolean mHasContextConstructor;
+        boolean mHasKeyConstructor;
+
+        Controller(ClassName className) {
+            mClassName = className;
+        }
+    }
+}
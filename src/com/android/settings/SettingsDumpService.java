@@ -37,8 +37,13 @@ import android.util.Log;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.applications.ProcStatsData;
+import com.android.settings.core.instrumentation.PageTraceMetrics;
+import com.android.settings.dashboard.DashboardTileMetrics;
 import com.android.settings.datausage.lib.DataUsageLib;
+import com.android.settings.fuelgauge.batterytip.BatteryTipDetectorMetrics;
 import com.android.settings.network.MobileNetworkRepository;
+import com.android.settings.search.SearchIndexableSnapshot;
+import com.android.settings.slices.SliceDataCache;
 import com.android.settingslib.net.DataUsageController;
 
 import org.json.JSONArray;
@@ -67,6 +72,16 @@ public class SettingsDumpService extends Service {
     @VisibleForTesting
     static final String KEY_ANOMALY_DETECTION = "anomaly_detection";
     @VisibleForTesting
+    static final String KEY_SEARCH_INDEX = "search_index";
+    @VisibleForTesting
+    static final String KEY_DASHBOARD_TILES = "dashboard_tiles";
+    @VisibleForTesting
+    static final String KEY_SLICES = "slices";
+    @VisibleForTesting
+    static final String KEY_PAGE_TRACES = "page_traces";
+    @VisibleForTesting
+    static final String KEY_BATTERY_TIP_DETECTORS = "battery_tip_detectors";
+    @VisibleForTesting
     static final Intent BROWSER_INTENT =
             new Intent("android.intent.action.VIEW", Uri.parse("http://"));
 
@@ -98,6 +113,12 @@ public class SettingsDumpService extends Service {
                 dump.put(KEY_DATAUSAGE, dumpDataUsage());
                 dump.put(KEY_MEMORY, dumpMemory());
                 dump.put(KEY_DEFAULT_BROWSER_APP, dumpDefaultBrowser());
+                dump.put(KEY_SEARCH_INDEX, SearchIndexableSnapshot.getInstance(this).dump());
+                dump.put(KEY_DASHBOARD_TILES, DashboardTileMetrics.getInstance().dump());
+                dump.put(KEY_SLICES, SliceDataCache.getInstance(this).dump());
+                dump.put(KEY_PAGE_TRACES, PageTraceMetrics.getInstance().dump());
+                dump.put(KEY_BATTERY_TIP_DETECTORS,
+                        BatteryTipDetectorMetrics.getInstance().dump());
             } catch (Exception e) {
                 Log.w(TAG, "exception in dump: ", e);
             }
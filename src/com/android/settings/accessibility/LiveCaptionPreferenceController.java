@@ -28,13 +28,15 @@ import com.android.settings.core.BasePreferenceController;
 
 import java.util.List;
 
-public class LiveCaptionPreferenceController extends BasePreferenceController {
+public class LiveCaptionPreferenceController extends BasePreferenceController
+        implements BasePreferenceController.BackgroundStateLoader {
 
     @VisibleForTesting
     static final Intent LIVE_CAPTION_INTENT = new Intent(
             "com.android.settings.action.live_caption");
 
     private final PackageManager mPackageManager;
+    private boolean mCanResolveIntent;
 
     public LiveCaptionPreferenceController(Context context, String preferenceKey) {
         super(context, preferenceKey);
@@ -42,12 +44,15 @@ public class LiveCaptionPreferenceController extends BasePreferenceController {
     }
 
     @Override
-    public int getAvailabilityStatus() {
+    public void loadState() {
         final List<ResolveInfo> resolved =
                 mPackageManager.queryIntentActivities(LIVE_CAPTION_INTENT, 0 /* flags */);
-        return resolved != null && !resolved.isEmpty()
-                ? AVAILABLE
-                : UNSUPPORTED_ON_DEVICE;
+        mCanResolveIntent = resolved != null && !resolved.isEmpty();
+    }
+
+    @Override
+    public int getAvailabilityStatus() {
+        return mCanResolveIntent ? AVAILABLE : UNSUPPORTED_ON_DEVICE;
     }
 
     @Override
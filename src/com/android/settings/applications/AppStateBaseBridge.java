@@ -117,6 +117,16 @@ public abstract class AppStateBaseBridge implements ApplicationsState.Callbacks
 
     protected abstract void loadAllExtraInfo();
 
+    /**
+     * Notifies the callback of the extra info loaded so far, while {@link #loadAllExtraInfo()} is
+     * still loading the rest of it.
+     */
+    protected void notifyExtraInfoUpdated() {
+        if (!mMainHandler.hasMessages(MainHandler.MSG_INFO_UPDATED)) {
+            mMainHandler.sendEmptyMessage(MainHandler.MSG_INFO_UPDATED);
+        }
+    }
+
     protected abstract void updateExtraInfo(AppEntry app, String pkg, int uid);
 
     private class MainHandler extends Handler {
@@ -18,17 +18,20 @@ package com.android.settings.applications;
 import android.app.usage.IUsageStatsManager;
 import android.app.usage.UsageEvents;
 import android.content.Context;
+import android.content.pm.ApplicationInfo;
 import android.os.RemoteException;
 import android.os.UserHandle;
 import android.os.UserManager;
 import android.text.format.DateUtils;
 import android.util.ArrayMap;
 import android.util.Log;
+import android.util.SparseArray;
 import android.widget.CompoundButton;
 
 import com.android.settings.R;
 import com.android.settings.Utils;
 import com.android.settings.notification.NotificationBackend;
+import com.android.settings.notification.NotificationBackend.AppBlockState;
 import com.android.settingslib.applications.ApplicationsState;
 import com.android.settingslib.applications.ApplicationsState.AppEntry;
 import com.android.settingslib.applications.ApplicationsState.AppFilter;
@@ -79,13 +82,51 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
         }
 
         final Map<String, NotificationsSentState> map = getAggregatedUsageEvents();
+        // Key: userId|packageName
+        final ArrayMap<String, AppEntry> pendingEntries = new ArrayMap<>(apps.size());
+        final ArrayMap<String, NotificationsSentState> pendingStats = new ArrayMap<>(apps.size());
+        final SparseArray<List<ApplicationInfo>> appsByUser = new SparseArray<>();
         for (AppEntry entry : apps) {
-            NotificationsSentState stats =
-                    map.get(getKey(UserHandle.getUserId(entry.info.uid), entry.info.packageName));
+            final int userId = UserHandle.getUserId(entry.info.uid);
+            final String key = getKey(userId, entry.info.packageName);
+            NotificationsSentState stats = map.get(key);
             if (stats == null) {
                 stats = new NotificationsSentState();
             }
             calculateAvgSentCounts(stats);
+            pendingEntries.put(key, entry);
+            pendingStats.put(key, stats);
+            List<ApplicationInfo> userApps = appsByUser.get(userId);
+            if (userApps == null) {
+                userApps = new ArrayList<>();
+                appsByUser.put(userId, userApps);
+            }
+            userApps.add(entry.info);
+        }
+
+        // Load the block states of all the packages of each user at once, and show the apps as
+        // their states are loaded.
+        for (int i = 0; i < appsByUser.size(); i++) {
+            mBackend.loadAppBlockStates(mContext, appsByUser.keyAt(i),
+                    appsByUser.valueAt(i), (userId, states) -> {
+                        for (Map.Entry<String, AppBlockState> state : states.entrySet()) {
+                            final String key = getKey(userId, state.getKey());
+                            final AppEntry entry = pendingEntries.remove(key);
+                            final NotificationsSentState stats = pendingStats.remove(key);
+                            if (entry != null) {
+                                stats.blocked = state.getValue().banned;
+                                stats.blockable = state.getValue().blockable;
+                                entry.extraInfo = stats;
+                            }
+                        }
+                        notifyExtraInfoUpdated();
+                    });
+        }
+
+        // The packages which couldn't be loaded at once, e.g. installed in the meantime.
+        for (int i = 0; i < pendingEntries.size(); i++) {
+            final AppEntry entry = pendingEntries.valueAt(i);
+            final NotificationsSentState stats = pendingStats.get(pendingEntries.keyAt(i));
             addBlockStatus(entry, stats);
             entry.extraInfo = stats;
         }
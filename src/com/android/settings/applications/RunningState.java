@@ -41,8 +41,11 @@ import android.os.UserHandle;
 import android.os.UserManager;
 import android.text.format.Formatter;
 import android.util.Log;
+import android.util.LruCache;
 import android.util.SparseArray;
 
+import androidx.annotation.VisibleForTesting;
+
 import com.android.settings.R;
 import com.android.settingslib.Utils;
 import com.android.settingslib.applications.InterestingConfigChanges;
@@ -75,6 +78,9 @@ public class RunningState {
 
     static final int MAX_SERVICES = 100;
 
+    // Labels of processes that went away kept for when they restart.
+    static final int MAX_PROCESS_LABELS = 32;
+
     final Context mApplicationContext;
     final ActivityManager mAm;
     final PackageManager mPm;
@@ -98,6 +104,13 @@ public class RunningState {
     final SparseArray<ProcessItem> mServiceProcessesByPid
             = new SparseArray<ProcessItem>();
 
+    // Labels of the processes that went away, keyed by uid and name, so
+    // that they don't need to be resolved again when the process restarts.
+    // Entries are dropped once the process is back, and all of them when a
+    // package changes, as its label or application info may have changed.
+    final LruCache<String, ProcessLabel> mProcessLabels
+            = new LruCache<String, ProcessLabel>(MAX_PROCESS_LABELS);
+
     // Used to sort the interesting processes.
     final ServiceProcessComparator mServiceProcessComparator
             = new ServiceProcessComparator();
@@ -113,6 +126,9 @@ public class RunningState {
     // The processes associated with services, in sorted order.
     final ArrayList<ProcessItem> mProcessItems = new ArrayList<ProcessItem>();
 
+    // Scratch list used to sort the service processes on each update.
+    final ArrayList<ProcessItem> mSortedProcesses = new ArrayList<ProcessItem>();
+
     // All processes, used for retrieving memory information.
     final ArrayList<ProcessItem> mAllProcessItems = new ArrayList<ProcessItem>();
 
@@ -325,6 +341,25 @@ public class RunningState {
     private final UserManagerBroadcastReceiver mUmBroadcastReceiver =
             new UserManagerBroadcastReceiver();
 
+    final class PackageBroadcastReceiver extends BroadcastReceiver {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            // The remembered labels may be stale now.
+            mProcessLabels.evictAll();
+        }
+
+        void register(Context context) {
+            IntentFilter filter = new IntentFilter();
+            filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+            filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+            filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+            filter.addDataScheme("package");
+            context.registerReceiverAsUser(this, UserHandle.ALL, filter, null, null);
+        }
+    }
+
+    final PackageBroadcastReceiver mPackageBroadcastReceiver = new PackageBroadcastReceiver();
+
     // ----- DATA STRUCTURES -----
 
     static interface OnRefreshUiListener {
@@ -374,6 +409,18 @@ public class RunningState {
         }
     }
 
+    static class ProcessLabel {
+        final PackageItemInfo mPackageInfo;
+        final CharSequence mDisplayLabel;
+        final String mLabel;
+
+        ProcessLabel(ProcessItem proc) {
+            mPackageInfo = proc.mPackageInfo;
+            mDisplayLabel = proc.mDisplayLabel;
+            mLabel = proc.mLabel;
+        }
+    }
+
     static class ServiceItem extends BaseItem {
         ActivityManager.RunningServiceInfo mRunningService;
         ServiceInfo mServiceInfo;
@@ -780,7 +827,8 @@ public class RunningState {
         }
     }
 
-    private RunningState(Context context) {
+    @VisibleForTesting
+    RunningState(Context context) {
         mApplicationContext = context.getApplicationContext();
         mAm = mApplicationContext.getSystemService(ActivityManager.class);
         mPm = mApplicationContext.getPackageManager();
@@ -793,6 +841,7 @@ public class RunningState {
         mBackgroundThread.start();
         mBackgroundHandler = new BackgroundHandler(mBackgroundThread.getLooper());
         mUmBroadcastReceiver.register(mApplicationContext);
+        mPackageBroadcastReceiver.register(mApplicationContext);
     }
 
     void resume(OnRefreshUiListener listener) {
@@ -866,10 +915,35 @@ public class RunningState {
         mServiceProcessesByPid.clear();
         mInterestingProcesses.clear();
         mRunningProcesses.clear();
+        mProcessLabels.evictAll();
         mProcessItems.clear();
         mAllProcessItems.clear();
     }
 
+    private ProcessItem newProcessItem(Context context, int uid, String processName) {
+        ProcessItem proc = new ProcessItem(context, uid, processName);
+        // The process is back, its item holds the label again.
+        ProcessLabel label = mProcessLabels.remove(getProcessLabelKey(uid, processName));
+        if (label != null) {
+            proc.mPackageInfo = label.mPackageInfo;
+            proc.mDisplayLabel = label.mDisplayLabel;
+            proc.mLabel = label.mLabel;
+        }
+        return proc;
+    }
+
+    private void rememberLabel(ProcessItem proc) {
+        if (proc.mLabel == null) {
+            return;
+        }
+        mProcessLabels.put(getProcessLabelKey(proc.mUid, proc.mProcessName),
+                new ProcessLabel(proc));
+    }
+
+    private static String getProcessLabelKey(int uid, String processName) {
+        return uid + ":" + processName;
+    }
+
     private void addOtherUserItem(Context context, ArrayList<MergedItem> newMergedItems,
             SparseArray<MergedItem> userItems, MergedItem newItem) {
         MergedItem userItem = userItems.get(newItem.mUserId);
@@ -899,7 +973,8 @@ public class RunningState {
         userItem.mChildren.add(newItem);
     }
 
-    private boolean update(Context context, ActivityManager am) {
+    @VisibleForTesting
+    boolean update(Context context, ActivityManager am) {
         final PackageManager pm = context.getPackageManager();
 
         mSequence++;
@@ -1004,7 +1079,7 @@ public class RunningState {
             ProcessItem proc = procs.get(si.process);
             if (proc == null) {
                 changed = true;
-                proc = new ProcessItem(context, si.uid, si.process);
+                proc = newProcessItem(context, si.uid, si.process);
                 procs.put(si.process, proc);
             }
 
@@ -1038,9 +1113,15 @@ public class RunningState {
                 // of a service, so look for it in the secondary
                 // running list.
                 proc = mRunningProcesses.get(pi.pid);
+                if (proc != null && (proc.mUid != pi.uid
+                        || !proc.mProcessName.equals(pi.processName))) {
+                    // The pid was reused by another process since the last update.
+                    rememberLabel(proc);
+                    proc = null;
+                }
                 if (proc == null) {
                     changed = true;
-                    proc = new ProcessItem(context, pi.uid, pi.processName);
+                    proc = newProcessItem(context, pi.uid, pi.processName);
                     proc.mPid = pi.pid;
                     mRunningProcesses.put(pi.pid, proc);
                 }
@@ -1048,7 +1129,10 @@ public class RunningState {
             }
 
             if (isInterestingProcess(pi)) {
-                if (!mInterestingProcesses.contains(proc)) {
+                // Processes hosting services are only tracked by their services,
+                // they would be dropped from the interesting ones again below.
+                if (mRunningProcesses.get(pi.pid) == proc
+                        && !mInterestingProcesses.contains(proc)) {
                     changed = true;
                     mInterestingProcesses.add(proc);
                 }
@@ -1087,6 +1171,7 @@ public class RunningState {
                 i++;
             } else {
                 changed = true;
+                rememberLabel(proc);
                 mRunningProcesses.remove(mRunningProcesses.keyAt(i));
                 NRP--;
             }
@@ -1096,7 +1181,7 @@ public class RunningState {
         int NHP = mInterestingProcesses.size();
         for (int i = 0; i < NHP; i++) {
             ProcessItem proc = mInterestingProcesses.get(i);
-            if (!proc.mInteresting || mRunningProcesses.get(proc.mPid) == null) {
+            if (!proc.mInteresting || mRunningProcesses.get(proc.mPid) != proc) {
                 changed = true;
                 mInterestingProcesses.remove(i);
                 i--;
@@ -1130,6 +1215,7 @@ public class RunningState {
                     }
                 } else {
                     changed = true;
+                    rememberLabel(pi);
                     pit.remove();
                     if (procs.size() == 0) {
                         if (uidToDelete == null) {
@@ -1162,7 +1248,8 @@ public class RunningState {
 
         if (changed) {
             // First determine an order for the services.
-            ArrayList<ProcessItem> sortedProcesses = new ArrayList<ProcessItem>();
+            final ArrayList<ProcessItem> sortedProcesses = mSortedProcesses;
+            sortedProcesses.clear();
             for (int i = 0; i < mServiceProcessesByName.size(); i++) {
                 for (ProcessItem pi : mServiceProcessesByName.valueAt(i).values()) {
                     pi.mIsSystem = false;
@@ -1206,7 +1293,7 @@ public class RunningState {
 
                 // Now add the services running in it.
                 MergedItem mergedItem = null;
-                boolean haveAllMerged = false;
+                boolean haveAllMerged = true;
                 boolean needDivider = false;
                 for (ServiceItem si : pi.mServices.values()) {
                     si.mNeedDivider = needDivider;
@@ -1230,11 +1317,13 @@ public class RunningState {
                         mergedItem.mServices.add(si);
                         si.mMergedItem = mergedItem;
                     }
-                    mergedItem.mProcess = pi;
-                    mergedItem.mOtherProcesses.clear();
-                    for (int mpi = firstProc; mpi < (mProcessItems.size() - 1); mpi++) {
-                        mergedItem.mOtherProcesses.add(mProcessItems.get(mpi));
-                    }
+                }
+                // The item of the same services is reused, but the processes
+                // they depend on may have changed.
+                mergedItem.mProcess = pi;
+                mergedItem.mOtherProcesses.clear();
+                for (int mpi = firstProc; mpi < (mProcessItems.size() - 1); mpi++) {
+                    mergedItem.mOtherProcesses.add(mProcessItems.get(mpi));
                 }
 
                 mergedItem.update(context, false);
@@ -1276,9 +1365,17 @@ public class RunningState {
                 }
             }
 
+            sortedProcesses.clear();
+
+            // Keep the current lists when only the content of their items
+            // changed, so that the UI doesn't need to rebuild its own list.
             synchronized (mLock) {
-                mItems = newItems;
-                mMergedItems = newMergedItems;
+                if (!newItems.equals(mItems)) {
+                    mItems = newItems;
+                }
+                if (!newMergedItems.equals(mMergedItems)) {
+                    mMergedItems = newMergedItems;
+                }
             }
         }
 
@@ -1324,8 +1421,7 @@ public class RunningState {
             for (int i = 0; i < numProc; i++) {
                 pids[i] = mAllProcessItems.get(i).mPid;
             }
-            long[] pss = ActivityManager.getService()
-                    .getProcessPss(pids);
+            long[] pss = getProcessPss(pids);
             int bgIndex = 0;
             for (int i = 0; i < pids.length; i++) {
                 ProcessItem proc = mAllProcessItems.get(i);
@@ -1441,6 +1537,11 @@ public class RunningState {
         return changed;
     }
 
+    @VisibleForTesting
+    long[] getProcessPss(int[] pids) throws RemoteException {
+        return ActivityManager.getService().getProcessPss(pids);
+    }
+
     void setWatchingBackgroundItems(boolean watching) {
         synchronized (mLock) {
             mWatchingBackgroundItems = watching;
@@ -30,6 +30,7 @@ import android.text.TextUtils;
 import android.util.Log;
 
 import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 import androidx.preference.Preference;
 import androidx.preference.PreferenceScreen;
 
@@ -42,8 +43,6 @@ import com.android.settingslib.search.SearchIndexableRaw;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 import java.util.List;
 
 /**
@@ -127,49 +126,37 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
     private UserHandle mWorkProfileUser;
     private int mMetricsCategory;
     private boolean mPrefVisibility;
+    // Guards BackgroundStateLoader#loadState, see loadBackgroundState().
+    private final Object mStateLock = new Object();
+    private volatile boolean mIsStateLoaded;
+    private volatile boolean mLoadsStateInBackground;
 
     /**
      * Instantiate a controller as specified controller type and user-defined key.
      * <p/>
-     * This is done through reflection. Do not use this method unless you know what you are doing.
+     * This is done through the {@link PreferenceControllerRegistry}, which only falls back to
+     * reflection for controllers it does not know about.
      */
     public static BasePreferenceController createInstance(Context context,
             String controllerName, String key) {
-        try {
-            final Class<?> clazz = Class.forName(controllerName);
-            final Constructor<?> preferenceConstructor =
-                    clazz.getConstructor(Context.class, String.class);
-            final Object[] params = new Object[]{context, key};
-            return (BasePreferenceController) preferenceConstructor.newInstance(params);
-        } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException |
-                IllegalArgumentException | InvocationTargetException | IllegalAccessException e) {
-            throw new IllegalStateException(
-                    "Invalid preference controller: " + controllerName, e);
-        }
+        return PreferenceControllerRegistry.createInstance(context, controllerName, key);
     }
 
     /**
      * Instantiate a controller as specified controller type.
      * <p/>
-     * This is done through reflection. Do not use this method unless you know what you are doing.
+     * This is done through the {@link PreferenceControllerRegistry}, which only falls back to
+     * reflection for controllers it does not know about.
      */
     public static BasePreferenceController createInstance(Context context, String controllerName) {
-        try {
-            final Class<?> clazz = Class.forName(controllerName);
-            final Constructor<?> preferenceConstructor = clazz.getConstructor(Context.class);
-            final Object[] params = new Object[]{context};
-            return (BasePreferenceController) preferenceConstructor.newInstance(params);
-        } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException |
-                IllegalArgumentException | InvocationTargetException | IllegalAccessException e) {
-            throw new IllegalStateException(
-                    "Invalid preference controller: " + controllerName, e);
-        }
+        return PreferenceControllerRegistry.createInstance(context, controllerName);
     }
 
     /**
      * Instantiate a controller as specified controller type and work profile
      * <p/>
-     * This is done through reflection. Do not use this method unless you know what you are doing.
+     * This is done through the {@link PreferenceControllerRegistry}, which only falls back to
+     * reflection for controllers it does not know about.
      *
      * @param context        application context
      * @param controllerName class name of the {@link BasePreferenceController}
@@ -178,20 +165,10 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
      */
     public static BasePreferenceController createInstance(Context context, String controllerName,
             String key, boolean isWorkProfile) {
-        try {
-            final Class<?> clazz = Class.forName(controllerName);
-            final Constructor<?> preferenceConstructor =
-                    clazz.getConstructor(Context.class, String.class);
-            final Object[] params = new Object[]{context, key};
-            final BasePreferenceController controller =
-                    (BasePreferenceController) preferenceConstructor.newInstance(params);
-            controller.setForWork(isWorkProfile);
-            return controller;
-        } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException
-                | IllegalArgumentException | InvocationTargetException | IllegalAccessException e) {
-            throw new IllegalStateException(
-                    "Invalid preference controller: " + controllerName, e);
-        }
+        final BasePreferenceController controller =
+                PreferenceControllerRegistry.createInstance(context, controllerName, key);
+        controller.setForWork(isWorkProfile);
+        return controller;
     }
 
     public BasePreferenceController(Context context, String preferenceKey) {
@@ -253,6 +230,7 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
      */
     @Override
     public final boolean isAvailable() {
+        loadBackgroundStateIfNeeded();
         if (mIsForWork && mWorkProfileUser == null) {
             return false;
         }
@@ -271,6 +249,7 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
      * Note that a return value of {@code true} does not mean that the setting is available.
      */
     public final boolean isSupported() {
+        loadBackgroundStateIfNeeded();
         return getAvailabilityStatus() != UNSUPPORTED_ON_DEVICE;
     }
 
@@ -279,6 +258,7 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
      */
     @Override
     public void displayPreference(PreferenceScreen screen) {
+        loadBackgroundStateIfNeeded();
         super.displayPreference(screen);
         if (getAvailabilityStatus() == DISABLED_DEPENDENT_SETTING) {
             // Disable preference if it depends on another setting.
@@ -415,6 +395,75 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
     public interface UiBlocker {
     }
 
+    /**
+     * Used for {@link BasePreferenceController} whose availability or state is expensive to
+     * compute, e.g. because it needs binder calls. DashboardFragment calls {@link #loadState()}
+     * for all of them in parallel on background threads, then applies the availability and
+     * {@link BasePreferenceController#updateState} on the main thread in one pass.
+     *
+     * {@link BasePreferenceController#getAvailabilityStatus()} and
+     * {@link BasePreferenceController#updateState} should only read the snapshot taken by
+     * {@link #loadState()}, since they are still called on the main thread. Until the first load,
+     * DashboardFragment displays the preference with the default state, so it should be the one
+     * to show while loading, usually unavailable. Other callers, such as search indexing and
+     * slices, get the state loaded synchronously the first time they call
+     * {@link BasePreferenceController#isAvailable()},
+     * {@link BasePreferenceController#isSupported()} or
+     * {@link BasePreferenceController#displayPreference}.
+     *
+     * This must be used in {@link BasePreferenceController}
+     */
+    public interface BackgroundStateLoader {
+        /**
+         * Loads the data needed by {@link BasePreferenceController#getAvailabilityStatus()} and
+         * {@link BasePreferenceController#updateState}. Called on a background thread, through
+         * {@link BasePreferenceController#loadBackgroundState()}, so it must not call
+         * {@link BasePreferenceController#isAvailable()} itself.
+         */
+        @WorkerThread
+        void loadState();
+    }
+
+    /**
+     * Calls {@link BackgroundStateLoader#loadState()} of this controller on the calling thread.
+     * <p>
+     * The load runs under a lock and then sets a volatile flag, which is read before the state is
+     * used. So whatever {@link BackgroundStateLoader#loadState()} writes is visible to the threads
+     * calling {@link #isAvailable()} afterwards, without the controller synchronizing its fields.
+     */
+    @WorkerThread
+    public final void loadBackgroundState() {
+        synchronized (mStateLock) {
+            ((BackgroundStateLoader) this).loadState();
+            mIsStateLoaded = true;
+        }
+    }
+
+    /**
+     * Set by the pages loading the state of this {@link BackgroundStateLoader} in the background,
+     * so that reading the availability uses the last loaded or default state instead of loading
+     * it on the calling thread.
+     */
+    public void setLoadsStateInBackground(boolean loadsStateInBackground) {
+        mLoadsStateInBackground = loadsStateInBackground;
+    }
+
+    /**
+     * Loads the state of a {@link BackgroundStateLoader} which was never loaded, for the callers
+     * outside DashboardFragment, which do not load it in the background.
+     */
+    private void loadBackgroundStateIfNeeded() {
+        if (!(this instanceof BackgroundStateLoader) || mIsStateLoaded
+                || mLoadsStateInBackground) {
+            return;
+        }
+        synchronized (mStateLock) {
+            if (!mIsStateLoaded) {
+                loadBackgroundState();
+            }
+        }
+    }
+
     /**
      * Set the metrics category of the parent fragment.
      *
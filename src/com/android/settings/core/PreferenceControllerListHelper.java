@@ -27,8 +27,10 @@ import android.text.TextUtils;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag;
+import com.android.settings.core.instrumentation.PageTraceMetrics;
 import com.android.settings.ext.BoolSettingPrefController;
 import com.android.settingslib.core.AbstractPreferenceController;
 
@@ -53,8 +55,20 @@ public class PreferenceControllerListHelper {
     @NonNull
     public static List<BasePreferenceController> getPreferenceControllersFromXml(Context context,
             @XmlRes int xmlResId) {
+        return getPreferenceControllersFromXml(context, xmlResId, null /* page */);
+    }
+
+    /**
+     * Instantiates a list of controller based on xml definition, and records the time it takes
+     * in {@link PageTraceMetrics} for {@code page}.
+     */
+    public static List<BasePreferenceController> getPreferenceControllersFromXml(Context context,
+            @XmlRes int xmlResId, @Nullable String page) {
         final List<BasePreferenceController> controllers = new ArrayList<>();
+        final PageTraceMetrics traceMetrics = PageTraceMetrics.getInstance();
         List<Bundle> preferenceMetadata;
+        final long parseStartTime = traceMetrics.begin(PageTraceMetrics.STAGE_PARSE_XML,
+                "extractMetadata");
         try {
             preferenceMetadata = PreferenceXmlParserUtils.extractMetadata(context, xmlResId,
                     MetadataFlag.FLAG_NEED_KEY | MetadataFlag.FLAG_NEED_PREF_CONTROLLER
@@ -63,6 +77,9 @@ public class PreferenceControllerListHelper {
         } catch (IOException | XmlPullParserException e) {
             Log.e(TAG, "Failed to parse preference xml for getting controllers", e);
             return controllers;
+        } finally {
+            traceMetrics.end(page, PageTraceMetrics.STAGE_PARSE_XML, "extractMetadata",
+                    parseStartTime);
         }
 
         for (Bundle metadata : preferenceMetadata) {
@@ -71,25 +88,20 @@ public class PreferenceControllerListHelper {
                 BoolSettingPrefController.maybeAdd(context, metadata, controllers);
                 continue;
             }
-            BasePreferenceController controller;
+            final String key = metadata.getString(METADATA_KEY);
+            final boolean isWorkProfile = metadata.getBoolean(METADATA_FOR_WORK, false);
+            final String name = controllerName.substring(controllerName.lastIndexOf('.') + 1);
+            final long startTime = traceMetrics.begin(PageTraceMetrics.STAGE_CONSTRUCT, name);
+            final BasePreferenceController controller;
             try {
-                controller = BasePreferenceController.createInstance(context, controllerName);
+                // Prefers the Context-only constructor, and only needs the key otherwise.
+                controller = PreferenceControllerRegistry.createInstance(context, controllerName,
+                        key, isWorkProfile);
             } catch (IllegalStateException e) {
-                Log.d(TAG, "Could not find Context-only controller for pref: " + controllerName);
-                final String key = metadata.getString(METADATA_KEY);
-                final boolean isWorkProfile = metadata.getBoolean(METADATA_FOR_WORK, false);
-                if (TextUtils.isEmpty(key)) {
-                    Log.w(TAG, "Controller requires key but it's not defined in xml: "
-                            + controllerName);
-                    continue;
-                }
-                try {
-                    controller = BasePreferenceController.createInstance(context, controllerName,
-                            key, isWorkProfile);
-                } catch (IllegalStateException e2) {
-                    Log.w(TAG, "Cannot instantiate controller from reflection: " + controllerName);
-                    continue;
-                }
+                Log.w(TAG, "Cannot instantiate controller: " + e.getMessage());
+                continue;
+            } finally {
+                traceMetrics.end(page, PageTraceMetrics.STAGE_CONSTRUCT, name, startTime);
             }
             controllers.add(controller);
         }
@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import android.content.Context;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Creates {@link BasePreferenceController}s from their class name.
+ *
+ * <p>The controllers compiled into Settings are created by the generated
+ * {@code GeneratedPreferenceControllerRegistry}, which calls their constructors directly. Other
+ * controllers fall back to reflection, and the constructors found are cached so each class is
+ * only looked up once.
+ */
+public final class PreferenceControllerRegistry {
+
+    private static final String TAG = "PrefCtrlRegistry";
+
+    /** The controller has a constructor taking a {@link Context} only. */
+    static final int CONTEXT_CONSTRUCTOR = 1;
+    /** The controller has a constructor taking a {@link Context} and a preference key. */
+    static final int KEY_CONSTRUCTOR = 1 << 1;
+
+    // Key: binary class name of a controller unknown to the generated registry
+    private static final Map<String, ReflectiveEntry> sReflectiveEntries =
+            new ConcurrentHashMap<>();
+
+    private PreferenceControllerRegistry() {
+    }
+
+    /**
+     * Instantiates {@code controllerName}, preferring its {@link Context}-only constructor and
+     * falling back to the one taking {@code key} when there is none or it fails.
+     *
+     * @param context        context of the controller
+     * @param controllerName binary class name of the {@link BasePreferenceController}
+     * @param key            attribute android:key of the {@link androidx.preference.Preference}
+     * @param isWorkProfile  is this controller only for work profile user? Only applies to
+     *                       controllers created with the key
+     * @throws IllegalStateException if the controller cannot be created
+     */
+    public static BasePreferenceController createInstance(Context context, String controllerName,
+            @Nullable String key, boolean isWorkProfile) {
+        final int constructors = getConstructors(controllerName);
+        if ((constructors & CONTEXT_CONSTRUCTOR) != 0) {
+            try {
+                return createInstance(context, controllerName);
+            } catch (IllegalStateException e) {
+                if ((constructors & KEY_CONSTRUCTOR) == 0) {
+                    throw e;
+                }
+                Log.d(TAG, "Context-only controller failed, retrying with key: "
+                        + controllerName);
+            }
+        }
+        if (TextUtils.isEmpty(key)) {
+            throw new IllegalStateException(
+                    "Controller requires key but it's not defined: " + controllerName);
+        }
+        final BasePreferenceController controller = createInstance(context, controllerName, key);
+        controller.setForWork(isWorkProfile);
+        return controller;
+    }
+
+    /**
+     * Instantiates {@code controllerName} with its {@link Context}-only constructor.
+     *
+     * @throws IllegalStateException if the controller has no such constructor
+     */
+    static BasePreferenceController createInstance(Context context, String controllerName) {
+        final ReflectiveEntry entry = getReflectiveEntry(controllerName);
+        if (entry == null) {
+            final BasePreferenceController controller = construct(controllerName,
+                    () -> GeneratedPreferenceControllerRegistry.newInstance(context,
+                            controllerName));
+            if (controller == null) {
+                throw new IllegalStateException(
+                        "Invalid preference controller: " + controllerName);
+            }
+            return controller;
+        }
+        if (entry.mContextConstructor == null) {
+            throw new IllegalStateException("Invalid preference controller: " + controllerName);
+        }
+        return newInstance(entry.mContextConstructor, context);
+    }
+
+    /**
+     * Instantiates {@code controllerName} with its constructor taking {@code key}.
+     *
+     * @throws IllegalStateException if the controller has no such constructor
+     */
+    static BasePreferenceController createInstance(Context context, String controllerName,
+            String key) {
+        final ReflectiveEntry entry = getReflectiveEntry(controllerName);
+        if (entry == null) {
+            final BasePreferenceController controller = construct(controllerName,
+                    () -> GeneratedPreferenceControllerRegistry.newInstance(context,
+                            controllerName, key));
+            if (controller == null) {
+                throw new IllegalStateException(
+                        "Invalid preference controller: " + controllerName);
+            }
+            return controller;
+        }
+        if (entry.mKeyConstructor == null) {
+            throw new IllegalStateException("Invalid preference controller: " + controllerName);
+        }
+        return newInstance(entry.mKeyConstructor, context, key);
+    }
+
+    @VisibleForTesting
+    static boolean isCreatedThroughReflection(String controllerName) {
+        return sReflectiveEntries.containsKey(controllerName);
+    }
+
+    private static int getConstructors(String controllerName) {
+        final int constructors = GeneratedPreferenceControllerRegistry.getConstructors(
+                controllerName);
+        if (constructors != 0) {
+            return constructors;
+        }
+        return getReflectiveEntry(controllerName).getConstructors();
+    }
+
+    /** Returns the reflective entry of {@code controllerName}, or null if it is generated. */
+    @Nullable
+    private static ReflectiveEntry getReflectiveEntry(String controllerName) {
+        ReflectiveEntry entry = sReflectiveEntries.get(controllerName);
+        if (entry == null) {
+            if (GeneratedPreferenceControllerRegistry.getConstructors(controllerName) != 0) {
+                return null;
+            }
+            entry = createReflectiveEntry(controllerName);
+            sReflectiveEntries.putIfAbsent(controllerName, entry);
+        }
+        return entry;
+    }
+
+    private static ReflectiveEntry createReflectiveEntry(String controllerName) {
+        final Class<?> clazz;
+        try {
+            clazz = Class.forName(controllerName);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Invalid preference controller: " + controllerName, e);
+        }
+        if (!BasePreferenceController.class.isAssignableFrom(clazz)) {
+            throw new IllegalStateException("Invalid preference controller: " + controllerName);
+        }
+        Log.d(TAG, "Creating controller through reflection: " + controllerName);
+        Constructor<?> contextConstructor = null;
+        Constructor<?> keyConstructor = null;
+        // Looks up the constructors without throwing, unlike Class#getConstructor().
+        for (Constructor<?> constructor : clazz.getConstructors()) {
+            final Class<?>[] params = constructor.getParameterTypes();
+            if (params.length == 1 && params[0] == Context.class) {
+                contextConstructor = constructor;
+            } else if (params.length == 2 && params[0] == Context.class
+                    && params[1] == String.class) {
+                keyConstructor = constructor;
+            }
+        }
+        if (contextConstructor == null && keyConstructor == null) {
+            throw new IllegalStateException("Invalid preference controller: " + controllerName);
+        }
+        return new ReflectiveEntry(contextConstructor, keyConstructor);
+    }
+
+    /**
+     * Runs a generated constructor, reporting its failures as {@link IllegalStateException} like
+     * the reflective {@link BasePreferenceController#createInstance} did.
+     */
+    @Nullable
+    private static BasePreferenceController construct(String controllerName,
+            Supplier<BasePreferenceController> constructor) {
+        try {
+            return constructor.get();
+        } catch (IllegalStateException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Invalid preference controller: " + controllerName, e);
+        }
+    }
+
+    private static BasePreferenceController newInstance(Constructor<?> constructor,
+            Object... params) {
+        try {
+            return (BasePreferenceController) constructor.newInstance(params);
+        } catch (InstantiationException | IllegalAccessException | IllegalArgumentException
+                | InvocationTargetException e) {
+            throw new IllegalStateException(
+                    "Invalid preference controller: " + constructor.getName(), e);
+        }
+    }
+
+    private static class ReflectiveEntry {
+        @Nullable
+        final Constructor<?> mContextConstructor;
+        @Nullable
+        final Constructor<?> mKeyConstructor;
+
+        ReflectiveEntry(@Nullable Constructor<?> contextConstructor,
+                @Nullable Constructor<?> keyConstructor) {
+            mContextConstructor = contextConstructor;
+            mKeyConstructor = keyConstructor;
+        }
+
+        int getConstructors() {
+            return (mContextConstructor != null ? CONTEXT_CONSTRUCTOR : 0)
+                    | (mKeyConstructor != null ? KEY_CONSTRUCTOR : 0);
+        }
+    }
+}
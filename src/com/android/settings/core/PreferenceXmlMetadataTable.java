@@ -0,0 +1,415 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_APPEND;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_BOOL_SETTING_FIELD;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_CONTROLLER;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_FOR_WORK;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_HIGHLIGHTABLE_MENU_KEY;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_ICON;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_KEY;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_KEYWORDS;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_PREF_TYPE;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_SEARCHABLE;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_SUMMARY;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_TITLE;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_UNAVAILABLE_SLICE_SUBTITLE;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_USER_RESTRICTION;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.res.Configuration;
+import android.os.Build;
+import android.os.Bundle;
+import android.text.TextUtils;
+import android.util.ArrayMap;
+import android.util.AtomicFile;
+import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact, memory-mapped table of the metadata extracted from preference xml resources.
+ *
+ * <p>Resource ids and resolved strings only exist once the APK is linked, so the table is
+ * generated on device: the first {@link PreferenceXmlParserUtils#extractMetadata} call for an xml
+ * parses it and records every field, later calls (and later processes) read the record back
+ * from the mapped file instead of parsing xml and resolving {@code TypedArray}s again. The table
+ * is keyed by APK version, build fingerprint, runtime resource overlays and the configuration of
+ * the application, and is rebuilt whenever any of them changes. Contexts with an overridden
+ * configuration are not served by the table, so they cannot make it reload back and forth.
+ *
+ * <p>File layout: header (magic, format version, table key), a string pool, then for each xml
+ * resource its id, record count and fixed-size records that index into the string pool.
+ */
+public class PreferenceXmlMetadataTable {
+
+    private static final String TAG = "PrefXmlMetadataTable";
+
+    private static final int MAGIC = 0x50584d54; // PXMT
+    private static final int FORMAT_VERSION = 2;
+    @VisibleForTesting
+    static final String TABLE_FILE_NAME = "preference_xml_metadata.bin";
+
+    private static final int NO_STRING = -1;
+    private static final int FLAG_SEARCHABLE = 1;
+    private static final int FLAG_APPEND = 1 << 1;
+    private static final int FLAG_FOR_WORK = 1 << 2;
+
+    // Metadata stored as string pool indices, in record order.
+    private static final String[] STRING_FIELDS = {
+            METADATA_PREF_TYPE,
+            METADATA_KEY,
+            METADATA_CONTROLLER,
+            METADATA_BOOL_SETTING_FIELD,
+            METADATA_TITLE,
+            METADATA_SUMMARY,
+            METADATA_KEYWORDS,
+            METADATA_UNAVAILABLE_SLICE_SUBTITLE,
+            METADATA_HIGHLIGHTABLE_MENU_KEY,
+            METADATA_USER_RESTRICTION,
+    };
+    // String indices + icon res id + boolean flags.
+    private static final int RECORD_SIZE = STRING_FIELDS.length * Integer.BYTES + Integer.BYTES + 1;
+
+    private static PreferenceXmlMetadataTable sInstance;
+
+    private final AtomicFile mFile;
+    private final String mPackageName;
+    // Decoded or freshly parsed entries, key: xml res id.
+    private final SparseArray<List<Bundle>> mEntries = new SparseArray<>();
+    // Offsets of the entries still only present in the mapped file, key: xml res id.
+    private final SparseIntArray mMappedOffsets = new SparseIntArray();
+    private final SparseIntArray mMappedCounts = new SparseIntArray();
+
+    private ByteBuffer mBuffer;
+    private String[] mStringPool;
+    private String mPackageKey;
+    private ApplicationInfo mOverlayKeyInfo;
+    private String mOverlayKey;
+    private String mTableKey;
+    private boolean mWriteScheduled;
+
+    /**
+     * Returns the process-wide table, or null if {@code context} has no application context to
+     * host it (e.g. mock contexts).
+     */
+    @Nullable
+    public static synchronized PreferenceXmlMetadataTable getInstance(Context context) {
+        if (sInstance == null) {
+            final Context appContext = context.getApplicationContext();
+            if (appContext == null) {
+                return null;
+            }
+            sInstance = new PreferenceXmlMetadataTable(
+                    new File(appContext.getNoBackupFilesDir(), TABLE_FILE_NAME),
+                    appContext.getPackageName());
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    static synchronized void resetInstance() {
+        sInstance = null;
+    }
+
+    @VisibleForTesting
+    PreferenceXmlMetadataTable(File file, String packageName) {
+        mFile = new AtomicFile(file);
+        mPackageName = packageName;
+    }
+
+    /**
+     * Returns whether the table can serve xml resources loaded through {@code context}. Contexts
+     * of other packages resolve different resources, and contexts whose configuration differs
+     * from the application's resolve different strings, so they always go through the parser.
+     */
+    public boolean isSupported(Context context) {
+        if (context == null || !TextUtils.equals(mPackageName, context.getPackageName())) {
+            return false;
+        }
+        final Context appContext = context.getApplicationContext();
+        return appContext != null && (appContext == context
+                || buildConfigurationKey(appContext).equals(buildConfigurationKey(context)));
+    }
+
+    /**
+     * Returns the full metadata of {@code xmlResId}, or null if it is not in the table yet. The
+     * returned bundles are shared and must not be modified.
+     */
+    @Nullable
+    public synchronized List<Bundle> get(Context context, int xmlResId) {
+        ensureLoaded(context);
+        final List<Bundle> cached = mEntries.get(xmlResId);
+        if (cached != null) {
+            return cached;
+        }
+        final int index = mMappedOffsets.indexOfKey(xmlResId);
+        if (index < 0) {
+            return null;
+        }
+        final int offset = mMappedOffsets.valueAt(index);
+        final int count = mMappedCounts.get(xmlResId);
+        mMappedOffsets.removeAt(index);
+        mMappedCounts.delete(xmlResId);
+        try {
+            final List<Bundle> decoded = decodeRecords(offset, count);
+            mEntries.put(xmlResId, decoded);
+            return decoded;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            Log.w(TAG, "Corrupted record for " + xmlResId + ", falling back to xml", e);
+            return null;
+        }
+    }
+
+    /**
+     * Adds the full metadata of {@code xmlResId} and schedules a write of the table.
+     */
+    public synchronized void put(Context context, int xmlResId, List<Bundle> metadata) {
+        ensureLoaded(context);
+        mEntries.put(xmlResId, metadata);
+        if (!mWriteScheduled) {
+            mWriteScheduled = true;
+            ThreadUtils.postOnBackgroundThread(this::write);
+        }
+    }
+
+    @VisibleForTesting
+    synchronized void write() {
+        mWriteScheduled = false;
+        // Pull every mapped record into memory before the file is replaced.
+        while (mMappedOffsets.size() > 0) {
+            get(null /* context */, mMappedOffsets.keyAt(0));
+        }
+        final Map<String, Integer> stringPool = new ArrayMap<>();
+        final List<String> strings = new ArrayList<>();
+        for (int i = 0; i < mEntries.size(); i++) {
+            for (Bundle bundle : mEntries.valueAt(i)) {
+                for (String field : STRING_FIELDS) {
+                    final String value = bundle.getString(field);
+                    if (value != null && !stringPool.containsKey(value)) {
+                        stringPool.put(value, strings.size());
+                        strings.add(value);
+                    }
+                }
+            }
+        }
+
+        FileOutputStream fos = null;
+        try {
+            fos = mFile.startWrite();
+            final DataOutputStream out = new DataOutputStream(fos);
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, mTableKey);
+            out.writeInt(strings.size());
+            for (String value : strings) {
+                writeString(out, value);
+            }
+            out.writeInt(mEntries.size());
+            for (int i = 0; i < mEntries.size(); i++) {
+                final List<Bundle> records = mEntries.valueAt(i);
+                out.writeInt(mEntries.keyAt(i));
+                out.writeInt(records.size());
+                for (Bundle bundle : records) {
+                    for (String field : STRING_FIELDS) {
+                        final String value = bundle.getString(field);
+                        out.writeInt(value == null ? NO_STRING : stringPool.get(value));
+                    }
+                    out.writeInt(bundle.getInt(METADATA_ICON));
+                    int flags = 0;
+                    if (bundle.getBoolean(METADATA_SEARCHABLE, true)) {
+                        flags |= FLAG_SEARCHABLE;
+                    }
+                    if (bundle.getBoolean(METADATA_APPEND)) {
+                        flags |= FLAG_APPEND;
+                    }
+                    if (bundle.getBoolean(METADATA_FOR_WORK)) {
+                        flags |= FLAG_FOR_WORK;
+                    }
+                    out.writeByte(flags);
+                }
+            }
+            out.flush();
+            mFile.finishWrite(fos);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write preference metadata table", e);
+            if (fos != null) {
+                mFile.failWrite(fos);
+            }
+        }
+    }
+
+    private void ensureLoaded(@Nullable Context context) {
+        if (context == null) {
+            return;
+        }
+        if (mPackageKey == null) {
+            // The APK cannot change while this process is alive.
+            mPackageKey = buildPackageKey(context);
+        }
+        final String tableKey = mPackageKey + ";" + getOverlayKey(context) + ";"
+                + buildConfigurationKey(context);
+        if (tableKey.equals(mTableKey)) {
+            return;
+        }
+        mTableKey = tableKey;
+        mEntries.clear();
+        mMappedOffsets.clear();
+        mMappedCounts.clear();
+        mBuffer = null;
+        mStringPool = null;
+        final File file = mFile.getBaseFile();
+        if (!file.exists()) {
+            return;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel()) {
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION
+                    || !tableKey.equals(readString(buffer))) {
+                Log.i(TAG, "Discarding stale preference metadata table");
+                return;
+            }
+            final String[] stringPool = new String[buffer.getInt()];
+            for (int i = 0; i < stringPool.length; i++) {
+                stringPool[i] = readString(buffer);
+            }
+            final int resCount = buffer.getInt();
+            for (int i = 0; i < resCount; i++) {
+                final int resId = buffer.getInt();
+                final int count = buffer.getInt();
+                mMappedOffsets.put(resId, buffer.position());
+                mMappedCounts.put(resId, count);
+                buffer.position(buffer.position() + count * RECORD_SIZE);
+            }
+            mBuffer = buffer;
+            mStringPool = stringPool;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Failed to map preference metadata table", e);
+            mMappedOffsets.clear();
+            mMappedCounts.clear();
+        }
+    }
+
+    private List<Bundle> decodeRecords(int offset, int count) {
+        final ByteBuffer buffer = mBuffer.duplicate();
+        buffer.position(offset);
+        final List<Bundle> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final Bundle bundle = new Bundle();
+            for (String field : STRING_FIELDS) {
+                final int index = buffer.getInt();
+                bundle.putString(field, index == NO_STRING ? null : mStringPool[index]);
+            }
+            bundle.putInt(METADATA_ICON, buffer.getInt());
+            final int flags = buffer.get();
+            bundle.putBoolean(METADATA_SEARCHABLE, (flags & FLAG_SEARCHABLE) != 0);
+            bundle.putBoolean(METADATA_APPEND, (flags & FLAG_APPEND) != 0);
+            bundle.putBoolean(METADATA_FOR_WORK, (flags & FLAG_FOR_WORK) != 0);
+            records.add(bundle);
+        }
+        return records;
+    }
+
+    private static String buildPackageKey(Context context) {
+        long versionCode = 0;
+        long lastUpdateTime = 0;
+        try {
+            final PackageInfo info = context.getPackageManager()
+                    .getPackageInfo(context.getPackageName(), 0 /* flags */);
+            versionCode = info.getLongVersionCode();
+            lastUpdateTime = info.lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.w(TAG, "Cannot find own package info", e);
+        }
+        return versionCode + ";" + lastUpdateTime + ";" + Build.FINGERPRINT;
+    }
+
+    private String getOverlayKey(Context context) {
+        // The application info is replaced when the overlays of the package change.
+        final ApplicationInfo info = context.getApplicationInfo();
+        if (info != mOverlayKeyInfo) {
+            mOverlayKeyInfo = info;
+            mOverlayKey = buildOverlayKey(info);
+        }
+        return mOverlayKey;
+    }
+
+    @VisibleForTesting
+    static String buildOverlayKey(@Nullable ApplicationInfo info) {
+        final StringBuilder key = new StringBuilder();
+        if (info != null) {
+            appendOverlayPaths(key, info.resourceDirs);
+            appendOverlayPaths(key, info.overlayPaths);
+        }
+        return key.toString();
+    }
+
+    private static void appendOverlayPaths(StringBuilder key, @Nullable String[] paths) {
+        if (paths == null) {
+            return;
+        }
+        for (String path : paths) {
+            // The modification time catches an overlay which is updated in place.
+            key.append(path).append(':').append(new File(path).lastModified()).append(',');
+        }
+    }
+
+    @VisibleForTesting
+    static String buildConfigurationKey(Context context) {
+        final Configuration config = context.getResources().getConfiguration();
+        // Only the qualifiers that preference xml and strings are expected to vary on.
+        return config.getLocales().toLanguageTags() + ";" + config.mcc + ";" + config.mnc + ";"
+                + config.smallestScreenWidthDp + ";" + config.screenLayout + ";"
+                + config.uiMode + ";" + config.densityDpi;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -24,10 +24,12 @@ import android.os.Bundle;
 import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.util.SparseArray;
 import android.util.Xml;
 
 import androidx.annotation.IntDef;
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.R;
 
@@ -111,20 +113,117 @@ public class PreferenceXmlParserUtils {
     public static final String METADATA_HIGHLIGHTABLE_MENU_KEY = "highlightable_menu_key";
     public static final String METADATA_USER_RESTRICTION = "userRestriction";
 
+    private static final SparseArray<String> FLAG_TO_METADATA = new SparseArray<>();
+
+    static {
+        FLAG_TO_METADATA.put(MetadataFlag.FLAG_NEED_PREF_TYPE, METADATA_PREF_TYPE);
+        FLAG_TO_METADATA.put(MetadataFlag.FLAG_NEED_KEY, METADATA_KEY);
+        FLAG_TO_METADATA.put(MetadataFlag.FLAG_NEED_PREF_CONTROLLER, METADATA_CONTROLLER);
+        FLAG_TO_METADATA.put(MetadataFlag.FLAG_NEED_BOOL_SETTING_FIELD,
+                METADATA_BOOL_SETTING_FIELD);
+        FLAG_TO_METADATA.put(MetadataFlag.FLAG_NEED_PREF_TITLE, METADATA_TITLE);
+        FLAG_TO_METADATA.put(MetadataFlag.FLAG_NEED_PREF_SUMMARY, METADATA_SUMMARY);
+        FLAG_TO_METADATA.put(MetadataFlag.FLAG_NEED_PREF_ICON, METADATA_ICON);
+        FLAG_TO_METADATA.put(MetadataFlag.FLAG_NEED_KEYWORDS, METADATA_KEYWORDS);
+        FLAG_TO_METADATA.put(MetadataFlag.FLAG_NEED_SEARCHABLE, METADATA_SEARCHABLE);
+        FLAG_TO_METADATA.put(MetadataFlag.FLAG_NEED_PREF_APPEND, METADATA_APPEND);
+        FLAG_TO_METADATA.put(MetadataFlag.FLAG_UNAVAILABLE_SLICE_SUBTITLE,
+                METADATA_UNAVAILABLE_SLICE_SUBTITLE);
+        FLAG_TO_METADATA.put(MetadataFlag.FLAG_FOR_WORK, METADATA_FOR_WORK);
+        FLAG_TO_METADATA.put(MetadataFlag.FLAG_NEED_HIGHLIGHTABLE_MENU_KEY,
+                METADATA_HIGHLIGHTABLE_MENU_KEY);
+        FLAG_TO_METADATA.put(MetadataFlag.FLAG_NEED_USER_RESTRICTION, METADATA_USER_RESTRICTION);
+    }
+
+    /**
+     * Every {@link MetadataFlag}, used to fill {@link PreferenceXmlMetadataTable} so one parse
+     * can serve any later combination of flags.
+     */
+    @VisibleForTesting
+    static final int ALL_METADATA_FLAGS = MetadataFlag.FLAG_INCLUDE_PREF_SCREEN
+            | MetadataFlag.FLAG_NEED_KEY
+            | MetadataFlag.FLAG_NEED_PREF_TYPE
+            | MetadataFlag.FLAG_NEED_PREF_CONTROLLER
+            | MetadataFlag.FLAG_NEED_BOOL_SETTING_FIELD
+            | MetadataFlag.FLAG_NEED_PREF_TITLE
+            | MetadataFlag.FLAG_NEED_PREF_SUMMARY
+            | MetadataFlag.FLAG_NEED_PREF_ICON
+            | MetadataFlag.FLAG_NEED_KEYWORDS
+            | MetadataFlag.FLAG_NEED_SEARCHABLE
+            | MetadataFlag.FLAG_NEED_PREF_APPEND
+            | MetadataFlag.FLAG_UNAVAILABLE_SLICE_SUBTITLE
+            | MetadataFlag.FLAG_FOR_WORK
+            | MetadataFlag.FLAG_NEED_HIGHLIGHTABLE_MENU_KEY
+            | MetadataFlag.FLAG_NEED_USER_RESTRICTION;
+
     /**
      * Extracts metadata from preference xml and put them into a {@link Bundle}.
      *
+     * <p>Results are served from {@link PreferenceXmlMetadataTable} when possible, the xml is
+     * only parsed the first time a resource is seen for the current APK and configuration.
+     *
      * @param xmlResId xml res id of a preference screen
      * @param flags    Should be one or more of {@link MetadataFlag}.
      */
     @NonNull
     public static List<Bundle> extractMetadata(Context context, @XmlRes int xmlResId, int flags)
             throws IOException, XmlPullParserException {
-        final List<Bundle> metadata = new ArrayList<>();
         if (xmlResId <= 0) {
             Log.d(TAG, xmlResId + " is invalid.");
-            return metadata;
+            return new ArrayList<>();
+        }
+        final PreferenceXmlMetadataTable table = PreferenceXmlMetadataTable.getInstance(context);
+        if (table == null || !table.isSupported(context)) {
+            return parseMetadata(context, xmlResId, flags);
         }
+        List<Bundle> allMetadata = table.get(context, xmlResId);
+        if (allMetadata == null) {
+            allMetadata = parseMetadata(context, xmlResId, ALL_METADATA_FLAGS);
+            table.put(context, xmlResId, allMetadata);
+        }
+        return filterMetadata(allMetadata, flags);
+    }
+
+    /**
+     * Returns copies of {@code allMetadata}, extracted with {@link #ALL_METADATA_FLAGS}, that
+     * only contain what {@link #parseMetadata} would have returned for {@code flags}.
+     */
+    @VisibleForTesting
+    static List<Bundle> filterMetadata(List<Bundle> allMetadata, int flags) {
+        final boolean hasPrefScreenFlag = hasFlag(flags, MetadataFlag.FLAG_INCLUDE_PREF_SCREEN);
+        final List<Bundle> metadata = new ArrayList<>(allMetadata.size());
+        for (Bundle all : allMetadata) {
+            final String nodeName = all.getString(METADATA_PREF_TYPE);
+            if (!hasPrefScreenFlag && TextUtils.equals(PREF_SCREEN_TAG, nodeName)) {
+                continue;
+            }
+            final Bundle preferenceMetadata = new Bundle();
+            for (int i = 0; i < FLAG_TO_METADATA.size(); i++) {
+                final int flag = FLAG_TO_METADATA.keyAt(i);
+                if (!hasFlag(flags, flag)
+                        || (flag == MetadataFlag.FLAG_NEED_PREF_APPEND && !hasPrefScreenFlag)) {
+                    continue;
+                }
+                final String key = FLAG_TO_METADATA.valueAt(i);
+                if (flag == MetadataFlag.FLAG_NEED_PREF_ICON) {
+                    preferenceMetadata.putInt(key, all.getInt(key));
+                } else if (flag == MetadataFlag.FLAG_NEED_SEARCHABLE
+                        || flag == MetadataFlag.FLAG_NEED_PREF_APPEND
+                        || flag == MetadataFlag.FLAG_FOR_WORK) {
+                    preferenceMetadata.putBoolean(key, all.getBoolean(key));
+                } else {
+                    preferenceMetadata.putString(key, all.getString(key));
+                }
+            }
+            metadata.add(preferenceMetadata);
+        }
+        return metadata;
+    }
+
+    @VisibleForTesting
+    static List<Bundle> parseMetadata(Context context, @XmlRes int xmlResId, int flags)
+            throws IOException, XmlPullParserException {
+        final List<Bundle> metadata = new ArrayList<>();
         final XmlResourceParser parser = context.getResources().getXml(xmlResId);
 
         int type;
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.instrumentation;
+
+import android.annotation.StringDef;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.text.TextUtils;
+import android.util.ArrayMap;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide wall time of the work done to show Settings pages, such as creating and updating
+ * the preference controllers, parsing the xml and binding the injected tiles.
+ *
+ * <p>Every timed stage is also emitted as a trace section, so pages can be profiled with Perfetto
+ * on production builds by enabling the app tracing of Settings. The recorded times are dumped by
+ * SettingsDumpService, and stages longer than a frame are logged.
+ */
+public class PageTraceMetrics {
+
+    private static final String TAG = "PageTraceMetrics";
+
+    @Retention(RetentionPolicy.SOURCE)
+    @StringDef({STAGE_PARSE_XML, STAGE_INFLATE_XML, STAGE_CONSTRUCT, STAGE_DISPLAY,
+            STAGE_AVAILABILITY, STAGE_UPDATE_STATE, STAGE_LOAD_STATE, STAGE_BIND_TILE})
+    public @interface Stage {
+    }
+
+    /** Extracting the controller metadata from the preference xml. */
+    public static final String STAGE_PARSE_XML = "parseXml";
+    /** Inflating the preference xml into the screen. */
+    public static final String STAGE_INFLATE_XML = "inflateXml";
+    /** Constructing a controller. */
+    public static final String STAGE_CONSTRUCT = "construct";
+    /** {@code displayPreference} of a controller. */
+    public static final String STAGE_DISPLAY = "displayPreference";
+    /** {@code isAvailable}, i.e. {@code getAvailabilityStatus}, of a controller. */
+    public static final String STAGE_AVAILABILITY = "getAvailabilityStatus";
+    /** {@code updateState} of a controller. */
+    public static final String STAGE_UPDATE_STATE = "updateState";
+    /** {@code loadState} of a controller, on a background thread. */
+    public static final String STAGE_LOAD_STATE = "loadState";
+    /** Binding an injected tile to its preference. */
+    public static final String STAGE_BIND_TILE = "bindTile";
+
+    private static final PageTraceMetrics INSTANCE = new PageTraceMetrics();
+
+    // Longer than a frame
+    @VisibleForTesting
+    static final long SLOW_MICROS = 16_000L;
+    private static final int MAX_PAGES = 32;
+    // Trace.beginSection() rejects longer names.
+    private static final int MAX_SECTION_NAME_LENGTH = 127;
+
+    // Key: page name, value: stats of its stages
+    private final LruCache<String, PageStats> mPages = new LruCache<>(MAX_PAGES);
+
+    public static PageTraceMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    @VisibleForTesting
+    PageTraceMetrics() {
+    }
+
+    /**
+     * Starts timing {@code stage} of {@code name}, and begins its trace section. Must be followed
+     * by {@link #end} on the same thread, in a {@code finally} block if the work may throw.
+     *
+     * @return the start time to pass to {@link #end}
+     */
+    public long begin(@Stage String stage, String name) {
+        // Not guarded by Trace.isEnabled(), which end() could see change in between and leave a
+        // section open; Trace checks the tag itself.
+        Trace.beginSection(getSectionName(stage, name));
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    /**
+     * Ends the trace section started by {@link #begin}, and records the time of {@code stage} of
+     * {@code name} on {@code page}.
+     *
+     * @param page      page the work is done for, or {@code null} to only trace it
+     * @param startTime the value returned by {@link #begin}
+     */
+    public void end(@Nullable String page, @Stage String stage, String name, long startTime) {
+        final long durationUs = (SystemClock.elapsedRealtimeNanos() - startTime) / 1000;
+        Trace.endSection();
+        if (durationUs > SLOW_MICROS) {
+            Log.w(TAG, String.format("Slow %s of %s on %s in %dms", stage, name, page,
+                    durationUs / 1000));
+        }
+        if (page != null) {
+            record(page, stage, name, durationUs);
+        }
+    }
+
+    /** Returns the name used to trace {@code object}, typically a controller. */
+    public static String getName(Object object) {
+        final String name = object.getClass().getSimpleName();
+        return TextUtils.isEmpty(name) ? object.getClass().getName() : name;
+    }
+
+    @VisibleForTesting
+    synchronized void record(String page, String stage, String name, long durationUs) {
+        PageStats pageStats = mPages.get(page);
+        if (pageStats == null) {
+            pageStats = new PageStats();
+            mPages.put(page, pageStats);
+        }
+        Map<String, Stats> stageStats = pageStats.mStages.get(stage);
+        if (stageStats == null) {
+            stageStats = new ArrayMap<>();
+            pageStats.mStages.put(stage, stageStats);
+        }
+        Stats stats = stageStats.get(name);
+        if (stats == null) {
+            stats = new Stats();
+            stageStats.put(name, stats);
+        }
+        stats.mCount++;
+        stats.mTotalUs += durationUs;
+        stats.mMaxUs = Math.max(stats.mMaxUs, durationUs);
+    }
+
+    /**
+     * Returns the recorded times per page and stage, the slowest first.
+     */
+    public synchronized JSONObject dump() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        final JSONArray pages = new JSONArray();
+        for (Map.Entry<String, PageStats> pageEntry : mPages.snapshot().entrySet()) {
+            final JSONArray stages = new JSONArray();
+            for (Map.Entry<String, Map<String, Stats>> stageEntry :
+                    pageEntry.getValue().mStages.entrySet()) {
+                final List<Map.Entry<String, Stats>> entries =
+                        new ArrayList<>(stageEntry.getValue().entrySet());
+                entries.sort((a, b) -> Long.compare(b.getValue().mTotalUs, a.getValue().mTotalUs));
+                long stageTotalUs = 0;
+                final JSONArray names = new JSONArray();
+                for (Map.Entry<String, Stats> entry : entries) {
+                    final Stats stats = entry.getValue();
+                    stageTotalUs += stats.mTotalUs;
+                    final JSONObject item = new JSONObject();
+                    item.put("name", entry.getKey());
+                    item.put("count", stats.mCount);
+                    item.put("avgUs", stats.mTotalUs / stats.mCount);
+                    item.put("maxUs", stats.mMaxUs);
+                    names.put(item);
+                }
+                final JSONObject stage = new JSONObject();
+                stage.put("stage", stageEntry.getKey());
+                stage.put("totalUs", stageTotalUs);
+                stage.put("items", names);
+                stages.put(stage);
+            }
+            final JSONObject page = new JSONObject();
+            page.put("page", pageEntry.getKey());
+            page.put("stages", stages);
+            pages.put(page);
+        }
+        obj.put("pages", pages);
+        return obj;
+    }
+
+    private static String getSectionName(String stage, String name) {
+        final String sectionName = "Settings:" + stage + ":" + name;
+        return sectionName.length() > MAX_SECTION_NAME_LENGTH
+                ? sectionName.substring(0, MAX_SECTION_NAME_LENGTH) : sectionName;
+    }
+
+    private static class PageStats {
+        // Key: stage, value: stats by controller or tile name
+        final Map<String, Map<String, Stats>> mStages = new ArrayMap<>();
+    }
+
+    private static class Stats {
+        int mCount;
+        long mTotalUs;
+        long mMaxUs;
+    }
+}
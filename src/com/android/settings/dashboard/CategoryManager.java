@@ -37,12 +37,14 @@ import com.android.settingslib.drawer.TileUtils;
 import com.google.android.setupcompat.util.WizardManagerHelper;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class CategoryManager {
 
@@ -52,13 +54,20 @@ public class CategoryManager {
     private static CategoryManager sInstance;
     private final InterestingConfigChanges mInterestingConfigChanges;
 
-    // Tile cache (key: <packageName, activityName>, value: tile)
+    // Guards loading and mutating categories. Readers never take it once a snapshot exists.
+    private final Object mLoadLock = new Object();
+
+    // Tile cache (key: <packageName, activityName>, value: tile), guarded by mLoadLock.
     private final Map<Pair<String, String>, Tile> mTileByComponentCache;
 
-    // Tile cache (key: category key, value: category)
-    private final Map<String, DashboardCategory> mCategoryByKeyMap;
+    // Categories persisted across process restarts, guarded by mLoadLock.
+    private final PersistentTileCache mPersistentTileCache;
+    // Whether mTileByComponentCache was filled from mPersistentTileCache, guarded by mLoadLock.
+    private boolean mRestoredFromDisk;
 
-    private List<DashboardCategory> mCategories;
+    // The last loaded categories. Replaced as a whole on reload, so readers keep using the previous
+    // snapshot instead of being serialized behind a full reload.
+    private volatile CategorySnapshot mSnapshot;
 
     public static CategoryManager get(Context context) {
         if (sInstance == null) {
@@ -69,63 +78,84 @@ public class CategoryManager {
 
     CategoryManager(Context context) {
         mTileByComponentCache = new ArrayMap<>();
-        mCategoryByKeyMap = new ArrayMap<>();
+        mPersistentTileCache = new PersistentTileCache(context);
         mInterestingConfigChanges = new InterestingConfigChanges();
         mInterestingConfigChanges.applyNewConfig(context.getResources());
     }
 
-    public synchronized DashboardCategory getTilesByCategory(Context context, String categoryKey) {
-        tryInitCategories(context);
-
-        return mCategoryByKeyMap.get(categoryKey);
+    /**
+     * Returns the category of {@code categoryKey}. Only that category is sorted and de-duplicated
+     * on first access, the other categories are left untouched until they are requested.
+     */
+    public DashboardCategory getTilesByCategory(Context context, String categoryKey) {
+        final CategorySnapshot snapshot = tryInitCategories(context);
+        if (snapshot == null) {
+            return null;
+        }
+        return snapshot.getCategory(context, categoryKey);
     }
 
-    public synchronized List<DashboardCategory> getCategories(Context context) {
+    public List<DashboardCategory> getCategories(Context context) {
         if (!WizardManagerHelper.isUserSetupComplete(context)) {
             return new ArrayList<>();
         }
-        tryInitCategories(context);
-        return mCategories;
+        final CategorySnapshot snapshot = tryInitCategories(context);
+        if (snapshot == null) {
+            return null;
+        }
+        snapshot.finalizeAllCategories(context);
+        return snapshot.mCategories;
     }
 
-    public synchronized void reloadAllCategories(Context context) {
-        final boolean forceClearCache = mInterestingConfigChanges.applyNewConfig(
-                context.getResources());
-        mCategories = null;
-        tryInitCategories(context, forceClearCache);
+    public void reloadAllCategories(Context context) {
+        synchronized (mLoadLock) {
+            final boolean forceClearCache = mInterestingConfigChanges.applyNewConfig(
+                    context.getResources());
+            loadCategoriesLocked(context, forceClearCache);
+        }
     }
 
     /**
      * Update category from deny list
      * @param tileDenylist
      */
-    public synchronized void updateCategoryFromDenylist(Set<ComponentName> tileDenylist) {
-        if (mCategories == null) {
-            Log.w(TAG, "Category is null, skipping denylist update");
-            return;
-        }
-        for (int i = 0; i < mCategories.size(); i++) {
-            DashboardCategory category = mCategories.get(i);
-            for (int j = 0; j < category.getTilesCount(); j++) {
-                Tile tile = category.getTile(j);
-                if (tileDenylist.contains(tile.getIntent().getComponent())) {
-                    category.removeTile(j--);
-                }
+    public void updateCategoryFromDenylist(Set<ComponentName> tileDenylist) {
+        synchronized (mLoadLock) {
+            final CategorySnapshot snapshot = mSnapshot;
+            if (snapshot == null) {
+                Log.w(TAG, "Category is null, skipping denylist update");
+                return;
             }
+            // Readers may still iterate the current snapshot, publish a filtered copy instead.
+            mSnapshot = snapshot.withoutTiles(tileDenylist);
+        }
+    }
+
+    @VisibleForTesting
+    void setCategories(List<DashboardCategory> categories) {
+        final Map<String, DashboardCategory> categoryByKeyMap = new ArrayMap<>();
+        for (DashboardCategory category : categories) {
+            categoryByKeyMap.put(category.key, category);
+        }
+        synchronized (mLoadLock) {
+            mSnapshot = new CategorySnapshot(categories, categoryByKeyMap);
         }
     }
 
     /** Return the current tile map */
-    public synchronized Map<ComponentName, Tile> getTileByComponentMap() {
+    public Map<ComponentName, Tile> getTileByComponentMap() {
         final Map<ComponentName, Tile> result = new ArrayMap<>();
-        if (mCategories == null) {
+        final CategorySnapshot snapshot = mSnapshot;
+        if (snapshot == null) {
             Log.w(TAG, "Category is null, no tiles");
             return result;
         }
-        mCategories.forEach(category -> {
-            for (int i = 0; i < category.getTilesCount(); i++) {
-                final Tile tile = category.getTile(i);
-                result.put(tile.getIntent().getComponent(), tile);
+        snapshot.mCategories.forEach(category -> {
+            synchronized (category) {
+                for (int i = 0; i < category.getTilesCount(); i++) {
+                    final Tile tile = category.getTile(i);
+                    result.put(tile.getIntent().getComponent(), tile);
+                }
             }
         });
         return result;
@@ -140,49 +170,91 @@ public class CategoryManager {
         }
     }
 
-    private synchronized void tryInitCategories(Context context) {
-        // Keep cached tiles by default. The cache is only invalidated when InterestingConfigChange
-        // happens.
-        tryInitCategories(context, false /* forceClearCache */);
+    private CategorySnapshot tryInitCategories(Context context) {
+        final CategorySnapshot snapshot = mSnapshot;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        if (!WizardManagerHelper.isUserSetupComplete(context)) {
+            // Don't init while setup wizard is still running.
+            return null;
+        }
+        synchronized (mLoadLock) {
+            if (mSnapshot == null) {
+                // Keep cached tiles by default. The cache is only invalidated when
+                // InterestingConfigChange happens.
+                loadCategoriesLocked(context, false /* forceClearCache */);
+            }
+            return mSnapshot;
+        }
     }
 
-    private synchronized void tryInitCategories(Context context, boolean forceClearCache) {
+    private void loadCategoriesLocked(Context context, boolean forceClearCache) {
         if (!WizardManagerHelper.isUserSetupComplete(context)) {
             // Don't init while setup wizard is still running.
             return;
         }
-        if (mCategories == null) {
-            final boolean firstLoading = mCategoryByKeyMap.isEmpty();
-            if (forceClearCache) {
+        final boolean firstLoading = mSnapshot == null;
+        if (forceClearCache) {
+            mTileByComponentCache.clear();
+            mPersistentTileCache.invalidate();
+        }
+        List<DashboardCategory> categories = null;
+        if (firstLoading && !forceClearCache) {
+            categories = restoreCategoriesLocked(context);
+        }
+        if (categories == null) {
+            if (mRestoredFromDisk) {
+                // Restored tiles are not keyed the way TileUtils keys them, start over.
                 mTileByComponentCache.clear();
+                mRestoredFromDisk = false;
             }
-            mCategoryByKeyMap.clear();
-            mCategories = TileUtils.getCategories(context, mTileByComponentCache);
-            for (DashboardCategory category : mCategories) {
-                mCategoryByKeyMap.put(category.key, category);
+            final int sequenceNumber = PersistentTileCache.getSequenceNumber(context);
+            categories = TileUtils.getCategories(context, mTileByComponentCache);
+            // Save before the tiles are moved around below.
+            mPersistentTileCache.save(context, categories, sequenceNumber);
+        }
+        final Map<String, DashboardCategory> categoryByKeyMap = new ArrayMap<>();
+        for (DashboardCategory category : categories) {
+            categoryByKeyMap.put(category.key, category);
+        }
+        backwardCompatCleanupForCategory(mTileByComponentCache, categoryByKeyMap);
+        mergeSecurityPrivacyKeys(context, mTileByComponentCache, categoryByKeyMap);
+        mSnapshot = new CategorySnapshot(categories, categoryByKeyMap);
+        if (firstLoading) {
+            logTiles(context);
+
+            final DashboardCategory homepageCategory =
+                    mSnapshot.getCategory(context, CategoryKey.CATEGORY_HOMEPAGE);
+            if (homepageCategory == null) {
+                return;
             }
-            backwardCompatCleanupForCategory(mTileByComponentCache, mCategoryByKeyMap);
-            mergeSecurityPrivacyKeys(context, mTileByComponentCache, mCategoryByKeyMap);
-            sortCategories(context, mCategoryByKeyMap);
-            filterDuplicateTiles(mCategoryByKeyMap);
-            if (firstLoading) {
-                logTiles(context);
-
-                final DashboardCategory homepageCategory = mCategoryByKeyMap.get(
-                        CategoryKey.CATEGORY_HOMEPAGE);
-                if (homepageCategory == null) {
-                    return;
-                }
-                for (Tile tile : homepageCategory.getTiles()) {
-                    final String key = tile.getKey(context);
-                    if (TextUtils.isEmpty(key)) {
-                        Log.w(TAG, "Key hint missing for homepage tile: " + tile.getTitle(context));
-                        continue;
-                    }
-                    HighlightableMenu.addMenuKey(key);
+            for (Tile tile : homepageCategory.getTiles()) {
+                final String key = tile.getKey(context);
+                if (TextUtils.isEmpty(key)) {
+                    Log.w(TAG, "Key hint missing for homepage tile: " + tile.getTitle(context));
+                    continue;
                 }
+                HighlightableMenu.addMenuKey(key);
+            }
+        }
+    }
+
+    private List<DashboardCategory> restoreCategoriesLocked(Context context) {
+        final List<DashboardCategory> categories = mPersistentTileCache.load(context);
+        if (categories == null) {
+            return null;
+        }
+        Log.d(TAG, "Restored " + categories.size() + " categories from tile cache");
+        mTileByComponentCache.clear();
+        for (DashboardCategory category : categories) {
+            for (Tile tile : category.getTiles()) {
+                mTileByComponentCache.put(
+                        new Pair<>(tile.getPackageName(), tile.getDescription()), tile);
             }
         }
+        mRestoredFromDisk = true;
+        return categories;
     }
 
     @VisibleForTesting
@@ -312,4 +384,79 @@ public class CategoryManager {
             }
         }
     }
+
+    /**
+     * Categories loaded by one {@link TileUtils#getCategories} pass. Sorting and de-duplication
+     * only touch one category, so they run lazily the first time each category is requested.
+     */
+    private class CategorySnapshot {
+        final List<DashboardCategory> mCategories;
+        final Map<String, DashboardCategory> mCategoryByKeyMap;
+        // Keys of the categories already sorted and de-duplicated.
+        final Set<String> mFinalizedKeys = ConcurrentHashMap.newKeySet();
+
+        CategorySnapshot(List<DashboardCategory> categories,
+                Map<String, DashboardCategory> categoryByKeyMap) {
+            mCategories = categories;
+            mCategoryByKeyMap = categoryByKeyMap;
+        }
+
+        DashboardCategory getCategory(Context context, String categoryKey) {
+            final DashboardCategory category = mCategoryByKeyMap.get(categoryKey);
+            if (category != null) {
+                finalizeCategory(context, category);
+            }
+            return category;
+        }
+
+        /**
+         * Returns a copy of this snapshot without the tiles of {@code tileDenylist}. The
+         * categories of this snapshot are left untouched.
+         */
+        CategorySnapshot withoutTiles(Set<ComponentName> tileDenylist) {
+            final Map<String, DashboardCategory> categoryByKeyMap = new ArrayMap<>();
+            final Set<String> finalizedKeys = new ArraySet<>();
+            for (DashboardCategory category : mCategoryByKeyMap.values()) {
+                final DashboardCategory copy = new DashboardCategory(category.key);
+                synchronized (category) {
+                    for (Tile tile : category.getTiles()) {
+                        if (!tileDenylist.contains(tile.getIntent().getComponent())) {
+                            copy.addTile(tile);
+                        }
+                    }
+                    // Removing tiles keeps a category sorted and free of duplicates.
+                    if (mFinalizedKeys.contains(category.key)) {
+                        finalizedKeys.add(category.key);
+                    }
+                }
+                categoryByKeyMap.put(category.key, copy);
+            }
+            final List<DashboardCategory> categories = new ArrayList<>(mCategories.size());
+            for (DashboardCategory category : mCategories) {
+                categories.add(categoryByKeyMap.get(category.key));
+            }
+            final CategorySnapshot snapshot = new CategorySnapshot(categories, categoryByKeyMap);
+            snapshot.mFinalizedKeys.addAll(finalizedKeys);
+            return snapshot;
+        }
+
+        void finalizeAllCategories(Context context) {
+            for (DashboardCategory category : mCategoryByKeyMap.values()) {
+                finalizeCategory(context, category);
+            }
+        }
+
+        private void finalizeCategory(Context context, DashboardCategory category) {
+            synchronized (category) {
+                if (mFinalizedKeys.contains(category.key)) {
+                    return;
+                }
+                final Map<String, DashboardCategory> single =
+                        Collections.singletonMap(category.key, category);
+                sortCategories(context, single);
+                filterDuplicateTiles(single);
+                mFinalizedKeys.add(category.key);
+            }
+        }
+    }
 }
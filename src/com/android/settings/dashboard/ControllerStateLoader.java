@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import android.util.ArrayMap;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.core.BasePreferenceController;
+import com.android.settings.core.instrumentation.PageTraceMetrics;
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads the availability and state of the controllers implementing
+ * {@link BasePreferenceController.BackgroundStateLoader} in parallel on background threads, and
+ * delivers all the results to the main thread at once.
+ * <p>
+ * The results are delivered through a message posted to the main thread after the last load, so
+ * the states loaded on the background threads are visible to the callback.
+ *
+ * @see BasePreferenceController.BackgroundStateLoader
+ */
+public class ControllerStateLoader {
+    private static final String TAG = "ControllerStateLoader";
+
+    /**
+     * Callback invoked on the main thread once all the controllers are loaded.
+     */
+    public interface Callback {
+        /**
+         * @param availabilities availability of each loaded controller
+         */
+        void onStatesLoaded(Map<BasePreferenceController, Boolean> availabilities);
+    }
+
+    private final String mPage;
+    private final List<BasePreferenceController> mControllers;
+    private final Executor mBackgroundExecutor;
+    private final Executor mMainExecutor;
+    private volatile boolean mCancelled;
+
+    /**
+     * @param page        name of the page the controllers belong to, used by
+     *                    {@link PageTraceMetrics}
+     * @param controllers controllers to load
+     */
+    public ControllerStateLoader(@NonNull String page,
+            @NonNull List<BasePreferenceController> controllers) {
+        this(page, controllers, ThreadUtils::postOnBackgroundThread,
+                ThreadUtils::postOnMainThread);
+    }
+
+    @VisibleForTesting
+    ControllerStateLoader(@NonNull String page,
+            @NonNull List<BasePreferenceController> controllers, Executor backgroundExecutor,
+            Executor mainExecutor) {
+        mPage = page;
+        mControllers = controllers;
+        mBackgroundExecutor = backgroundExecutor;
+        mMainExecutor = mainExecutor;
+    }
+
+    /**
+     * Starts loading every controller on a background thread, and invokes {@code callback} on the
+     * main thread when all of them are done, unless {@link #cancel()} was called before.
+     *
+     * @return {@code false} if there is nothing to load
+     */
+    public boolean start(Callback callback) {
+        if (mControllers.isEmpty()) {
+            return false;
+        }
+        final Map<BasePreferenceController, Boolean> availabilities = new ArrayMap<>();
+        final AtomicInteger remaining = new AtomicInteger(mControllers.size());
+        for (BasePreferenceController controller : mControllers) {
+            mBackgroundExecutor.execute(() -> {
+                final boolean available = loadState(controller);
+                synchronized (availabilities) {
+                    availabilities.put(controller, available);
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    mMainExecutor.execute(() -> {
+                        if (!mCancelled) {
+                            callback.onStatesLoaded(availabilities);
+                        }
+                    });
+                }
+            });
+        }
+        return true;
+    }
+
+    /**
+     * Drops the results of this loader, e.g. when newer states are being loaded.
+     */
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    private boolean loadState(BasePreferenceController controller) {
+        if (mCancelled) {
+            return false;
+        }
+        final PageTraceMetrics metrics = PageTraceMetrics.getInstance();
+        final String name = PageTraceMetrics.getName(controller);
+        boolean available = false;
+        try {
+            long startTime = metrics.begin(PageTraceMetrics.STAGE_LOAD_STATE, name);
+            try {
+                controller.loadBackgroundState();
+            } finally {
+                metrics.end(mPage, PageTraceMetrics.STAGE_LOAD_STATE, name, startTime);
+            }
+            startTime = metrics.begin(PageTraceMetrics.STAGE_AVAILABILITY, name);
+            try {
+                available = controller.isAvailable();
+            } finally {
+                metrics.end(mPage, PageTraceMetrics.STAGE_AVAILABILITY, name, startTime);
+            }
+        } catch (RuntimeException e) {
+            // Would otherwise be swallowed by the executor and never deliver the results.
+            Log.e(TAG, "Failed to load state of " + controller.getPreferenceKey(), e);
+        }
+        return available;
+    }
+}
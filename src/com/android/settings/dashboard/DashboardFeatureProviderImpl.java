@@ -96,12 +96,14 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
     private final MetricsFeatureProvider mMetricsFeatureProvider;
     private final CategoryManager mCategoryManager;
     private final PackageManager mPackageManager;
+    private final DynamicDataBatcher mDynamicDataBatcher;
 
     public DashboardFeatureProviderImpl(Context context) {
         mContext = context.getApplicationContext();
         mCategoryManager = CategoryManager.get(context);
         mMetricsFeatureProvider = FeatureFactory.getFeatureFactory().getMetricsFeatureProvider();
         mPackageManager = context.getPackageManager();
+        mDynamicDataBatcher = new DynamicDataBatcher(mContext);
     }
 
     @Override
@@ -282,10 +284,11 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
     }
 
     private void refreshTitle(Uri uri, Preference preference, DynamicDataObserver observer) {
-        ThreadUtils.postOnBackgroundThread(() -> {
-            final Map<String, IContentProvider> providerMap = new ArrayMap<>();
-            final String titleFromUri = TileUtils.getTextFromUri(
-                    mContext, uri, providerMap, META_DATA_PREFERENCE_TITLE);
+        mDynamicDataBatcher.load(uri, result -> {
+            final String titleFromUri = result != null
+                    ? result.getString(META_DATA_PREFERENCE_TITLE)
+                    : TileUtils.getTextFromUri(
+                            mContext, uri, new ArrayMap<>(), META_DATA_PREFERENCE_TITLE);
             if (!TextUtils.equals(titleFromUri, preference.getTitle())) {
                 observer.post(() -> preference.setTitle(titleFromUri));
             }
@@ -312,10 +315,11 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
     }
 
     private void refreshSummary(Uri uri, Preference preference, DynamicDataObserver observer) {
-        ThreadUtils.postOnBackgroundThread(() -> {
-            final Map<String, IContentProvider> providerMap = new ArrayMap<>();
-            final String summaryFromUri = TileUtils.getTextFromUri(
-                    mContext, uri, providerMap, META_DATA_PREFERENCE_SUMMARY);
+        mDynamicDataBatcher.load(uri, result -> {
+            final String summaryFromUri = result != null
+                    ? result.getString(META_DATA_PREFERENCE_SUMMARY)
+                    : TileUtils.getTextFromUri(
+                            mContext, uri, new ArrayMap<>(), META_DATA_PREFERENCE_SUMMARY);
             if (!TextUtils.equals(summaryFromUri, preference.getSummary())) {
                 observer.post(() -> preference.setSummary(summaryFromUri));
             }
@@ -364,10 +368,11 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
     }
 
     private void refreshSwitch(Uri uri, Preference preference, DynamicDataObserver observer) {
-        ThreadUtils.postOnBackgroundThread(() -> {
-            final Map<String, IContentProvider> providerMap = new ArrayMap<>();
-            final boolean checked = TileUtils.getBooleanFromUri(mContext, uri, providerMap,
-                    EXTRA_SWITCH_CHECKED_STATE);
+        mDynamicDataBatcher.load(uri, result -> {
+            final boolean checked = result != null
+                    ? result.getBoolean(EXTRA_SWITCH_CHECKED_STATE)
+                    : TileUtils.getBooleanFromUri(
+                            mContext, uri, new ArrayMap<>(), EXTRA_SWITCH_CHECKED_STATE);
             observer.post(() -> {
                 setSwitchChecked(preference, checked);
                 setSwitchEnabled(preference, true);
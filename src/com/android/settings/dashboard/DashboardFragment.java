@@ -21,6 +21,8 @@ import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.preference.PreferenceManager.OnActivityResultListener;
 import android.text.TextUtils;
 import android.util.ArrayMap;
@@ -46,6 +48,7 @@ import com.android.settings.core.BasePreferenceController;
 import com.android.settings.core.CategoryMixin.CategoryHandler;
 import com.android.settings.core.CategoryMixin.CategoryListener;
 import com.android.settings.core.PreferenceControllerListHelper;
+import com.android.settings.core.instrumentation.PageTraceMetrics;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.PrimarySwitchPreference;
 import com.android.settingslib.core.AbstractPreferenceController;
@@ -63,8 +66,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Base fragment for dashboard style UI containing a list of static and dynamic setting items.
@@ -74,6 +76,7 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         BasePreferenceController.UiBlockListener {
     public static final String CATEGORY = "category";
     private static final String TAG = "DashboardFragment";
+    private static final boolean DEBUG_TILE_LATENCY = false;
     private static final long TIMEOUT_MILLIS = 50L;
 
     @VisibleForTesting
@@ -82,8 +85,14 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
             new ArrayMap<>();
     private final List<DynamicDataObserver> mRegisteredObservers = new ArrayList<>();
     private final List<AbstractPreferenceController> mControllers = new ArrayList<>();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
     @VisibleForTesting
     UiBlockerController mBlockerController;
+    private ControllerStateLoader mStateLoader;
+    // Availability last shown for each BackgroundStateLoader, by displayPreference() or
+    // applyPreferenceStates().
+    private final Map<BasePreferenceController, Boolean> mShownAvailabilities =
+            new ArrayMap<>();
     private DashboardFeatureProvider mDashboardFeatureProvider;
     private DashboardTilePlaceholderPreferenceController mPlaceholderPreferenceController;
     private boolean mListeningToCategoryChange;
@@ -96,12 +105,21 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                 R.array.config_suppress_injected_tile_keys));
         mDashboardFeatureProvider =
                 FeatureFactory.getFeatureFactory().getDashboardFeatureProvider();
+        final PageTraceMetrics traceMetrics = PageTraceMetrics.getInstance();
+        final String page = getTracePageName();
         // Load preference controllers from code
-        final List<AbstractPreferenceController> controllersFromCode =
-                createPreferenceControllers(context);
+        final long startTime = traceMetrics.begin(PageTraceMetrics.STAGE_CONSTRUCT,
+                "createPreferenceControllers");
+        final List<AbstractPreferenceController> controllersFromCode;
+        try {
+            controllersFromCode = createPreferenceControllers(context);
+        } finally {
+            traceMetrics.end(page, PageTraceMetrics.STAGE_CONSTRUCT, "createPreferenceControllers",
+                    startTime);
+        }
         // Load preference controllers from xml definition
         final List<BasePreferenceController> controllersFromXml = PreferenceControllerListHelper
-                .getPreferenceControllersFromXml(context, getPreferenceScreenResId());
+                .getPreferenceControllersFromXml(context, getPreferenceScreenResId(), page);
         // Filter xml-based controllers in case a similar controller is created from code already.
         final List<BasePreferenceController> uniqueControllerFromXml =
                 PreferenceControllerListHelper.filterControllers(
@@ -262,6 +280,12 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     public void onStop() {
         super.onStop();
         unregisterDynamicDataObservers(new ArrayList<>(mRegisteredObservers));
+        // Drop the pending tile timeouts, the observers are gone.
+        mHandler.removeCallbacksAndMessages(null /* token */);
+        if (mStateLoader != null) {
+            mStateLoader.cancel();
+            mStateLoader = null;
+        }
         if (mListeningToCategoryChange) {
             final Activity activity = getActivity();
             if (activity instanceof CategoryHandler) {
@@ -317,6 +341,10 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     }
 
     protected void addPreferenceController(AbstractPreferenceController controller) {
+        if (controller instanceof BasePreferenceController.BackgroundStateLoader) {
+            // Loaded by updatePreferenceStates(), the main thread only reads the last state.
+            ((BasePreferenceController) controller).setLoadsStateInBackground(true);
+        }
         if (mPreferenceControllers.get(controller.getClass()) == null) {
             mPreferenceControllers.put(controller.getClass(), new ArrayList<>());
         }
@@ -363,7 +391,14 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         if (resId <= 0) {
             return;
         }
-        addPreferencesFromResource(resId);
+        final PageTraceMetrics traceMetrics = PageTraceMetrics.getInstance();
+        final String page = getTracePageName();
+        final long startTime = traceMetrics.begin(PageTraceMetrics.STAGE_INFLATE_XML, page);
+        try {
+            addPreferencesFromResource(resId);
+        } finally {
+            traceMetrics.end(page, PageTraceMetrics.STAGE_INFLATE_XML, page, startTime);
+        }
         final PreferenceScreen screen = getPreferenceScreen();
         screen.setOnExpandButtonClickListener(this);
         displayResourceTilesToScreen(screen);
@@ -374,8 +409,30 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
      * on all {@link AbstractPreferenceController}s.
      */
     protected void displayResourceTilesToScreen(PreferenceScreen screen) {
+        final PageTraceMetrics traceMetrics = PageTraceMetrics.getInstance();
+        final String page = getTracePageName();
         mPreferenceControllers.values().stream().flatMap(Collection::stream).forEach(
-                controller -> controller.displayPreference(screen));
+                controller -> {
+                    final String name = PageTraceMetrics.getName(controller);
+                    final long startTime =
+                            traceMetrics.begin(PageTraceMetrics.STAGE_DISPLAY, name);
+                    try {
+                        controller.displayPreference(screen);
+                    } finally {
+                        traceMetrics.end(page, PageTraceMetrics.STAGE_DISPLAY, name, startTime);
+                    }
+                    if (controller instanceof BasePreferenceController.BackgroundStateLoader) {
+                        mShownAvailabilities.put((BasePreferenceController) controller,
+                                controller.isAvailable());
+                    }
+                });
+    }
+
+    /**
+     * Returns the name of this page in {@link PageTraceMetrics}.
+     */
+    protected String getTracePageName() {
+        return PageTraceMetrics.getName(this);
     }
 
     /**
@@ -387,31 +444,112 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
 
     /**
      * Update state of each preference managed by PreferenceController.
+     * <p>
+     * Controllers implementing {@link BasePreferenceController.BackgroundStateLoader} are loaded
+     * on background threads, and their states are applied once all of them are loaded.
      */
     protected void updatePreferenceStates() {
         final PreferenceScreen screen = getPreferenceScreen();
+        final PageTraceMetrics traceMetrics = PageTraceMetrics.getInstance();
+        final String page = getTracePageName();
+        final List<BasePreferenceController> backgroundControllers = new ArrayList<>();
         Collection<List<AbstractPreferenceController>> controllerLists =
                 mPreferenceControllers.values();
         for (List<AbstractPreferenceController> controllerList : controllerLists) {
             for (AbstractPreferenceController controller : controllerList) {
-                if (!controller.isAvailable()) {
+                if (controller instanceof BasePreferenceController.BackgroundStateLoader) {
+                    backgroundControllers.add((BasePreferenceController) controller);
                     continue;
                 }
-
-                final String key = controller.getPreferenceKey();
-                if (TextUtils.isEmpty(key)) {
-                    Log.d(TAG, String.format("Preference key is %s in Controller %s",
-                            key, controller.getClass().getSimpleName()));
+                final String name = PageTraceMetrics.getName(controller);
+                long startTime = traceMetrics.begin(PageTraceMetrics.STAGE_AVAILABILITY, name);
+                final boolean available;
+                try {
+                    available = controller.isAvailable();
+                } finally {
+                    traceMetrics.end(page, PageTraceMetrics.STAGE_AVAILABILITY, name, startTime);
+                }
+                if (!available) {
                     continue;
                 }
+                startTime = traceMetrics.begin(PageTraceMetrics.STAGE_UPDATE_STATE, name);
+                try {
+                    updatePreferenceState(screen, controller);
+                } finally {
+                    traceMetrics.end(page, PageTraceMetrics.STAGE_UPDATE_STATE, name, startTime);
+                }
+            }
+        }
+        loadPreferenceStates(backgroundControllers);
+    }
 
-                final Preference preference = screen.findPreference(key);
-                if (preference == null) {
-                    Log.d(TAG, String.format("Cannot find preference with key %s in Controller %s",
-                            key, controller.getClass().getSimpleName()));
-                    continue;
+    private void updatePreferenceState(PreferenceScreen screen,
+            AbstractPreferenceController controller) {
+        final String key = controller.getPreferenceKey();
+        if (TextUtils.isEmpty(key)) {
+            Log.d(TAG, String.format("Preference key is %s in Controller %s",
+                    key, controller.getClass().getSimpleName()));
+            return;
+        }
+
+        final Preference preference = screen.findPreference(key);
+        if (preference == null) {
+            Log.d(TAG, String.format("Cannot find preference with key %s in Controller %s",
+                    key, controller.getClass().getSimpleName()));
+            return;
+        }
+        controller.updateState(preference);
+    }
+
+    private void loadPreferenceStates(List<BasePreferenceController> controllers) {
+        if (mStateLoader != null) {
+            // Only the latest states are applied.
+            mStateLoader.cancel();
+        }
+        mStateLoader = new ControllerStateLoader(getTracePageName(), controllers);
+        mStateLoader.start(this::applyPreferenceStates);
+    }
+
+    @VisibleForTesting
+    void applyPreferenceStates(Map<BasePreferenceController, Boolean> availabilities) {
+        final PreferenceScreen screen = getPreferenceScreen();
+        if (screen == null) {
+            return;
+        }
+        // Visibility is left to updatePreferenceVisibility() while the ui is blocked.
+        final boolean blocked = mBlockerController != null
+                && !mBlockerController.isBlockerFinished();
+        final PageTraceMetrics traceMetrics = PageTraceMetrics.getInstance();
+        final String page = getTracePageName();
+        for (Map.Entry<BasePreferenceController, Boolean> entry : availabilities.entrySet()) {
+            final BasePreferenceController controller = entry.getKey();
+            final String key = controller.getPreferenceKey();
+            if (TextUtils.isEmpty(key)) {
+                Log.d(TAG, String.format("Preference key is %s in Controller %s",
+                        key, controller.getClass().getSimpleName()));
+                continue;
+            }
+            final Preference preference = screen.findPreference(key);
+            if (preference == null) {
+                continue;
+            }
+            final boolean available = entry.getValue();
+            if (available) {
+                final String name = PageTraceMetrics.getName(controller);
+                final long startTime =
+                        traceMetrics.begin(PageTraceMetrics.STAGE_UPDATE_STATE, name);
+                try {
+                    controller.updateState(preference);
+                } finally {
+                    traceMetrics.end(page, PageTraceMetrics.STAGE_UPDATE_STATE, name, startTime);
                 }
-                controller.updateState(preference);
+            }
+            // Only follows a change of availability, so that a preference hidden by other code
+            // stays hidden.
+            if (!blocked && !(controller instanceof BasePreferenceController.UiBlocker)
+                    && !Objects.equals(mShownAvailabilities.put(controller, available),
+                            available)) {
+                preference.setVisible(available);
             }
         }
     }
@@ -517,6 +655,8 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         // Install dashboard tiles and collect pending observers.
         final boolean forceRoundedIcons = shouldForceRoundedIcon();
         final List<DynamicDataObserver> pendingObservers = new ArrayList<>();
+        final PageTraceMetrics traceMetrics = PageTraceMetrics.getInstance();
+        final String page = getTracePageName();
 
         // Move group tiles to the beginning of the list to ensure they are created before the
         // other tiles.
@@ -531,28 +671,34 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                 continue;
             }
             final List<DynamicDataObserver> observers;
-            if (mDashboardTilePrefKeys.containsKey(key)) {
-                // Have the key already, will rebind.
-                final Preference preference = screen.findPreference(key);
-                observers = mDashboardFeatureProvider.bindPreferenceToTileAndGetObservers(
-                        getActivity(), this, forceRoundedIcons, preference, tile, key,
-                        mPlaceholderPreferenceController.getOrder());
-            } else {
-                // Don't have this key, add it.
-                final Preference pref = createPreference(tile);
-                observers = mDashboardFeatureProvider.bindPreferenceToTileAndGetObservers(
-                        getActivity(), this, forceRoundedIcons, pref, tile, key,
-                        mPlaceholderPreferenceController.getOrder());
-                if (tile.hasGroupKey() && mDashboardTilePrefKeys.containsKey(tile.getGroupKey())) {
-                    final Preference group = screen.findPreference(tile.getGroupKey());
-                    if (group instanceof PreferenceCategory) {
-                        ((PreferenceCategory) group).addPreference(pref);
-                    }
+            final long startTime = traceMetrics.begin(PageTraceMetrics.STAGE_BIND_TILE, key);
+            try {
+                if (mDashboardTilePrefKeys.containsKey(key)) {
+                    // Have the key already, will rebind.
+                    final Preference preference = screen.findPreference(key);
+                    observers = mDashboardFeatureProvider.bindPreferenceToTileAndGetObservers(
+                            getActivity(), this, forceRoundedIcons, preference, tile, key,
+                            mPlaceholderPreferenceController.getOrder());
                 } else {
-                    screen.addPreference(pref);
+                    // Don't have this key, add it.
+                    final Preference pref = createPreference(tile);
+                    observers = mDashboardFeatureProvider.bindPreferenceToTileAndGetObservers(
+                            getActivity(), this, forceRoundedIcons, pref, tile, key,
+                            mPlaceholderPreferenceController.getOrder());
+                    if (tile.hasGroupKey()
+                            && mDashboardTilePrefKeys.containsKey(tile.getGroupKey())) {
+                        final Preference group = screen.findPreference(tile.getGroupKey());
+                        if (group instanceof PreferenceCategory) {
+                            ((PreferenceCategory) group).addPreference(pref);
+                        }
+                    } else {
+                        screen.addPreference(pref);
+                    }
+                    registerDynamicDataObservers(observers);
+                    mDashboardTilePrefKeys.put(key, observers);
                 }
-                registerDynamicDataObservers(observers);
-                mDashboardTilePrefKeys.put(key, observers);
+            } finally {
+                traceMetrics.end(page, PageTraceMetrics.STAGE_BIND_TILE, key, startTime);
             }
             if (observers != null) {
                 pendingObservers.addAll(observers);
@@ -571,18 +717,53 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
             unregisterDynamicDataObservers(entry.getValue());
         }
 
-        // Wait for pending observers to update UI.
+        // Let pending observers patch the UI as soon as their data arrives.
         if (!pendingObservers.isEmpty()) {
-            final CountDownLatch mainLatch = new CountDownLatch(1);
-            new Thread(() -> {
-                pendingObservers.forEach(observer ->
-                        awaitObserverLatch(observer.getCountDownLatch()));
-                mainLatch.countDown();
-            }).start();
-            Log.d(tag, "Start waiting observers");
-            awaitObserverLatch(mainLatch);
-            Log.d(tag, "Stop waiting observers");
-            pendingObservers.forEach(DynamicDataObserver::updateUi);
+            deliverObserverUpdates(tag, pendingObservers);
+        }
+    }
+
+    /**
+     * Applies the data of every observer without blocking the main thread. Data that is already
+     * loaded is applied right away, the rest is posted to the main thread by each observer once
+     * loaded. Tiles still loading after {@link #TIMEOUT_MILLIS} are counted as timed out.
+     */
+    private void deliverObserverUpdates(String tag, List<DynamicDataObserver> observers) {
+        final DashboardTileMetrics metrics = DashboardTileMetrics.getInstance();
+        final List<DynamicDataObserver> loading = new ArrayList<>();
+        for (DynamicDataObserver observer : observers) {
+            if (!observer.getFirstDataFuture().isDone()) {
+                loading.add(observer);
+            }
+        }
+        final Runnable timeoutRunnable = () -> {
+            final long timedOut = loading.stream()
+                    .filter(observer -> !observer.getFirstDataFuture().isDone())
+                    .count();
+            if (timedOut > 0) {
+                Log.d(tag, timedOut + " tiles not loaded within " + TIMEOUT_MILLIS + "ms");
+                metrics.recordTimeouts((int) timedOut);
+            }
+        };
+        final AtomicInteger loadingCount = new AtomicInteger(loading.size());
+        if (!loading.isEmpty()) {
+            mHandler.postDelayed(timeoutRunnable, TIMEOUT_MILLIS);
+        }
+        for (DynamicDataObserver observer : observers) {
+            final String uri = String.valueOf(observer.getUri());
+            final boolean isLoading = loading.contains(observer);
+            observer.getFirstDataFuture().thenAccept(latency -> {
+                if (DEBUG_TILE_LATENCY) {
+                    Log.d(tag, "Tile data loaded in " + latency + "ms: " + uri);
+                }
+                metrics.recordLatency(uri, latency);
+                if (isLoading && loadingCount.decrementAndGet() == 0) {
+                    // Everything arrived in time, nothing left to time out.
+                    mHandler.removeCallbacks(timeoutRunnable);
+                }
+            });
+            // Once delegated, the observer posts its update to the main thread by itself.
+            observer.updateUi();
         }
     }
 
@@ -646,12 +827,4 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
             resolver.unregisterContentObserver(observer);
         });
     }
-
-    private void awaitObserverLatch(CountDownLatch latch) {
-        try {
-            latch.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException e) {
-            // Do nothing
-        }
-    }
 }
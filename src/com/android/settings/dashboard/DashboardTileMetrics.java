@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import android.util.ArrayMap;
+
+import androidx.annotation.VisibleForTesting;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Map;
+
+/**
+ * Process-wide counters of how long injected tiles take to load their dynamic data.
+ */
+public class DashboardTileMetrics {
+
+    private static final DashboardTileMetrics INSTANCE = new DashboardTileMetrics();
+
+    // Key: uri of the dynamic data, value: latency stats
+    private final Map<String, TileStats> mStatsByUri = new ArrayMap<>();
+    private int mTimeoutCount;
+
+    public static DashboardTileMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    @VisibleForTesting
+    DashboardTileMetrics() {
+    }
+
+    /** Records the time it took for the dynamic data of {@code uri} to be loaded. */
+    public synchronized void recordLatency(String uri, long latencyMs) {
+        TileStats stats = mStatsByUri.get(uri);
+        if (stats == null) {
+            stats = new TileStats();
+            mStatsByUri.put(uri, stats);
+        }
+        stats.mCount++;
+        stats.mTotalMs += latencyMs;
+        stats.mMaxMs = Math.max(stats.mMaxMs, latencyMs);
+    }
+
+    /** Records that {@code count} tiles were not loaded within the first frame budget. */
+    public synchronized void recordTimeouts(int count) {
+        mTimeoutCount += count;
+    }
+
+    @VisibleForTesting
+    synchronized int getTimeoutCount() {
+        return mTimeoutCount;
+    }
+
+    /** Returns the recorded latencies and timeout count. */
+    public synchronized JSONObject dump() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        obj.put("timeouts", mTimeoutCount);
+        final JSONArray tiles = new JSONArray();
+        for (Map.Entry<String, TileStats> entry : mStatsByUri.entrySet()) {
+            final TileStats stats = entry.getValue();
+            final JSONObject tile = new JSONObject();
+            tile.put("uri", entry.getKey());
+            tile.put("count", stats.mCount);
+            tile.put("avgMs", stats.mTotalMs / stats.mCount);
+            tile.put("maxMs", stats.mMaxMs);
+            tiles.put(tile);
+        }
+        obj.put("tiles", tiles);
+        return obj;
+    }
+
+    private static class TileStats {
+        int mCount;
+        long mTotalMs;
+        long mMaxMs;
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+import android.os.Bundle;
+import android.util.ArrayMap;
+import android.util.ArraySet;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Groups the dynamic data requests of injected tiles by provider authority so that a page with
+ * many tiles from the same provider is loaded with one IPC instead of one per tile.
+ *
+ * <p>Requests made during the same main thread message (e.g. while a page binds its tiles) are
+ * flushed together. A provider opts in by handling {@link #METHOD_GET_DYNAMIC_DATA_BATCH}: the
+ * extras contain the requested uris under {@link #EXTRA_URIS}, and the returned bundle maps each
+ * uri string to the bundle the per-tile call would have returned. Providers that return null or
+ * throw are remembered and loaded with per-tile calls from then on.
+ */
+public class DynamicDataBatcher {
+
+    private static final String TAG = "DynamicDataBatcher";
+
+    /** Method name of the batch call, see the class documentation for the contract. */
+    public static final String METHOD_GET_DYNAMIC_DATA_BATCH = "getDynamicDataBatch";
+    /** Extra holding the {@code ArrayList<String>} of requested uris. */
+    public static final String EXTRA_URIS = "com.android.settings.dashboard.extra.URIS";
+
+    /** Callback invoked on a background thread once the data of a uri is available. */
+    public interface Callback {
+        /**
+         * Called with the result of the batch call for the uri, or with {@code null} if the data
+         * must be loaded with a per-tile call instead.
+         */
+        void onLoaded(@Nullable Bundle result);
+    }
+
+    private final Context mContext;
+    // Key: authority, value: requests waiting for the next flush
+    private final Map<String, List<Request>> mPendingRequests = new ArrayMap<>();
+    private final Set<String> mUnsupportedAuthorities = new ArraySet<>();
+    private boolean mFlushScheduled;
+
+    public DynamicDataBatcher(Context context) {
+        mContext = context.getApplicationContext();
+    }
+
+    /** Queues a request for the dynamic data of {@code uri}. */
+    public void load(Uri uri, Callback callback) {
+        synchronized (this) {
+            List<Request> requests = mPendingRequests.get(uri.getAuthority());
+            if (requests == null) {
+                requests = new ArrayList<>();
+                mPendingRequests.put(uri.getAuthority(), requests);
+            }
+            requests.add(new Request(uri, callback));
+            if (mFlushScheduled) {
+                return;
+            }
+            mFlushScheduled = true;
+        }
+        // Posting to the main thread lets the rest of the current bind pass queue its requests.
+        ThreadUtils.postOnMainThread(this::flush);
+    }
+
+    private void flush() {
+        final List<List<Request>> batches;
+        synchronized (this) {
+            mFlushScheduled = false;
+            batches = new ArrayList<>(mPendingRequests.values());
+            mPendingRequests.clear();
+        }
+        for (List<Request> requests : batches) {
+            if (requests.size() == 1 || isUnsupported(requests.get(0).mUri.getAuthority())) {
+                for (Request request : requests) {
+                    ThreadUtils.postOnBackgroundThread(() -> request.mCallback.onLoaded(null));
+                }
+            } else {
+                ThreadUtils.postOnBackgroundThread(() -> loadBatch(requests));
+            }
+        }
+    }
+
+    @VisibleForTesting
+    void loadBatch(List<Request> requests) {
+        final String authority = requests.get(0).mUri.getAuthority();
+        final ArrayList<String> uris = new ArrayList<>(requests.size());
+        for (Request request : requests) {
+            uris.add(request.mUri.toString());
+        }
+        final Bundle extras = new Bundle();
+        extras.putStringArrayList(EXTRA_URIS, uris);
+
+        Bundle results = null;
+        try {
+            results = mContext.getContentResolver().call(
+                    new Uri.Builder().scheme(ContentResolver.SCHEME_CONTENT)
+                            .authority(authority).build(),
+                    METHOD_GET_DYNAMIC_DATA_BATCH, null /* arg */, extras);
+        } catch (RuntimeException e) {
+            Log.d(TAG, "Batch call failed for " + authority, e);
+        }
+        if (!containsAnyUri(results, uris)) {
+            // Providers without batch support return null, or a bundle without our uris when
+            // the call method is handled for something else.
+            Log.i(TAG, authority + " does not support batch loading");
+            synchronized (this) {
+                mUnsupportedAuthorities.add(authority);
+            }
+            results = null;
+        }
+        for (Request request : requests) {
+            // Uris missing from the result are loaded individually.
+            request.mCallback.onLoaded(
+                    results == null ? null : results.getBundle(request.mUri.toString()));
+        }
+    }
+
+    private static boolean containsAnyUri(Bundle results, List<String> uris) {
+        if (results == null) {
+            return false;
+        }
+        for (String uri : uris) {
+            if (results.getBundle(uri) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @VisibleForTesting
+    synchronized boolean isUnsupported(String authority) {
+        return mUnsupportedAuthorities.contains(authority);
+    }
+
+    @VisibleForTesting
+    static class Request {
+        final Uri mUri;
+        final Callback mCallback;
+
+        Request(Uri uri, Callback callback) {
+            mUri = uri;
+            mCallback = callback;
+        }
+    }
+}
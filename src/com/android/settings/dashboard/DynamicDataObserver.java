@@ -19,23 +19,25 @@ import android.database.ContentObserver;
 import android.net.Uri;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 
 import com.android.settingslib.utils.ThreadUtils;
 
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Observer for updating injected dynamic data.
  */
 public abstract class DynamicDataObserver extends ContentObserver {
 
+    private final CompletableFuture<Long> mFirstDataFuture = new CompletableFuture<>();
+    private final long mCreatedTime;
     private Runnable mUpdateRunnable;
-    private CountDownLatch mCountDownLatch;
     private boolean mUpdateDelegated;
 
     protected DynamicDataObserver() {
         super(new Handler(Looper.getMainLooper()));
-        mCountDownLatch = new CountDownLatch(1);
+        mCreatedTime = SystemClock.elapsedRealtime();
         // Load data for the first time
         onDataChanged();
     }
@@ -54,9 +56,12 @@ public abstract class DynamicDataObserver extends ContentObserver {
         }
     }
 
-    /** Returns the count-down latch */
-    public CountDownLatch getCountDownLatch() {
-        return mCountDownLatch;
+    /**
+     * Returns a future completed with the load latency in milliseconds once the first data has
+     * been posted.
+     */
+    public CompletableFuture<Long> getFirstDataFuture() {
+        return mFirstDataFuture;
     }
 
     @Override
@@ -65,11 +70,13 @@ public abstract class DynamicDataObserver extends ContentObserver {
     }
 
     protected synchronized void post(Runnable runnable) {
+        if (!mFirstDataFuture.isDone()) {
+            mFirstDataFuture.complete(SystemClock.elapsedRealtime() - mCreatedTime);
+        }
         if (mUpdateDelegated) {
             ThreadUtils.postOnMainThread(runnable);
         } else {
             mUpdateRunnable = runnable;
-            mCountDownLatch.countDown();
         }
     }
 }
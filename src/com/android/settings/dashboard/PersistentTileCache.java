@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import android.app.ActivityManager;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.pm.ChangedPackages;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.res.Configuration;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Parcel;
+import android.os.UserHandle;
+import android.os.UserManager;
+import android.provider.Settings;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.drawer.DashboardCategory;
+import com.android.settingslib.drawer.Tile;
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Persists the categories returned by {@link com.android.settingslib.drawer.TileUtils} so that a
+ * cold start can skip the PackageManager scan when no package changed since they were saved.
+ *
+ * <p>Package changes are detected with {@link PackageManager#getChangedPackages}, which also
+ * covers installs, updates and removals that happened while Settings was not running. The cache
+ * is also keyed by boot count, build fingerprint, user profiles and the parts of the
+ * configuration tracked by {@link com.android.settingslib.applications.InterestingConfigChanges}.
+ *
+ * <p>Categories are stored in their {@link Parcel} form, whose layout is owned by settingslib.
+ * Settingslib is built into this APK, so the cache is also keyed by the APK version and update
+ * time, and any payload which does not parse back completely is discarded.
+ */
+public class PersistentTileCache {
+
+    private static final String TAG = "PersistentTileCache";
+
+    private static final int FORMAT_VERSION = 2;
+    @VisibleForTesting
+    static final String CACHE_FILE_NAME = "dashboard_tiles.bin";
+
+    private final AtomicFile mFile;
+    private String mLastSavedKey;
+    private int mLastSavedSequenceNumber = -1;
+
+    public PersistentTileCache(Context context) {
+        this(new File(context.getApplicationContext().getNoBackupFilesDir(), CACHE_FILE_NAME));
+    }
+
+    @VisibleForTesting
+    PersistentTileCache(File file) {
+        mFile = new AtomicFile(file);
+    }
+
+    /**
+     * Returns the persisted categories, or null if there are none or if anything they depend on
+     * changed since they were saved.
+     */
+    @Nullable
+    public List<DashboardCategory> load(Context context) {
+        if (!mFile.getBaseFile().exists()) {
+            return null;
+        }
+        final byte[] bytes;
+        try {
+            bytes = mFile.readFully();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read tile cache", e);
+            return null;
+        }
+        final Parcel parcel = Parcel.obtain();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readInt() != FORMAT_VERSION || !buildKey(context).equals(in.readUTF())) {
+                Log.i(TAG, "Tile cache is stale, rescanning");
+                return null;
+            }
+            final int sequenceNumber = in.readInt();
+            if (context.getPackageManager().getChangedPackages(sequenceNumber) != null) {
+                Log.i(TAG, "Packages changed since tile cache was saved, rescanning");
+                return null;
+            }
+            final int length = in.readInt();
+            if (length < 0 || length > in.available()) {
+                throw new IOException("Invalid payload length " + length);
+            }
+            final byte[] data = new byte[length];
+            in.readFully(data);
+            parcel.unmarshall(data, 0, data.length);
+            parcel.setDataPosition(0);
+            final List<DashboardCategory> categories =
+                    parcel.createTypedArrayList(DashboardCategory.CREATOR);
+            if (parcel.dataAvail() != 0) {
+                throw new IOException(parcel.dataAvail() + " unread bytes in tile cache");
+            }
+            checkRestoredCategories(categories);
+            return categories;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Failed to restore tile cache", e);
+            invalidate();
+            return null;
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    /**
+     * Fails if the restored categories are incomplete. Metadata bundles are unparcelled lazily,
+     * so they are read here to surface a bad payload now rather than on first use.
+     */
+    private static void checkRestoredCategories(@Nullable List<DashboardCategory> categories)
+            throws IOException {
+        if (categories == null) {
+            throw new IOException("No categories in tile cache");
+        }
+        for (DashboardCategory category : categories) {
+            if (category == null || category.key == null) {
+                throw new IOException("Invalid category in tile cache");
+            }
+            for (Tile tile : category.getTiles()) {
+                if (tile.getPackageName() == null || tile.getComponentName() == null
+                        || tile.getCategory() == null) {
+                    throw new IOException("Invalid tile in tile cache");
+                }
+                final Bundle metaData = tile.getMetaData();
+                if (metaData != null) {
+                    metaData.size();
+                }
+            }
+        }
+    }
+
+    /**
+     * Saves {@code categories} in the background. Must be called before the categories are
+     * modified, with the sequence number read before they were loaded.
+     */
+    public void save(Context context, List<DashboardCategory> categories, int sequenceNumber) {
+        final String key = buildKey(context);
+        if (sequenceNumber == mLastSavedSequenceNumber && key.equals(mLastSavedKey)) {
+            // Nothing changed since the last save.
+            return;
+        }
+        mLastSavedKey = key;
+        mLastSavedSequenceNumber = sequenceNumber;
+        final Parcel parcel = Parcel.obtain();
+        final byte[] data;
+        try {
+            parcel.writeTypedList(categories);
+            data = parcel.marshall();
+        } finally {
+            parcel.recycle();
+        }
+        ThreadUtils.postOnBackgroundThread(() -> write(key, sequenceNumber, data));
+    }
+
+    /**
+     * Deletes the persisted categories.
+     */
+    public void invalidate() {
+        mLastSavedKey = null;
+        mLastSavedSequenceNumber = -1;
+        mFile.delete();
+    }
+
+    /**
+     * Returns the current package change sequence number.
+     */
+    public static int getSequenceNumber(Context context) {
+        final ChangedPackages changedPackages =
+                context.getPackageManager().getChangedPackages(0 /* sequenceNumber */);
+        return changedPackages == null ? 0 : changedPackages.getSequenceNumber();
+    }
+
+    @VisibleForTesting
+    synchronized void write(String key, int sequenceNumber, byte[] data) {
+        FileOutputStream fos = null;
+        try {
+            fos = mFile.startWrite();
+            final DataOutputStream out = new DataOutputStream(fos);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(key);
+            out.writeInt(sequenceNumber);
+            out.writeInt(data.length);
+            out.write(data);
+            out.flush();
+            mFile.finishWrite(fos);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write tile cache", e);
+            if (fos != null) {
+                mFile.failWrite(fos);
+            }
+        }
+    }
+
+    @VisibleForTesting
+    static String buildKey(Context context) {
+        final ContentResolver resolver = context.getContentResolver();
+        final Configuration config = context.getResources().getConfiguration();
+        long versionCode = 0;
+        long lastUpdateTime = 0;
+        try {
+            final PackageInfo info = context.getPackageManager()
+                    .getPackageInfo(context.getPackageName(), 0 /* flags */);
+            versionCode = info.getLongVersionCode();
+            lastUpdateTime = info.lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.w(TAG, "Cannot find own package info", e);
+        }
+        final StringBuilder builder = new StringBuilder()
+                .append(Build.FINGERPRINT).append(';')
+                .append(versionCode).append(';')
+                .append(lastUpdateTime).append(';')
+                .append(Settings.Global.getInt(resolver, Settings.Global.BOOT_COUNT, -1))
+                .append(';')
+                .append(Settings.Global.getInt(resolver, Settings.Global.DEVICE_PROVISIONED, 0))
+                .append(';')
+                .append(ActivityManager.getCurrentUser()).append(';')
+                .append(config.getLocales().toLanguageTags()).append(';')
+                .append(config.densityDpi).append(';')
+                .append(config.uiMode).append(';')
+                .append(config.screenLayout);
+        for (UserHandle user : context.getSystemService(UserManager.class).getUserProfiles()) {
+            builder.append(';').append(user.getIdentifier());
+        }
+        return builder.toString();
+    }
+}
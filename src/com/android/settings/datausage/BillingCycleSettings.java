@@ -44,6 +44,7 @@ import androidx.preference.TwoStatePreference;
 
 import com.android.settings.R;
 import com.android.settings.core.instrumentation.InstrumentedDialogFragment;
+import com.android.settings.datausage.lib.BillingCycleRepository;
 import com.android.settings.datausage.lib.NetworkTemplates;
 import com.android.settings.network.SubscriptionUtil;
 import com.android.settings.network.telephony.MobileNetworkUtils;
@@ -452,6 +453,7 @@ public class BillingCycleSettings extends DataUsageBaseFragment implements
             final int cycleDay = mCycleDayPicker.getValue();
             final String cycleTimezone = TimeZone.getDefault().getID();
             editor.setPolicyCycleDay(template, cycleDay, cycleTimezone);
+            BillingCycleRepository.onCycleDayChanged(getContext(), template);
             target.updateDataUsage();
         }
     }
@@ -20,10 +20,9 @@ import android.app.Application
 import android.net.NetworkTemplate
 import androidx.lifecycle.AndroidViewModel
 import androidx.lifecycle.viewModelScope
+import com.android.settings.datausage.lib.BucketIndex
 import com.android.settings.datausage.lib.NetworkCycleBucketRepository
 import com.android.settings.datausage.lib.NetworkStatsRepository
-import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.Bucket
-import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.filterTime
 import com.android.settings.datausage.lib.NetworkUsageData
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.flow.MutableStateFlow
@@ -35,37 +34,29 @@ import kotlinx.coroutines.flow.map
 import kotlinx.coroutines.flow.stateIn
 import kotlinx.coroutines.plus
 
-data class SelectedBuckets(
-    val selectedCycle: NetworkUsageData,
-    val buckets: List<Bucket>,
-)
-
 class DataUsageListViewModel(application: Application) : AndroidViewModel(application) {
     private val scope = viewModelScope + Dispatchers.Default
 
     val templateFlow = MutableStateFlow<NetworkTemplate?>(null)
 
-    private val bucketsFlow = templateFlow.filterNotNull().map { template ->
-        NetworkStatsRepository(getApplication(), template).queryDetailsForDevice()
-    }.stateIn(scope, SharingStarted.WhileSubscribed(), emptyList())
+    // Indexed once per template, then shared by the cycles and the chart of every cycle.
+    private val bucketIndexFlow = templateFlow.filterNotNull().map { template ->
+        NetworkStatsRepository(getApplication(), template).queryDeviceBucketIndex()
+    }.stateIn(scope, SharingStarted.WhileSubscribed(), BucketIndex(emptyList()))
 
-    val cyclesFlow = combine(templateFlow.filterNotNull(), bucketsFlow) { template, buckets ->
-        NetworkCycleBucketRepository(application, template, buckets).loadCycles()
-    }.flowOn(Dispatchers.Default)
+    val cyclesFlow =
+        combine(templateFlow.filterNotNull(), bucketIndexFlow) { template, bucketIndex ->
+            NetworkCycleBucketRepository(application, template, bucketIndex).loadCycles()
+        }.flowOn(Dispatchers.Default)
 
     val selectedCycleFlow = MutableStateFlow<NetworkUsageData?>(null)
 
-    private val selectedBucketsFlow =
-        combine(selectedCycleFlow.filterNotNull(), bucketsFlow) { selectedCycle, buckets ->
-            SelectedBuckets(
-                selectedCycle = selectedCycle,
-                buckets = buckets.filterTime(selectedCycle.startTime, selectedCycle.endTime),
-            )
-        }.flowOn(Dispatchers.Default)
-
-    val chartDataFlow =
-        combine(templateFlow.filterNotNull(), selectedBucketsFlow) { template, selectedBuckets ->
-            NetworkCycleBucketRepository(application, template, selectedBuckets.buckets)
-                .queryChartData(selectedBuckets.selectedCycle)
-        }.flowOn(Dispatchers.Default)
+    val chartDataFlow = combine(
+        templateFlow.filterNotNull(),
+        selectedCycleFlow.filterNotNull(),
+        bucketIndexFlow,
+    ) { template, selectedCycle, bucketIndex ->
+        NetworkCycleBucketRepository(application, template, bucketIndex)
+            .queryChartData(selectedCycle)
+    }.flowOn(Dispatchers.Default)
 }
@@ -36,22 +36,37 @@ class AppDataUsageDetailsRepository @JvmOverloads constructor(
         NetworkCycleDataRepository(context, template),
     private val networkStatsRepository: NetworkStatsRepository =
         NetworkStatsRepository(context, template),
+    private val cycleUsageCache: CycleUsageCache = CycleUsageCache.getInstance(context),
 ) : IAppDataUsageDetailsRepository {
-    private val withSdkSandboxUids = withSdkSandboxUids(uids)
+    private val withSdkSandboxUids = withSdkSandboxUids(uids).sorted()
+    private val withSdkSandboxUidArray = withSdkSandboxUids.toIntArray()
 
     override suspend fun queryDetailsForCycles(): List<NetworkUsageDetailsData> =
-        getCycles().asyncMap { queryDetails(it) }.filter { it.totalUsage > 0 }
+        getCycles().asyncMap { queryDetails(it) }.filterNotNull().filter { it.totalUsage > 0 }
 
     private fun getCycles(): List<Range<Long>> =
         cycles?.zipWithNext { endTime, startTime -> Range(startTime, endTime) }
             ?: networkCycleDataRepository.getCycles()
 
-    private fun queryDetails(range: Range<Long>): NetworkUsageDetailsData {
-        val buckets = networkStatsRepository.queryBuckets(range.lower, range.upper)
-            .filter { it.uid in withSdkSandboxUids }
-        val totalUsage = buckets.sumOf { it.bytes }
-        val foregroundUsage =
-            buckets.filter { it.state == NetworkStats.Bucket.STATE_FOREGROUND }.sumOf { it.bytes }
+    private fun queryDetails(range: Range<Long>): NetworkUsageDetailsData? =
+        cycleUsageCache.getUidDetails(template, withSdkSandboxUids, range) {
+            queryDetailsFromStats(range)
+        }
+
+    /** Returns null if the query failed, so that its partial usage is neither shown nor cached. */
+    private fun queryDetailsFromStats(range: Range<Long>): NetworkUsageDetailsData? {
+        var totalUsage = 0L
+        var foregroundUsage = 0L
+        val completed = networkStatsRepository.forEachBucket(
+            range.lower,
+            range.upper,
+        ) { uid, state, bytes, _, _ ->
+            if (uid in withSdkSandboxUidArray) {
+                totalUsage += bytes
+                if (state == NetworkStats.Bucket.STATE_FOREGROUND) foregroundUsage += bytes
+            }
+        }
+        if (!completed) return null
         return NetworkUsageDetailsData(
             range = range,
             totalUsage = totalUsage,
@@ -26,10 +26,10 @@ import android.os.UserHandle
 import android.os.UserManager
 import android.util.SparseArray
 import android.util.SparseBooleanArray
+import android.util.SparseLongArray
 import androidx.annotation.VisibleForTesting
 import androidx.core.util.keyIterator
 import com.android.settings.R
-import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.Bucket
 import com.android.settingslib.AppItem
 import com.android.settingslib.net.UidDetailProvider
 import com.android.settingslib.spaprivileged.framework.common.userManager
@@ -43,12 +43,13 @@ class AppDataUsageRepository(
     private val networkStatsRepository = NetworkStatsRepository(context, template)
 
     fun getAppPercent(carrierId: Int?, startTime: Long, endTime: Long): List<Pair<AppItem, Int>> {
-        val buckets = networkStatsRepository.queryBuckets(startTime, endTime)
-        return getAppPercent(carrierId, buckets)
+        val bytesByUid = SparseLongArray()
+        networkStatsRepository.sumBytesByUid(startTime, endTime, bytesByUid)
+        return getAppPercent(carrierId, bytesByUid)
     }
 
     @VisibleForTesting
-    fun getAppPercent(carrierId: Int?, buckets: List<Bucket>): List<Pair<AppItem, Int>> {
+    fun getAppPercent(carrierId: Int?, bytesByUid: SparseLongArray): List<Pair<AppItem, Int>> {
         val items = ArrayList<AppItem>()
         val knownItems = SparseArray<AppItem>()
         val profiles = context.userManager.userProfiles
@@ -56,7 +57,7 @@ class AppDataUsageRepository(
         val userIdToIsHiddenMap = profiles.associate { profile ->
             profile.identifier to shouldSkipProfile(userManager, profile)
         }
-        bindStats(buckets, userIdToIsHiddenMap, knownItems, items)
+        bindStats(bytesByUid, userIdToIsHiddenMap, knownItems, items)
         val restrictedUids = context.getSystemService(NetworkPolicyManager::class.java)!!
             .getUidsWithPolicy(NetworkPolicyManager.POLICY_REJECT_METERED_BACKGROUND)
         for (uid in restrictedUids) {
@@ -103,14 +104,15 @@ class AppDataUsageRepository(
     }
 
     private fun bindStats(
-        buckets: List<Bucket>,
+        bytesByUid: SparseLongArray,
         userIdToIsHiddenMap: Map<Int, Boolean>,
         knownItems: SparseArray<AppItem>,
         items: ArrayList<AppItem>,
     ) {
-        for (bucket in buckets) {
+        for (i in 0 until bytesByUid.size()) {
             // Decide how to collapse items together
-            val uid = bucket.uid
+            val uid = bytesByUid.keyAt(i)
+            val bytes = bytesByUid.valueAt(i)
             val collapseKey: Int
             val category: Int
             val userId = UserHandle.getUserId(uid)
@@ -124,7 +126,8 @@ class AppDataUsageRepository(
                         accumulate(
                             collapseKey = UidDetailProvider.buildKeyForUser(userId),
                             knownItems = knownItems,
-                            bucket = bucket,
+                            uid = uid,
+                            bytes = bytes,
                             itemCategory = AppItem.CATEGORY_USER,
                             items = items,
                         )
@@ -155,7 +158,8 @@ class AppDataUsageRepository(
             accumulate(
                 collapseKey = collapseKey,
                 knownItems = knownItems,
-                bucket = bucket,
+                uid = uid,
+                bytes = bytes,
                 itemCategory = category,
                 items = items,
             )
@@ -178,13 +182,15 @@ class AppDataUsageRepository(
      *
      * @param collapseKey  the collapse key used to map the item.
      * @param knownItems   collection of known (already existing) items.
-     * @param bucket       the network stats bucket to extract data usage from.
+     * @param uid          the uid the data usage belongs to.
+     * @param bytes        the data usage of the uid.
      * @param itemCategory the item is categorized on the list view by this category. Must be
      */
     private fun accumulate(
         collapseKey: Int,
         knownItems: SparseArray<AppItem>,
-        bucket: Bucket,
+        uid: Int,
+        bytes: Long,
         itemCategory: Int,
         items: ArrayList<AppItem>,
     ) {
@@ -195,8 +201,8 @@ class AppDataUsageRepository(
             items.add(item)
             knownItems.put(item.key, item)
         }
-        item.addUid(bucket.uid)
-        item.total += bucket.bytes
+        item.addUid(uid)
+        item.total += bytes
     }
 
     companion object {
@@ -17,6 +17,7 @@
 package com.android.settings.datausage.lib
 
 import android.content.Context
+import android.net.NetworkTemplate
 import android.os.INetworkManagementService
 import android.os.ServiceManager
 import android.telephony.TelephonyManager
@@ -51,5 +52,14 @@ open class BillingCycleRepository @JvmOverloads constructor(
 
     companion object {
         private const val TAG = "BillingCycleRepository"
+
+        /**
+         * Drops the cached usage of the cycles of [template], to be called when its cycle day is
+         * changed.
+         */
+        @JvmStatic
+        fun onCycleDayChanged(context: Context, template: NetworkTemplate) {
+            CycleUsageCache.getInstance(context).invalidate(template)
+        }
     }
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage.lib
+
+import android.util.Range
+import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.Bucket
+
+/**
+ * Time index of [Bucket]s, to sum the usage of any time range with two binary searches instead of
+ * filtering all the buckets.
+ *
+ * [sumBytes] returns the same as `buckets.filterTime(startTime, endTime).aggregate()?.usage ?: 0`.
+ */
+class BucketIndex private constructor(
+    size: Int,
+    startTimes: LongArray,
+    endTimes: LongArray,
+    bytes: LongArray,
+) {
+    constructor(buckets: List<Bucket>) : this(
+        size = buckets.size,
+        startTimes = LongArray(buckets.size) { buckets[it].startTimeStamp },
+        endTimes = LongArray(buckets.size) { buckets[it].endTimeStamp },
+        bytes = LongArray(buckets.size) { buckets[it].bytes },
+    )
+
+    private val startTimes: LongArray
+    private val endTimes: LongArray
+
+    /** The bytes of the buckets before each index. */
+    private val prefixBytes: LongArray
+
+    /**
+     * Whether the end times are sorted along with the start times, which is the case for the
+     * buckets of a device, as they don't overlap.
+     */
+    private val endTimesSorted: Boolean
+
+    /** The time range covered by the buckets, or null if there is no bucket. */
+    val timeRange: Range<Long>?
+
+    init {
+        // The buckets of a device are usually already in time order, only sort them otherwise.
+        val order: IntArray? = when {
+            isSorted(size, startTimes, endTimes) -> null
+            else -> (0 until size)
+                .sortedWith(compareBy({ startTimes[it] }, { endTimes[it] }))
+                .toIntArray()
+        }
+        this.startTimes = LongArray(size) { startTimes[order?.get(it) ?: it] }
+        this.endTimes = LongArray(size) { endTimes[order?.get(it) ?: it] }
+        prefixBytes = LongArray(size + 1)
+        var sortedEnd = true
+        for (i in 0 until size) {
+            prefixBytes[i + 1] = prefixBytes[i] + bytes[order?.get(i) ?: i]
+            if (i > 0 && this.endTimes[i] < this.endTimes[i - 1]) sortedEnd = false
+        }
+        endTimesSorted = sortedEnd
+        timeRange = when (size) {
+            0 -> null
+            else -> Range(this.startTimes.first(), this.endTimes.max())
+        }
+    }
+
+    /** Sums the bytes of the buckets fully inside [startTime] to [endTime]. */
+    fun sumBytes(startTime: Long, endTime: Long): Long {
+        // The buckets starting after startTime.
+        val from = firstIndex(startTimes) { it >= startTime }
+        if (!endTimesSorted) {
+            var bytes = 0L
+            for (i in from until endTimes.size) {
+                if (endTimes[i] <= endTime) bytes += prefixBytes[i + 1] - prefixBytes[i]
+            }
+            return bytes
+        }
+        // The buckets ending before endTime.
+        val to = firstIndex(endTimes) { it > endTime }
+        return if (to > from) prefixBytes[to] - prefixBytes[from] else 0
+    }
+
+    /**
+     * Collects buckets into primitive arrays, e.g. while streaming them from
+     * [NetworkStatsRepository.forEachDeviceBucket], so that no [Bucket] is allocated.
+     */
+    class Builder {
+        private var size = 0
+        private var startTimes = LongArray(INITIAL_CAPACITY)
+        private var endTimes = LongArray(INITIAL_CAPACITY)
+        private var bytes = LongArray(INITIAL_CAPACITY)
+
+        fun add(startTime: Long, endTime: Long, bytes: Long) {
+            if (size == startTimes.size) {
+                startTimes = startTimes.copyOf(size * 2)
+                endTimes = endTimes.copyOf(size * 2)
+                this.bytes = this.bytes.copyOf(size * 2)
+            }
+            startTimes[size] = startTime
+            endTimes[size] = endTime
+            this.bytes[size] = bytes
+            size++
+        }
+
+        fun build() = BucketIndex(size, startTimes, endTimes, bytes)
+    }
+
+    private companion object {
+        const val INITIAL_CAPACITY = 64
+
+        fun isSorted(size: Int, startTimes: LongArray, endTimes: LongArray): Boolean {
+            for (i in 1 until size) {
+                if (startTimes[i] < startTimes[i - 1] ||
+                    (startTimes[i] == startTimes[i - 1] && endTimes[i] < endTimes[i - 1])
+                ) return false
+            }
+            return true
+        }
+
+        /** Binary searches the first time matching [predicate], which must be monotonic. */
+        inline fun firstIndex(sortedTimes: LongArray, predicate: (Long) -> Boolean): Int {
+            var low = 0
+            var high = sortedTimes.size
+            while (low < high) {
+                val mid = (low + high) ushr 1
+                if (predicate(sortedTimes[mid])) high = mid else low = mid + 1
+            }
+            return low
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage.lib
+
+import android.content.Context
+import android.content.SharedPreferences
+import android.net.NetworkTemplate
+import android.text.format.DateUtils
+import android.util.LruCache
+import android.util.Range
+import androidx.annotation.VisibleForTesting
+
+/**
+ * Caches the data usage of the billing cycles which are over, as it no longer changes, so that
+ * reopening the data usage pages only queries the current cycle.
+ *
+ * Entries are keyed by the cycle range, so a new cycle day never hits the entries of the old
+ * cycles; [invalidate] also drops them when the cycle day is changed from Settings. A failed query
+ * returns null, and is never cached.
+ *
+ * The device usage of each cycle is also kept in [SharedPreferences], so that it outlives the
+ * Settings process. The app details are only kept in memory, as they are keyed by the uids of
+ * every app whose page is opened.
+ */
+class CycleUsageCache @VisibleForTesting constructor(
+    context: Context,
+    private val currentTimeMillis: () -> Long,
+) {
+    private data class Key(
+        val template: NetworkTemplate,
+        val uids: List<Int>?,
+        val startTime: Long,
+        val endTime: Long,
+    )
+
+    private val deviceUsageCache = LruCache<Key, NetworkUsageData>(MAX_ENTRIES)
+    private val uidDetailsCache = LruCache<Key, NetworkUsageDetailsData>(MAX_ENTRIES)
+
+    private val preferences: SharedPreferences by lazy {
+        context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE)
+    }
+
+    /** Gets the usage of the device in [range], only calling [query] if it is not cached. */
+    fun getDeviceUsage(
+        template: NetworkTemplate,
+        range: Range<Long>,
+        query: () -> NetworkUsageData?,
+    ): NetworkUsageData? = when {
+        !isFinalized(range) -> query()
+        else -> deviceUsageCache.getOrQuery(template, null, range) {
+            getPersistedOrQuery(getPreferenceKey(template, range), range, query)
+        }
+    }
+
+    /** Gets the usage details of [uids] in [range], only calling [query] if it is not cached. */
+    fun getUidDetails(
+        template: NetworkTemplate,
+        uids: List<Int>,
+        range: Range<Long>,
+        query: () -> NetworkUsageDetailsData?,
+    ): NetworkUsageDetailsData? = when {
+        !isFinalized(range) -> query()
+        else -> uidDetailsCache.getOrQuery(template, uids, range, query)
+    }
+
+    /** Drops the cached usage of [template], e.g. when its cycle day is changed. */
+    fun invalidate(template: NetworkTemplate) {
+        deviceUsageCache.removeIf { it.template == template }
+        uidDetailsCache.removeIf { it.template == template }
+        val prefix = getPreferenceKeyPrefix(template)
+        preferences.edit().apply {
+            for (key in preferences.all.keys) {
+                if (key.startsWith(prefix)) remove(key)
+            }
+        }.apply()
+    }
+
+    // The usage of the open cycle is still growing, and the usage of a cycle which just ended may
+    // still be reported late.
+    private fun isFinalized(range: Range<Long>) =
+        range.upper <= currentTimeMillis() - FINALIZED_DELAY
+
+    private fun <T : Any> LruCache<Key, T>.getOrQuery(
+        template: NetworkTemplate,
+        uids: List<Int>?,
+        range: Range<Long>,
+        query: () -> T?,
+    ): T? {
+        val key = Key(template, uids, range.lower, range.upper)
+        return get(key) ?: query()?.also { put(key, it) }
+    }
+
+    private fun <T : Any> LruCache<Key, T>.removeIf(predicate: (Key) -> Boolean) {
+        for (key in snapshot().keys) {
+            if (predicate(key)) remove(key)
+        }
+    }
+
+    private fun getPersistedOrQuery(
+        preferenceKey: String,
+        range: Range<Long>,
+        query: () -> NetworkUsageData?,
+    ): NetworkUsageData? {
+        val usage = preferences.getLong(preferenceKey, NO_USAGE)
+        if (usage != NO_USAGE) {
+            return NetworkUsageData(startTime = range.lower, endTime = range.upper, usage = usage)
+        }
+        return query()?.also { persist(preferenceKey, it.usage) }
+    }
+
+    private fun persist(preferenceKey: String, usage: Long) {
+        val keys = preferences.all.keys
+        preferences.edit().apply {
+            // Drops the cycles which ended first, which are the least likely to be shown again.
+            if (keys.size >= MAX_ENTRIES) {
+                keys.sortedBy { it.substringAfterLast(':').toLongOrNull() ?: Long.MIN_VALUE }
+                    .take(keys.size - MAX_ENTRIES + 1)
+                    .forEach { remove(it) }
+            }
+            putLong(preferenceKey, usage)
+        }.apply()
+    }
+
+    companion object {
+        private const val MAX_ENTRIES = 256
+        private const val NO_USAGE = -1L
+
+        @VisibleForTesting
+        const val FINALIZED_DELAY = DateUtils.DAY_IN_MILLIS
+
+        @VisibleForTesting
+        const val PREFERENCES_NAME = "cycle_usage_cache"
+
+        @Volatile
+        private var instance: CycleUsageCache? = null
+
+        @JvmStatic
+        fun getInstance(context: Context): CycleUsageCache =
+            instance ?: synchronized(this) {
+                instance ?: CycleUsageCache(context.applicationContext, System::currentTimeMillis)
+                    .also { instance = it }
+            }
+
+        /**
+         * The hash code of a [NetworkTemplate] only depends on what it matches, so it is stable
+         * across processes, without writing its subscriber ids to disk.
+         */
+        private fun getPreferenceKeyPrefix(template: NetworkTemplate) =
+            Integer.toHexString(template.hashCode()) + ":"
+
+        private fun getPreferenceKey(template: NetworkTemplate, range: Range<Long>) =
+            getPreferenceKeyPrefix(template) + range.lower + ":" + range.upper
+    }
+}
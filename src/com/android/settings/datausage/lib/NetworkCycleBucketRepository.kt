@@ -24,16 +24,21 @@ import com.android.settings.datausage.lib.NetworkCycleDataRepository.Companion.b
 import com.android.settings.datausage.lib.NetworkCycleDataRepository.Companion.getCycles
 import com.android.settings.datausage.lib.NetworkCycleDataRepository.Companion.reverseBucketRange
 import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.Bucket
-import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.aggregate
-import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.filterTime
 
 class NetworkCycleBucketRepository(
     context: Context,
     networkTemplate: NetworkTemplate,
-    private val buckets: List<Bucket>,
+    private val bucketIndex: BucketIndex,
     private val networkCycleDataRepository: NetworkCycleDataRepository =
         NetworkCycleDataRepository(context, networkTemplate)
 ) {
+    constructor(
+        context: Context,
+        networkTemplate: NetworkTemplate,
+        buckets: List<Bucket>,
+        networkCycleDataRepository: NetworkCycleDataRepository =
+            NetworkCycleDataRepository(context, networkTemplate),
+    ) : this(context, networkTemplate, BucketIndex(buckets), networkCycleDataRepository)
 
     fun loadCycles(): List<NetworkUsageData> =
         getCycles().map { aggregateUsage(it) }.filter { it.usage > 0 }
@@ -42,7 +47,7 @@ class NetworkCycleBucketRepository(
         networkCycleDataRepository.getPolicy()?.getCycles() ?: queryCyclesAsFourWeeks()
 
     private fun queryCyclesAsFourWeeks(): List<Range<Long>> {
-        val timeRange = buckets.aggregate()?.timeRange ?: return emptyList()
+        val timeRange = bucketIndex.timeRange ?: return emptyList()
         return reverseBucketRange(
             startTime = timeRange.lower,
             endTime = timeRange.upper,
@@ -62,6 +67,6 @@ class NetworkCycleBucketRepository(
     private fun aggregateUsage(range: Range<Long>) = NetworkUsageData(
         startTime = range.lower,
         endTime = range.upper,
-        usage = buckets.filterTime(range.lower, range.upper).aggregate()?.usage ?: 0,
+        usage = bucketIndex.sumBytes(range.lower, range.upper),
     )
 }
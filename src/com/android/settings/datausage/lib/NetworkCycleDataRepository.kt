@@ -35,6 +35,7 @@ class NetworkCycleDataRepository(
     private val networkTemplate: NetworkTemplate,
     private val networkStatsRepository: NetworkStatsRepository =
         NetworkStatsRepository(context, networkTemplate),
+    private val cycleUsageCache: CycleUsageCache = CycleUsageCache.getInstance(context),
 ) : INetworkCycleDataRepository {
 
     private val policyManager = context.getSystemService(NetworkPolicyManager::class.java)!!
@@ -60,11 +61,12 @@ class NetworkCycleDataRepository(
         }
 
 
-    override fun queryUsage(range: Range<Long>) = NetworkUsageData(
-        startTime = range.lower,
-        endTime = range.upper,
-        usage = networkStatsRepository.querySummaryForDevice(range.lower, range.upper),
-    )
+    override fun queryUsage(range: Range<Long>) =
+        cycleUsageCache.getDeviceUsage(networkTemplate, range) {
+            networkStatsRepository.querySummaryForDevice(range.lower, range.upper)?.let { usage ->
+                NetworkUsageData(startTime = range.lower, endTime = range.upper, usage = usage)
+            }
+        } ?: NetworkUsageData(startTime = range.lower, endTime = range.upper, usage = 0)
 
     companion object {
         fun NetworkPolicy.getCycles() = cycleIterator().asSequence().map {
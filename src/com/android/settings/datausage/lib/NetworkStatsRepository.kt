@@ -22,6 +22,7 @@ import android.content.Context
 import android.net.NetworkTemplate
 import android.util.Log
 import android.util.Range
+import android.util.SparseLongArray
 
 class NetworkStatsRepository(context: Context, private val template: NetworkTemplate) {
     private val networkStatsManager = context.getSystemService(NetworkStatsManager::class.java)!!
@@ -33,34 +34,83 @@ class NetworkStatsRepository(context: Context, private val template: NetworkTemp
     ): NetworkUsageData? = try {
         networkStatsManager.queryDetailsForUidTagState(
             template, range.lower, range.upper, uid, NetworkStats.Bucket.TAG_NONE, state,
-        ).convertToBuckets().aggregate()
+        ).aggregate()
     } catch (e: Exception) {
         Log.e(TAG, "Exception queryDetailsForUidTagState", e)
         null
     }
 
-    fun queryDetailsForDevice(): List<Bucket> = try {
+    /**
+     * Visits the buckets of the device for all time.
+     *
+     * The buckets are not kept, so callers should accumulate what they need in [visitor].
+     *
+     * @return false if the query failed, after only some or none of the buckets were visited
+     */
+    fun forEachDeviceBucket(visitor: BucketVisitor): Boolean = try {
         networkStatsManager.queryDetailsForDevice(template, Long.MIN_VALUE, Long.MAX_VALUE)
-            .convertToBuckets()
+            .forEachBucket(visitor)
+        true
     } catch (e: Exception) {
         Log.e(TAG, "Exception queryDetailsForDevice", e)
-        emptyList()
+        false
     }
 
-    fun getTimeRange(): Range<Long>? = queryDetailsForDevice().aggregate()?.timeRange
+    /** Indexes the buckets of the device for all time, without keeping the buckets. */
+    fun queryDeviceBucketIndex(): BucketIndex {
+        val builder = BucketIndex.Builder()
+        forEachDeviceBucket { _, _, bytes, startTimeStamp, endTimeStamp ->
+            builder.add(startTimeStamp, endTimeStamp, bytes)
+        }
+        return builder.build()
+    }
 
-    fun querySummaryForDevice(startTime: Long, endTime: Long): Long = try {
+    fun getTimeRange(): Range<Long>? {
+        var startTime = Long.MAX_VALUE
+        var endTime = Long.MIN_VALUE
+        var hasBucket = false
+        forEachDeviceBucket { _, _, _, startTimeStamp, endTimeStamp ->
+            startTime = minOf(startTime, startTimeStamp)
+            endTime = maxOf(endTime, endTimeStamp)
+            hasBucket = true
+        }
+        return if (hasBucket) Range(startTime, endTime) else null
+    }
+
+    /** Queries the bytes of the device from [startTime] to [endTime], or null if it failed. */
+    fun querySummaryForDevice(startTime: Long, endTime: Long): Long? = try {
         networkStatsManager.querySummaryForDevice(template, startTime, endTime).bytes
     } catch (e: Exception) {
         Log.e(TAG, "Exception querySummaryForDevice", e)
-        0
+        null
     }
 
-    fun queryBuckets(startTime: Long, endTime: Long): List<Bucket> = try {
-        networkStatsManager.querySummary(template, startTime, endTime).convertToBuckets()
+    /**
+     * Visits the summary buckets of every uid and state from [startTime] to [endTime].
+     *
+     * @return false if the query failed, after only some or none of the buckets were visited
+     */
+    fun forEachBucket(startTime: Long, endTime: Long, visitor: BucketVisitor): Boolean = try {
+        networkStatsManager.querySummary(template, startTime, endTime).forEachBucket(visitor)
+        true
     } catch (e: Exception) {
         Log.e(TAG, "Exception querySummary", e)
-        emptyList()
+        false
+    }
+
+    /**
+     * Adds the bytes of each uid from [startTime] to [endTime] into [bytesByUid].
+     *
+     * @return false if the query failed, after only some or none of the bytes were added
+     */
+    fun sumBytesByUid(startTime: Long, endTime: Long, bytesByUid: SparseLongArray): Boolean =
+        forEachBucket(startTime, endTime) { uid, _, bytes, _, _ ->
+            bytesByUid.put(uid, bytesByUid.get(uid) + bytes)
+        }
+
+    /** Receives the fields of each bucket, so that no [Bucket] needs to be allocated. */
+    fun interface BucketVisitor {
+        fun visit(uid: Int, state: Int, bytes: Long, startTimeStamp: Long, endTimeStamp: Long)
     }
 
     companion object {
@@ -89,19 +139,31 @@ class NetworkStatsRepository(context: Context, private val template: NetworkTemp
             it.startTimeStamp >= startTime && it.endTimeStamp <= endTime
         }
 
-        private fun NetworkStats.convertToBuckets(): List<Bucket> = use {
-            val buckets = mutableListOf<Bucket>()
+        private fun NetworkStats.forEachBucket(visitor: BucketVisitor): Unit = use {
             val bucket = NetworkStats.Bucket()
             while (getNextBucket(bucket)) {
-                buckets += Bucket(
-                    uid = bucket.uid,
-                    bytes = bucket.bytes,
-                    state = bucket.state,
-                    startTimeStamp = bucket.startTimeStamp,
-                    endTimeStamp = bucket.endTimeStamp,
+                visitor.visit(
+                    bucket.uid,
+                    bucket.state,
+                    bucket.bytes,
+                    bucket.startTimeStamp,
+                    bucket.endTimeStamp,
                 )
             }
-            buckets
+        }
+
+        private fun NetworkStats.aggregate(): NetworkUsageData? {
+            var startTime = Long.MAX_VALUE
+            var endTime = Long.MIN_VALUE
+            var usage = 0L
+            var hasBucket = false
+            forEachBucket { _, _, bytes, startTimeStamp, endTimeStamp ->
+                startTime = minOf(startTime, startTimeStamp)
+                endTime = maxOf(endTime, endTimeStamp)
+                usage += bytes
+                hasBucket = true
+            }
+            return if (hasBucket) NetworkUsageData(startTime, endTime, usage) else null
         }
 
         private val NetworkStats.Bucket.bytes: Long
@@ -379,6 +379,23 @@ public class StorageDashboardFragment extends DashboardFragment
         return R.string.help_url_storage_dashboard;
     }
 
+    /**
+     * Shows the categories of the current user as soon as its sizes are loaded. The system size
+     * and the other users need the sizes of every user, which {@link #onReceivedSizes} updates.
+     */
+    private void onReceivedPartialSizes(SparseArray<StorageAsyncLoader.StorageResult> result) {
+        if (mStorageInfo == null || mAppsResult != null || result.get(mUserId) == null) {
+            return;
+        }
+
+        setLoading(false /* loading */, false /* animate */);
+
+        mPreferenceController.setVolume(mSelectedStorageEntry.getVolumeInfo());
+        mPreferenceController.setUsedSize(mStorageInfo.totalBytes - mStorageInfo.freeBytes);
+        mPreferenceController.setTotalSize(mStorageInfo.totalBytes);
+        mPreferenceController.onPartialLoadFinished(result, mUserId);
+    }
+
     private void onReceivedSizes() {
         if (mStorageInfo == null || mAppsResult == null) {
             return;
@@ -478,10 +495,12 @@ public class StorageDashboardFragment extends DashboardFragment
     public Loader<SparseArray<StorageAsyncLoader.StorageResult>> onCreateLoader(int id,
             Bundle args) {
         final Context context = getContext();
-        return new StorageAsyncLoader(context, mUserManager,
+        final StorageAsyncLoader loader = new StorageAsyncLoader(context, mUserManager,
                 mSelectedStorageEntry.getFsUuid(),
                 new StorageStatsSource(context),
                 context.getPackageManager());
+        loader.setPartialResultListener(this::onReceivedPartialSizes);
+        return loader;
     }
 
     @Override
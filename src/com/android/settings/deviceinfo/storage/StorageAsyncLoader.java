@@ -30,6 +30,7 @@ import android.content.pm.UserInfo;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.OperationCanceledException;
 import android.os.UserHandle;
 import android.os.UserManager;
 import android.provider.MediaStore;
@@ -38,13 +39,25 @@ import android.provider.MediaStore.MediaColumns;
 import android.util.ArraySet;
 import android.util.Log;
 import android.util.SparseArray;
+import android.util.SparseLongArray;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
 import com.android.settingslib.applications.StorageStatsSource;
 import com.android.settingslib.utils.AsyncLoaderCompat;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * StorageAsyncLoader is a Loader which loads categorized app information and external stats for all
@@ -55,18 +68,70 @@ public class StorageAsyncLoader
     private UserManager mUserManager;
     private static final String TAG = "StorageAsyncLoader";
 
+    // Each user mostly waits on binder calls, so a few of them are loaded at the same time.
+    private static final int MAX_USER_THREADS = 3;
+    private static final long USER_KEEP_ALIVE_SECONDS = 30;
+
+    private static final String DOCUMENTS_AND_OTHER_SELECTION =
+            FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_IMAGE
+            + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_VIDEO
+            + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_AUDIO
+            + " AND " + FileColumns.MIME_TYPE + " IS NOT NULL";
+    private static final String NOT_TRASHED_SELECTION = MediaColumns.IS_TRASHED + "=0 AND ";
+
+    // Sums the sizes of every category in a single pass over the files, trashed ones included.
+    private static final String[] MEDIA_SIZES_PROJECTION = {
+            sumOfSizes(NOT_TRASHED_SELECTION
+                    + FileColumns.MEDIA_TYPE + "=" + FileColumns.MEDIA_TYPE_IMAGE),
+            sumOfSizes(NOT_TRASHED_SELECTION
+                    + FileColumns.MEDIA_TYPE + "=" + FileColumns.MEDIA_TYPE_VIDEO),
+            sumOfSizes(NOT_TRASHED_SELECTION
+                    + FileColumns.MEDIA_TYPE + "=" + FileColumns.MEDIA_TYPE_AUDIO),
+            sumOfSizes(NOT_TRASHED_SELECTION + DOCUMENTS_AND_OTHER_SELECTION),
+            sumOfSizes(MediaColumns.IS_TRASHED + "=1"),
+    };
+    private static final int IMAGES_SIZE_INDEX = 0;
+    private static final int VIDEOS_SIZE_INDEX = 1;
+    private static final int AUDIO_SIZE_INDEX = 2;
+    private static final int DOCUMENTS_AND_OTHER_SIZE_INDEX = 3;
+    private static final int TRASH_SIZE_INDEX = 4;
+
+    private static ExecutorService sUserExecutor;
+    // Set if the media provider rejects MEDIA_SIZES_PROJECTION, to query each category instead.
+    private static volatile boolean sQueryMediaSizesSeparately;
+
     private String mUuid;
     private StorageStatsSource mStatsManager;
     private PackageManager mPackageManager;
     private ArraySet<String> mSeenPackages;
+    private final ExecutorService mUserExecutor;
+    // Contexts of this package for each user, used to query the media of the user.
+    private final SparseArray<Context> mUserContexts = new SparseArray<>();
+    @Nullable
+    private volatile PartialResultListener mPartialResultListener;
 
     public StorageAsyncLoader(Context context, UserManager userManager,
             String uuid, StorageStatsSource source, PackageManager pm) {
+        this(context, userManager, uuid, source, pm, getUserExecutor());
+    }
+
+    @VisibleForTesting
+    StorageAsyncLoader(Context context, UserManager userManager, String uuid,
+            StorageStatsSource source, PackageManager pm, ExecutorService userExecutor) {
         super(context);
         mUserManager = userManager;
         mUuid = uuid;
         mStatsManager = source;
         mPackageManager = pm;
+        mUserExecutor = userExecutor;
+    }
+
+    /**
+     * Sets a listener receiving, on the main thread, the results of the users loaded so far while
+     * the other users are still loading.
+     */
+    public void setPartialResultListener(@Nullable PartialResultListener listener) {
+        mPartialResultListener = listener;
     }
 
     @Override
@@ -83,52 +148,165 @@ public class StorageAsyncLoader
         Collections.sort(infos,
                 (userInfo, otherUser) -> Integer.compare(userInfo.id, otherUser.id));
 
+        final List<Future<?>> futures = new ArrayList<>();
         for (UserInfo info : infos) {
-            final StorageResult result = getAppsAndGamesSize(info.id);
-            final Bundle media = new Bundle();
-            media.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, MediaColumns.VOLUME_NAME
-                    + "= '" + MediaStore.VOLUME_EXTERNAL_PRIMARY + "'");
-            result.imagesSize = getFilesSize(info.id, MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
-                    media /* queryArgs */);
-            result.videosSize = getFilesSize(info.id, MediaStore.Video.Media.EXTERNAL_CONTENT_URI,
-                    media /* queryArgs */);
-            result.audioSize = getFilesSize(info.id, MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
-                    media /* queryArgs */);
-
-            final Bundle documentsAndOtherQueryArgs = new Bundle();
-            documentsAndOtherQueryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION,
-                    FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_IMAGE
-                    + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_VIDEO
-                    + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_AUDIO
-                    + " AND " + FileColumns.MIME_TYPE + " IS NOT NULL");
-            result.documentsAndOtherSize = getFilesSize(info.id,
-                    MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
-                    documentsAndOtherQueryArgs);
-
-            final Bundle trashQueryArgs = new Bundle();
-            trashQueryArgs.putInt(MediaStore.QUERY_ARG_MATCH_TRASHED, MediaStore.MATCH_ONLY);
-            result.trashSize = getFilesSize(info.id,
-                    MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
-                    trashQueryArgs);
-
-            results.put(info.id, result);
+            futures.add(mUserExecutor.submit(() -> {
+                final StorageResult result = getStorageResultForUser(info.id);
+                final SparseArray<StorageResult> partialResults;
+                synchronized (results) {
+                    results.put(info.id, result);
+                    partialResults = results.size() < infos.size() ? results.clone() : null;
+                }
+                if (partialResults != null) {
+                    deliverPartialResults(partialResults);
+                }
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            // A partial result would show the other users as empty, so cancel the load instead.
+            Thread.currentThread().interrupt();
+            throw new OperationCanceledException("Interrupted while loading storage results");
+        } catch (ExecutionException e) {
+            // Fail the same way as when the users were loaded on the loader thread.
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            // No-op for the users which are loaded.
+            for (Future<?> future : futures) {
+                future.cancel(true /* mayInterruptIfRunning */);
+            }
+        }
+        synchronized (results) {
+            return results.clone();
         }
-        return results;
     }
 
-    private long getFilesSize(int userId, Uri uri, Bundle queryArgs) {
-        final Context perUserContext;
-        try {
-            perUserContext = getContext().createPackageContextAsUser(
-                getContext().getApplicationContext().getPackageName(),
-                0 /* flags= */,
-                UserHandle.of(userId));
-        } catch (NameNotFoundException e) {
-            Log.e(TAG, "Not able to get Context for user ID " + userId);
-            return 0L;
+    private void deliverPartialResults(SparseArray<StorageResult> partialResults) {
+        if (mPartialResultListener == null) {
+            return;
         }
+        ThreadUtils.postOnMainThread(() -> {
+            final PartialResultListener listener = mPartialResultListener;
+            if (listener != null && isStarted() && !isAbandoned()) {
+                listener.onPartialResult(partialResults);
+            }
+        });
+    }
 
-        try (Cursor cursor = perUserContext.getContentResolver().query(
+    private StorageResult getStorageResultForUser(int userId) {
+        final StorageResult result = getAppsAndGamesSize(userId);
+        final Context userContext = getUserContext(userId);
+        if (userContext == null) {
+            return result;
+        }
+        loadMediaSizes(userContext, result);
+        return result;
+    }
+
+    @VisibleForTesting
+    static void loadMediaSizes(Context userContext, StorageResult result) {
+        if (sQueryMediaSizesSeparately || !queryMediaSizes(userContext, result)) {
+            queryMediaSizesSeparately(userContext, result);
+        }
+    }
+
+    @VisibleForTesting
+    static void setQueryMediaSizesSeparately(boolean querySeparately) {
+        sQueryMediaSizesSeparately = querySeparately;
+    }
+
+    @VisibleForTesting
+    static boolean isQueryingMediaSizesSeparately() {
+        return sQueryMediaSizesSeparately;
+    }
+
+    @Nullable
+    private Context getUserContext(int userId) {
+        synchronized (mUserContexts) {
+            Context userContext = mUserContexts.get(userId);
+            if (userContext == null) {
+                try {
+                    userContext = getContext().createPackageContextAsUser(
+                            getContext().getApplicationContext().getPackageName(),
+                            0 /* flags= */,
+                            UserHandle.of(userId));
+                } catch (NameNotFoundException e) {
+                    Log.e(TAG, "Not able to get Context for user ID " + userId);
+                    return null;
+                }
+                mUserContexts.put(userId, userContext);
+            }
+            return userContext;
+        }
+    }
+
+    /**
+     * Queries the sizes of all the media categories and of the trash with a single query.
+     *
+     * @return {@code false} if the query failed, so each category should be queried instead
+     */
+    @VisibleForTesting
+    static boolean queryMediaSizes(Context userContext, StorageResult result) {
+        final Bundle queryArgs = new Bundle();
+        queryArgs.putInt(MediaStore.QUERY_ARG_MATCH_TRASHED, MediaStore.MATCH_INCLUDE);
+        try (Cursor cursor = userContext.getContentResolver().query(
+                MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
+                MEDIA_SIZES_PROJECTION,
+                queryArgs,
+                null /* cancellationSignal */)) {
+            if (cursor != null && cursor.moveToFirst()) {
+                result.imagesSize = cursor.getLong(IMAGES_SIZE_INDEX);
+                result.videosSize = cursor.getLong(VIDEOS_SIZE_INDEX);
+                result.audioSize = cursor.getLong(AUDIO_SIZE_INDEX);
+                result.documentsAndOtherSize = cursor.getLong(DOCUMENTS_AND_OTHER_SIZE_INDEX);
+                result.trashSize = cursor.getLong(TRASH_SIZE_INDEX);
+            }
+            return true;
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Media sizes can't be queried at once, querying each category", e);
+            sQueryMediaSizesSeparately = true;
+            return false;
+        } catch (RuntimeException e) {
+            // The provider may also fail for a single query, e.g. while it is being updated.
+            Log.w(TAG, "Failed to query the media sizes at once", e);
+            return false;
+        }
+    }
+
+    @VisibleForTesting
+    static void queryMediaSizesSeparately(Context userContext, StorageResult result) {
+        final Bundle media = new Bundle();
+        media.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, MediaColumns.VOLUME_NAME
+                + "= '" + MediaStore.VOLUME_EXTERNAL_PRIMARY + "'");
+        result.imagesSize = getFilesSize(userContext,
+                MediaStore.Images.Media.EXTERNAL_CONTENT_URI, media /* queryArgs */);
+        result.videosSize = getFilesSize(userContext,
+                MediaStore.Video.Media.EXTERNAL_CONTENT_URI, media /* queryArgs */);
+        result.audioSize = getFilesSize(userContext,
+                MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, media /* queryArgs */);
+
+        final Bundle documentsAndOtherQueryArgs = new Bundle();
+        documentsAndOtherQueryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION,
+                DOCUMENTS_AND_OTHER_SELECTION);
+        result.documentsAndOtherSize = getFilesSize(userContext,
+                MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
+                documentsAndOtherQueryArgs);
+
+        final Bundle trashQueryArgs = new Bundle();
+        trashQueryArgs.putInt(MediaStore.QUERY_ARG_MATCH_TRASHED, MediaStore.MATCH_ONLY);
+        result.trashSize = getFilesSize(userContext,
+                MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
+                trashQueryArgs);
+    }
+
+    private static long getFilesSize(Context userContext, Uri uri, Bundle queryArgs) {
+        try (Cursor cursor = userContext.getContentResolver().query(
                 uri,
                 new String[] {"sum(" + MediaColumns.SIZE + ")"},
                 queryArgs,
@@ -137,15 +315,25 @@ public class StorageAsyncLoader
                 return 0L;
             }
             return cursor.moveToFirst() ? cursor.getLong(0) : 0L;
+        } catch (RuntimeException e) {
+            // Shows the category as empty rather than failing the whole load.
+            Log.w(TAG, "Failed to query the size of " + uri, e);
+            return 0L;
         }
     }
 
+    private static String sumOfSizes(String selection) {
+        return "sum(CASE WHEN " + selection + " THEN " + MediaColumns.SIZE + " ELSE 0 END)";
+    }
+
     private StorageResult getAppsAndGamesSize(int userId) {
         Log.d(TAG, "Loading apps");
         final List<ApplicationInfo> applicationInfos =
                 mPackageManager.getInstalledApplicationsAsUser(0, userId);
         final StorageResult result = new StorageResult();
         final UserHandle myUser = UserHandle.of(userId);
+        // Packages sharing a uid share its cache quota.
+        final SparseLongArray cacheQuotas = new SparseLongArray();
         for (int i = 0, size = applicationInfos.size(); i < size; i++) {
             final ApplicationInfo app = applicationInfos.get(i);
 
@@ -159,23 +347,30 @@ public class StorageAsyncLoader
             }
 
             final long dataSize = stats.getDataBytes();
-            final long cacheQuota = mStatsManager.getCacheQuotaBytes(mUuid, app.uid);
             final long cacheBytes = stats.getCacheBytes();
             long blamedSize = dataSize + stats.getCodeBytes();
             // Technically, we could overages as freeable on the storage settings screen.
             // If the app is using more cache than its quota, we would accidentally subtract the
             // overage from the system size (because it shows up as unused) during our attribution.
             // Thus, we cap the attribution at the quota size.
-            if (cacheQuota < cacheBytes) {
-                blamedSize = blamedSize - cacheBytes + cacheQuota;
+            // The quota is never negative, so it is only needed by the apps having some cache.
+            if (cacheBytes > 0) {
+                final long cacheQuota = getCacheQuotaBytes(cacheQuotas, app.uid);
+                if (cacheQuota < cacheBytes) {
+                    blamedSize = blamedSize - cacheBytes + cacheQuota;
+                }
             }
 
             // Code bytes may share between different profiles. To know all the duplicate code size
             // and we can get a reasonable system size in StorageItemPreferenceController.
-            if (mSeenPackages.contains(app.packageName)) {
-                result.duplicateCodeSize += stats.getCodeBytes();
-            } else {
-                mSeenPackages.add(app.packageName);
+            // The users are loaded in parallel, so the first user to finish an app is charged
+            // for its code, which doesn't change the total of the duplicate code sizes.
+            synchronized (mSeenPackages) {
+                if (mSeenPackages.contains(app.packageName)) {
+                    result.duplicateCodeSize += stats.getCodeBytes();
+                } else {
+                    mSeenPackages.add(app.packageName);
+                }
             }
 
             switch (app.category) {
@@ -209,10 +404,32 @@ public class StorageAsyncLoader
         return result;
     }
 
+    private long getCacheQuotaBytes(SparseLongArray cacheQuotas, int uid) {
+        final int index = cacheQuotas.indexOfKey(uid);
+        if (index >= 0) {
+            return cacheQuotas.valueAt(index);
+        }
+        final long cacheQuota = mStatsManager.getCacheQuotaBytes(mUuid, uid);
+        cacheQuotas.put(uid, cacheQuota);
+        return cacheQuota;
+    }
+
     @Override
     protected void onDiscardResult(SparseArray<StorageResult> result) {
     }
 
+    /** Returns the executor shared by all the loads, whose idle threads time out. */
+    private static synchronized ExecutorService getUserExecutor() {
+        if (sUserExecutor == null) {
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    MAX_USER_THREADS, MAX_USER_THREADS,
+                    USER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+            executor.allowCoreThreadTimeOut(true);
+            sUserExecutor = executor;
+        }
+        return sUserExecutor;
+    }
+
     /** Storage result for displaying file categories size in Storage Settings. */
     public static class StorageResult {
         // APP based sizes.
@@ -231,6 +448,15 @@ public class StorageAsyncLoader
         public StorageStatsSource.ExternalStorageStats externalStats;
     }
 
+    /**
+     * Receives the results of the users loaded so far, before {@link StorageAsyncLoader} finishes
+     * loading all the users.
+     */
+    public interface PartialResultListener {
+        /** Invoked on the main thread each time a user is loaded, except the last one. */
+        void onPartialResult(SparseArray<StorageResult> result);
+    }
+
     /**
      * ResultHandler defines a destination of data which can handle a result from
      * {@link StorageAsyncLoader}.
@@ -36,6 +36,7 @@ import android.util.Log;
 import android.util.SparseArray;
 import android.widget.Toast;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import androidx.fragment.app.Fragment;
@@ -407,14 +408,7 @@ public class StorageItemPreferenceController extends AbstractPreferenceControlle
         // Calculate the size info for each category
         StorageCacheHelper.StorageCache storageCache = getSizeInfo(result, userId);
         // Set size info to each preference
-        mImagesPreference.setStorageSize(storageCache.imagesSize, mTotalSize, animate);
-        mVideosPreference.setStorageSize(storageCache.videosSize, mTotalSize, animate);
-        mAudioPreference.setStorageSize(storageCache.audioSize, mTotalSize, animate);
-        mAppsPreference.setStorageSize(storageCache.allAppsExceptGamesSize, mTotalSize, animate);
-        mGamesPreference.setStorageSize(storageCache.gamesSize, mTotalSize, animate);
-        mDocumentsAndOtherPreference.setStorageSize(storageCache.documentsAndOtherSize, mTotalSize,
-                animate);
-        mTrashPreference.setStorageSize(storageCache.trashSize, mTotalSize, animate);
+        setCategoryStorageSizes(storageCache, animate);
         if (mSystemPreference != null) {
             mSystemPreference.setStorageSize(storageCache.systemSize, mTotalSize, animate);
         }
@@ -431,12 +425,37 @@ public class StorageItemPreferenceController extends AbstractPreferenceControlle
         setPrivateStorageCategoryPreferencesVisibility(true);
     }
 
-    private StorageCacheHelper.StorageCache getSizeInfo(
-            SparseArray<StorageAsyncLoader.StorageResult> result, int userId) {
-        if (result == null) {
-            return mStorageCacheHelper.retrieveCachedSize();
+    /**
+     * Fragments use it to show the storage result of a user before the other users are loaded.
+     * The system size depends on the results of all the users, so it is left for
+     * {@link #onLoadFinished}, and nothing is cached.
+     * @param result The StorageResult of the users loaded so far.
+     * @param userId User ID to get the storage size info
+     */
+    public void onPartialLoadFinished(
+            @NonNull SparseArray<StorageAsyncLoader.StorageResult> result, int userId) {
+        final StorageAsyncLoader.StorageResult data = result.get(userId);
+        if (data == null) {
+            return;
         }
-        StorageAsyncLoader.StorageResult data = result.get(userId);
+        setCategoryStorageSizes(toStorageCache(data), mIsPreferenceOrderedBySize /* animate */);
+        setPrivateStorageCategoryPreferencesVisibility(true);
+    }
+
+    private void setCategoryStorageSizes(StorageCacheHelper.StorageCache storageCache,
+            boolean animate) {
+        mImagesPreference.setStorageSize(storageCache.imagesSize, mTotalSize, animate);
+        mVideosPreference.setStorageSize(storageCache.videosSize, mTotalSize, animate);
+        mAudioPreference.setStorageSize(storageCache.audioSize, mTotalSize, animate);
+        mAppsPreference.setStorageSize(storageCache.allAppsExceptGamesSize, mTotalSize, animate);
+        mGamesPreference.setStorageSize(storageCache.gamesSize, mTotalSize, animate);
+        mDocumentsAndOtherPreference.setStorageSize(storageCache.documentsAndOtherSize, mTotalSize,
+                animate);
+        mTrashPreference.setStorageSize(storageCache.trashSize, mTotalSize, animate);
+    }
+
+    private static StorageCacheHelper.StorageCache toStorageCache(
+            StorageAsyncLoader.StorageResult data) {
         StorageCacheHelper.StorageCache storageCache = new StorageCacheHelper.StorageCache();
         storageCache.imagesSize = data.imagesSize;
         storageCache.videosSize = data.videosSize;
@@ -445,6 +464,15 @@ public class StorageItemPreferenceController extends AbstractPreferenceControlle
         storageCache.gamesSize = data.gamesSize;
         storageCache.documentsAndOtherSize = data.documentsAndOtherSize;
         storageCache.trashSize = data.trashSize;
+        return storageCache;
+    }
+
+    private StorageCacheHelper.StorageCache getSizeInfo(
+            SparseArray<StorageAsyncLoader.StorageResult> result, int userId) {
+        if (result == null) {
+            return mStorageCacheHelper.retrieveCachedSize();
+        }
+        StorageCacheHelper.StorageCache storageCache = toStorageCache(result.get(userId));
         // Everything else that hasn't already been attributed is tracked as
         // belonging to system.
         long attributedSize = 0;
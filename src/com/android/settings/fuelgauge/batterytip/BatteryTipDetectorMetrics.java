@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batterytip;
+
+import android.util.ArrayMap;
+
+import androidx.annotation.VisibleForTesting;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Map;
+
+/**
+ * Process-wide counters of how long each battery tip detector takes in {@link BatteryTipLoader}.
+ */
+public class BatteryTipDetectorMetrics {
+
+    private static final BatteryTipDetectorMetrics INSTANCE = new BatteryTipDetectorMetrics();
+
+    // Key: name of the detector, value: latency stats
+    private final Map<String, DetectorStats> mStatsByDetector = new ArrayMap<>();
+
+    public static BatteryTipDetectorMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    @VisibleForTesting
+    BatteryTipDetectorMetrics() {
+    }
+
+    /** Records the time it took for the detector {@code name} to run. */
+    public synchronized void recordLatency(String name, long latencyMs) {
+        DetectorStats stats = mStatsByDetector.get(name);
+        if (stats == null) {
+            stats = new DetectorStats();
+            mStatsByDetector.put(name, stats);
+        }
+        stats.mCount++;
+        stats.mTotalMs += latencyMs;
+        stats.mMaxMs = Math.max(stats.mMaxMs, latencyMs);
+    }
+
+    /** Returns the recorded latencies of every detector. */
+    public synchronized JSONObject dump() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        final JSONArray detectors = new JSONArray();
+        for (Map.Entry<String, DetectorStats> entry : mStatsByDetector.entrySet()) {
+            final DetectorStats stats = entry.getValue();
+            final JSONObject detector = new JSONObject();
+            detector.put("name", entry.getKey());
+            detector.put("count", stats.mCount);
+            detector.put("avgMs", stats.mTotalMs / stats.mCount);
+            detector.put("maxMs", stats.mMaxMs);
+            detectors.put(detector);
+        }
+        obj.put("detectors", detectors);
+        return obj;
+    }
+
+    @VisibleForTesting
+    synchronized void clear() {
+        mStatsByDetector.clear();
+    }
+
+    private static class DetectorStats {
+        int mCount;
+        long mTotalMs;
+        long mMaxMs;
+    }
+}
@@ -18,6 +18,10 @@ package com.android.settings.fuelgauge.batterytip;
 
 import android.content.Context;
 import android.os.BatteryUsageStats;
+import android.os.OperationCanceledException;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.text.format.DateUtils;
 
 import androidx.annotation.VisibleForTesting;
 
@@ -27,19 +31,42 @@ import com.android.settings.fuelgauge.batterytip.detectors.BatteryDefenderDetect
 import com.android.settings.fuelgauge.batterytip.detectors.HighUsageDetector;
 import com.android.settings.fuelgauge.batterytip.detectors.IncompatibleChargerDetector;
 import com.android.settings.fuelgauge.batterytip.tips.BatteryTip;
+import com.android.settings.fuelgauge.batterytip.tips.HighUsageTip;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.utils.AsyncLoaderCompat;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Loader to compute and return a battery tip list. It will always return a full length list even
  * though some tips may have state {@code BaseBatteryTip.StateType.INVISIBLE}.
+ *
+ * <p>The detectors run in parallel against the same battery info and policy, which they only
+ * read, then the detectors of the {@link
+ * com.android.settings.fuelgauge.BatterySettingsFeatureProvider} run with the detected tips. The
+ * latency of each detector is recorded in {@link BatteryTipDetectorMetrics}. The high usage tip is
+ * reused while the battery usage stats snapshot doesn't change.
  */
 public class BatteryTipLoader extends AsyncLoaderCompat<List<BatteryTip>> {
     private static final String TAG = "BatteryTipLoader";
+    private static final int MAX_DETECTOR_THREADS = 4;
+    private static final long DETECTOR_KEEP_ALIVE_SECONDS = 30;
+    // The system reuses the battery usage stats for a few minutes, so reopening the battery page
+    // usually loads the same snapshot again.
+    @VisibleForTesting
+    static final long HIGH_USAGE_CACHE_MILLIS = 5 * DateUtils.MINUTE_IN_MILLIS;
+
+    private static ExecutorService sDetectorExecutor;
+    private static HighUsageResult sHighUsageResult;
 
     private BatteryUsageStats mBatteryUsageStats;
 
@@ -58,18 +85,155 @@ public class BatteryTipLoader extends AsyncLoaderCompat<List<BatteryTip>> {
         final BatteryInfo batteryInfo = mBatteryUtils.getBatteryInfo(TAG);
         final Context context = getContext().getApplicationContext();
 
-        tips.add(
-                new HighUsageDetector(context, batteryTipPolicy, mBatteryUsageStats, batteryInfo)
-                        .detect());
-        tips.add(new BatteryDefenderDetector(batteryInfo, context).detect());
-        tips.add(new IncompatibleChargerDetector(context).detect());
-        FeatureFactory.getFeatureFactory()
-                .getBatterySettingsFeatureProvider()
-                .addBatteryTipDetector(context, tips, batteryInfo, batteryTipPolicy);
+        final List<Future<List<BatteryTip>>> futures = new ArrayList<>();
+        futures.add(detect("HighUsageDetector",
+                () -> List.of(detectHighUsage(context, batteryTipPolicy, batteryInfo))));
+        futures.add(detect("BatteryDefenderDetector",
+                () -> List.of(new BatteryDefenderDetector(batteryInfo, context).detect())));
+        futures.add(detect("IncompatibleChargerDetector",
+                () -> List.of(new IncompatibleChargerDetector(context).detect())));
+
+        try {
+            for (Future<List<BatteryTip>> future : futures) {
+                tips.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            // A partial list would hide tips, so cancel the load instead.
+            Thread.currentThread().interrupt();
+            throw new OperationCanceledException("Interrupted while detecting battery tips");
+        } catch (ExecutionException e) {
+            // Fail the same way as when the detectors ran on the loader thread.
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            // No-op for the detectors which are done.
+            for (Future<List<BatteryTip>> future : futures) {
+                future.cancel(true /* mayInterruptIfRunning */);
+            }
+        }
+
+        // Runs last, as it gets the tips detected so far and may inspect them.
+        final String name = "BatterySettingsFeatureProvider";
+        final long startTime = SystemClock.elapsedRealtime();
+        Trace.beginSection(TAG + "." + name);
+        try {
+            FeatureFactory.getFeatureFactory()
+                    .getBatterySettingsFeatureProvider()
+                    .addBatteryTipDetector(context, tips, batteryInfo, batteryTipPolicy);
+        } finally {
+            Trace.endSection();
+            recordLatency(name, startTime);
+        }
         Collections.sort(tips);
         return tips;
     }
 
     @Override
     protected void onDiscardResult(List<BatteryTip> result) {}
+
+    private HighUsageTip detectHighUsage(
+            Context context, BatteryTipPolicy policy, BatteryInfo batteryInfo) {
+        if (mBatteryUsageStats == null) {
+            return (HighUsageTip)
+                    new HighUsageDetector(context, policy, mBatteryUsageStats, batteryInfo)
+                            .detect();
+        }
+        final long snapshotTime = mBatteryUsageStats.getStatsEndTimestamp();
+        final long now = SystemClock.elapsedRealtime();
+        synchronized (BatteryTipLoader.class) {
+            if (sHighUsageResult != null
+                    && sHighUsageResult.matches(snapshotTime, policy, batteryInfo, now)) {
+                // The time since the last full charge still moves with the clock.
+                return new HighUsageTip(
+                        mBatteryUtils.calculateLastFullChargeTime(
+                                mBatteryUsageStats, System.currentTimeMillis()),
+                        new ArrayList<>(sHighUsageResult.mAppList));
+            }
+        }
+        final HighUsageTip tip =
+                (HighUsageTip)
+                        new HighUsageDetector(context, policy, mBatteryUsageStats, batteryInfo)
+                                .detect();
+        synchronized (BatteryTipLoader.class) {
+            sHighUsageResult = new HighUsageResult(snapshotTime, policy, batteryInfo, now,
+                    new ArrayList<>(tip.getHighUsageAppList()));
+        }
+        return tip;
+    }
+
+    private static Future<List<BatteryTip>> detect(
+            String name, Callable<List<BatteryTip>> detector) {
+        return getDetectorExecutor().submit(() -> {
+            final long startTime = SystemClock.elapsedRealtime();
+            Trace.beginSection(TAG + "." + name);
+            try {
+                return detector.call();
+            } finally {
+                Trace.endSection();
+                recordLatency(name, startTime);
+            }
+        });
+    }
+
+    private static void recordLatency(String name, long startTime) {
+        BatteryTipDetectorMetrics.getInstance().recordLatency(
+                name, SystemClock.elapsedRealtime() - startTime);
+    }
+
+    /** Returns the executor shared by all the loads, whose idle threads time out. */
+    private static synchronized ExecutorService getDetectorExecutor() {
+        if (sDetectorExecutor == null) {
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    MAX_DETECTOR_THREADS, MAX_DETECTOR_THREADS,
+                    DETECTOR_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+            executor.allowCoreThreadTimeOut(true);
+            sDetectorExecutor = executor;
+        }
+        return sDetectorExecutor;
+    }
+
+    @VisibleForTesting
+    static synchronized void clearHighUsageCache() {
+        sHighUsageResult = null;
+    }
+
+    /** Apps detected from a battery usage stats snapshot, and the inputs they depend on. */
+    private static class HighUsageResult {
+        final long mSnapshotTime;
+        final boolean mHighUsageEnabled;
+        final long mHighUsagePeriodMs;
+        final int mHighUsageBatteryDraining;
+        final int mHighUsageAppCount;
+        final boolean mTestHighUsageTip;
+        final boolean mDischarging;
+        final long mDetectTime;
+        final List<AppInfo> mAppList;
+
+        HighUsageResult(long snapshotTime, BatteryTipPolicy policy, BatteryInfo batteryInfo,
+                long detectTime, List<AppInfo> appList) {
+            mSnapshotTime = snapshotTime;
+            mHighUsageEnabled = policy.highUsageEnabled;
+            mHighUsagePeriodMs = policy.highUsagePeriodMs;
+            mHighUsageBatteryDraining = policy.highUsageBatteryDraining;
+            mHighUsageAppCount = policy.highUsageAppCount;
+            mTestHighUsageTip = policy.testHighUsageTip;
+            mDischarging = batteryInfo.discharging;
+            mDetectTime = detectTime;
+            mAppList = appList;
+        }
+
+        boolean matches(long snapshotTime, BatteryTipPolicy policy, BatteryInfo batteryInfo,
+                long now) {
+            return mSnapshotTime == snapshotTime
+                    && mHighUsageEnabled == policy.highUsageEnabled
+                    && mHighUsagePeriodMs == policy.highUsagePeriodMs
+                    && mHighUsageBatteryDraining == policy.highUsageBatteryDraining
+                    && mHighUsageAppCount == policy.highUsageAppCount
+                    && mTestHighUsageTip == policy.testHighUsageTip
+                    && mDischarging == batteryInfo.discharging
+                    && now - mDetectTime < HIGH_USAGE_CACHE_MILLIS;
+        }
+    }
 }
@@ -32,7 +32,9 @@ import com.android.settings.fuelgauge.batteryusage.db.AppUsageEventDao;
 import com.android.settings.fuelgauge.batteryusage.db.AppUsageEventEntity;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryEventDao;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryEventEntity;
+import com.android.settings.fuelgauge.batteryusage.db.BatterySnapshot;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryState;
+import com.android.settings.fuelgauge.batteryusage.db.BatteryStateCursor;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryStateDao;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryStateDatabase;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryUsageSlotDao;
@@ -164,7 +166,13 @@ public class BatteryUsageContentProvider extends ContentProvider {
         try {
             switch (sUriMatcher.match(uri)) {
                 case BATTERY_STATE_CODE:
-                    mBatteryStateDao.insert(BatteryState.create(contentValues));
+                    final BatteryInformation batteryInformation =
+                            ConvertUtils.getBatteryInformation(
+                                    contentValues, BatteryHistEntry.KEY_BATTERY_INFORMATION);
+                    final BatteryState state =
+                            BatteryState.create(contentValues, batteryInformation);
+                    mBatteryStateDao.insert(
+                            state, BatterySnapshot.create(state.timestamp, batteryInformation));
                     break;
                 case APP_USAGE_EVENT_CODE:
                     mAppUsageEventDao.insert(AppUsageEventEntity.create(contentValues));
@@ -239,7 +247,8 @@ public class BatteryUsageContentProvider extends ContentProvider {
         final long timestamp = mClock.millis();
         Cursor cursor = null;
         try {
-            cursor = mBatteryStateDao.getBatteryStatesAfter(queryTimestamp);
+            // Keeps the Base64 battery information column of the query contract.
+            cursor = new BatteryStateCursor(mBatteryStateDao.getBatteryStatesAfter(queryTimestamp));
         } catch (RuntimeException e) {
             Log.e(TAG, "query() from:" + uri + " error:", e);
         }
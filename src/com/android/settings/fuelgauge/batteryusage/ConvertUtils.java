@@ -39,6 +39,7 @@ import androidx.annotation.VisibleForTesting;
 import com.android.settings.fuelgauge.BatteryUtils;
 import com.android.settings.fuelgauge.batteryusage.db.AppUsageEventEntity;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryEventEntity;
+import com.android.settings.fuelgauge.batteryusage.db.BatteryState;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryUsageSlotEntity;
 
 import java.lang.annotation.Retention;
@@ -192,6 +193,10 @@ public final class ConvertUtils {
 
     /** Gets the {@link BatteryInformation} instance from {@link Cursor}. */
     public static BatteryInformation getBatteryInformation(final Cursor cursor, final String key) {
+        if (cursor.getColumnIndex(BatteryState.KEY_BATTERY_INFORMATION_BLOB) >= 0) {
+            // Rows from the database store the battery information in packed columns.
+            return BatteryState.getBatteryInformation(cursor);
+        }
         final BatteryInformation defaultInstance = BatteryInformation.getDefaultInstance();
         final int columnIndex = cursor.getColumnIndex(key);
         if (columnIndex >= 0) {
@@ -95,6 +95,10 @@ public class DataProcessManager {
     private boolean mIsDatabaseAppUsageLoaded = false;
     private boolean mIsBatteryEventLoaded = false;
     private boolean mIsBatteryUsageSlotLoaded = false;
+    private boolean mIsFromPeriodJob = false;
+    // Number of hourly slots reused from the database or computed by the last load.
+    private int mReusedSlotCount = 0;
+    private int mComputedSlotCount = 0;
     // Used to identify whether screen-on time data should be shown in the UI.
     private boolean mShowScreenOnTime = true;
     private Set<String> mSystemAppsPackageNames = null;
@@ -163,6 +167,7 @@ public class DataProcessManager {
 
     /** Starts the async tasks to load battery history data and app usage data. */
     public void start(boolean isFromPeriodJob) {
+        mIsFromPeriodJob = isFromPeriodJob;
         // If we have battery level data, load the battery history map and app usage simultaneously.
         if (mHourlyBatteryLevelsPerDay != null) {
             if (isFromPeriodJob) {
@@ -511,20 +516,33 @@ public class DataProcessManager {
                                     getSystemAppsPackageNames(),
                                     getSystemAppsUids()));
                 }
-                batteryDiffDataMap.putAll(
+                final Map<Long, BatteryDiffData> computedBatteryDiffDataMap =
                         DataProcessor.getBatteryDiffDataMap(
                                 mContext,
                                 mHourlyBatteryLevelsPerDay,
                                 mBatteryHistoryMap,
                                 mAppUsagePeriodMap,
                                 getSystemAppsPackageNames(),
-                                getSystemAppsUids()));
+                                getSystemAppsUids(),
+                                batteryDiffDataMap);
+                recordSlotCounts(batteryDiffDataMap, computedBatteryDiffDataMap);
+                if (!mIsFromPeriodJob) {
+                    saveNewlyClosedSlots(batteryDiffDataMap, computedBatteryDiffDataMap);
+                }
+                batteryDiffDataMap.putAll(computedBatteryDiffDataMap);
 
+                final long elapsedTimeMs = System.currentTimeMillis() - startTime;
+                DatabaseUtils.recordBatteryDiffDataLoad(
+                        mContext, mReusedSlotCount, mComputedSlotCount, elapsedTimeMs);
                 Log.d(
                         TAG,
                         String.format(
-                                "execute generateFinalDataAndApplyCallback size=%d in %d/ms",
-                                batteryDiffDataMap.size(), System.currentTimeMillis() - startTime));
+                                "execute generateFinalDataAndApplyCallback size=%d reused=%d"
+                                        + " computed=%d in %d/ms",
+                                batteryDiffDataMap.size(),
+                                mReusedSlotCount,
+                                mComputedSlotCount,
+                                elapsedTimeMs));
                 return batteryDiffDataMap;
             }
 
@@ -541,6 +559,45 @@ public class DataProcessManager {
         }.execute();
     }
 
+    private synchronized void recordSlotCounts(
+            final Map<Long, BatteryDiffData> cachedBatteryDiffDataMap,
+            final Map<Long, BatteryDiffData> computedBatteryDiffDataMap) {
+        int reusedSlotCount = 0;
+        for (Map.Entry<Long, BatteryDiffData> entry : computedBatteryDiffDataMap.entrySet()) {
+            if (cachedBatteryDiffDataMap.get(entry.getKey()) == entry.getValue()) {
+                reusedSlotCount++;
+            }
+        }
+        mReusedSlotCount = reusedSlotCount;
+        mComputedSlotCount = computedBatteryDiffDataMap.size() - reusedSlotCount;
+    }
+
+    /**
+     * Saves the closed slots which were computed here instead of being loaded from the database,
+     * so that the next load can reuse them. The last slot ends at the current time and is still
+     * open, so it is never saved.
+     */
+    private void saveNewlyClosedSlots(
+            final Map<Long, BatteryDiffData> cachedBatteryDiffDataMap,
+            final Map<Long, BatteryDiffData> computedBatteryDiffDataMap) {
+        long openSlotEndTimestamp = Long.MIN_VALUE;
+        for (BatteryDiffData batteryDiffData : computedBatteryDiffDataMap.values()) {
+            openSlotEndTimestamp =
+                    Math.max(openSlotEndTimestamp, batteryDiffData.getEndTimestamp());
+        }
+        final Map<Long, BatteryDiffData> newlyClosedSlots = new ArrayMap<>();
+        for (Map.Entry<Long, BatteryDiffData> entry : computedBatteryDiffDataMap.entrySet()) {
+            if (!cachedBatteryDiffDataMap.containsKey(entry.getKey())
+                    && entry.getValue().getEndTimestamp() < openSlotEndTimestamp) {
+                newlyClosedSlots.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (!newlyClosedSlots.isEmpty()) {
+            DatabaseUtils.sendBatteryUsageSlotData(
+                    mContext, ConvertUtils.convertToBatteryUsageSlotList(newlyClosedSlots));
+        }
+    }
+
     // Whether we should load app usage data from service or database.
     private synchronized boolean shouldLoadAppUsageData() {
         if (!mShowScreenOnTime) {
@@ -155,18 +155,34 @@ public final class DataProcessor {
                 mapEntry.setValue(currentBatteryHistoryMap);
             }
         }
-        return batteryLevelData == null
-                ? null
-                : generateBatteryUsageMap(
+        if (batteryLevelData == null) {
+            return null;
+        }
+        final Set<String> systemAppsPackageNames = getSystemAppsPackageNames(context);
+        final Set<Integer> systemAppsUids = getSystemAppsUids(context);
+        // Reuses the finalized hourly slots saved by the periodic job.
+        final Map<Long, BatteryDiffData> cachedBatteryDiffDataMap = new ArrayMap<>();
+        for (BatteryUsageSlot batteryUsageSlot :
+                DatabaseUtils.getBatteryUsageSlots(
                         context,
-                        getBatteryDiffDataMap(
-                                context,
-                                batteryLevelData.getHourlyBatteryLevelsPerDay(),
-                                processedBatteryHistoryMap,
-                                /* appUsagePeriodMap= */ null,
-                                getSystemAppsPackageNames(context),
-                                getSystemAppsUids(context)),
-                        batteryLevelData);
+                        Calendar.getInstance(),
+                        Collections.min(processedBatteryHistoryMap.keySet()))) {
+            cachedBatteryDiffDataMap.put(
+                    batteryUsageSlot.getStartTimestamp(),
+                    ConvertUtils.convertToBatteryDiffData(
+                            context, batteryUsageSlot, systemAppsPackageNames, systemAppsUids));
+        }
+        return generateBatteryUsageMap(
+                context,
+                getBatteryDiffDataMap(
+                        context,
+                        batteryLevelData.getHourlyBatteryLevelsPerDay(),
+                        processedBatteryHistoryMap,
+                        /* appUsagePeriodMap= */ null,
+                        systemAppsPackageNames,
+                        systemAppsUids,
+                        cachedBatteryDiffDataMap),
+                batteryLevelData);
     }
 
     /** Gets the {@link BatteryUsageStats} from system service. */
@@ -527,6 +543,29 @@ public final class DataProcessor {
                     appUsagePeriodMap,
             final @NonNull Set<String> systemAppsPackageNames,
             final @NonNull Set<Integer> systemAppsUids) {
+        return getBatteryDiffDataMap(
+                context,
+                hourlyBatteryLevelsPerDay,
+                batteryHistoryMap,
+                appUsagePeriodMap,
+                systemAppsPackageNames,
+                systemAppsUids,
+                /* cachedBatteryDiffDataMap= */ null);
+    }
+
+    /**
+     * Same as above, but reuses the slots of {@code cachedBatteryDiffDataMap} which cover exactly
+     * the same time range instead of computing them again.
+     */
+    static Map<Long, BatteryDiffData> getBatteryDiffDataMap(
+            Context context,
+            final List<BatteryLevelData.PeriodBatteryLevelData> hourlyBatteryLevelsPerDay,
+            final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap,
+            final Map<Integer, Map<Integer, Map<Long, Map<String, List<AppUsagePeriod>>>>>
+                    appUsagePeriodMap,
+            final @NonNull Set<String> systemAppsPackageNames,
+            final @NonNull Set<Integer> systemAppsUids,
+            final @Nullable Map<Long, BatteryDiffData> cachedBatteryDiffDataMap) {
         final Map<Long, BatteryDiffData> batteryDiffDataMap = new ArrayMap<>();
         final int currentUserId = context.getUserId();
         final UserHandle userHandle =
@@ -545,6 +584,15 @@ public final class DataProcessor {
             for (int hourlyIndex = 0; hourlyIndex < hourlyTimestamps.size() - 1; hourlyIndex++) {
                 final Long startTimestamp = hourlyTimestamps.get(hourlyIndex);
                 final Long endTimestamp = hourlyTimestamps.get(hourlyIndex + 1);
+                final BatteryDiffData cachedBatteryDiffData =
+                        cachedBatteryDiffDataMap == null
+                                ? null
+                                : cachedBatteryDiffDataMap.get(startTimestamp);
+                if (cachedBatteryDiffData != null
+                        && cachedBatteryDiffData.getEndTimestamp() == endTimestamp) {
+                    batteryDiffDataMap.put(startTimestamp, cachedBatteryDiffData);
+                    continue;
+                }
                 final int startBatteryLevel =
                         hourlyBatteryLevelsPerDay.get(dailyIndex).getLevels().get(hourlyIndex);
                 final int endBatteryLevel =
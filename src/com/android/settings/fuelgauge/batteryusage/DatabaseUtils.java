@@ -79,6 +79,11 @@ public final class DatabaseUtils {
     static final String KEY_LAST_UPLOAD_FULL_CHARGE_TIME = "last_upload_full_charge_time";
     static final String KEY_LAST_USAGE_SOURCE = "last_usage_source";
     static final String KEY_DISMISSED_POWER_ANOMALY_KEYS = "dismissed_power_anomaly_keys";
+    static final String KEY_LAST_DIFF_DATA_LOAD = "last_diff_data_load";
+    static final String KEY_DIFF_DATA_LOAD_COUNT = "diff_data_load_count";
+    static final String KEY_DIFF_DATA_REUSED_SLOTS = "diff_data_reused_slots";
+    static final String KEY_DIFF_DATA_COMPUTED_SLOTS = "diff_data_computed_slots";
+    static final String KEY_DIFF_DATA_TOTAL_TIME = "diff_data_total_time";
 
     /** An authority name of the battery content provider. */
     public static final String AUTHORITY = "com.android.settings.battery.usage.provider";
@@ -769,6 +774,8 @@ public final class DatabaseUtils {
         writeString(context, writer, "LastUploadFullChargeTime", KEY_LAST_UPLOAD_FULL_CHARGE_TIME);
         writeStringSet(
                 context, writer, "DismissedPowerAnomalyKeys", KEY_DISMISSED_POWER_ANOMALY_KEYS);
+        writeString(context, writer, "LastBatteryDiffDataLoad", KEY_LAST_DIFF_DATA_LOAD);
+        writeBatteryDiffDataLoads(context, writer);
     }
 
     static SharedPreferences getSharedPreferences(Context context) {
@@ -842,6 +849,44 @@ public final class DatabaseUtils {
         }
     }
 
+    /**
+     * Records one load of the hourly battery diff data, with the number of slots reused from the
+     * database and the number of slots computed from the battery history.
+     */
+    static synchronized void recordBatteryDiffDataLoad(
+            Context context, int reusedSlotCount, int computedSlotCount, long elapsedTimeMs) {
+        final SharedPreferences sharedPreferences = getSharedPreferences(context);
+        if (sharedPreferences == null) {
+            return;
+        }
+        final String lastLoad =
+                String.format(
+                        Locale.ENGLISH,
+                        "%s reused=%d computed=%d in %dms",
+                        utcToLocalTimeForLogging(System.currentTimeMillis()),
+                        reusedSlotCount,
+                        computedSlotCount,
+                        elapsedTimeMs);
+        sharedPreferences
+                .edit()
+                .putString(KEY_LAST_DIFF_DATA_LOAD, lastLoad)
+                .putInt(
+                        KEY_DIFF_DATA_LOAD_COUNT,
+                        sharedPreferences.getInt(KEY_DIFF_DATA_LOAD_COUNT, 0) + 1)
+                .putInt(
+                        KEY_DIFF_DATA_REUSED_SLOTS,
+                        sharedPreferences.getInt(KEY_DIFF_DATA_REUSED_SLOTS, 0)
+                                + reusedSlotCount)
+                .putInt(
+                        KEY_DIFF_DATA_COMPUTED_SLOTS,
+                        sharedPreferences.getInt(KEY_DIFF_DATA_COMPUTED_SLOTS, 0)
+                                + computedSlotCount)
+                .putLong(
+                        KEY_DIFF_DATA_TOTAL_TIME,
+                        sharedPreferences.getLong(KEY_DIFF_DATA_TOTAL_TIME, 0L) + elapsedTimeMs)
+                .apply();
+    }
+
     @VisibleForTesting
     static <T> T loadFromContentProvider(
             Context context, Uri uri, T defaultValue, Function<Cursor, T> cursorReader) {
@@ -929,6 +974,23 @@ public final class DatabaseUtils {
         writer.println(String.format("\t\t%s: %s", prefix, content));
     }
 
+    private static synchronized void writeBatteryDiffDataLoads(
+            Context context, PrintWriter writer) {
+        final SharedPreferences sharedPreferences = getSharedPreferences(context);
+        if (sharedPreferences == null) {
+            return;
+        }
+        writer.println(
+                String.format(
+                        Locale.ENGLISH,
+                        "\t\tBatteryDiffDataLoads: loads=%d reusedSlots=%d computedSlots=%d"
+                                + " totalTime=%dms",
+                        sharedPreferences.getInt(KEY_DIFF_DATA_LOAD_COUNT, 0),
+                        sharedPreferences.getInt(KEY_DIFF_DATA_REUSED_SLOTS, 0),
+                        sharedPreferences.getInt(KEY_DIFF_DATA_COMPUTED_SLOTS, 0),
+                        sharedPreferences.getLong(KEY_DIFF_DATA_TOTAL_TIME, 0L)));
+    }
+
     private static void writeStringSet(
             Context context, PrintWriter writer, String prefix, String key) {
         final SharedPreferences sharedPreferences = getSharedPreferences(context);
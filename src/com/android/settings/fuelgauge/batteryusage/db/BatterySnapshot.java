@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage.db;
+
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+import com.android.settings.fuelgauge.batteryusage.BatteryInformation;
+import com.android.settings.fuelgauge.batteryusage.ConvertUtils;
+import com.android.settings.fuelgauge.batteryusage.DeviceBatteryState;
+
+import java.util.Locale;
+
+/**
+ * A {@link Entity} class to save the device level information shared by all the {@link
+ * BatteryState} rows of one snapshot, so that it is stored once instead of once per app.
+ */
+@Entity
+public class BatterySnapshot {
+    /** Keys for accessing the joined {@link android.database.Cursor}. */
+    public static final String KEY_BOOT_TIMESTAMP = "bootTimestamp";
+
+    public static final String KEY_ZONE_ID = "zoneId";
+    public static final String KEY_TOTAL_POWER = "totalPower";
+    public static final String KEY_BATTERY_LEVEL = "batteryLevel";
+    public static final String KEY_BATTERY_STATUS = "batteryStatus";
+    public static final String KEY_BATTERY_HEALTH = "batteryHealth";
+
+    @PrimaryKey public final long timestamp;
+    public final long bootTimestamp;
+    public final String zoneId;
+    public final double totalPower;
+    public final int batteryLevel;
+    public final int batteryStatus;
+    public final int batteryHealth;
+
+    public BatterySnapshot(
+            long timestamp,
+            long bootTimestamp,
+            String zoneId,
+            double totalPower,
+            int batteryLevel,
+            int batteryStatus,
+            int batteryHealth) {
+        this.timestamp = timestamp;
+        this.bootTimestamp = bootTimestamp;
+        this.zoneId = zoneId;
+        this.totalPower = totalPower;
+        this.batteryLevel = batteryLevel;
+        this.batteryStatus = batteryStatus;
+        this.batteryHealth = batteryHealth;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                Locale.US,
+                "\nBatterySnapshot{\n\ttimestamp=%s|boot=%d|zoneId=%s|total=%f"
+                        + "|level=%d|status=%d|health=%d\n}",
+                ConvertUtils.utcToLocalTimeForLogging(timestamp),
+                bootTimestamp,
+                zoneId,
+                totalPower,
+                batteryLevel,
+                batteryStatus,
+                batteryHealth);
+    }
+
+    /** Creates new {@link BatterySnapshot} from the snapshot fields of {@code info}. */
+    public static BatterySnapshot create(long timestamp, BatteryInformation info) {
+        final DeviceBatteryState deviceBatteryState = info.getDeviceBatteryState();
+        return new BatterySnapshot(
+                timestamp,
+                info.getBootTimestamp(),
+                info.hasZoneId() ? info.getZoneId() : null,
+                info.getTotalPower(),
+                deviceBatteryState.getBatteryLevel(),
+                deviceBatteryState.getBatteryStatus(),
+                deviceBatteryState.getBatteryHealth());
+    }
+
+    /** Copies the snapshot fields into {@code builder}. */
+    void writeTo(BatteryInformation.Builder builder) {
+        if (bootTimestamp != 0) {
+            builder.setBootTimestamp(bootTimestamp);
+        }
+        if (zoneId != null) {
+            builder.setZoneId(zoneId);
+        }
+        if (totalPower != 0) {
+            builder.setTotalPower(totalPower);
+        }
+        builder.setDeviceBatteryState(
+                DeviceBatteryState.newBuilder()
+                        .setBatteryLevel(batteryLevel)
+                        .setBatteryStatus(batteryStatus)
+                        .setBatteryHealth(batteryHealth)
+                        .build());
+    }
+}
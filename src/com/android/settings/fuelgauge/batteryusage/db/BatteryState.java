@@ -17,21 +17,52 @@
 package com.android.settings.fuelgauge.batteryusage.db;
 
 import android.content.ContentValues;
+import android.database.Cursor;
+import android.util.Log;
 
+import androidx.annotation.Nullable;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
-import com.android.settings.fuelgauge.BatteryUtils;
+import com.android.settings.fuelgauge.batteryusage.BatteryHistEntry;
 import com.android.settings.fuelgauge.batteryusage.BatteryInformation;
 import com.android.settings.fuelgauge.batteryusage.ConvertUtils;
 
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import com.google.protobuf.InvalidProtocolBufferException;
 
 import java.util.Locale;
 
-/** A {@link Entity} class to save battery states snapshot into database. */
-@Entity
+/**
+ * A {@link Entity} class to save battery states snapshot into database.
+ *
+ * <p>The fields read when loading the battery usage history are stored as numeric columns, the
+ * device level fields are stored once per snapshot in {@link BatterySnapshot}, and the rest of
+ * the {@link BatteryInformation} is kept as a raw proto blob.
+ */
+@Entity(indices = {@Index("timestamp")})
 public class BatteryState {
+    private static final String TAG = "BatteryState";
+
+    /** Keys for accessing the packed columns from {@link Cursor}. */
+    public static final String KEY_IS_HIDDEN = "isHidden";
+
+    public static final String KEY_DRAIN_TYPE = "drainType";
+    public static final String KEY_CONSUME_POWER = "consumePower";
+    public static final String KEY_PERCENT_OF_TOTAL = "percentOfTotal";
+    public static final String KEY_FOREGROUND_USAGE_CONSUME_POWER = "foregroundUsageConsumePower";
+    public static final String KEY_FOREGROUND_SERVICE_USAGE_CONSUME_POWER =
+            "foregroundServiceUsageConsumePower";
+    public static final String KEY_BACKGROUND_USAGE_CONSUME_POWER = "backgroundUsageConsumePower";
+    public static final String KEY_CACHED_USAGE_CONSUME_POWER = "cachedUsageConsumePower";
+    public static final String KEY_FOREGROUND_USAGE_TIME_IN_MS = "foregroundUsageTimeInMs";
+    public static final String KEY_FOREGROUND_SERVICE_USAGE_TIME_IN_MS =
+            "foregroundServiceUsageTimeInMs";
+    public static final String KEY_BACKGROUND_USAGE_TIME_IN_MS = "backgroundUsageTimeInMs";
+    /** Key of the proto blob in {@link BatteryStateDao#getBatteryStatesAfter} rows. */
+    public static final String KEY_BATTERY_INFORMATION_BLOB = "batteryInformationBlob";
+
     @PrimaryKey(autoGenerate = true)
     private long mId;
 
@@ -42,7 +73,24 @@ public class BatteryState {
     public final long timestamp;
     public final int consumerType;
     public final boolean isFullChargeCycleStart;
-    public final String batteryInformation;
+    // Records the battery usage relative information.
+    public final boolean isHidden;
+    public final int drainType;
+    public final double consumePower;
+    public final double percentOfTotal;
+    public final double foregroundUsageConsumePower;
+    public final double foregroundServiceUsageConsumePower;
+    public final double backgroundUsageConsumePower;
+    public final double cachedUsageConsumePower;
+    public final long foregroundUsageTimeInMs;
+    public final long foregroundServiceUsageTimeInMs;
+    public final long backgroundUsageTimeInMs;
+
+    /**
+     * The serialized {@link BatteryInformation} without the fields stored in the columns above or
+     * in {@link BatterySnapshot}.
+     */
+    public final byte[] batteryInformation;
 
     /**
      * This field is filled only when build type is "userdebug".
@@ -64,7 +112,18 @@ public class BatteryState {
             long timestamp,
             int consumerType,
             boolean isFullChargeCycleStart,
-            String batteryInformation,
+            boolean isHidden,
+            int drainType,
+            double consumePower,
+            double percentOfTotal,
+            double foregroundUsageConsumePower,
+            double foregroundServiceUsageConsumePower,
+            double backgroundUsageConsumePower,
+            double cachedUsageConsumePower,
+            long foregroundUsageTimeInMs,
+            long foregroundServiceUsageTimeInMs,
+            long backgroundUsageTimeInMs,
+            byte[] batteryInformation,
             String batteryInformationDebug) {
         // Records the app relative information.
         this.uid = uid;
@@ -73,6 +132,18 @@ public class BatteryState {
         this.timestamp = timestamp;
         this.consumerType = consumerType;
         this.isFullChargeCycleStart = isFullChargeCycleStart;
+        // Records the battery usage relative information.
+        this.isHidden = isHidden;
+        this.drainType = drainType;
+        this.consumePower = consumePower;
+        this.percentOfTotal = percentOfTotal;
+        this.foregroundUsageConsumePower = foregroundUsageConsumePower;
+        this.foregroundServiceUsageConsumePower = foregroundServiceUsageConsumePower;
+        this.backgroundUsageConsumePower = backgroundUsageConsumePower;
+        this.cachedUsageConsumePower = cachedUsageConsumePower;
+        this.foregroundUsageTimeInMs = foregroundUsageTimeInMs;
+        this.foregroundServiceUsageTimeInMs = foregroundServiceUsageTimeInMs;
+        this.backgroundUsageTimeInMs = backgroundUsageTimeInMs;
         this.batteryInformation = batteryInformation;
         this.batteryInformationDebug = batteryInformationDebug;
     }
@@ -87,12 +158,56 @@ public class BatteryState {
         return mId;
     }
 
+    /**
+     * Rebuilds the full {@link BatteryInformation} from the packed columns, the proto blob and the
+     * shared {@code snapshot} if any.
+     */
+    public BatteryInformation toBatteryInformation(@Nullable BatterySnapshot snapshot) {
+        final BatteryInformation.Builder builder = parseBlob(batteryInformation).toBuilder();
+        if (isHidden) {
+            builder.setIsHidden(true);
+        }
+        if (drainType != 0) {
+            builder.setDrainType(drainType);
+        }
+        if (consumePower != 0) {
+            builder.setConsumePower(consumePower);
+        }
+        if (percentOfTotal != 0) {
+            builder.setPercentOfTotal(percentOfTotal);
+        }
+        if (foregroundUsageConsumePower != 0) {
+            builder.setForegroundUsageConsumePower(foregroundUsageConsumePower);
+        }
+        if (foregroundServiceUsageConsumePower != 0) {
+            builder.setForegroundServiceUsageConsumePower(foregroundServiceUsageConsumePower);
+        }
+        if (backgroundUsageConsumePower != 0) {
+            builder.setBackgroundUsageConsumePower(backgroundUsageConsumePower);
+        }
+        if (cachedUsageConsumePower != 0) {
+            builder.setCachedUsageConsumePower(cachedUsageConsumePower);
+        }
+        if (foregroundUsageTimeInMs != 0) {
+            builder.setForegroundUsageTimeInMs(foregroundUsageTimeInMs);
+        }
+        if (foregroundServiceUsageTimeInMs != 0) {
+            builder.setForegroundServiceUsageTimeInMs(foregroundServiceUsageTimeInMs);
+        }
+        if (backgroundUsageTimeInMs != 0) {
+            builder.setBackgroundUsageTimeInMs(backgroundUsageTimeInMs);
+        }
+        if (snapshot != null) {
+            snapshot.writeTo(builder);
+        }
+        return builder.build();
+    }
+
     @Override
     public String toString() {
         final String recordAtDateTime = ConvertUtils.utcToLocalTimeForLogging(timestamp);
         final BatteryInformation batteryInformationInstance =
-                BatteryUtils.parseProtoFromString(
-                        batteryInformation, BatteryInformation.getDefaultInstance());
+                toBatteryInformation(/* snapshot= */ null);
         final StringBuilder builder =
                 new StringBuilder()
                         .append("\nBatteryState{")
@@ -115,8 +230,60 @@ public class BatteryState {
         return builder.toString();
     }
 
+    /**
+     * Gets the {@link BatteryInformation} from a row returned by {@link
+     * BatteryStateDao#getBatteryStatesAfter} without decoding the fields stored in columns.
+     */
+    public static BatteryInformation getBatteryInformation(Cursor cursor) {
+        final BatteryInformation.Builder builder =
+                parseBlob(getBlob(cursor, KEY_BATTERY_INFORMATION_BLOB)).toBuilder();
+        builder.setIsHidden(getLong(cursor, KEY_IS_HIDDEN) != 0)
+                .setDrainType((int) getLong(cursor, KEY_DRAIN_TYPE))
+                .setConsumePower(getDouble(cursor, KEY_CONSUME_POWER))
+                .setPercentOfTotal(getDouble(cursor, KEY_PERCENT_OF_TOTAL))
+                .setForegroundUsageConsumePower(
+                        getDouble(cursor, KEY_FOREGROUND_USAGE_CONSUME_POWER))
+                .setForegroundServiceUsageConsumePower(
+                        getDouble(cursor, KEY_FOREGROUND_SERVICE_USAGE_CONSUME_POWER))
+                .setBackgroundUsageConsumePower(
+                        getDouble(cursor, KEY_BACKGROUND_USAGE_CONSUME_POWER))
+                .setCachedUsageConsumePower(getDouble(cursor, KEY_CACHED_USAGE_CONSUME_POWER))
+                .setForegroundUsageTimeInMs(getLong(cursor, KEY_FOREGROUND_USAGE_TIME_IN_MS))
+                .setForegroundServiceUsageTimeInMs(
+                        getLong(cursor, KEY_FOREGROUND_SERVICE_USAGE_TIME_IN_MS))
+                .setBackgroundUsageTimeInMs(getLong(cursor, KEY_BACKGROUND_USAGE_TIME_IN_MS))
+                .setBootTimestamp(getLong(cursor, BatterySnapshot.KEY_BOOT_TIMESTAMP))
+                .setTotalPower(getDouble(cursor, BatterySnapshot.KEY_TOTAL_POWER))
+                .setDeviceBatteryState(
+                        builder.getDeviceBatteryState().toBuilder()
+                                .setBatteryLevel(
+                                        (int) getLong(cursor, BatterySnapshot.KEY_BATTERY_LEVEL))
+                                .setBatteryStatus(
+                                        (int) getLong(cursor, BatterySnapshot.KEY_BATTERY_STATUS))
+                                .setBatteryHealth(
+                                        (int) getLong(cursor, BatterySnapshot.KEY_BATTERY_HEALTH))
+                                .build());
+        final int zoneIdIndex = cursor.getColumnIndex(BatterySnapshot.KEY_ZONE_ID);
+        if (zoneIdIndex >= 0 && !cursor.isNull(zoneIdIndex)) {
+            builder.setZoneId(cursor.getString(zoneIdIndex));
+        }
+        return builder.build();
+    }
+
     /** Creates new {@link BatteryState} from {@link ContentValues}. */
     public static BatteryState create(ContentValues contentValues) {
+        return create(
+                contentValues,
+                ConvertUtils.getBatteryInformation(
+                        contentValues, BatteryHistEntry.KEY_BATTERY_INFORMATION));
+    }
+
+    /**
+     * Creates new {@link BatteryState} from {@link ContentValues} whose battery information is
+     * already decoded into {@code batteryInformation}.
+     */
+    public static BatteryState create(
+            ContentValues contentValues, BatteryInformation batteryInformation) {
         Builder builder = BatteryState.newBuilder();
         if (contentValues.containsKey("uid")) {
             builder.setUid(contentValues.getAsLong("uid"));
@@ -136,9 +303,7 @@ public class BatteryState {
         if (contentValues.containsKey("isFullChargeCycleStart")) {
             builder.setIsFullChargeCycleStart(contentValues.getAsBoolean("isFullChargeCycleStart"));
         }
-        if (contentValues.containsKey("batteryInformation")) {
-            builder.setBatteryInformation(contentValues.getAsString("batteryInformation"));
-        }
+        builder.setBatteryInformation(batteryInformation);
         if (contentValues.containsKey("batteryInformationDebug")) {
             builder.setBatteryInformationDebug(
                     contentValues.getAsString("batteryInformationDebug"));
@@ -151,6 +316,33 @@ public class BatteryState {
         return new Builder();
     }
 
+    private static BatteryInformation parseBlob(byte[] blob) {
+        if (blob == null || blob.length == 0) {
+            return BatteryInformation.getDefaultInstance();
+        }
+        try {
+            return BatteryInformation.parseFrom(blob);
+        } catch (InvalidProtocolBufferException e) {
+            Log.e(TAG, "Failed to deserialize battery information", e);
+            return BatteryInformation.getDefaultInstance();
+        }
+    }
+
+    private static byte[] getBlob(Cursor cursor, String key) {
+        final int columnIndex = cursor.getColumnIndex(key);
+        return columnIndex >= 0 ? cursor.getBlob(columnIndex) : null;
+    }
+
+    private static long getLong(Cursor cursor, String key) {
+        final int columnIndex = cursor.getColumnIndex(key);
+        return columnIndex >= 0 ? cursor.getLong(columnIndex) : 0L;
+    }
+
+    private static double getDouble(Cursor cursor, String key) {
+        final int columnIndex = cursor.getColumnIndex(key);
+        return columnIndex >= 0 ? cursor.getDouble(columnIndex) : 0;
+    }
+
     /** A convenience builder class to improve readability. */
     public static class Builder {
         private long mUid;
@@ -159,7 +351,7 @@ public class BatteryState {
         private long mTimestamp;
         private int mConsumerType;
         private boolean mIsFullChargeCycleStart;
-        private String mBatteryInformation;
+        private BatteryInformation mBatteryInformation = BatteryInformation.getDefaultInstance();
         private String mBatteryInformationDebug;
 
         /** Sets the uid. */
@@ -206,7 +398,7 @@ public class BatteryState {
 
         /** Sets the battery information. */
         @CanIgnoreReturnValue
-        public Builder setBatteryInformation(String batteryInformation) {
+        public Builder setBatteryInformation(BatteryInformation batteryInformation) {
             this.mBatteryInformation = batteryInformation;
             return this;
         }
@@ -220,6 +412,26 @@ public class BatteryState {
 
         /** Builds the BatteryState. */
         public BatteryState build() {
+            final BatteryInformation info = mBatteryInformation;
+            // Keeps only the fields which are not stored in columns or in the snapshot.
+            final BatteryInformation remaining =
+                    info.toBuilder()
+                            .clearDeviceBatteryState()
+                            .clearBootTimestamp()
+                            .clearZoneId()
+                            .clearTotalPower()
+                            .clearIsHidden()
+                            .clearDrainType()
+                            .clearConsumePower()
+                            .clearPercentOfTotal()
+                            .clearForegroundUsageConsumePower()
+                            .clearForegroundServiceUsageConsumePower()
+                            .clearBackgroundUsageConsumePower()
+                            .clearCachedUsageConsumePower()
+                            .clearForegroundUsageTimeInMs()
+                            .clearForegroundServiceUsageTimeInMs()
+                            .clearBackgroundUsageTimeInMs()
+                            .build();
             return new BatteryState(
                     mUid,
                     mUserId,
@@ -227,7 +439,18 @@ public class BatteryState {
                     mTimestamp,
                     mConsumerType,
                     mIsFullChargeCycleStart,
-                    mBatteryInformation,
+                    info.getIsHidden(),
+                    info.getDrainType(),
+                    info.getConsumePower(),
+                    info.getPercentOfTotal(),
+                    info.getForegroundUsageConsumePower(),
+                    info.getForegroundServiceUsageConsumePower(),
+                    info.getBackgroundUsageConsumePower(),
+                    info.getCachedUsageConsumePower(),
+                    info.getForegroundUsageTimeInMs(),
+                    info.getForegroundServiceUsageTimeInMs(),
+                    info.getBackgroundUsageTimeInMs(),
+                    remaining.toByteArray(),
                     mBatteryInformationDebug);
         }
 
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage.db;
+
+import android.database.Cursor;
+import android.database.CursorWrapper;
+
+import com.android.settings.fuelgauge.batteryusage.BatteryHistEntry;
+import com.android.settings.fuelgauge.batteryusage.ConvertUtils;
+
+import java.util.Arrays;
+
+/**
+ * Wraps the rows of {@link BatteryStateDao#getBatteryStatesAfter} to keep the column contract of
+ * the battery state query: {@link BatteryHistEntry#KEY_BATTERY_INFORMATION} holds the Base64
+ * encoded {@link com.android.settings.fuelgauge.batteryusage.BatteryInformation}.
+ *
+ * <p>The Base64 column is only built when it is read, so readers which use the packed columns
+ * (such as {@link ConvertUtils#getBatteryInformation(Cursor, String)}) never pay for it. This is
+ * a plain {@link CursorWrapper} on purpose: cross process readers fill their window through the
+ * getters below instead of copying the underlying window.
+ */
+public class BatteryStateCursor extends CursorWrapper {
+
+    private final String[] mColumnNames;
+    private final int mBatteryInformationIndex;
+
+    public BatteryStateCursor(Cursor cursor) {
+        super(cursor);
+        final String[] columnNames = cursor.getColumnNames();
+        mBatteryInformationIndex = columnNames.length;
+        mColumnNames = Arrays.copyOf(columnNames, columnNames.length + 1);
+        mColumnNames[mBatteryInformationIndex] = BatteryHistEntry.KEY_BATTERY_INFORMATION;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return mColumnNames.length;
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return mColumnNames.clone();
+    }
+
+    @Override
+    public String getColumnName(int columnIndex) {
+        return columnIndex == mBatteryInformationIndex
+                ? BatteryHistEntry.KEY_BATTERY_INFORMATION
+                : super.getColumnName(columnIndex);
+    }
+
+    @Override
+    public int getColumnIndex(String columnName) {
+        return BatteryHistEntry.KEY_BATTERY_INFORMATION.equals(columnName)
+                ? mBatteryInformationIndex
+                : super.getColumnIndex(columnName);
+    }
+
+    @Override
+    public int getColumnIndexOrThrow(String columnName) {
+        return BatteryHistEntry.KEY_BATTERY_INFORMATION.equals(columnName)
+                ? mBatteryInformationIndex
+                : super.getColumnIndexOrThrow(columnName);
+    }
+
+    @Override
+    public int getType(int columnIndex) {
+        return columnIndex == mBatteryInformationIndex
+                ? FIELD_TYPE_STRING
+                : super.getType(columnIndex);
+    }
+
+    @Override
+    public boolean isNull(int columnIndex) {
+        return columnIndex != mBatteryInformationIndex && super.isNull(columnIndex);
+    }
+
+    @Override
+    public String getString(int columnIndex) {
+        if (columnIndex == mBatteryInformationIndex) {
+            return ConvertUtils.convertBatteryInformationToString(
+                    BatteryState.getBatteryInformation(getWrappedCursor()));
+        }
+        return super.getString(columnIndex);
+    }
+
+    @Override
+    public byte[] getBlob(int columnIndex) {
+        checkNotBatteryInformation(columnIndex);
+        return super.getBlob(columnIndex);
+    }
+
+    @Override
+    public short getShort(int columnIndex) {
+        checkNotBatteryInformation(columnIndex);
+        return super.getShort(columnIndex);
+    }
+
+    @Override
+    public int getInt(int columnIndex) {
+        checkNotBatteryInformation(columnIndex);
+        return super.getInt(columnIndex);
+    }
+
+    @Override
+    public long getLong(int columnIndex) {
+        checkNotBatteryInformation(columnIndex);
+        return super.getLong(columnIndex);
+    }
+
+    @Override
+    public float getFloat(int columnIndex) {
+        checkNotBatteryInformation(columnIndex);
+        return super.getFloat(columnIndex);
+    }
+
+    @Override
+    public double getDouble(int columnIndex) {
+        checkNotBatteryInformation(columnIndex);
+        return super.getDouble(columnIndex);
+    }
+
+    private void checkNotBatteryInformation(int columnIndex) {
+        if (columnIndex == mBatteryInformationIndex) {
+            throw new IllegalStateException(
+                    BatteryHistEntry.KEY_BATTERY_INFORMATION + " is a string column");
+        }
+    }
+}
@@ -22,6 +22,7 @@ import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 
 import java.util.List;
 
@@ -33,16 +34,62 @@ public interface BatteryStateDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insert(BatteryState state);
 
-    /** Inserts {@link BatteryState} data into the database. */
+    /** Inserts {@link BatteryState} data without their {@link BatterySnapshot}. */
     @Insert(onConflict = OnConflictStrategy.REPLACE)
-    void insertAll(List<BatteryState> states);
+    void insertStates(List<BatteryState> states);
+
+    /** Inserts a {@link BatterySnapshot} unless the snapshot is already recorded. */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertSnapshot(BatterySnapshot snapshot);
+
+    /** Inserts a {@link BatteryState} together with its {@link BatterySnapshot}. */
+    @Transaction
+    default void insert(BatteryState state, BatterySnapshot snapshot) {
+        insertSnapshot(snapshot);
+        insert(state);
+    }
+
+    /** Inserts the {@link BatteryState} data of one snapshot together with its snapshot row. */
+    @Transaction
+    default void insertAll(List<BatteryState> states, BatterySnapshot snapshot) {
+        insertSnapshot(snapshot);
+        insertStates(states);
+    }
+
+    /** Gets the {@link BatterySnapshot} recorded at the given timestamp. */
+    @Query("SELECT * FROM BatterySnapshot WHERE timestamp = :timestamp")
+    BatterySnapshot getSnapshot(long timestamp);
 
     /** Gets the {@link Cursor} of the latest record timestamp no later than the given timestamp. */
     @Query("SELECT MAX(timestamp) FROM BatteryState WHERE timestamp <= :timestamp")
     Cursor getLatestTimestampBefore(long timestamp);
 
-    /** Lists all recorded battery states after a specific timestamp. */
-    @Query("SELECT * FROM BatteryState WHERE timestamp >= :timestamp ORDER BY timestamp ASC")
+    /**
+     * Lists all recorded battery states after a specific timestamp, joined with the fields of
+     * their {@link BatterySnapshot}. The proto blob is returned as {@link
+     * BatteryState#KEY_BATTERY_INFORMATION_BLOB}, see {@link BatteryStateCursor}.
+     */
+    @Query(
+            "SELECT BatteryState.mId, BatteryState.uid, BatteryState.userId,"
+                    + " BatteryState.packageName, BatteryState.timestamp,"
+                    + " BatteryState.consumerType, BatteryState.isFullChargeCycleStart,"
+                    + " BatteryState.isHidden, BatteryState.drainType, BatteryState.consumePower,"
+                    + " BatteryState.percentOfTotal, BatteryState.foregroundUsageConsumePower,"
+                    + " BatteryState.foregroundServiceUsageConsumePower,"
+                    + " BatteryState.backgroundUsageConsumePower,"
+                    + " BatteryState.cachedUsageConsumePower,"
+                    + " BatteryState.foregroundUsageTimeInMs,"
+                    + " BatteryState.foregroundServiceUsageTimeInMs,"
+                    + " BatteryState.backgroundUsageTimeInMs,"
+                    + " BatteryState.batteryInformation AS batteryInformationBlob,"
+                    + " BatteryState.batteryInformationDebug,"
+                    + " BatterySnapshot.bootTimestamp, BatterySnapshot.zoneId,"
+                    + " BatterySnapshot.totalPower, BatterySnapshot.batteryLevel,"
+                    + " BatterySnapshot.batteryStatus, BatterySnapshot.batteryHealth"
+                    + " FROM BatteryState LEFT JOIN BatterySnapshot"
+                    + " ON BatteryState.timestamp = BatterySnapshot.timestamp"
+                    + " WHERE BatteryState.timestamp >= :timestamp"
+                    + " ORDER BY BatteryState.timestamp ASC")
     Cursor getBatteryStatesAfter(long timestamp);
 
     /** Lists all recorded data after a specific timestamp. */
@@ -57,11 +104,33 @@ public interface BatteryStateDao {
     @Query("SELECT DISTINCT timestamp FROM BatteryState WHERE timestamp > :timestamp")
     List<Long> getDistinctTimestamps(long timestamp);
 
-    /** Deletes all recorded data before a specific timestamp. */
+    /** Deletes all recorded battery states before a specific timestamp. */
     @Query("DELETE FROM BatteryState WHERE timestamp <= :timestamp")
-    void clearAllBefore(long timestamp);
+    void clearStatesBefore(long timestamp);
 
-    /** Clears all recorded data in the database. */
+    /** Deletes all recorded snapshots before a specific timestamp. */
+    @Query("DELETE FROM BatterySnapshot WHERE timestamp <= :timestamp")
+    void clearSnapshotsBefore(long timestamp);
+
+    /** Clears all recorded battery states in the database. */
     @Query("DELETE FROM BatteryState")
-    void clearAll();
+    void clearStates();
+
+    /** Clears all recorded snapshots in the database. */
+    @Query("DELETE FROM BatterySnapshot")
+    void clearSnapshots();
+
+    /** Deletes all recorded data before a specific timestamp. */
+    @Transaction
+    default void clearAllBefore(long timestamp) {
+        clearStatesBefore(timestamp);
+        clearSnapshotsBefore(timestamp);
+    }
+
+    /** Clears all recorded data in the database. */
+    @Transaction
+    default void clearAll() {
+        clearStates();
+        clearSnapshots();
+    }
 }
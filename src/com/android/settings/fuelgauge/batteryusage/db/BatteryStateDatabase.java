@@ -16,12 +16,24 @@
 
 package com.android.settings.fuelgauge.batteryusage.db;
 
+import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
 import android.util.Log;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.android.settings.fuelgauge.batteryusage.BatteryHistEntry;
+import com.android.settings.fuelgauge.batteryusage.BatteryInformation;
+import com.android.settings.fuelgauge.batteryusage.ConvertUtils;
 
 /** A {@link RoomDatabase} for battery usage states history. */
 @Database(
@@ -29,14 +41,83 @@ import androidx.room.RoomDatabase;
             AppUsageEventEntity.class,
             BatteryEventEntity.class,
             BatteryState.class,
+            BatterySnapshot.class,
             BatteryUsageSlotEntity.class
         },
-        version = 1)
+        version = 3)
 public abstract class BatteryStateDatabase extends RoomDatabase {
     private static final String TAG = "BatteryStateDatabase";
 
     private static BatteryStateDatabase sBatteryStateDatabase;
 
+    /**
+     * Moves {@link BatteryState} from Base64 encoded protos to packed columns, a raw proto blob
+     * and a per-snapshot {@link BatterySnapshot} row.
+     */
+    @VisibleForTesting
+    static final Migration MIGRATION_1_2 =
+            new Migration(1, 2) {
+                @Override
+                public void migrate(@NonNull SupportSQLiteDatabase database) {
+                    database.execSQL("ALTER TABLE `BatteryState` RENAME TO `BatteryState_v1`");
+                    database.execSQL(
+                            "CREATE TABLE IF NOT EXISTS `BatteryState` (`mId` INTEGER PRIMARY KEY"
+                                    + " AUTOINCREMENT NOT NULL, `uid` INTEGER NOT NULL,"
+                                    + " `userId` INTEGER NOT NULL, `packageName` TEXT,"
+                                    + " `timestamp` INTEGER NOT NULL,"
+                                    + " `consumerType` INTEGER NOT NULL,"
+                                    + " `isFullChargeCycleStart` INTEGER NOT NULL,"
+                                    + " `isHidden` INTEGER NOT NULL,"
+                                    + " `drainType` INTEGER NOT NULL,"
+                                    + " `consumePower` REAL NOT NULL,"
+                                    + " `percentOfTotal` REAL NOT NULL,"
+                                    + " `foregroundUsageConsumePower` REAL NOT NULL,"
+                                    + " `foregroundServiceUsageConsumePower` REAL NOT NULL,"
+                                    + " `backgroundUsageConsumePower` REAL NOT NULL,"
+                                    + " `cachedUsageConsumePower` REAL NOT NULL,"
+                                    + " `foregroundUsageTimeInMs` INTEGER NOT NULL,"
+                                    + " `foregroundServiceUsageTimeInMs` INTEGER NOT NULL,"
+                                    + " `backgroundUsageTimeInMs` INTEGER NOT NULL,"
+                                    + " `batteryInformation` BLOB,"
+                                    + " `batteryInformationDebug` TEXT)");
+                    database.execSQL(
+                            "CREATE INDEX IF NOT EXISTS `index_BatteryState_timestamp`"
+                                    + " ON `BatteryState` (`timestamp`)");
+                    database.execSQL(
+                            "CREATE TABLE IF NOT EXISTS `BatterySnapshot` ("
+                                    + "`timestamp` INTEGER NOT NULL,"
+                                    + " `bootTimestamp` INTEGER NOT NULL, `zoneId` TEXT,"
+                                    + " `totalPower` REAL NOT NULL,"
+                                    + " `batteryLevel` INTEGER NOT NULL,"
+                                    + " `batteryStatus` INTEGER NOT NULL,"
+                                    + " `batteryHealth` INTEGER NOT NULL,"
+                                    + " PRIMARY KEY(`timestamp`))");
+                    try (Cursor cursor = database.query("SELECT * FROM `BatteryState_v1`")) {
+                        while (cursor.moveToNext()) {
+                            migrateRow(database, cursor);
+                        }
+                    }
+                    database.execSQL("DROP TABLE `BatteryState_v1`");
+                }
+            };
+
+    /** Keeps one {@link BatteryUsageSlotEntity} per start timestamp. */
+    @VisibleForTesting
+    static final Migration MIGRATION_2_3 =
+            new Migration(2, 3) {
+                @Override
+                public void migrate(@NonNull SupportSQLiteDatabase database) {
+                    database.execSQL(
+                            "DELETE FROM `BatteryUsageSlotEntity` WHERE `mId` NOT IN"
+                                    + " (SELECT MAX(`mId`) FROM `BatteryUsageSlotEntity`"
+                                    + " GROUP BY `timestamp`)");
+                    database.execSQL(
+                            "CREATE UNIQUE INDEX IF NOT EXISTS"
+                                    + " `index_BatteryUsageSlotEntity_timestamp`"
+                                    + " ON `BatteryUsageSlotEntity` (`timestamp`)");
+                }
+            };
+
     /** Provides DAO for app usage event table. */
     public abstract AppUsageEventDao appUsageEventDao();
 
@@ -56,6 +137,7 @@ public abstract class BatteryStateDatabase extends RoomDatabase {
                     Room.databaseBuilder(context, BatteryStateDatabase.class, "battery-usage-db-v9")
                             // Allows accessing data in the main thread for dumping bugreport.
                             .allowMainThreadQueries()
+                            .addMigrations(MIGRATION_1_2, MIGRATION_2_3)
                             .fallbackToDestructiveMigration()
                             .build();
             Log.d(TAG, "initialize battery states database");
@@ -67,4 +149,59 @@ public abstract class BatteryStateDatabase extends RoomDatabase {
     public static void setBatteryStateDatabase(BatteryStateDatabase database) {
         BatteryStateDatabase.sBatteryStateDatabase = database;
     }
+
+    private static void migrateRow(SupportSQLiteDatabase database, Cursor cursor) {
+        final ContentValues oldValues = new ContentValues();
+        DatabaseUtils.cursorRowToContentValues(cursor, oldValues);
+        final BatteryInformation info =
+                ConvertUtils.getBatteryInformation(
+                        oldValues, BatteryHistEntry.KEY_BATTERY_INFORMATION);
+        final BatteryState state = BatteryState.create(oldValues, info);
+        final BatterySnapshot snapshot = BatterySnapshot.create(state.timestamp, info);
+
+        final ContentValues stateValues = new ContentValues();
+        stateValues.put(BatteryHistEntry.KEY_UID, state.uid);
+        stateValues.put(BatteryHistEntry.KEY_USER_ID, state.userId);
+        stateValues.put(BatteryHistEntry.KEY_PACKAGE_NAME, state.packageName);
+        stateValues.put(BatteryHistEntry.KEY_TIMESTAMP, state.timestamp);
+        stateValues.put(BatteryHistEntry.KEY_CONSUMER_TYPE, state.consumerType);
+        stateValues.put(
+                BatteryHistEntry.KEY_IS_FULL_CHARGE_CYCLE_START, state.isFullChargeCycleStart);
+        stateValues.put(BatteryState.KEY_IS_HIDDEN, state.isHidden);
+        stateValues.put(BatteryState.KEY_DRAIN_TYPE, state.drainType);
+        stateValues.put(BatteryState.KEY_CONSUME_POWER, state.consumePower);
+        stateValues.put(BatteryState.KEY_PERCENT_OF_TOTAL, state.percentOfTotal);
+        stateValues.put(
+                BatteryState.KEY_FOREGROUND_USAGE_CONSUME_POWER,
+                state.foregroundUsageConsumePower);
+        stateValues.put(
+                BatteryState.KEY_FOREGROUND_SERVICE_USAGE_CONSUME_POWER,
+                state.foregroundServiceUsageConsumePower);
+        stateValues.put(
+                BatteryState.KEY_BACKGROUND_USAGE_CONSUME_POWER,
+                state.backgroundUsageConsumePower);
+        stateValues.put(
+                BatteryState.KEY_CACHED_USAGE_CONSUME_POWER, state.cachedUsageConsumePower);
+        stateValues.put(
+                BatteryState.KEY_FOREGROUND_USAGE_TIME_IN_MS, state.foregroundUsageTimeInMs);
+        stateValues.put(
+                BatteryState.KEY_FOREGROUND_SERVICE_USAGE_TIME_IN_MS,
+                state.foregroundServiceUsageTimeInMs);
+        stateValues.put(
+                BatteryState.KEY_BACKGROUND_USAGE_TIME_IN_MS, state.backgroundUsageTimeInMs);
+        stateValues.put(BatteryHistEntry.KEY_BATTERY_INFORMATION, state.batteryInformation);
+        stateValues.put(
+                BatteryHistEntry.KEY_BATTERY_INFORMATION_DEBUG, state.batteryInformationDebug);
+        database.insert("BatteryState", SQLiteDatabase.CONFLICT_REPLACE, stateValues);
+
+        final ContentValues snapshotValues = new ContentValues();
+        snapshotValues.put(BatteryHistEntry.KEY_TIMESTAMP, snapshot.timestamp);
+        snapshotValues.put(BatterySnapshot.KEY_BOOT_TIMESTAMP, snapshot.bootTimestamp);
+        snapshotValues.put(BatterySnapshot.KEY_ZONE_ID, snapshot.zoneId);
+        snapshotValues.put(BatterySnapshot.KEY_TOTAL_POWER, snapshot.totalPower);
+        snapshotValues.put(BatterySnapshot.KEY_BATTERY_LEVEL, snapshot.batteryLevel);
+        snapshotValues.put(BatterySnapshot.KEY_BATTERY_STATUS, snapshot.batteryStatus);
+        snapshotValues.put(BatterySnapshot.KEY_BATTERY_HEALTH, snapshot.batteryHealth);
+        database.insert("BatterySnapshot", SQLiteDatabase.CONFLICT_IGNORE, snapshotValues);
+    }
 }
@@ -19,6 +19,7 @@ package com.android.settings.fuelgauge.batteryusage.db;
 import android.content.ContentValues;
 
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 import com.android.settings.fuelgauge.batteryusage.ConvertUtils;
@@ -27,8 +28,11 @@ import com.google.errorprone.annotations.CanIgnoreReturnValue;
 
 import java.util.Locale;
 
-/** A {@link Entity} class to save battery usage slot into database. */
-@Entity
+/**
+ * A {@link Entity} class to save battery usage slot into database. Slots are unique per start
+ * timestamp, so a slot computed again replaces the previous one.
+ */
+@Entity(indices = {@Index(value = "timestamp", unique = true)})
 public class BatteryUsageSlotEntity {
     /** Keys for accessing {@link ContentValues}. */
     public static final String KEY_TIMESTAMP = "timestamp";
@@ -41,8 +41,9 @@ import com.android.settingslib.utils.AsyncLoaderCompat;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -56,11 +57,19 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
 
     private static final String TAG = "ContextualCardLoader";
     private static final long ELIGIBILITY_CHECKER_TIMEOUT_MS = 400;
+    // Eligibility checks bind slices, which mostly waits on IPC, so they are run in parallel up
+    // to this limit.
+    private static final int MAX_ELIGIBILITY_CHECKER_THREADS = 8;
+    private static final long ELIGIBILITY_CHECKER_KEEP_ALIVE_SECONDS = 30;
 
-    private final ContentObserver mObserver = new ContentObserver(
+    private static ExecutorService sEligibilityExecutor;
+
+    @VisibleForTesting
+    final ContentObserver mObserver = new ContentObserver(
             new Handler(Looper.getMainLooper())) {
         @Override
         public void onChange(boolean selfChange, Uri uri) {
+            EligibleCardChecker.clearBindResults();
             if (isStarted()) {
                 mNotifyUri = uri;
                 forceLoad();
@@ -187,7 +196,7 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
             return candidates;
         }
 
-        final ExecutorService executor = Executors.newFixedThreadPool(candidates.size());
+        final ExecutorService executor = getEligibilityExecutor();
         final List<ContextualCard> cards = new ArrayList<>();
         List<Future<ContextualCard>> eligibleCards = new ArrayList<>();
 
@@ -200,7 +209,6 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
         } catch (InterruptedException e) {
             Log.w(TAG, "Failed to get eligible states for all cards", e);
         }
-        executor.shutdown();
 
         // Collect future and eligible cards
         for (int i = 0; i < eligibleCards.size(); i++) {
@@ -208,6 +216,14 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
             if (cardFuture.isCancelled()) {
                 Log.w(TAG, "Timeout getting eligible state for card: "
                         + candidates.get(i).getSliceUri());
+                // Timed out checks never log their loading time, so log the timeout instead to
+                // keep the tail of the latency distribution.
+                FeatureFactory.getFeatureFactory().getMetricsFeatureProvider().action(
+                        SettingsEnums.PAGE_UNKNOWN,
+                        SettingsEnums.ACTION_CONTEXTUAL_CARD_LOAD,
+                        SettingsEnums.SETTINGS_HOMEPAGE,
+                        candidates.get(i).getTextSliceUri() /* key */,
+                        (int) ELIGIBILITY_CHECKER_TIMEOUT_MS /* value */);
                 continue;
             }
 
@@ -223,6 +239,19 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
         return cards;
     }
 
+    /** Returns the executor shared by all the loads, whose idle threads time out. */
+    private static synchronized ExecutorService getEligibilityExecutor() {
+        if (sEligibilityExecutor == null) {
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    MAX_ELIGIBILITY_CHECKER_THREADS, MAX_ELIGIBILITY_CHECKER_THREADS,
+                    ELIGIBILITY_CHECKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>());
+            executor.allowCoreThreadTimeOut(true);
+            sEligibilityExecutor = executor;
+        }
+        return sEligibilityExecutor;
+    }
+
     private boolean isLargeCard(ContextualCard card) {
         return card.getSliceUri().equals(BLUETOOTH_DEVICES_SLICE_URI);
     }
@@ -23,6 +23,9 @@ import android.content.ContentResolver;
 import android.content.Context;
 import android.net.Uri;
 import android.os.AsyncTask;
+import android.os.SystemClock;
+import android.text.format.DateUtils;
+import android.util.ArrayMap;
 import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
@@ -36,12 +39,26 @@ import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
 import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 
 public class EligibleCardChecker implements Callable<ContextualCard> {
 
     private static final String TAG = "EligibleCardChecker";
 
+    /**
+     * How long the slice bound for an eligible card is reused. Kept short since the slice holds
+     * the card content shown before the card binds its live slice.
+     */
+    @VisibleForTesting
+    static final long ELIGIBLE_RESULT_TTL_MS = 10 * DateUtils.SECOND_IN_MILLIS;
+    /** How long a failed bind is remembered. Cards rarely become eligible within this time. */
+    @VisibleForTesting
+    static final long INELIGIBLE_RESULT_TTL_MS = 30 * DateUtils.SECOND_IN_MILLIS;
+
+    // Key: slice uri, value: the last bind result, shared by all the loads of the homepage.
+    private static final Map<Uri, BindResult> sBindResults = new ArrayMap<>();
+
     private final Context mContext;
 
     @VisibleForTesting
@@ -93,7 +110,7 @@ public class EligibleCardChecker implements Callable<ContextualCard> {
             return false;
         }
 
-        final Slice slice = bindSlice(uri);
+        final Slice slice = getSlice(uri);
 
         if (slice == null || slice.hasHint(HINT_ERROR)) {
             Log.w(TAG, "Failed to bind slice, not eligible for display " + uri);
@@ -109,6 +126,36 @@ public class EligibleCardChecker implements Callable<ContextualCard> {
         return true;
     }
 
+    /** Returns the slice of {@code uri}, reusing a recent bind result if there is one. */
+    private Slice getSlice(Uri uri) {
+        final long now = SystemClock.elapsedRealtime();
+        synchronized (sBindResults) {
+            final BindResult result = sBindResults.get(uri);
+            if (result != null && now < result.mExpiryTime) {
+                Log.d(TAG, "Reuse bind result of " + uri);
+                return result.mSlice;
+            }
+        }
+        final Slice slice = bindSlice(uri);
+        if (Thread.currentThread().isInterrupted()) {
+            // The load timed out and cancelled this check, the bind may not have completed.
+            return slice;
+        }
+        final boolean isEligible = slice != null && !slice.hasHint(HINT_ERROR);
+        synchronized (sBindResults) {
+            sBindResults.put(uri, new BindResult(slice, now
+                    + (isEligible ? ELIGIBLE_RESULT_TTL_MS : INELIGIBLE_RESULT_TTL_MS)));
+        }
+        return slice;
+    }
+
+    /** Drops the recent bind results, e.g. when the card data changed. */
+    static void clearBindResults() {
+        synchronized (sBindResults) {
+            sBindResults.clear();
+        }
+    }
+
     @VisibleForTesting
     Slice bindSlice(Uri uri) {
         final SliceViewManager manager = SliceViewManager.getInstance(mContext);
@@ -138,4 +185,14 @@ public class EligibleCardChecker implements Callable<ContextualCard> {
 
         return !toggles.isEmpty();
     }
+
+    private static class BindResult {
+        final Slice mSlice;
+        final long mExpiryTime;
+
+        BindResult(Slice slice, long expiryTime) {
+            mSlice = slice;
+            mExpiryTime = expiryTime;
+        }
+    }
 }
@@ -29,9 +29,11 @@ import android.app.NotificationManager;
 import android.app.usage.IUsageStatsManager;
 import android.app.usage.UsageEvents;
 import android.companion.ICompanionDeviceManager;
+import android.content.BroadcastReceiver;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.LauncherApps;
 import android.content.pm.PackageInfo;
@@ -43,14 +45,20 @@ import android.graphics.drawable.Drawable;
 import android.os.Build;
 import android.os.RemoteException;
 import android.os.ServiceManager;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.service.notification.ConversationChannelWrapper;
 import android.service.notification.NotificationListenerFilter;
 import android.text.format.DateUtils;
+import android.util.ArrayMap;
+import android.util.ArraySet;
 import android.util.IconDrawableFactory;
 import android.util.Log;
+import android.util.SparseArray;
 
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
 
 import com.android.internal.util.CollectionUtils;
 import com.android.settings.R;
@@ -66,6 +74,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 public class NotificationBackend {
     private static final String TAG = "NotificationBackend";
@@ -76,6 +85,17 @@ public class NotificationBackend {
     static INotificationManager sINM = INotificationManager.Stub.asInterface(
             ServiceManager.getService(Context.NOTIFICATION_SERVICE));
 
+    // The states can also be changed outside of Settings, so they are only kept for a short time.
+    @VisibleForTesting
+    static final long APP_BLOCK_STATE_CACHE_MILLIS = 10 * DateUtils.SECOND_IN_MILLIS;
+    @VisibleForTesting
+    static final int APP_BLOCK_STATE_BATCH_SIZE = 32;
+    // Key: userId, then packageName
+    private static final SparseArray<ArrayMap<String, AppBlockState>> sAppBlockStates =
+            new SparseArray<>();
+    // Evicts the states of the removed packages and users, registered on first load.
+    private static BroadcastReceiver sAppBlockStateReceiver;
+
     public AppRow loadAppRow(Context context, PackageManager pm, ApplicationInfo app) {
         final AppRow row = new AppRow();
         row.pkg = app.packageName;
@@ -160,16 +180,187 @@ public class NotificationBackend {
         try {
             PackageInfo info = context.getPackageManager().getPackageInfo(
                     app.packageName, PackageManager.GET_PERMISSIONS);
-            final AppRow row = new AppRow();
-            recordCanBeBlocked(info, row);
-            boolean systemBlockable = !row.systemApp || (row.systemApp && row.banned);
-            return systemBlockable && !row.lockedImportance;
+            return canBeBlocked(info);
         } catch (PackageManager.NameNotFoundException e) {
             e.printStackTrace();
         }
         return false;
     }
 
+    private boolean canBeBlocked(PackageInfo info) {
+        final AppRow row = new AppRow();
+        recordCanBeBlocked(info, row);
+        boolean systemBlockable = !row.systemApp || (row.systemApp && row.banned);
+        return systemBlockable && !row.lockedImportance;
+    }
+
+    /**
+     * Loads whether the notifications of {@code apps} are blocked and can be blocked for
+     * {@code userId}, as {@link #getNotificationsBanned} and {@link #enableSwitch} would.
+     *
+     * <p>The states are cached for a short time. The cache is invalidated when they are changed
+     * through this class, and when the package is updated or removed. The package info is only
+     * read for the apps whose state isn't cached and which target T or above, as it is only needed
+     * for their requested permissions, and in a single call for all of them.
+     *
+     * @param callback receives the states by batches as they are loaded, may be {@code null}
+     * @return the states keyed by package name, without the packages no longer installed
+     */
+    @WorkerThread
+    public Map<String, AppBlockState> loadAppBlockStates(Context context, int userId,
+            Collection<ApplicationInfo> apps, @Nullable AppBlockStatesCallback callback) {
+        registerAppBlockStateReceiver(context);
+        final long now = SystemClock.elapsedRealtime();
+        final Map<String, AppBlockState> cachedStates = new ArrayMap<>();
+        final Set<String> packagesToRead = new ArraySet<>();
+        for (ApplicationInfo app : apps) {
+            final AppBlockState state = getCachedAppBlockState(userId, app.packageName);
+            if (state != null && state.mUid == app.uid
+                    && now - state.mLoadTime <= APP_BLOCK_STATE_CACHE_MILLIS) {
+                cachedStates.put(app.packageName, state);
+            } else if (app.targetSdkVersion > Build.VERSION_CODES.S_V2) {
+                packagesToRead.add(app.packageName);
+            }
+        }
+        final Map<String, PackageInfo> packageInfos =
+                getPackageInfosForBlockState(context, packagesToRead, userId);
+
+        final Map<String, AppBlockState> states = new ArrayMap<>(apps.size());
+        Map<String, AppBlockState> batch = new ArrayMap<>();
+        for (ApplicationInfo app : apps) {
+            final String pkg = app.packageName;
+            AppBlockState state = cachedStates.get(pkg);
+            if (state == null) {
+                final PackageInfo info = getPackageInfoForBlockState(app, packageInfos);
+                if (info == null || info.applicationInfo == null) {
+                    continue;
+                }
+                state = new AppBlockState(app.uid, now, getNotificationsBanned(pkg, app.uid),
+                        canBeBlocked(info));
+                putCachedAppBlockState(userId, pkg, state);
+            }
+            states.put(pkg, state);
+            batch.put(pkg, state);
+            if (callback != null && batch.size() == APP_BLOCK_STATE_BATCH_SIZE) {
+                callback.onAppBlockStatesLoaded(userId, batch);
+                batch = new ArrayMap<>();
+            }
+        }
+        if (callback != null && !batch.isEmpty()) {
+            callback.onAppBlockStatesLoaded(userId, batch);
+        }
+        return states;
+    }
+
+    @Nullable
+    private static PackageInfo getPackageInfoForBlockState(ApplicationInfo app,
+            Map<String, PackageInfo> packageInfos) {
+        if (app.targetSdkVersion <= Build.VERSION_CODES.S_V2) {
+            // recordCanBeBlocked() doesn't look at the requested permissions of these apps.
+            final PackageInfo info = new PackageInfo();
+            info.packageName = app.packageName;
+            info.applicationInfo = app;
+            return info;
+        }
+        return packageInfos.get(app.packageName);
+    }
+
+    /**
+     * Reads the requested permissions of {@code packages}, without the packages no longer
+     * installed, in a single call.
+     */
+    private static Map<String, PackageInfo> getPackageInfosForBlockState(Context context,
+            Set<String> packages, int userId) {
+        final Map<String, PackageInfo> packageInfos = new ArrayMap<>(packages.size());
+        if (packages.isEmpty()) {
+            return packageInfos;
+        }
+        final PackageManager pm = context.getPackageManager();
+        if (packages.size() == 1) {
+            // Cheaper than listing all the installed packages.
+            final String pkg = packages.iterator().next();
+            try {
+                packageInfos.put(pkg,
+                        pm.getPackageInfoAsUser(pkg, PackageManager.GET_PERMISSIONS, userId));
+            } catch (PackageManager.NameNotFoundException e) {
+                // Not installed anymore.
+            }
+            return packageInfos;
+        }
+        for (PackageInfo info : pm.getInstalledPackagesAsUser(
+                PackageManager.GET_PERMISSIONS, userId)) {
+            if (packages.contains(info.packageName)) {
+                packageInfos.put(info.packageName, info);
+            }
+        }
+        return packageInfos;
+    }
+
+    @Nullable
+    private static AppBlockState getCachedAppBlockState(int userId, String pkg) {
+        synchronized (sAppBlockStates) {
+            final ArrayMap<String, AppBlockState> states = sAppBlockStates.get(userId);
+            return states != null ? states.get(pkg) : null;
+        }
+    }
+
+    private static void putCachedAppBlockState(int userId, String pkg, AppBlockState state) {
+        synchronized (sAppBlockStates) {
+            ArrayMap<String, AppBlockState> states = sAppBlockStates.get(userId);
+            if (states == null) {
+                states = new ArrayMap<>();
+                sAppBlockStates.put(userId, states);
+            }
+            states.put(pkg, state);
+        }
+    }
+
+    private static void invalidateAppBlockState(String pkg, int userId) {
+        synchronized (sAppBlockStates) {
+            final ArrayMap<String, AppBlockState> states = sAppBlockStates.get(userId);
+            if (states != null) {
+                states.remove(pkg);
+            }
+        }
+    }
+
+    private static void registerAppBlockStateReceiver(Context context) {
+        synchronized (sAppBlockStates) {
+            if (sAppBlockStateReceiver != null) {
+                return;
+            }
+            sAppBlockStateReceiver = new BroadcastReceiver() {
+                @Override
+                public void onReceive(Context context, Intent intent) {
+                    onAppBlockStateBroadcast(intent, getSendingUserId());
+                }
+            };
+        }
+        // An update can add POST_NOTIFICATIONS to the requested permissions.
+        final IntentFilter packageFilter = new IntentFilter(Intent.ACTION_PACKAGE_REMOVED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        packageFilter.addDataScheme("package");
+        final Context appContext = context.getApplicationContext();
+        appContext.registerReceiverAsUser(sAppBlockStateReceiver, UserHandle.ALL, packageFilter,
+                null /* broadcastPermission */, null /* scheduler */);
+        appContext.registerReceiverAsUser(sAppBlockStateReceiver, UserHandle.ALL,
+                new IntentFilter(Intent.ACTION_USER_REMOVED), null /* broadcastPermission */,
+                null /* scheduler */);
+    }
+
+    @VisibleForTesting
+    static void onAppBlockStateBroadcast(Intent intent, int userId) {
+        if (Intent.ACTION_USER_REMOVED.equals(intent.getAction())) {
+            synchronized (sAppBlockStates) {
+                sAppBlockStates.remove(
+                        intent.getIntExtra(Intent.EXTRA_USER_HANDLE, UserHandle.USER_NULL));
+            }
+        } else if (intent.getData() != null) {
+            invalidateAppBlockState(intent.getData().getSchemeSpecificPart(), userId);
+        }
+    }
+
     public boolean getNotificationsBanned(String pkg, int uid) {
         try {
             final boolean enabled = sINM.areNotificationsEnabledForPackage(pkg, uid);
@@ -189,6 +380,7 @@ public class NotificationBackend {
                 updateChannel(pkg, uid, defaultChannel);
             }
             sINM.setNotificationsEnabledForPackage(pkg, uid, enabled);
+            invalidateAppBlockState(pkg, UserHandle.getUserId(uid));
             return true;
         } catch (Exception e) {
             Log.w(TAG, "Error calling NoMan", e);
@@ -360,6 +552,7 @@ public class NotificationBackend {
     public void updateChannel(String pkg, int uid, NotificationChannel channel) {
         try {
             sINM.updateNotificationChannelForPackage(pkg, uid, channel);
+            invalidateAppBlockState(pkg, UserHandle.getUserId(uid));
         } catch (Exception e) {
             Log.w(TAG, "Error calling NoMan", e);
         }
@@ -368,6 +561,7 @@ public class NotificationBackend {
     public void updateChannelGroup(String pkg, int uid, NotificationChannelGroup group) {
         try {
             sINM.updateNotificationChannelGroupForPackage(pkg, uid, group);
+            invalidateAppBlockState(pkg, UserHandle.getUserId(uid));
         } catch (Exception e) {
             Log.w(TAG, "Error calling NoMan", e);
         }
@@ -614,6 +808,7 @@ public class NotificationBackend {
     public void resetNotificationImportance() {
         try {
             sINM.unlockAllNotificationChannels();
+            clearAppBlockStates();
         } catch (Exception e) {
             Log.w(TAG, "Error calling NoMan", e);
         }
@@ -651,6 +846,40 @@ public class NotificationBackend {
         sINM = inm;
     }
 
+    @VisibleForTesting
+    static void clearAppBlockStates() {
+        synchronized (sAppBlockStates) {
+            sAppBlockStates.clear();
+        }
+    }
+
+    /**
+     * Callback receiving the states loaded by {@link #loadAppBlockStates}.
+     */
+    public interface AppBlockStatesCallback {
+        /**
+         * @param states a batch of the loaded states, keyed by package name
+         */
+        void onAppBlockStatesLoaded(int userId, Map<String, AppBlockState> states);
+    }
+
+    /**
+     * Whether the notifications of an app are blocked, and whether the user can change it.
+     */
+    public static class AppBlockState {
+        public final boolean banned;
+        public final boolean blockable;
+        final int mUid;
+        final long mLoadTime;
+
+        AppBlockState(int uid, long loadTime, boolean banned, boolean blockable) {
+            mUid = uid;
+            mLoadTime = loadTime;
+            this.banned = banned;
+            this.blockable = blockable;
+        }
+    }
+
     /**
      * NotificationsSentState contains how often an app sends notifications and how recently it sent
      * one.
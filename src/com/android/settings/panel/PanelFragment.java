@@ -22,10 +22,15 @@ import android.animation.AnimatorSet;
 import android.animation.ObjectAnimator;
 import android.animation.ValueAnimator;
 import android.app.settings.SettingsEnums;
+import android.content.ContentResolver;
+import android.content.Context;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
+import android.provider.SettingsSlicesContract;
 import android.text.TextUtils;
+import android.util.ArrayMap;
+import android.util.Log;
 import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -55,6 +60,7 @@ import com.android.internal.annotations.VisibleForTesting;
 import com.android.settings.R;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.panel.PanelLoggingContract.PanelClosedKeys;
+import com.android.settings.slices.SettingsSliceProvider;
 import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
 import com.android.settingslib.utils.ThreadUtils;
 
@@ -331,6 +337,22 @@ public class PanelFragment extends Fragment {
         final List<Uri> sliceUris = mPanel.getSlices();
         mPanelSlicesLoaderCountdownLatch = new PanelSlicesLoaderCountdownLatch(sliceUris.size());
 
+        // Resolve the Settings slices in one call before binding them, so that they are bound
+        // fully loaded instead of as stubs first.
+        final PanelSlicesLoaderCountdownLatch latch = mPanelSlicesLoaderCountdownLatch;
+        final Context appContext = getActivity().getApplicationContext();
+        ThreadUtils.postOnBackgroundThread(() -> {
+            prefetchSlices(appContext, sliceUris);
+            ThreadUtils.postOnMainThread(() -> {
+                // Skip if the panel was replaced or its view destroyed in the meantime.
+                if (latch == mPanelSlicesLoaderCountdownLatch && getView() != null) {
+                    bindAllSlices(sliceUris);
+                }
+            });
+        });
+    }
+
+    private void bindAllSlices(List<Uri> sliceUris) {
         for (Uri uri : sliceUris) {
             final LiveData<Slice> sliceLiveData = SliceLiveData.fromUri(getActivity(), uri,
                     (int type, Throwable source)-> {
@@ -386,6 +408,42 @@ public class PanelFragment extends Fragment {
         }
     }
 
+    /**
+     * Asks {@link SettingsSliceProvider} to resolve the Settings slices of {@code sliceUris} in
+     * a single call per authority. Blocks until they are resolved, so it must not be called on
+     * the main thread.
+     */
+    @VisibleForTesting
+    static void prefetchSlices(Context context, List<Uri> sliceUris) {
+        final Map<String, ArrayList<Uri>> urisByAuthority = new ArrayMap<>();
+        for (Uri uri : sliceUris) {
+            final String authority = uri.getAuthority();
+            if (!TextUtils.equals(authority, SettingsSliceProvider.SLICE_AUTHORITY)
+                    && !TextUtils.equals(authority, SettingsSlicesContract.AUTHORITY)) {
+                continue;
+            }
+            ArrayList<Uri> uris = urisByAuthority.get(authority);
+            if (uris == null) {
+                uris = new ArrayList<>();
+                urisByAuthority.put(authority, uris);
+            }
+            uris.add(uri);
+        }
+        for (Map.Entry<String, ArrayList<Uri>> entry : urisByAuthority.entrySet()) {
+            final Bundle extras = new Bundle();
+            extras.putParcelableArrayList(SettingsSliceProvider.EXTRA_SLICE_URIS,
+                    entry.getValue());
+            try {
+                context.getContentResolver().call(
+                        new Uri.Builder().scheme(ContentResolver.SCHEME_CONTENT)
+                                .authority(entry.getKey()).build(),
+                        SettingsSliceProvider.METHOD_PREFETCH_SLICES, null /* arg */, extras);
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Failed to prefetch slices of " + entry.getKey(), e);
+            }
+        }
+    }
+
     private void removeSliceLiveData(Uri uri) {
         final List<String> allowList = Arrays.asList(
                 getResources().getStringArray(
@@ -0,0 +1,355 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.search;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.ArrayMap;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A persistent, versioned snapshot of the static search index rows produced by each
+ * {@link com.android.settingslib.search.Indexable.SearchIndexProvider}.
+ *
+ * <p>The xml resource rows of a provider which only indexes the xml resource it was created with
+ * depend on the APK and on the locale alone, so they are cached per provider class and reused
+ * until the app version, the build fingerprint or the locale changes. Providers which pick their
+ * xml resources in code may depend on the device state (e.g. Safety Center or a financed device),
+ * so the caller computes them for every query, like raw data, dynamic raw data and non-indexable
+ * keys. Their compute time is still recorded so it shows up in {@link #dump()}.
+ */
+public class SearchIndexableSnapshot {
+
+    private static final String TAG = "SearchIndexSnapshot";
+
+    /** Bump this whenever the persisted row format changes. */
+    private static final int SNAPSHOT_FORMAT_VERSION = 3;
+
+    @VisibleForTesting
+    static final String SNAPSHOT_FILE_NAME = "search_indexables_snapshot.json";
+
+    public static final String SECTION_XML_RESOURCES = "xml_res";
+    public static final String SECTION_RAW = "raw";
+    public static final String SECTION_DYNAMIC_RAW = "dynamic_raw";
+    public static final String SECTION_NON_INDEXABLE_KEYS = "non_indexable_keys";
+
+    private static final String KEY_FORMAT_VERSION = "format_version";
+    private static final String KEY_APP_VERSION = "app_version";
+    private static final String KEY_APP_UPDATE_TIME = "app_update_time";
+    private static final String KEY_FINGERPRINT = "fingerprint";
+    private static final String KEY_LOCALE = "locale";
+    private static final String KEY_SNAPSHOT = "snapshot_key";
+    private static final String KEY_PROVIDERS = "providers";
+
+    private static SearchIndexableSnapshot sInstance;
+
+    private final AtomicFile mFile;
+    // Key: section, value: (key: provider class name, value: cached rows)
+    private final Map<String, Map<String, List<Object[]>>> mRows = new ArrayMap<>();
+    // Key: section + provider class name
+    private final Map<String, ProviderStats> mStats = new ArrayMap<>();
+
+    private String mSnapshotKey;
+    // Bumped whenever the cached rows are dropped, so rows computed before are not put back.
+    private int mGeneration;
+    private boolean mLoaded;
+    private boolean mDirty;
+
+    /**
+     * Returns the process-wide snapshot instance.
+     */
+    public static synchronized SearchIndexableSnapshot getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new SearchIndexableSnapshot(
+                    new File(context.getApplicationContext().getNoBackupFilesDir(),
+                            SNAPSHOT_FILE_NAME));
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    SearchIndexableSnapshot(File file) {
+        mFile = new AtomicFile(file);
+    }
+
+    /**
+     * Returns the cached rows of {@code providerClass} for {@code section}, or computes them with
+     * {@code computer} when the snapshot does not have them for the current inputs.
+     *
+     * <p>{@code computer} runs without holding the snapshot lock, so a slow provider doesn't block
+     * the other queries. Its rows are dropped if the inputs changed while it was running.
+     *
+     * @see #ensureLoaded(Context)
+     */
+    public List<Object[]> getOrComputeRows(String section, Class<?> providerClass,
+            Supplier<List<Object[]>> computer) {
+        final String providerName = providerClass.getName();
+        final int generation;
+        synchronized (this) {
+            final Map<String, List<Object[]>> sectionRows = mRows.get(section);
+            final List<Object[]> cached =
+                    sectionRows == null ? null : sectionRows.get(providerName);
+            if (cached != null) {
+                getStats(section, providerName).mHits++;
+                return cached;
+            }
+            generation = mGeneration;
+        }
+        final long startTime = SystemClock.elapsedRealtime();
+        final List<Object[]> rows = computer.get();
+        final long durationMs = SystemClock.elapsedRealtime() - startTime;
+        synchronized (this) {
+            final ProviderStats stats = getStats(section, providerName);
+            stats.record(durationMs);
+            stats.mMisses++;
+            if (generation != mGeneration) {
+                return rows;
+            }
+            Map<String, List<Object[]>> sectionRows = mRows.get(section);
+            if (sectionRows == null) {
+                sectionRows = new ArrayMap<>();
+                mRows.put(section, sectionRows);
+            }
+            sectionRows.put(providerName, rows);
+            mDirty = true;
+        }
+        return rows;
+    }
+
+    /**
+     * Records the compute time of a section that is never cached.
+     */
+    public synchronized void recordUncached(String section, Class<?> providerClass,
+            long durationMs) {
+        final ProviderStats stats = getStats(section, providerClass.getName());
+        stats.record(durationMs);
+        stats.mMisses++;
+    }
+
+    /**
+     * Records that a provider exceeded its time budget for a section.
+     */
+    public synchronized void recordOverBudget(String section, Class<?> providerClass) {
+        getStats(section, providerClass.getName()).mOverBudget++;
+    }
+
+    /**
+     * Writes the snapshot to disk if any provider was recomputed since the last write.
+     */
+    public synchronized void persistIfNeeded() {
+        if (!mDirty) {
+            return;
+        }
+        FileOutputStream out = null;
+        try {
+            final JSONObject root = new JSONObject();
+            root.put(KEY_FORMAT_VERSION, SNAPSHOT_FORMAT_VERSION);
+            root.put(KEY_SNAPSHOT, mSnapshotKey);
+            final JSONObject sections = new JSONObject();
+            for (Map.Entry<String, Map<String, List<Object[]>>> section : mRows.entrySet()) {
+                final JSONObject providers = new JSONObject();
+                for (Map.Entry<String, List<Object[]>> entry : section.getValue().entrySet()) {
+                    providers.put(entry.getKey(), toJson(entry.getValue()));
+                }
+                sections.put(section.getKey(), providers);
+            }
+            root.put(KEY_PROVIDERS, sections);
+            out = mFile.startWrite();
+            out.write(root.toString().getBytes(StandardCharsets.UTF_8));
+            mFile.finishWrite(out);
+            mDirty = false;
+        } catch (IOException | JSONException e) {
+            Log.w(TAG, "Failed to persist search index snapshot", e);
+            if (out != null) {
+                mFile.failWrite(out);
+            }
+        }
+    }
+
+    /**
+     * Drops every cached row, both in memory and on disk.
+     */
+    public synchronized void invalidate() {
+        mRows.clear();
+        mGeneration++;
+        mFile.delete();
+        mDirty = false;
+    }
+
+    /**
+     * Returns per-provider compute time and hit/miss counts, sorted by total compute time.
+     */
+    public synchronized JSONObject dump() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        obj.put("snapshot", mSnapshotKey);
+        final List<Map.Entry<String, ProviderStats>> entries = new ArrayList<>(mStats.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue().mTotalMs, a.getValue().mTotalMs));
+        final JSONArray providers = new JSONArray();
+        for (Map.Entry<String, ProviderStats> entry : entries) {
+            final ProviderStats stats = entry.getValue();
+            final JSONObject provider = new JSONObject();
+            provider.put("provider", entry.getKey());
+            provider.put("hits", stats.mHits);
+            provider.put("misses", stats.mMisses);
+            provider.put("totalMs", stats.mTotalMs);
+            provider.put("maxMs", stats.mMaxMs);
+            provider.put("overBudget", stats.mOverBudget);
+            providers.put(provider);
+        }
+        obj.put("providers", providers);
+        return obj;
+    }
+
+    private ProviderStats getStats(String section, String providerName) {
+        final String key = section + "/" + providerName;
+        ProviderStats stats = mStats.get(key);
+        if (stats == null) {
+            stats = new ProviderStats();
+            mStats.put(key, stats);
+        }
+        return stats;
+    }
+
+    /**
+     * Loads the persisted snapshot, dropping it if the app version, the build fingerprint or the
+     * locale changed since it was written. Must be called once before each query.
+     */
+    public synchronized void ensureLoaded(Context context) {
+        final String snapshotKey = buildSnapshotKey(context);
+        if (mLoaded && snapshotKey.equals(mSnapshotKey)) {
+            return;
+        }
+        if (mLoaded) {
+            Log.i(TAG, "Search index inputs changed, dropping snapshot " + mSnapshotKey);
+            invalidate();
+        }
+        mLoaded = true;
+        mSnapshotKey = snapshotKey;
+        mRows.clear();
+        mGeneration++;
+        if (!mFile.getBaseFile().exists()) {
+            return;
+        }
+        try (FileInputStream in = mFile.openRead()) {
+            final JSONObject root = new JSONObject(
+                    new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            if (root.optInt(KEY_FORMAT_VERSION) != SNAPSHOT_FORMAT_VERSION
+                    || !snapshotKey.equals(root.optString(KEY_SNAPSHOT))) {
+                Log.i(TAG, "Discarding stale search index snapshot");
+                mFile.delete();
+                return;
+            }
+            final JSONObject sections = root.getJSONObject(KEY_PROVIDERS);
+            for (String section : iterable(sections)) {
+                final JSONObject providers = sections.getJSONObject(section);
+                final Map<String, List<Object[]>> sectionRows = new ArrayMap<>();
+                for (String provider : iterable(providers)) {
+                    sectionRows.put(provider, fromJson(providers.getJSONArray(provider)));
+                }
+                mRows.put(section, sectionRows);
+            }
+        } catch (IOException | JSONException e) {
+            Log.w(TAG, "Failed to read search index snapshot, recomputing", e);
+            mRows.clear();
+            mFile.delete();
+        }
+    }
+
+    @VisibleForTesting
+    static String buildSnapshotKey(Context context) {
+        long versionCode = 0;
+        long lastUpdateTime = 0;
+        try {
+            final PackageInfo info = context.getPackageManager()
+                    .getPackageInfo(context.getPackageName(), 0 /* flags */);
+            versionCode = info.getLongVersionCode();
+            lastUpdateTime = info.lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.w(TAG, "Cannot find own package info", e);
+        }
+        return new StringBuilder()
+                .append(KEY_APP_VERSION).append('=').append(versionCode).append(';')
+                .append(KEY_APP_UPDATE_TIME).append('=').append(lastUpdateTime).append(';')
+                .append(KEY_FINGERPRINT).append('=').append(Build.FINGERPRINT).append(';')
+                .append(KEY_LOCALE).append('=')
+                .append(context.getResources().getConfiguration().getLocales().toLanguageTags())
+                .toString();
+    }
+
+    private static JSONArray toJson(List<Object[]> rows) {
+        final JSONArray array = new JSONArray();
+        for (Object[] row : rows) {
+            final JSONArray jsonRow = new JSONArray();
+            for (Object value : row) {
+                jsonRow.put(value == null ? JSONObject.NULL : value);
+            }
+            array.put(jsonRow);
+        }
+        return array;
+    }
+
+    private static List<Object[]> fromJson(JSONArray array) throws JSONException {
+        final List<Object[]> rows = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            final JSONArray jsonRow = array.getJSONArray(i);
+            final Object[] row = new Object[jsonRow.length()];
+            for (int j = 0; j < row.length; j++) {
+                row[j] = jsonRow.isNull(j) ? null : jsonRow.get(j);
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static Iterable<String> iterable(@NonNull JSONObject object) {
+        return object::keys;
+    }
+
+    private static class ProviderStats {
+        int mHits;
+        int mMisses;
+        int mOverBudget;
+        long mTotalMs;
+        long mMaxMs;
+
+        void record(long durationMs) {
+            mTotalMs += durationMs;
+            mMaxMs = Math.max(mMaxMs, durationMs);
+        }
+    }
+}
@@ -50,6 +50,9 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.MatrixCursor;
 import android.net.Uri;
+import android.os.OperationCanceledException;
+import android.os.SystemClock;
+import android.os.SystemProperties;
 import android.provider.SearchIndexableResource;
 import android.provider.SearchIndexablesContract;
 import android.provider.SearchIndexablesProvider;
@@ -81,6 +84,12 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
 
@@ -93,8 +102,27 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
     public static final String SYSPROP_CRASH_ON_ERROR =
             "debug.com.android.settings.search.crash_on_error";
 
+    /**
+     * Flag for a system property which collects non-indexable keys from all providers in parallel
+     * on a bounded worker pool instead of one by one on the binder thread.
+     */
+    public static final String SYSPROP_PARALLEL_NON_INDEXABLE_KEYS =
+            "persist.settings.search.parallel_non_indexable_keys";
+
     private static final String TAG = "SettingsSearchProvider";
 
+    /**
+     * Time budget of one provider's {@code getNonIndexableKeys}, measured around that provider
+     * alone. Slower providers are reported in the dump and logged, but their keys are always
+     * kept, in parallel mode too, since dropping them would surface hidden results.
+     */
+    @VisibleForTesting
+    static final long NON_INDEXABLE_KEYS_BUDGET_MS = 100;
+
+    private static final int MAX_NON_INDEXABLE_KEYS_THREADS = 4;
+
+    private static ExecutorService sNonIndexableKeysExecutor;
+
     private static final Collection<String> INVALID_KEYS;
 
     // Search enabled states for injection (key: category key, value: search enabled)
@@ -115,19 +143,31 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
     @Override
     public Cursor queryXmlResources(String[] projection) {
         final MatrixCursor cursor = new MatrixCursor(INDEXABLES_XML_RES_COLUMNS);
-        final List<SearchIndexableResource> resources =
-                getSearchIndexableResourcesFromProvider(getContext());
-        for (SearchIndexableResource val : resources) {
-            final Object[] ref = new Object[INDEXABLES_XML_RES_COLUMNS.length];
-            ref[COLUMN_INDEX_XML_RES_RANK] = val.rank;
-            ref[COLUMN_INDEX_XML_RES_RESID] = val.xmlResId;
-            ref[COLUMN_INDEX_XML_RES_CLASS_NAME] = val.className;
-            ref[COLUMN_INDEX_XML_RES_ICON_RESID] = val.iconResId;
-            ref[COLUMN_INDEX_XML_RES_INTENT_ACTION] = val.intentAction;
-            ref[COLUMN_INDEX_XML_RES_INTENT_TARGET_PACKAGE] = val.intentTargetPackage;
-            ref[COLUMN_INDEX_XML_RES_INTENT_TARGET_CLASS] = null; // intent target class
-            cursor.addRow(ref);
+        final Context context = getContext();
+        final SearchIndexableSnapshot snapshot = getSnapshot(context);
+        final Collection<SearchIndexableData> bundles = FeatureFactory.getFeatureFactory()
+                .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
+        for (SearchIndexableData bundle : bundles) {
+            final List<Object[]> rows;
+            if (hasStaticXmlResources(bundle.getSearchIndexProvider())) {
+                rows = snapshot.getOrComputeRows(
+                        SearchIndexableSnapshot.SECTION_XML_RESOURCES, bundle.getTargetClass(),
+                        () -> createXmlResourceRows(
+                                getSearchIndexableResourcesFromProvider(context, bundle)));
+            } else {
+                // Providers picking their xml resources in code may depend on the device state
+                // (e.g. isPageSearchEnabled), so they are computed for every query.
+                final long startTime = SystemClock.elapsedRealtime();
+                rows = createXmlResourceRows(
+                        getSearchIndexableResourcesFromProvider(context, bundle));
+                snapshot.recordUncached(SearchIndexableSnapshot.SECTION_XML_RESOURCES,
+                        bundle.getTargetClass(), SystemClock.elapsedRealtime() - startTime);
+            }
+            for (Object[] row : rows) {
+                cursor.addRow(row);
+            }
         }
+        snapshot.persistIfNeeded();
 
         return cursor;
     }
@@ -138,9 +178,21 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
     @Override
     public Cursor queryRawData(String[] projection) {
         final MatrixCursor cursor = new MatrixCursor(INDEXABLES_RAW_COLUMNS);
-        final List<SearchIndexableRaw> raws = getSearchIndexableRawFromProvider(getContext());
-        for (SearchIndexableRaw val : raws) {
-            cursor.addRow(createIndexableRawColumnObjects(val));
+        final Context context = getContext();
+        final SearchIndexableSnapshot snapshot = getSnapshot(context);
+        final Collection<SearchIndexableData> bundles = FeatureFactory.getFeatureFactory()
+                .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
+        for (SearchIndexableData bundle : bundles) {
+            // Raw data depends on the device state (features, accounts, restrictions), so it is
+            // computed for every query instead of being taken from the snapshot.
+            final long startTime = SystemClock.elapsedRealtime();
+            final List<Object[]> rows = createIndexableRawRows(
+                    getSearchIndexableRawFromProvider(context, bundle));
+            snapshot.recordUncached(SearchIndexableSnapshot.SECTION_RAW,
+                    bundle.getTargetClass(), SystemClock.elapsedRealtime() - startTime);
+            for (Object[] row : rows) {
+                cursor.addRow(row);
+            }
         }
 
         return cursor;
@@ -176,8 +228,12 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
         final Collection<SearchIndexableData> bundles = FeatureFactory.getFeatureFactory()
                 .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
 
+        final SearchIndexableSnapshot snapshot = getSnapshot(context);
         for (SearchIndexableData bundle : bundles) {
+            final long startTime = SystemClock.elapsedRealtime();
             rawList.addAll(getDynamicSearchIndexableRawData(context, bundle));
+            snapshot.recordUncached(SearchIndexableSnapshot.SECTION_DYNAMIC_RAW,
+                    bundle.getTargetClass(), SystemClock.elapsedRealtime() - startTime);
 
             // Refresh the search enabled state for indexing injection raw data
             final Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
@@ -273,103 +329,182 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
     private List<String> getNonIndexableKeysFromProvider(Context context) {
         final Collection<SearchIndexableData> bundles = FeatureFactory.getFeatureFactory()
                 .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
+        final SearchIndexableSnapshot snapshot = getSnapshot(context);
+
+        if (isParallelNonIndexableKeysEnabled()) {
+            return getNonIndexableKeysInParallel(context, bundles, snapshot);
+        }
 
         final List<String> nonIndexableKeys = new ArrayList<>();
+        for (SearchIndexableData bundle : bundles) {
+            nonIndexableKeys.addAll(getNonIndexableKeysFromBundle(context, bundle, snapshot));
+        }
 
+        return nonIndexableKeys;
+    }
+
+    /**
+     * Runs every provider's {@code getNonIndexableKeys} on a bounded worker pool. Results are
+     * merged in provider order so the output is identical to the serial path. Providers over
+     * {@link #NON_INDEXABLE_KEYS_BUDGET_MS} are only reported, and still waited for.
+     */
+    @VisibleForTesting
+    List<String> getNonIndexableKeysInParallel(Context context,
+            Collection<SearchIndexableData> bundles, SearchIndexableSnapshot snapshot) {
+        final ExecutorService executor = getNonIndexableKeysExecutor();
+        final List<Future<List<String>>> futures = new ArrayList<>(bundles.size());
         for (SearchIndexableData bundle : bundles) {
-            final long startTime = System.currentTimeMillis();
-            Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
-            List<String> providerNonIndexableKeys;
-            try {
-                providerNonIndexableKeys = provider.getNonIndexableKeys(context);
-            } catch (Exception e) {
-                // Catch a generic crash. In the absence of the catch, the background thread will
-                // silently fail anyway, so we aren't losing information by catching the exception.
-                // We crash when the system property exists so that we can test if crashes need to
-                // be fixed.
-                // The gain is that if there is a crash in a specific controller, we don't lose all
-                // non-indexable keys, but we can still find specific crashes in development.
-                if (System.getProperty(SYSPROP_CRASH_ON_ERROR) != null) {
-                    throw new RuntimeException(e);
-                }
-                Log.e(TAG, "Error trying to get non-indexable keys from: "
-                        + bundle.getTargetClass().getName(), e);
-                continue;
-            }
+            futures.add(executor.submit(
+                    () -> getNonIndexableKeysFromBundle(context, bundle, snapshot)));
+        }
 
-            if (providerNonIndexableKeys == null || providerNonIndexableKeys.isEmpty()) {
-                if (DEBUG) {
-                    final long totalTime = System.currentTimeMillis() - startTime;
-                    Log.d(TAG, "No indexable, total time " + totalTime);
-                }
-                continue;
+        final List<String> nonIndexableKeys = new ArrayList<>();
+        try {
+            for (Future<List<String>> future : futures) {
+                nonIndexableKeys.addAll(future.get());
+            }
+        } catch (ExecutionException e) {
+            // Only thrown when SYSPROP_CRASH_ON_ERROR is set, surface it on this thread.
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // Fail the query rather than return a partial list, which would surface hidden results.
+            throw new OperationCanceledException(
+                    "Interrupted while collecting non-indexable keys");
+        } finally {
+            // No-op for the futures which are done; stops the work nobody waits for anymore.
+            for (Future<List<String>> future : futures) {
+                future.cancel(true /* mayInterruptIfRunning */);
             }
+        }
+        return nonIndexableKeys;
+    }
 
-            if (providerNonIndexableKeys.removeAll(INVALID_KEYS)) {
-                Log.v(TAG, provider + " tried to add an empty non-indexable key");
+    private List<String> getNonIndexableKeysFromBundle(Context context,
+            SearchIndexableData bundle, SearchIndexableSnapshot snapshot) {
+        final long startTime = SystemClock.elapsedRealtime();
+        Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
+        List<String> providerNonIndexableKeys;
+        try {
+            providerNonIndexableKeys = provider.getNonIndexableKeys(context);
+        } catch (Exception e) {
+            // Catch a generic crash. In the absence of the catch, the background thread will
+            // silently fail anyway, so we aren't losing information by catching the exception.
+            // We crash when the system property exists so that we can test if crashes need to
+            // be fixed.
+            // The gain is that if there is a crash in a specific controller, we don't lose all
+            // non-indexable keys, but we can still find specific crashes in development.
+            if (System.getProperty(SYSPROP_CRASH_ON_ERROR) != null) {
+                throw new RuntimeException(e);
             }
+            Log.e(TAG, "Error trying to get non-indexable keys from: "
+                    + bundle.getTargetClass().getName(), e);
+            return new ArrayList<>();
+        }
 
+        final long totalTime = SystemClock.elapsedRealtime() - startTime;
+        snapshot.recordUncached(SearchIndexableSnapshot.SECTION_NON_INDEXABLE_KEYS,
+                bundle.getTargetClass(), totalTime);
+        if (totalTime > NON_INDEXABLE_KEYS_BUDGET_MS) {
+            snapshot.recordOverBudget(SearchIndexableSnapshot.SECTION_NON_INDEXABLE_KEYS,
+                    bundle.getTargetClass());
+            Log.w(TAG, bundle.getTargetClass().getName() + " took " + totalTime
+                    + "ms to compute non-indexable keys");
+        }
+
+        if (providerNonIndexableKeys == null || providerNonIndexableKeys.isEmpty()) {
             if (DEBUG) {
-                final long totalTime = System.currentTimeMillis() - startTime;
-                Log.d(TAG, "Non-indexables " + providerNonIndexableKeys.size() + ", total time "
-                        + totalTime);
+                Log.d(TAG, "No indexable, total time " + totalTime);
             }
-
-            nonIndexableKeys.addAll(providerNonIndexableKeys);
+            return new ArrayList<>();
         }
 
-        return nonIndexableKeys;
-    }
+        if (providerNonIndexableKeys.removeAll(INVALID_KEYS)) {
+            Log.v(TAG, provider + " tried to add an empty non-indexable key");
+        }
 
-    private List<SearchIndexableResource> getSearchIndexableResourcesFromProvider(Context context) {
-        final Collection<SearchIndexableData> bundles = FeatureFactory.getFeatureFactory()
-                .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
-        List<SearchIndexableResource> resourceList = new ArrayList<>();
+        if (DEBUG) {
+            Log.d(TAG, "Non-indexables " + providerNonIndexableKeys.size() + ", total time "
+                    + totalTime);
+        }
 
-        for (SearchIndexableData bundle : bundles) {
-            Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
-            final List<SearchIndexableResource> resList =
-                    provider.getXmlResourcesToIndex(context, true);
+        return providerNonIndexableKeys;
+    }
 
-            if (resList == null) {
-                continue;
-            }
+    @VisibleForTesting
+    boolean isParallelNonIndexableKeysEnabled() {
+        return SystemProperties.getBoolean(SYSPROP_PARALLEL_NON_INDEXABLE_KEYS, false);
+    }
 
-            for (SearchIndexableResource item : resList) {
-                item.className = TextUtils.isEmpty(item.className)
-                        ? bundle.getTargetClass().getName()
-                        : item.className;
-            }
+    private static int getNonIndexableKeysPoolSize() {
+        return Math.max(2, Math.min(MAX_NON_INDEXABLE_KEYS_THREADS,
+                Runtime.getRuntime().availableProcessors() - 1));
+    }
 
-            resourceList.addAll(resList);
+    private static synchronized ExecutorService getNonIndexableKeysExecutor() {
+        if (sNonIndexableKeysExecutor == null) {
+            final int poolSize = getNonIndexableKeysPoolSize();
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize,
+                    30 /* keepAliveTime */, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+            executor.allowCoreThreadTimeOut(true);
+            sNonIndexableKeysExecutor = executor;
         }
+        return sNonIndexableKeysExecutor;
+    }
 
-        return resourceList;
+    /**
+     * Returns whether the xml resources of {@code provider} are the ones it was created with, so
+     * they only depend on the APK.
+     */
+    @VisibleForTesting
+    static boolean hasStaticXmlResources(Indexable.SearchIndexProvider provider) {
+        if (!(provider instanceof BaseSearchIndexProvider)) {
+            return false;
+        }
+        try {
+            return provider.getClass().getMethod("getXmlResourcesToIndex",
+                    Context.class, boolean.class).getDeclaringClass()
+                    == BaseSearchIndexProvider.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
     }
 
-    private List<SearchIndexableRaw> getSearchIndexableRawFromProvider(Context context) {
-        final Collection<SearchIndexableData> bundles = FeatureFactory.getFeatureFactory()
-                .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
-        final List<SearchIndexableRaw> rawList = new ArrayList<>();
+    private List<SearchIndexableResource> getSearchIndexableResourcesFromProvider(Context context,
+            SearchIndexableData bundle) {
+        Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
+        final List<SearchIndexableResource> resList =
+                provider.getXmlResourcesToIndex(context, true);
 
-        for (SearchIndexableData bundle : bundles) {
-            Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
-            final List<SearchIndexableRaw> providerRaws = provider.getRawDataToIndex(context,
-                    true /* enabled */);
+        if (resList == null) {
+            return new ArrayList<>();
+        }
 
-            if (providerRaws == null) {
-                continue;
-            }
+        for (SearchIndexableResource item : resList) {
+            item.className = TextUtils.isEmpty(item.className)
+                    ? bundle.getTargetClass().getName()
+                    : item.className;
+        }
 
-            for (SearchIndexableRaw raw : providerRaws) {
-                // The classname and intent information comes from the PreIndexData
-                // This will be more clear when provider conversion is done at PreIndex time.
-                raw.className = bundle.getTargetClass().getName();
-            }
-            rawList.addAll(providerRaws);
+        return resList;
+    }
+
+    private List<SearchIndexableRaw> getSearchIndexableRawFromProvider(Context context,
+            SearchIndexableData bundle) {
+        Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
+        final List<SearchIndexableRaw> providerRaws = provider.getRawDataToIndex(context,
+                true /* enabled */);
+
+        if (providerRaws == null) {
+            return new ArrayList<>();
         }
 
-        return rawList;
+        for (SearchIndexableRaw raw : providerRaws) {
+            // The classname and intent information comes from the PreIndexData
+            // This will be more clear when provider conversion is done at PreIndex time.
+            raw.className = bundle.getTargetClass().getName();
+        }
+        return providerRaws;
     }
 
     private List<SearchIndexableRaw> getDynamicSearchIndexableRawData(Context context,
@@ -457,6 +592,37 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
         return tile.isSearchable();
     }
 
+    @VisibleForTesting
+    SearchIndexableSnapshot getSnapshot(Context context) {
+        final SearchIndexableSnapshot snapshot = SearchIndexableSnapshot.getInstance(context);
+        snapshot.ensureLoaded(context);
+        return snapshot;
+    }
+
+    private static List<Object[]> createXmlResourceRows(List<SearchIndexableResource> resources) {
+        final List<Object[]> rows = new ArrayList<>(resources.size());
+        for (SearchIndexableResource val : resources) {
+            final Object[] ref = new Object[INDEXABLES_XML_RES_COLUMNS.length];
+            ref[COLUMN_INDEX_XML_RES_RANK] = val.rank;
+            ref[COLUMN_INDEX_XML_RES_RESID] = val.xmlResId;
+            ref[COLUMN_INDEX_XML_RES_CLASS_NAME] = val.className;
+            ref[COLUMN_INDEX_XML_RES_ICON_RESID] = val.iconResId;
+            ref[COLUMN_INDEX_XML_RES_INTENT_ACTION] = val.intentAction;
+            ref[COLUMN_INDEX_XML_RES_INTENT_TARGET_PACKAGE] = val.intentTargetPackage;
+            ref[COLUMN_INDEX_XML_RES_INTENT_TARGET_CLASS] = null; // intent target class
+            rows.add(ref);
+        }
+        return rows;
+    }
+
+    private static List<Object[]> createIndexableRawRows(List<SearchIndexableRaw> raws) {
+        final List<Object[]> rows = new ArrayList<>(raws.size());
+        for (SearchIndexableRaw val : raws) {
+            rows.add(createIndexableRawColumnObjects(val));
+        }
+        return rows;
+    }
+
     private static Object[] createIndexableRawColumnObjects(SearchIndexableRaw raw) {
         final Object[] ref = new Object[INDEXABLES_RAW_COLUMNS.length];
         ref[COLUMN_INDEX_RAW_TITLE] = raw.title;
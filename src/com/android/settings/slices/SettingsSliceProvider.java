@@ -29,6 +29,8 @@ import android.content.IntentFilter;
 import android.content.pm.PackageManager;
 import android.net.Uri;
 import android.os.Binder;
+import android.os.Bundle;
+import android.os.Process;
 import android.os.StrictMode;
 import android.os.UserManager;
 import android.provider.Settings;
@@ -63,7 +65,6 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.WeakHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -78,9 +79,10 @@ import java.util.stream.Collectors;
  * return an stub {@link Slice} with the correct {@link Uri} immediately. In the background, the
  * data corresponding to the key in the {@link Uri} is read by {@link SlicesDatabaseAccessor}, and
  * the entire row is converted into a {@link SliceData}. Once complete, it is stored in
- * {@link #mSliceWeakDataCache}, and then an update sent via the Slice framework to the Slice.
+ * {@link #mSliceDataCache}, and then an update sent via the Slice framework to the Slice.
  * The {@link Slice} displayed by the Slice-presenter will re-query this Slice-provider and find
- * the {@link SliceData} cached to build the full {@link Slice}.
+ * the {@link SliceData} cached to build the full {@link Slice}. The cached data outlives the
+ * pin so that slices bound repeatedly are not reloaded each time.
  *
  * <p>When an action is taken on that {@link Slice}, we receive the action in
  * {@link SliceBroadcastReceiver}, and use the
@@ -114,6 +116,18 @@ public class SettingsSliceProvider extends SliceProvider {
      */
     public static final String EXTRA_SLICE_KEY = "com.android.settings.slice.extra.key";
 
+    /**
+     * Method of {@link #call(String, String, Bundle)} starting to resolve the {@link SliceData}
+     * of all the uris in {@link #EXTRA_SLICE_URIS} in parallel, so that binding them soon after
+     * is less likely to return a stub first. Only available to the Settings process.
+     */
+    public static final String METHOD_PREFETCH_SLICES = "prefetch_slices";
+
+    /**
+     * Extra holding the {@code ArrayList<Uri>} of slices to prefetch.
+     */
+    public static final String EXTRA_SLICE_URIS = "com.android.settings.slice.extra.uris";
+
     /**
      * A list of custom slice uris that are supported publicly. This is a subset of slices defined
      * in {@link CustomSliceRegistry}. Things here are exposed publicly so all clients with proper
@@ -136,7 +150,11 @@ public class SettingsSliceProvider extends SliceProvider {
     SlicesDatabaseAccessor mSlicesDatabaseAccessor;
 
     @VisibleForTesting
-    Map<Uri, SliceData> mSliceWeakDataCache;
+    SliceDataCache mSliceDataCache;
+
+    // Uris whose broadcast receivers and background workers are registered.
+    @VisibleForTesting
+    final Set<Uri> mLoadedUris = Collections.synchronizedSet(new ArraySet<>());
 
     @VisibleForTesting
     final Map<Uri, SliceBackgroundWorker> mPinnedWorkers = new ArrayMap<>();
@@ -154,7 +172,7 @@ public class SettingsSliceProvider extends SliceProvider {
     public boolean onCreateSliceProvider() {
         Log.d(TAG, "onCreateSliceProvider");
         mSlicesDatabaseAccessor = new SlicesDatabaseAccessor(getContext());
-        mSliceWeakDataCache = new WeakHashMap<>();
+        mSliceDataCache = SliceDataCache.getInstance(getContext());
         return true;
     }
 
@@ -197,7 +215,7 @@ public class SettingsSliceProvider extends SliceProvider {
 
     @Override
     public void onSliceUnpinned(Uri sliceUri) {
-        mSliceWeakDataCache.remove(sliceUri);
+        mLoadedUris.remove(sliceUri);
         final Context context = getContext();
         if (!VolumeSliceHelper.unregisterUri(context, sliceUri)) {
             SliceBroadcastRelay.unregisterReceivers(context, sliceUri);
@@ -272,12 +290,16 @@ public class SettingsSliceProvider extends SliceProvider {
                         .createWifiCallingPreferenceSlice(sliceUri);
             }
 
-            final SliceData cachedSliceData = mSliceWeakDataCache.get(sliceUri);
+            final SliceData cachedSliceData = mSliceDataCache.get(sliceUri);
             if (cachedSliceData == null) {
                 loadSliceInBackground(sliceUri);
                 return getSliceStub(sliceUri);
             }
-            return SliceBuilderUtils.buildSlice(getContext(), cachedSliceData);
+            final long startBindTime = System.currentTimeMillis();
+            final Slice slice = SliceBuilderUtils.buildSlice(getContext(), cachedSliceData);
+            mSliceDataCache.recordBindLatency(sliceUri,
+                    System.currentTimeMillis() - startBindTime);
+            return slice;
         } finally {
             StrictMode.setThreadPolicy(oldPolicy);
             if (!mFirstSliceBound) {
@@ -287,6 +309,43 @@ public class SettingsSliceProvider extends SliceProvider {
         }
     }
 
+    @Override
+    public Bundle call(@NonNull String method, @Nullable String arg, @Nullable Bundle extras) {
+        if (!METHOD_PREFETCH_SLICES.equals(method)) {
+            return super.call(method, arg, extras);
+        }
+        if (Binder.getCallingUid() != Process.myUid() || extras == null) {
+            return null;
+        }
+        final List<Uri> uris = extras.getParcelableArrayList(EXTRA_SLICE_URIS, Uri.class);
+        if (uris != null) {
+            prefetchSliceData(uris);
+        }
+        return new Bundle();
+    }
+
+    /**
+     * Resolves the {@link SliceData} of {@code uris} into {@link #mSliceDataCache} before
+     * returning, so that the slices bound next are not stubs. Custom slices are built directly
+     * when bound and are skipped.
+     *
+     * <p>Resolves on the calling thread: the call may come from a {@link ThreadUtils} background
+     * thread, which must not block on tasks queued to the same pool.
+     */
+    @VisibleForTesting
+    void prefetchSliceData(List<Uri> uris) {
+        for (Uri uri : uris) {
+            if (CustomSliceRegistry.isValidUri(uri) || mSliceDataCache.peek(uri) != null) {
+                continue;
+            }
+            try {
+                mSliceDataCache.put(uri, mSlicesDatabaseAccessor.getSliceDataFromUri(uri));
+            } catch (IllegalStateException e) {
+                Log.d(TAG, "Could not prefetch slicedata for uri: " + uri, e);
+            }
+        }
+    }
+
     /**
      * Get a list of all valid Uris based on the keys indexed in the Slices database.
      * <p>
@@ -402,18 +461,23 @@ public class SettingsSliceProvider extends SliceProvider {
 
     @VisibleForTesting
     void loadSlice(Uri uri) {
-        if (mSliceWeakDataCache.containsKey(uri)) {
-            Log.d(TAG, uri + " loaded from cache");
+        if (mLoadedUris.contains(uri)) {
+            Log.d(TAG, uri + " already loaded");
             return;
         }
         long startBuildTime = System.currentTimeMillis();
 
-        final SliceData sliceData;
-        try {
-            sliceData = mSlicesDatabaseAccessor.getSliceDataFromUri(uri);
-        } catch (IllegalStateException e) {
-            Log.d(TAG, "Could not create slicedata for uri: " + uri, e);
-            return;
+        // onBindSlice() already counted the lookup of this uri.
+        SliceData sliceData = mSliceDataCache.peek(uri);
+        final boolean isCached = sliceData != null;
+        if (!isCached) {
+            try {
+                sliceData = mSlicesDatabaseAccessor.getSliceDataFromUri(uri);
+            } catch (IllegalStateException e) {
+                Log.d(TAG, "Could not create slicedata for uri: " + uri, e);
+                return;
+            }
+            mSliceDataCache.put(uri, sliceData);
         }
 
         final BasePreferenceController controller = SliceBuilderUtils.getPreferenceController(
@@ -432,11 +496,13 @@ public class SettingsSliceProvider extends SliceProvider {
 
         ThreadUtils.postOnMainThread(() -> startBackgroundWorker(controller, uri));
 
-        mSliceWeakDataCache.put(uri, sliceData);
-        getContext().getContentResolver().notifyChange(uri, null /* content observer */);
+        mLoadedUris.add(uri);
+        if (!isCached) {
+            getContext().getContentResolver().notifyChange(uri, null /* content observer */);
+        }
 
         Log.d(TAG, "Built slice (" + uri + ") in: " +
-                (System.currentTimeMillis() - startBuildTime));
+                (System.currentTimeMillis() - startBuildTime) + ", cached: " + isCached);
     }
 
     @VisibleForTesting
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.slices;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.ArrayMap;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Map;
+
+/**
+ * Process-wide LRU cache of the {@link SliceData} resolved from the slices database. Controllers
+ * are not cached: they hold state of the bind which created them, so each bind creates its own.
+ *
+ * <p>The cache is bounded by the approximate size of the cached strings and is cleared whenever
+ * the slices database is indexed again. It also records the hit rate and bind latency per uri.
+ */
+public class SliceDataCache {
+
+    // Approximate number of characters held by all cached entries.
+    private static final int MAX_SIZE = 64 * 1024;
+    // Approximate fixed cost of an entry.
+    private static final int ENTRY_OVERHEAD = 256;
+
+    private static SliceDataCache sInstance;
+
+    private final SlicesDatabaseHelper mHelper;
+    private final LruCache<Uri, Entry> mCache;
+    // Key: slice uri, value: bind stats
+    private final Map<Uri, BindStats> mBindStats = new ArrayMap<>();
+    private int mIndexGeneration;
+    private int mHitCount;
+    private int mMissCount;
+
+    public static synchronized SliceDataCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new SliceDataCache(context.getApplicationContext(), MAX_SIZE);
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    SliceDataCache(Context context, int maxSize) {
+        mHelper = SlicesDatabaseHelper.getInstance(context);
+        mIndexGeneration = mHelper.getIndexGeneration();
+        mCache = new LruCache<Uri, Entry>(maxSize) {
+            @Override
+            protected int sizeOf(Uri key, Entry entry) {
+                return entry.mSize;
+            }
+        };
+    }
+
+    /** Returns the cached {@link SliceData} of {@code uri}, or {@code null} if not cached. */
+    @Nullable
+    public synchronized SliceData get(Uri uri) {
+        invalidateIfReindexed();
+        final Entry entry = mCache.get(uri);
+        if (entry == null) {
+            mMissCount++;
+            return null;
+        }
+        mHitCount++;
+        return entry.mSliceData;
+    }
+
+    /**
+     * Same as {@link #get(Uri)}, but not counted as a hit or miss. Used when the lookup is not
+     * for a bind, e.g. when the data of a bound slice is loaded.
+     */
+    @Nullable
+    public synchronized SliceData peek(Uri uri) {
+        invalidateIfReindexed();
+        final Entry entry = mCache.get(uri);
+        return entry == null ? null : entry.mSliceData;
+    }
+
+    /** Caches {@code sliceData} for {@code uri}. */
+    public synchronized void put(Uri uri, SliceData sliceData) {
+        invalidateIfReindexed();
+        final Entry entry = mCache.get(uri);
+        if (entry != null && entry.mSliceData == sliceData) {
+            return;
+        }
+        mCache.put(uri, new Entry(sliceData));
+    }
+
+    /** Removes the cached data of {@code uri}. */
+    public synchronized void remove(Uri uri) {
+        mCache.remove(uri);
+    }
+
+    /** Records the time it took to bind the slice of {@code uri}. */
+    public synchronized void recordBindLatency(Uri uri, long latencyMs) {
+        BindStats stats = mBindStats.get(uri);
+        if (stats == null) {
+            stats = new BindStats();
+            mBindStats.put(uri, stats);
+        }
+        stats.mCount++;
+        stats.mTotalMs += latencyMs;
+        stats.mMaxMs = Math.max(stats.mMaxMs, latencyMs);
+    }
+
+    @VisibleForTesting
+    synchronized int getHitCount() {
+        return mHitCount;
+    }
+
+    @VisibleForTesting
+    synchronized int getMissCount() {
+        return mMissCount;
+    }
+
+    /** Returns the cache hit rate and the bind latencies. */
+    public synchronized JSONObject dump() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        obj.put("size", mCache.size());
+        obj.put("entries", mCache.snapshot().size());
+        obj.put("hits", mHitCount);
+        obj.put("misses", mMissCount);
+        final JSONArray slices = new JSONArray();
+        for (Map.Entry<Uri, BindStats> entry : mBindStats.entrySet()) {
+            final BindStats stats = entry.getValue();
+            final JSONObject slice = new JSONObject();
+            slice.put("uri", entry.getKey().toString());
+            slice.put("count", stats.mCount);
+            slice.put("avgMs", stats.mTotalMs / stats.mCount);
+            slice.put("maxMs", stats.mMaxMs);
+            slices.put(slice);
+        }
+        obj.put("binds", slices);
+        return obj;
+    }
+
+    private void invalidateIfReindexed() {
+        final int indexGeneration = mHelper.getIndexGeneration();
+        if (indexGeneration != mIndexGeneration) {
+            mIndexGeneration = indexGeneration;
+            mCache.evictAll();
+        }
+    }
+
+    private static class Entry {
+        final SliceData mSliceData;
+        final int mSize;
+
+        Entry(SliceData sliceData) {
+            mSliceData = sliceData;
+            mSize = ENTRY_OVERHEAD
+                    + length(sliceData.getKey())
+                    + length(sliceData.getTitle())
+                    + length(sliceData.getSummary())
+                    + length(sliceData.getScreenTitle())
+                    + length(sliceData.getKeywords())
+                    + length(sliceData.getFragmentClassName())
+                    + length(sliceData.getPreferenceController())
+                    + length(sliceData.getUnavailableSliceSubtitle());
+        }
+
+        private static int length(@Nullable CharSequence value) {
+            return value == null ? 0 : value.length();
+        }
+    }
+
+    private static class BindStats {
+        int mCount;
+        long mTotalMs;
+        long mMaxMs;
+    }
+}
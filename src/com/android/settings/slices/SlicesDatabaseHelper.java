@@ -25,6 +25,7 @@ import android.util.Log;
 import androidx.annotation.VisibleForTesting;
 
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Defines the schema for the Slices database.
@@ -150,6 +151,9 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
 
     private final Context mContext;
 
+    // Incremented whenever the content of TABLE_SLICES_INDEX may have changed.
+    private final AtomicInteger mIndexGeneration = new AtomicInteger();
+
     private static SlicesDatabaseHelper sSingleton;
 
     public static synchronized SlicesDatabaseHelper getInstance(Context context) {
@@ -189,6 +193,7 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
                 .apply();
         dropTables(db);
         createDatabases(db);
+        mIndexGeneration.incrementAndGet();
     }
 
     /**
@@ -198,6 +203,15 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
     public void setIndexedState() {
         setBuildIndexed();
         setLocaleIndexed();
+        mIndexGeneration.incrementAndGet();
+    }
+
+    /**
+     * Returns a counter which changes whenever the slices index is rebuilt, so that data read
+     * from it can be invalidated.
+     */
+    public int getIndexGeneration() {
+        return mIndexGeneration.get();
     }
 
     /**
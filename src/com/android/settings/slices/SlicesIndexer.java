@@ -16,9 +16,11 @@
 
 package com.android.settings.slices;
 
-import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.ArrayMap;
 import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
@@ -29,7 +31,11 @@ import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.slices.SlicesDatabaseHelper.IndexColumns;
 import com.android.settings.slices.SlicesDatabaseHelper.Tables;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Manages the conversion of {@link DashboardFragment} and {@link BasePreferenceController} to
@@ -39,6 +45,35 @@ class SlicesIndexer implements Runnable {
 
     private static final String TAG = "SlicesIndexer";
 
+    private static final String[] COLUMNS = {
+            IndexColumns.KEY,
+            IndexColumns.SLICE_URI,
+            IndexColumns.TITLE,
+            IndexColumns.SUMMARY,
+            IndexColumns.SCREENTITLE,
+            IndexColumns.KEYWORDS,
+            IndexColumns.ICON_RESOURCE,
+            IndexColumns.FRAGMENT,
+            IndexColumns.CONTROLLER,
+            IndexColumns.SLICE_TYPE,
+            IndexColumns.UNAVAILABLE_SLICE_SUBTITLE,
+            IndexColumns.PUBLIC_SLICE,
+            IndexColumns.HIGHLIGHT_MENU_RESOURCE,
+            IndexColumns.USER_RESTRICTION
+    };
+
+    private static final String[] QUERY_COLUMNS = getQueryColumns();
+
+    private static final String SQL_INSERT = "INSERT INTO " + Tables.TABLE_SLICES_INDEX
+            + " (" + String.join(", ", COLUMNS) + ") VALUES ("
+            + String.join(", ", Collections.nCopies(COLUMNS.length, "?")) + ")";
+
+    private static final String SQL_UPDATE = "UPDATE " + Tables.TABLE_SLICES_INDEX
+            + " SET " + String.join(" = ?, ", COLUMNS) + " = ? WHERE rowid = ?";
+
+    private static final String SQL_DELETE =
+            "DELETE FROM " + Tables.TABLE_SLICES_INDEX + " WHERE rowid = ?";
+
     private Context mContext;
 
     private SlicesDatabaseHelper mHelper;
@@ -58,7 +93,7 @@ class SlicesIndexer implements Runnable {
 
     /**
      * Synchronously takes data obtained from {@link SliceDataConverter} and indexes it into a
-     * SQLite database
+     * SQLite database. Only the rows whose content changed since the last index are written.
      */
     protected void indexSliceData() {
         if (mHelper.isSliceDataIndexed()) {
@@ -68,18 +103,22 @@ class SlicesIndexer implements Runnable {
 
         final SQLiteDatabase database = mHelper.getWritableDatabase();
 
-        long startTime = System.currentTimeMillis();
+        final long startTime = System.currentTimeMillis();
         database.beginTransaction();
         try {
-            mHelper.reconstruct(database);
-            List<SliceData> indexData = getSliceData();
-            insertSliceData(database, indexData);
+            final Map<String, List<IndexedRow>> indexedRows = getIndexedRows(database);
+            final long loadTime = System.currentTimeMillis();
+            final List<SliceData> indexData = getSliceData();
+            final long convertTime = System.currentTimeMillis();
+            applySliceData(database, indexData, indexedRows);
+            final long applyTime = System.currentTimeMillis();
 
             mHelper.setIndexedState();
 
-            // TODO (b/71503044) Log indexing time.
-            Log.d(TAG,
-                    "Indexing slices database took: " + (System.currentTimeMillis() - startTime));
+            Log.d(TAG, String.format(
+                    "Indexing slices database took %d/ms: load=%d/ms convert=%d/ms apply=%d/ms",
+                    applyTime - startTime, loadTime - startTime, convertTime - loadTime,
+                    applyTime - convertTime));
             database.setTransactionSuccessful();
         } finally {
             database.endTransaction();
@@ -96,31 +135,145 @@ class SlicesIndexer implements Runnable {
 
     @VisibleForTesting
     void insertSliceData(SQLiteDatabase database, List<SliceData> indexData) {
-        ContentValues values;
-
-        for (SliceData dataRow : indexData) {
-            values = new ContentValues();
-            values.put(IndexColumns.KEY, dataRow.getKey());
-            values.put(IndexColumns.SLICE_URI, dataRow.getUri().toString());
-            values.put(IndexColumns.TITLE, dataRow.getTitle());
-            values.put(IndexColumns.SUMMARY, dataRow.getSummary());
-            final CharSequence screenTitle = dataRow.getScreenTitle();
-            if (screenTitle != null) {
-                values.put(IndexColumns.SCREENTITLE, screenTitle.toString());
+        try (SQLiteStatement insert = database.compileStatement(SQL_INSERT)) {
+            for (SliceData dataRow : indexData) {
+                bindRowValues(insert, getRowValues(dataRow));
+                insert.executeInsert();
             }
-            values.put(IndexColumns.KEYWORDS, dataRow.getKeywords());
-            values.put(IndexColumns.ICON_RESOURCE, dataRow.getIconResource());
-            values.put(IndexColumns.FRAGMENT, dataRow.getFragmentClassName());
-            values.put(IndexColumns.CONTROLLER, dataRow.getPreferenceController());
-            values.put(IndexColumns.SLICE_TYPE, dataRow.getSliceType());
-            values.put(IndexColumns.UNAVAILABLE_SLICE_SUBTITLE,
-                    dataRow.getUnavailableSliceSubtitle());
-            values.put(IndexColumns.PUBLIC_SLICE, dataRow.isPublicSlice());
-            values.put(IndexColumns.HIGHLIGHT_MENU_RESOURCE, dataRow.getHighlightMenuRes());
-            values.put(IndexColumns.USER_RESTRICTION, dataRow.getUserRestriction());
-
-            database.replaceOrThrow(Tables.TABLE_SLICES_INDEX, null /* nullColumnHack */,
-                    values);
+        }
+    }
+
+    /**
+     * Diffs {@code indexData} against the {@code indexedRows} and only inserts, updates or deletes
+     * the rows which changed. Rows sharing a key are matched in order, so every row of {@code
+     * indexData} keeps its own row in the table, as with a full rebuild.
+     */
+    private void applySliceData(SQLiteDatabase database, List<SliceData> indexData,
+            Map<String, List<IndexedRow>> indexedRows) {
+        int inserted = 0;
+        int updated = 0;
+        final Map<String, Integer> matchedCounts = new ArrayMap<>();
+        try (SQLiteStatement insert = database.compileStatement(SQL_INSERT);
+             SQLiteStatement update = database.compileStatement(SQL_UPDATE)) {
+            for (SliceData dataRow : indexData) {
+                final String key = dataRow.getKey();
+                final Object[] rowValues = getRowValues(dataRow);
+                final List<IndexedRow> rows = indexedRows.get(key);
+                final int matchedCount = matchedCounts.getOrDefault(key, 0);
+                if (rows == null || matchedCount >= rows.size()) {
+                    bindRowValues(insert, rowValues);
+                    insert.executeInsert();
+                    inserted++;
+                    continue;
+                }
+                final IndexedRow indexedRow = rows.get(matchedCount);
+                matchedCounts.put(key, matchedCount + 1);
+                if (!Arrays.equals(indexedRow.mValues, rowValues)) {
+                    bindRowValues(update, rowValues);
+                    update.bindLong(rowValues.length + 1, indexedRow.mRowId);
+                    update.executeUpdateDelete();
+                    updated++;
+                }
+            }
+        }
+
+        int deleted = 0;
+        try (SQLiteStatement delete = database.compileStatement(SQL_DELETE)) {
+            for (Map.Entry<String, List<IndexedRow>> entry : indexedRows.entrySet()) {
+                final List<IndexedRow> rows = entry.getValue();
+                for (int i = matchedCounts.getOrDefault(entry.getKey(), 0); i < rows.size(); i++) {
+                    delete.bindLong(1, rows.get(i).mRowId);
+                    delete.executeUpdateDelete();
+                    deleted++;
+                }
+            }
+        }
+        Log.d(TAG, "Slices index changes: inserted=" + inserted + " updated=" + updated
+                + " deleted=" + deleted);
+    }
+
+    /** Returns the stored rows grouped by slice key, each group in rowid order. */
+    private static Map<String, List<IndexedRow>> getIndexedRows(SQLiteDatabase database) {
+        final Map<String, List<IndexedRow>> indexedRows = new ArrayMap<>();
+        try (Cursor cursor = database.query(Tables.TABLE_SLICES_INDEX, QUERY_COLUMNS,
+                null /* selection */, null /* selectionArgs */, null /* groupBy */,
+                null /* having */, "rowid" /* orderBy */)) {
+            while (cursor.moveToNext()) {
+                final Object[] rowValues = new Object[COLUMNS.length];
+                for (int i = 0; i < COLUMNS.length; i++) {
+                    rowValues[i] = getColumnValue(cursor, i + 1);
+                }
+                final String key = (String) rowValues[0];
+                List<IndexedRow> rows = indexedRows.get(key);
+                if (rows == null) {
+                    rows = new ArrayList<>(1);
+                    indexedRows.put(key, rows);
+                }
+                rows.add(new IndexedRow(cursor.getLong(0), rowValues));
+            }
+        }
+        return indexedRows;
+    }
+
+    /** Reads a stored value as the type {@link #getRowValues(SliceData)} uses for the column. */
+    private static Object getColumnValue(Cursor cursor, int columnIndex) {
+        switch (cursor.getType(columnIndex)) {
+            case Cursor.FIELD_TYPE_NULL:
+                return null;
+            case Cursor.FIELD_TYPE_INTEGER:
+                return cursor.getLong(columnIndex);
+            default:
+                return cursor.getString(columnIndex);
+        }
+    }
+
+    /** Returns the column values of {@code dataRow}, in the order of {@link #COLUMNS}. */
+    private static Object[] getRowValues(SliceData dataRow) {
+        final CharSequence screenTitle = dataRow.getScreenTitle();
+        return new Object[]{
+                dataRow.getKey(),
+                dataRow.getUri().toString(),
+                dataRow.getTitle(),
+                dataRow.getSummary(),
+                screenTitle != null ? screenTitle.toString() : null,
+                dataRow.getKeywords(),
+                (long) dataRow.getIconResource(),
+                dataRow.getFragmentClassName(),
+                dataRow.getPreferenceController(),
+                (long) dataRow.getSliceType(),
+                dataRow.getUnavailableSliceSubtitle(),
+                dataRow.isPublicSlice() ? 1L : 0L,
+                (long) dataRow.getHighlightMenuRes(),
+                dataRow.getUserRestriction()};
+    }
+
+    private static void bindRowValues(SQLiteStatement statement, Object[] rowValues) {
+        for (int i = 0; i < rowValues.length; i++) {
+            final Object value = rowValues[i];
+            if (value == null) {
+                statement.bindNull(i + 1);
+            } else if (value instanceof Long) {
+                statement.bindLong(i + 1, (Long) value);
+            } else {
+                statement.bindString(i + 1, (String) value);
+            }
+        }
+    }
+
+    private static String[] getQueryColumns() {
+        final String[] queryColumns = new String[COLUMNS.length + 1];
+        queryColumns[0] = "rowid";
+        System.arraycopy(COLUMNS, 0, queryColumns, 1, COLUMNS.length);
+        return queryColumns;
+    }
+
+    private static class IndexedRow {
+        final long mRowId;
+        final Object[] mValues;
+
+        IndexedRow(long rowId, Object[] values) {
+            mRowId = rowId;
+            mValues = values;
         }
     }
 }
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import android.content.ContentValues;
+import android.os.Bundle;
+import android.os.UserHandle;
+import android.text.format.DateUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates synthetic battery history and app usage events. The scale is configured with the
+ * {@code apps}, {@code days} and {@code users} instrumentation arguments.
+ */
+final class BatteryDataGenerator {
+
+    // 2022-01-01 00:00:00 UTC, an even hour so the timestamps fall on hourly slot boundaries.
+    static final long START_TIMESTAMP = 1640995200000L;
+
+    final int mAppCount;
+    final int mDayCount;
+    final int mUserCount;
+
+    // Fixed seed so every run processes the same data.
+    private final Random mRandom = new Random(42);
+
+    BatteryDataGenerator(Bundle arguments) {
+        mAppCount = BenchmarkRunner.getIntArgument(arguments, "apps", 100);
+        mDayCount = BenchmarkRunner.getIntArgument(arguments, "days", 7);
+        mUserCount = BenchmarkRunner.getIntArgument(arguments, "users", 1);
+    }
+
+    int getHourCount() {
+        return mDayCount * 24;
+    }
+
+    long getEndTimestamp() {
+        return START_TIMESTAMP + getHourCount() * DateUtils.HOUR_IN_MILLIS;
+    }
+
+    /** Generates one snapshot per hour with an entry per app and user, keyed by timestamp. */
+    Map<Long, Map<String, BatteryHistEntry>> generateBatteryHistoryMap() {
+        final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap = new HashMap<>();
+        final double[] consumePowers = new double[mAppCount * mUserCount];
+        for (int hour = 0; hour <= getHourCount(); hour++) {
+            final long timestamp = START_TIMESTAMP + hour * DateUtils.HOUR_IN_MILLIS;
+            final Map<String, BatteryHistEntry> entryMap = new HashMap<>();
+            for (int userId = 0; userId < mUserCount; userId++) {
+                for (int app = 0; app < mAppCount; app++) {
+                    // Power usage only grows between two snapshots of the same boot.
+                    final int index = userId * mAppCount + app;
+                    consumePowers[index] += mRandom.nextDouble() * 10;
+                    final BatteryHistEntry entry =
+                            createBatteryHistEntry(
+                                    timestamp, userId, app, consumePowers[index]);
+                    entryMap.put(entry.getKey(), entry);
+                }
+            }
+            batteryHistoryMap.put(timestamp, entryMap);
+        }
+        return batteryHistoryMap;
+    }
+
+    /** Generates hourly battery levels covering the whole generated history. */
+    BatteryLevelData generateBatteryLevelData() {
+        final Map<Long, Integer> batteryLevelMap = new HashMap<>();
+        for (int hour = 0; hour <= getHourCount(); hour++) {
+            batteryLevelMap.put(
+                    START_TIMESTAMP + hour * DateUtils.HOUR_IN_MILLIS, 100 - hour % 100);
+        }
+        return new BatteryLevelData(batteryLevelMap);
+    }
+
+    /** Generates the entries of one snapshot as a list, as stored for a single timestamp. */
+    List<BatteryHistEntry> generateBatteryHistEntryList() {
+        final List<BatteryHistEntry> entries = new ArrayList<>();
+        for (int userId = 0; userId < mUserCount; userId++) {
+            for (int app = 0; app < mAppCount; app++) {
+                entries.add(
+                        createBatteryHistEntry(
+                                START_TIMESTAMP, userId, app, mRandom.nextDouble() * 100));
+            }
+        }
+        return entries;
+    }
+
+    /** Generates resumed/stopped event pairs for every app and user, a few times per hour. */
+    List<AppUsageEvent> generateAppUsageEvents() {
+        final List<AppUsageEvent> events = new ArrayList<>();
+        for (int hour = 0; hour < getHourCount(); hour++) {
+            final long hourStart = START_TIMESTAMP + hour * DateUtils.HOUR_IN_MILLIS;
+            for (int userId = 0; userId < mUserCount; userId++) {
+                // Only a fraction of the apps is used in each hour.
+                for (int app = hour % 4; app < mAppCount; app += 4) {
+                    final long resumed =
+                            hourStart + mRandom.nextInt((int) (DateUtils.HOUR_IN_MILLIS / 2));
+                    final long stopped =
+                            resumed + mRandom.nextInt((int) (DateUtils.HOUR_IN_MILLIS / 2));
+                    events.add(
+                            buildAppUsageEvent(
+                                    AppUsageEventType.ACTIVITY_RESUMED, resumed, userId, app));
+                    events.add(
+                            buildAppUsageEvent(
+                                    AppUsageEventType.ACTIVITY_STOPPED, stopped, userId, app));
+                }
+            }
+        }
+        events.sort((a, b) -> Long.compare(a.getTimestamp(), b.getTimestamp()));
+        return events;
+    }
+
+    /** Generates one charging session per day. */
+    List<BatteryEvent> generateBatteryEvents() {
+        final List<BatteryEvent> events = new ArrayList<>();
+        for (int day = 0; day < mDayCount; day++) {
+            final long dayStart = START_TIMESTAMP + day * DateUtils.DAY_IN_MILLIS;
+            events.add(
+                    BatteryEvent.newBuilder()
+                            .setTimestamp(dayStart + 2 * DateUtils.HOUR_IN_MILLIS)
+                            .setType(BatteryEventType.POWER_CONNECTED)
+                            .build());
+            events.add(
+                    BatteryEvent.newBuilder()
+                            .setTimestamp(dayStart + 4 * DateUtils.HOUR_IN_MILLIS)
+                            .setType(BatteryEventType.POWER_DISCONNECTED)
+                            .build());
+        }
+        return events;
+    }
+
+    private static BatteryHistEntry createBatteryHistEntry(
+            long timestamp, int userId, int app, double consumePower) {
+        final BatteryInformation batteryInformation =
+                BatteryInformation.newBuilder()
+                        .setAppLabel("label" + app)
+                        .setConsumePower(consumePower)
+                        .setForegroundUsageConsumePower(consumePower / 2)
+                        .setBackgroundUsageConsumePower(consumePower / 2)
+                        .setForegroundUsageTimeInMs((long) (consumePower * 1000))
+                        .setBackgroundUsageTimeInMs((long) (consumePower * 500))
+                        .build();
+        final ContentValues values = new ContentValues();
+        values.put(BatteryHistEntry.KEY_PACKAGE_NAME, getPackageName(app));
+        values.put(BatteryHistEntry.KEY_UID, UserHandle.getUid(userId, 10000 + app));
+        values.put(BatteryHistEntry.KEY_USER_ID, userId);
+        values.put(BatteryHistEntry.KEY_TIMESTAMP, timestamp);
+        values.put(BatteryHistEntry.KEY_CONSUMER_TYPE, ConvertUtils.CONSUMER_TYPE_UID_BATTERY);
+        values.put(
+                BatteryHistEntry.KEY_BATTERY_INFORMATION,
+                ConvertUtils.convertBatteryInformationToString(batteryInformation));
+        return new BatteryHistEntry(values);
+    }
+
+    private static AppUsageEvent buildAppUsageEvent(
+            AppUsageEventType type, long timestamp, int userId, int app) {
+        return AppUsageEvent.newBuilder()
+                .setType(type)
+                .setTimestamp(timestamp)
+                .setUserId(userId)
+                .setUid(UserHandle.getUid(userId, 10000 + app))
+                .setPackageName(getPackageName(app))
+                .setInstanceId(app)
+                .build();
+    }
+
+    private static String getPackageName(int app) {
+        return "com.android.benchmark.app" + app;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import android.os.Bundle;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * A minimal microbenchmark harness: runs warmup iterations, then times every operation to report
+ * its throughput and latency percentiles. The allocations are counted in a separate pass, since
+ * counting them slows the operations down.
+ */
+final class BenchmarkRunner {
+
+    private static final String TAG = "BatteryBenchmark";
+
+    // Allocation counting is slow and its counter is an int, so it only runs a few operations.
+    private static final int ALLOCATION_ITERATIONS = 5;
+
+    // Keeps results reachable so the measured work cannot be optimized away.
+    private static volatile Object sBlackhole;
+
+    private final int mWarmupIterations;
+    private final int mMeasuredIterations;
+    private final Bundle mResults = new Bundle();
+
+    BenchmarkRunner(Bundle arguments) {
+        mWarmupIterations = getIntArgument(arguments, "warmup", 20);
+        mMeasuredIterations = getIntArgument(arguments, "iterations", 200);
+    }
+
+    /** Runs {@code operation}, then logs and records the measured statistics. */
+    Result run(String name, Supplier<?> operation) {
+        for (int i = 0; i < mWarmupIterations; i++) {
+            sBlackhole = operation.get();
+        }
+        Runtime.getRuntime().gc();
+        final long[] latenciesNs = new long[mMeasuredIterations];
+        final long startTimeNs = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < mMeasuredIterations; i++) {
+            final long operationStartNs = SystemClock.elapsedRealtimeNanos();
+            sBlackhole = operation.get();
+            latenciesNs[i] = SystemClock.elapsedRealtimeNanos() - operationStartNs;
+        }
+        final long totalTimeNs = SystemClock.elapsedRealtimeNanos() - startTimeNs;
+        Arrays.sort(latenciesNs);
+
+        final Result result =
+                new Result(
+                        name,
+                        mMeasuredIterations * 1e9 / totalTimeNs,
+                        getAllocatedBytesPerOperation(operation),
+                        percentile(latenciesNs, 50),
+                        percentile(latenciesNs, 99));
+        Log.i(TAG, result.toString());
+        result.putInto(mResults);
+        return result;
+    }
+
+    /** Returns the statistics of every benchmark run so far, keyed by benchmark and metric. */
+    Bundle getResults() {
+        return mResults;
+    }
+
+    static int getIntArgument(Bundle arguments, String key, int defaultValue) {
+        final String value = arguments.getString(key);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static long getAllocatedBytesPerOperation(Supplier<?> operation) {
+        Debug.startAllocCounting();
+        try {
+            Debug.resetThreadAllocSize();
+            for (int i = 0; i < ALLOCATION_ITERATIONS; i++) {
+                sBlackhole = operation.get();
+            }
+            return Debug.getThreadAllocSize() / ALLOCATION_ITERATIONS;
+        } finally {
+            Debug.stopAllocCounting();
+        }
+    }
+
+    private static long percentile(long[] sortedValues, int percentile) {
+        final int index = (int) Math.ceil(percentile / 100.0 * sortedValues.length) - 1;
+        return sortedValues[Math.max(0, index)];
+    }
+
+    /** Statistics of one benchmark. */
+    static final class Result {
+        final String mName;
+        final double mOpsPerSecond;
+        final long mAllocatedBytesPerOp;
+        final long mP50LatencyNs;
+        final long mP99LatencyNs;
+
+        Result(
+                String name,
+                double opsPerSecond,
+                long allocatedBytesPerOp,
+                long p50LatencyNs,
+                long p99LatencyNs) {
+            mName = name;
+            mOpsPerSecond = opsPerSecond;
+            mAllocatedBytesPerOp = allocatedBytesPerOp;
+            mP50LatencyNs = p50LatencyNs;
+            mP99LatencyNs = p99LatencyNs;
+        }
+
+        void putInto(Bundle results) {
+            results.putString(mName + "_ops_per_sec", String.format(
+                    Locale.ENGLISH, "%.2f", mOpsPerSecond));
+            results.putString(mName + "_allocated_bytes_per_op",
+                    String.valueOf(mAllocatedBytesPerOp));
+            results.putString(mName + "_p50_ns", String.valueOf(mP50LatencyNs));
+            results.putString(mName + "_p99_ns", String.valueOf(mP99LatencyNs));
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    Locale.ENGLISH,
+                    "%s: %.2f ops/s, %d bytes/op, p50=%.3fms, p99=%.3fms",
+                    mName,
+                    mOpsPerSecond,
+                    mAllocatedBytesPerOp,
+                    mP50LatencyNs / 1e6,
+                    mP99LatencyNs / 1e6);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.junit.Assume.assumeTrue;
+
+import android.content.Context;
+import android.os.BatteryUsageStats;
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.android.settings.fuelgauge.BatteryEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * On-device microbenchmarks of the battery usage page load path. Run with {@code atest
+ * SettingsBatteryBenchmarks}; the data scale and iteration counts are configured with the
+ * instrumentation arguments documented in the README of this module.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DataProcessorBenchmark {
+
+    private static final String TAG = "BatteryBenchmark";
+
+    private Context mContext;
+    private BatteryDataGenerator mGenerator;
+    private BenchmarkRunner mRunner;
+
+    @Before
+    public void setUp() {
+        final Bundle arguments = InstrumentationRegistry.getArguments();
+        mContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        mGenerator = new BatteryDataGenerator(arguments);
+        mRunner = new BenchmarkRunner(arguments);
+        Log.i(TAG, String.format("apps=%d days=%d users=%d",
+                mGenerator.mAppCount, mGenerator.mDayCount, mGenerator.mUserCount));
+    }
+
+    @After
+    public void tearDown() {
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, mRunner.getResults());
+    }
+
+    @Test
+    public void generateBatteryDiffData() {
+        final List<BatteryHistEntry> entries = mGenerator.generateBatteryHistEntryList();
+
+        mRunner.run(
+                "DataProcessorBenchmark_generateBatteryDiffData",
+                () ->
+                        DataProcessor.generateBatteryDiffData(
+                                mContext,
+                                BatteryDataGenerator.START_TIMESTAMP,
+                                entries,
+                                Set.of(),
+                                Set.of()));
+
+        assertThat(
+                        DataProcessor.generateBatteryDiffData(
+                                        mContext,
+                                        BatteryDataGenerator.START_TIMESTAMP,
+                                        entries,
+                                        Set.of(),
+                                        Set.of())
+                                .getAppDiffEntryList())
+                .isNotEmpty();
+    }
+
+    @Test
+    public void getBatteryDiffDataMap() {
+        final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap =
+                mGenerator.generateBatteryHistoryMap();
+        final BatteryLevelData batteryLevelData = mGenerator.generateBatteryLevelData();
+
+        mRunner.run(
+                "DataProcessorBenchmark_getBatteryDiffDataMap",
+                () -> getBatteryDiffDataMap(batteryLevelData, batteryHistoryMap));
+
+        assertThat(getBatteryDiffDataMap(batteryLevelData, batteryHistoryMap)).isNotEmpty();
+    }
+
+    @Test
+    public void buildAppUsagePeriodList() {
+        final List<AppUsageEvent> appUsageEvents = mGenerator.generateAppUsageEvents();
+        final List<BatteryEvent> batteryEvents = mGenerator.generateBatteryEvents();
+
+        mRunner.run(
+                "DataProcessorBenchmark_buildAppUsagePeriodList",
+                () ->
+                        DataProcessor.buildAppUsagePeriodList(
+                                mContext,
+                                appUsageEvents,
+                                batteryEvents,
+                                BatteryDataGenerator.START_TIMESTAMP,
+                                mGenerator.getEndTimestamp()));
+
+        assertThat(
+                        DataProcessor.buildAppUsagePeriodList(
+                                mContext,
+                                appUsageEvents,
+                                batteryEvents,
+                                BatteryDataGenerator.START_TIMESTAMP,
+                                mGenerator.getEndTimestamp()))
+                .isNotEmpty();
+    }
+
+    @Test
+    public void convertBatteryUsageSlots() {
+        final Map<Long, BatteryDiffData> batteryDiffDataMap =
+                getBatteryDiffDataMap(
+                        mGenerator.generateBatteryLevelData(),
+                        mGenerator.generateBatteryHistoryMap());
+
+        mRunner.run(
+                "DataProcessorBenchmark_convertBatteryUsageSlots",
+                () -> convertBatteryUsageSlots(batteryDiffDataMap));
+
+        assertThat(convertBatteryUsageSlots(batteryDiffDataMap)).isGreaterThan(0);
+    }
+
+    /**
+     * Covers {@code getCoalescedUsageList()}, which needs the {@link BatteryUsageStats} of the
+     * device, so the data scale arguments do not apply to it.
+     */
+    @Test
+    public void generateBatteryEntryListFromBatteryUsageStats() {
+        final BatteryUsageStats batteryUsageStats = DataProcessor.getBatteryUsageStats(mContext);
+        try {
+            assumeTrue(batteryUsageStats != null);
+            final List<BatteryEntry> batteryEntries =
+                    DataProcessor.generateBatteryEntryListFromBatteryUsageStats(
+                            mContext, batteryUsageStats);
+            // Null when the battery attribution list is not shown on this device.
+            assumeTrue(batteryEntries != null);
+
+            mRunner.run(
+                    "DataProcessorBenchmark_generateBatteryEntryListFromBatteryUsageStats",
+                    () ->
+                            DataProcessor.generateBatteryEntryListFromBatteryUsageStats(
+                                    mContext, batteryUsageStats));
+
+            assertThat(batteryEntries).isNotEmpty();
+        } finally {
+            DataProcessor.closeBatteryUsageStats(batteryUsageStats);
+        }
+    }
+
+    private Map<Long, BatteryDiffData> getBatteryDiffDataMap(
+            BatteryLevelData batteryLevelData,
+            Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap) {
+        return DataProcessor.getBatteryDiffDataMap(
+                mContext,
+                batteryLevelData.getHourlyBatteryLevelsPerDay(),
+                batteryHistoryMap,
+                /* appUsagePeriodMap= */ null,
+                Set.of(),
+                Set.of());
+    }
+
+    private int convertBatteryUsageSlots(Map<Long, BatteryDiffData> batteryDiffDataMap) {
+        int entryCount = 0;
+        for (BatteryUsageSlot slot :
+                ConvertUtils.convertToBatteryUsageSlotList(batteryDiffDataMap)) {
+            entryCount +=
+                    ConvertUtils.convertToBatteryDiffData(mContext, slot, Set.of(), Set.of())
+                            .getAppDiffEntryList()
+                            .size();
+        }
+        return entryCount;
+    }
+}
@@ -60,6 +60,8 @@ public class LiveCaptionPreferenceControllerTest {
         pm.addResolveInfoForIntent(LiveCaptionPreferenceController.LIVE_CAPTION_INTENT,
                 new ResolveInfo());
 
+        mController.loadState();
+
         assertThat(mController.getAvailabilityStatus()).isEqualTo(AVAILABLE);
     }
 
@@ -69,9 +71,20 @@ public class LiveCaptionPreferenceControllerTest {
         pm.setResolveInfosForIntent(LiveCaptionPreferenceController.LIVE_CAPTION_INTENT,
                 Collections.emptyList());
 
+        mController.loadState();
+
         assertThat(mController.getAvailabilityStatus()).isEqualTo(UNSUPPORTED_ON_DEVICE);
     }
 
+    @Test
+    public void isAvailable_stateNotLoaded_shouldResolveIntent() {
+        final ShadowPackageManager pm = Shadows.shadowOf(mContext.getPackageManager());
+        pm.addResolveInfoForIntent(LiveCaptionPreferenceController.LIVE_CAPTION_INTENT,
+                new ResolveInfo());
+
+        assertThat(mController.isAvailable()).isTrue();
+    }
+
     @Test
     public void updateState_liveCaptionEnabled_subtextShowsOnSummary() {
         setLiveCaptionEnabled(true);
@@ -34,6 +34,7 @@ import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -54,6 +55,8 @@ import android.widget.Switch;
 import com.android.settings.R;
 import com.android.settings.applications.AppStateNotificationBridge.NotificationsSentState;
 import com.android.settings.notification.NotificationBackend;
+import com.android.settings.notification.NotificationBackend.AppBlockState;
+import com.android.settings.notification.NotificationBackend.AppBlockStatesCallback;
 import com.android.settingslib.applications.ApplicationsState;
 import com.android.settingslib.applications.ApplicationsState.AppEntry;
 
@@ -338,6 +341,28 @@ public class AppStateNotificationBridgeTest {
         assertThat(((NotificationsSentState) apps.get(1).extraInfo).avgSentDaily).isEqualTo(1);
     }
 
+    @Test
+    public void testLoadAllExtraInfo_bulkBlockStates_shouldNotQueryEachApp()
+            throws RemoteException {
+        when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenReturn(mock(UsageEvents.class));
+        ArrayList<AppEntry> apps = new ArrayList<>();
+        apps.add(getMockAppEntry(PKG1));
+        when(mSession.getAllApps()).thenReturn(apps);
+        when(mBackend.loadAppBlockStates(any(), eq(0), any(), any())).thenAnswer(invocation -> {
+            final Map<String, AppBlockState> states =
+                    Map.of(PKG1, mock(AppBlockState.class));
+            ((AppBlockStatesCallback) invocation.getArgument(3)).onAppBlockStatesLoaded(0, states);
+            return states;
+        });
+
+        mBridge.loadAllExtraInfo();
+
+        assertThat(((NotificationsSentState) apps.get(0).extraInfo).blocked).isFalse();
+        verify(mBackend, never()).getNotificationsBanned(anyString(), anyInt());
+        verify(mBackend, never()).enableSwitch(any(), any());
+    }
+
     @Test
     public void testUpdateExtraInfo_noEvents() throws RemoteException {
         when(mUsageStats.queryEventsForPackageForUser(
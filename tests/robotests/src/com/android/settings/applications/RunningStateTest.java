@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.ActivityManager;
+import android.app.ActivityManager.RunningAppProcessInfo;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class RunningStateTest {
+
+    private static final int PID = 100;
+    private static final int OTHER_PID = 200;
+    private static final int UID_A = 10001;
+    private static final int UID_B = 10002;
+    private static final String PACKAGE_A = "com.android.test.a";
+    private static final String PACKAGE_B = "com.android.test.b";
+
+    private Context mContext;
+    private ActivityManager mActivityManager;
+    private RunningState mRunningState;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mActivityManager = mContext.getSystemService(ActivityManager.class);
+        mRunningState = new RunningState(mContext) {
+            @Override
+            long[] getProcessPss(int[] pids) {
+                return new long[pids.length];
+            }
+        };
+        installPackage(PACKAGE_A, UID_A, "App A");
+        installPackage(PACKAGE_B, UID_B, "App B");
+    }
+
+    @After
+    public void tearDown() {
+        mRunningState.mBackgroundThread.quit();
+    }
+
+    @Test
+    public void update_pidReused_shouldCreateNewProcessItem() {
+        setProcesses(createProcess(PACKAGE_A, PID, UID_A));
+        mRunningState.update(mContext, mActivityManager);
+        final RunningState.ProcessItem oldProcess = mRunningState.mRunningProcesses.get(PID);
+
+        setProcesses(createProcess(PACKAGE_B, PID, UID_B));
+        mRunningState.update(mContext, mActivityManager);
+
+        final RunningState.ProcessItem process = mRunningState.mRunningProcesses.get(PID);
+        assertThat(process).isNotSameInstanceAs(oldProcess);
+        assertThat(process.mProcessName).isEqualTo(PACKAGE_B);
+        assertThat(process.mLabel).isEqualTo("App B");
+        assertThat(mRunningState.mInterestingProcesses).containsExactly(process);
+        assertThat(mRunningState.mProcessLabels.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void update_onlyOtherProcessesChanged_shouldKeepMergedItems() {
+        setProcesses(createProcess(PACKAGE_A, PID, UID_A));
+        mRunningState.update(mContext, mActivityManager);
+        final ArrayList<RunningState.MergedItem> mergedItems =
+                mRunningState.getCurrentMergedItems();
+        final RunningAppProcessInfo backgroundProcess =
+                createProcess(PACKAGE_B, OTHER_PID, UID_B);
+        backgroundProcess.importance = RunningAppProcessInfo.IMPORTANCE_CACHED;
+
+        setProcesses(createProcess(PACKAGE_A, PID, UID_A), backgroundProcess);
+        assertThat(mRunningState.update(mContext, mActivityManager)).isTrue();
+
+        assertThat(mRunningState.getCurrentMergedItems()).isSameInstanceAs(mergedItems);
+        assertThat(mergedItems).hasSize(1);
+        assertThat(mergedItems.get(0).mProcess)
+                .isSameInstanceAs(mRunningState.mRunningProcesses.get(PID));
+    }
+
+    @Test
+    public void update_processRestarted_shouldReuseLabel() {
+        setProcesses(createProcess(PACKAGE_A, PID, UID_A));
+        mRunningState.update(mContext, mActivityManager);
+        setProcesses();
+        mRunningState.update(mContext, mActivityManager);
+        installPackage(PACKAGE_A, UID_A, "Renamed App A");
+
+        setProcesses(createProcess(PACKAGE_A, OTHER_PID, UID_A));
+        mRunningState.update(mContext, mActivityManager);
+
+        assertThat(mRunningState.mRunningProcesses.get(OTHER_PID).mLabel).isEqualTo("App A");
+        assertThat(mRunningState.mProcessLabels.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void update_packageChangedWhileProcessGone_shouldResolveLabelAgain() {
+        setProcesses(createProcess(PACKAGE_A, PID, UID_A));
+        mRunningState.update(mContext, mActivityManager);
+        setProcesses();
+        mRunningState.update(mContext, mActivityManager);
+        installPackage(PACKAGE_A, UID_A, "Renamed App A");
+
+        mRunningState.mPackageBroadcastReceiver.onReceive(mContext,
+                new Intent(Intent.ACTION_PACKAGE_CHANGED));
+        setProcesses(createProcess(PACKAGE_A, OTHER_PID, UID_A));
+        mRunningState.update(mContext, mActivityManager);
+
+        assertThat(mRunningState.mRunningProcesses.get(OTHER_PID).mLabel)
+                .isEqualTo("Renamed App A");
+    }
+
+    private void setProcesses(RunningAppProcessInfo... processes) {
+        final List<RunningAppProcessInfo> list = new ArrayList<>(Arrays.asList(processes));
+        shadowOf(mActivityManager).setProcesses(list);
+    }
+
+    private RunningAppProcessInfo createProcess(String processName, int pid, int uid) {
+        final RunningAppProcessInfo process =
+                new RunningAppProcessInfo(processName, pid, new String[]{processName});
+        process.uid = uid;
+        process.importance = RunningAppProcessInfo.IMPORTANCE_FOREGROUND;
+        return process;
+    }
+
+    private void installPackage(String packageName, int uid, String label) {
+        final ApplicationInfo applicationInfo = new ApplicationInfo();
+        applicationInfo.packageName = packageName;
+        applicationInfo.uid = uid;
+        applicationInfo.nonLocalizedLabel = label;
+        final PackageInfo packageInfo = new PackageInfo();
+        packageInfo.packageName = packageName;
+        packageInfo.applicationInfo = applicationInfo;
+        shadowOf(mContext.getPackageManager()).installPackage(packageInfo);
+        shadowOf(mContext.getPackageManager()).setPackagesForUid(uid, packageName);
+    }
+}
@@ -215,6 +215,81 @@ public class BasePreferenceControllerTest {
         assertThat(category).isEqualTo(SettingsEnums.DISPLAY);
     }
 
+    @Test
+    public void isAvailable_backgroundStateNotLoaded_shouldLoadStateFirst() {
+        final FakeBackgroundStateController controller =
+                new FakeBackgroundStateController(mContext, KEY);
+
+        assertThat(controller.isAvailable()).isTrue();
+        assertThat(controller.mLoadCount).isEqualTo(1);
+    }
+
+    @Test
+    public void isAvailable_backgroundStateLoaded_shouldNotLoadAgain() {
+        final FakeBackgroundStateController controller =
+                new FakeBackgroundStateController(mContext, KEY);
+
+        controller.loadBackgroundState();
+        controller.isAvailable();
+        controller.isSupported();
+
+        assertThat(controller.mLoadCount).isEqualTo(1);
+    }
+
+    @Test
+    public void updateNonIndexableKeys_backgroundStateNotLoaded_shouldUseLoadedState() {
+        final FakeBackgroundStateController controller =
+                new FakeBackgroundStateController(mContext, KEY);
+        final List<String> keys = new ArrayList<>();
+
+        controller.updateNonIndexableKeys(keys);
+
+        assertThat(keys).isEmpty();
+    }
+
+    @Test
+    public void displayPreference_backgroundStateNotLoaded_shouldUseLoadedState() {
+        final FakeBackgroundStateController controller =
+                new FakeBackgroundStateController(mContext, KEY);
+        final PreferenceScreen screen = mock(PreferenceScreen.class);
+        final Preference preference = new Preference(mContext);
+        preference.setVisible(false);
+        when(screen.findPreference(KEY)).thenReturn(preference);
+
+        controller.displayPreference(screen);
+
+        assertThat(preference.isVisible()).isTrue();
+    }
+
+    @Test
+    public void displayPreference_loadsStateInBackground_shouldUseDefaultState() {
+        final FakeBackgroundStateController controller =
+                new FakeBackgroundStateController(mContext, KEY);
+        controller.setLoadsStateInBackground(true);
+        final PreferenceScreen screen = mock(PreferenceScreen.class);
+        final Preference preference = new Preference(mContext);
+        when(screen.findPreference(KEY)).thenReturn(preference);
+
+        controller.displayPreference(screen);
+
+        assertThat(controller.mLoadCount).isEqualTo(0);
+        assertThat(preference.isVisible()).isFalse();
+    }
+
+    @Test
+    public void isAvailable_loadsStateInBackground_shouldUseLastLoadedState() {
+        final FakeBackgroundStateController controller =
+                new FakeBackgroundStateController(mContext, KEY);
+        controller.setLoadsStateInBackground(true);
+
+        assertThat(controller.isAvailable()).isFalse();
+
+        controller.loadBackgroundState();
+
+        assertThat(controller.isAvailable()).isTrue();
+        assertThat(controller.mLoadCount).isEqualTo(1);
+    }
+
     private class FakeBasePreferenceController extends BasePreferenceController {
 
         private int mAvailable;
@@ -233,4 +308,26 @@ public class BasePreferenceControllerTest {
             mAvailable = availability;
         }
     }
-}
\ No newline at end of file
+
+    private static class FakeBackgroundStateController extends BasePreferenceController
+            implements BasePreferenceController.BackgroundStateLoader {
+
+        private int mLoadCount;
+        private boolean mLoaded;
+
+        private FakeBackgroundStateController(Context context, String preferenceKey) {
+            super(context, preferenceKey);
+        }
+
+        @Override
+        public void loadState() {
+            mLoadCount++;
+            mLoaded = true;
+        }
+
+        @Override
+        public int getAvailabilityStatus() {
+            return mLoaded ? AVAILABLE : CONDITIONALLY_UNAVAILABLE;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.junit.Assert.assertThrows;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.settings.applications.specialaccess.DataSaverController;
+import com.android.settings.deviceinfo.firmwareversion.FirmwareVersionPreferenceController;
+import com.android.settings.slices.FakePreferenceController;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class PreferenceControllerRegistryTest {
+
+    private static final String KEY = "key";
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+    }
+
+    @Test
+    public void generatedRegistry_shouldContainSettingsControllers() {
+        final String javaName = FirmwareVersionPreferenceController.class.getName();
+        final String kotlinName = DataSaverController.class.getName();
+
+        assertThat(GeneratedPreferenceControllerRegistry.getConstructors(javaName))
+                .isEqualTo(PreferenceControllerRegistry.KEY_CONSTRUCTOR);
+        assertThat(GeneratedPreferenceControllerRegistry.getConstructors(kotlinName))
+                .isEqualTo(PreferenceControllerRegistry.KEY_CONSTRUCTOR);
+        assertThat(GeneratedPreferenceControllerRegistry.newInstance(mContext, javaName, KEY))
+                .isInstanceOf(FirmwareVersionPreferenceController.class);
+        assertThat(GeneratedPreferenceControllerRegistry.newInstance(mContext, javaName))
+                .isNull();
+    }
+
+    @Test
+    public void createInstance_generatedController_shouldNotUseReflection() {
+        final String name = FirmwareVersionPreferenceController.class.getName();
+
+        final BasePreferenceController controller =
+                PreferenceControllerRegistry.createInstance(mContext, name, KEY, false);
+
+        assertThat(controller).isInstanceOf(FirmwareVersionPreferenceController.class);
+        assertThat(controller.getPreferenceKey()).isEqualTo(KEY);
+        assertThat(PreferenceControllerRegistry.isCreatedThroughReflection(name)).isFalse();
+    }
+
+    @Test
+    public void createInstance_bothConstructors_shouldPreferContextConstructor() {
+        final BasePreferenceController controller = PreferenceControllerRegistry.createInstance(
+                mContext, BothConstructorsController.class.getName(), KEY, false);
+
+        assertThat(controller.getPreferenceKey()).isEqualTo(BothConstructorsController.KEY);
+    }
+
+    @Test
+    public void createInstance_contextConstructorThrows_shouldFallBackToKeyConstructor() {
+        final BasePreferenceController controller = PreferenceControllerRegistry.createInstance(
+                mContext, ContextConstructorThrowsController.class.getName(), KEY, false);
+
+        assertThat(controller.getPreferenceKey()).isEqualTo(KEY);
+    }
+
+    @Test
+    public void createInstance_unknownController_shouldFallBackToReflection() {
+        final String name = FakePreferenceController.class.getName();
+
+        final BasePreferenceController controller =
+                PreferenceControllerRegistry.createInstance(mContext, name, KEY, false);
+
+        assertThat(controller).isInstanceOf(FakePreferenceController.class);
+        assertThat(controller.getPreferenceKey()).isEqualTo(KEY);
+        assertThat(PreferenceControllerRegistry.isCreatedThroughReflection(name)).isTrue();
+    }
+
+    @Test
+    public void createInstance_keyControllerWithoutKey_shouldThrow() {
+        assertThrows(IllegalStateException.class,
+                () -> PreferenceControllerRegistry.createInstance(mContext,
+                        FakePreferenceController.class.getName(), null, false));
+    }
+
+    @Test
+    public void createInstance_constructorThrows_shouldThrowIllegalState() {
+        assertThrows(IllegalStateException.class,
+                () -> PreferenceControllerRegistry.createInstance(mContext,
+                        BadPreferenceController.class.getName(), KEY, false));
+    }
+
+    @Test
+    public void createInstance_unknownClass_shouldThrowIllegalState() {
+        assertThrows(IllegalStateException.class,
+                () -> PreferenceControllerRegistry.createInstance(mContext,
+                        "com.android.settings.core.NoSuchController", KEY, false));
+    }
+
+    @Test
+    public void createInstanceWithoutKey_keyOnlyController_shouldThrow() {
+        assertThrows(IllegalStateException.class,
+                () -> BasePreferenceController.createInstance(mContext,
+                        FirmwareVersionPreferenceController.class.getName()));
+    }
+
+    public static class BothConstructorsController extends FakePreferenceController {
+        static final String KEY = "context_only_key";
+
+        public BothConstructorsController(Context context) {
+            super(context, KEY);
+        }
+
+        public BothConstructorsController(Context context, String key) {
+            super(context, key);
+        }
+    }
+
+    public static class ContextConstructorThrowsController extends FakePreferenceController {
+
+        public ContextConstructorThrowsController(Context context) {
+            // Throws as the key is required.
+            super(context, null);
+        }
+
+        public ContextConstructorThrowsController(Context context, String key) {
+            super(context, key);
+        }
+    }
+}
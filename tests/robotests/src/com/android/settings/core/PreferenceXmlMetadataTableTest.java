@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import static androidx.test.core.app.ApplicationProvider.getApplicationContext;
+
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_CONTROLLER;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_ICON;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_KEY;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_SEARCHABLE;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_TITLE;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.pm.ApplicationInfo;
+import android.content.res.Configuration;
+import android.os.Bundle;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class PreferenceXmlMetadataTableTest {
+
+    private static final int XML_RES_ID = 42;
+
+    private Context mContext;
+    private File mFile;
+
+    @Before
+    public void setUp() {
+        mContext = getApplicationContext();
+        mFile = new File(mContext.getCacheDir(), PreferenceXmlMetadataTable.TABLE_FILE_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Test
+    public void isSupported_otherPackage_shouldReturnFalse() {
+        final PreferenceXmlMetadataTable table =
+                new PreferenceXmlMetadataTable(mFile, "other.package");
+
+        assertThat(table.isSupported(mContext)).isFalse();
+    }
+
+    @Test
+    public void get_notAdded_shouldReturnNull() {
+        final PreferenceXmlMetadataTable table = newTable();
+
+        assertThat(table.get(mContext, XML_RES_ID)).isNull();
+    }
+
+    @Test
+    public void get_afterWrite_shouldReadBackFromMappedFile() {
+        final PreferenceXmlMetadataTable table = newTable();
+        table.put(mContext, XML_RES_ID, createMetadata());
+        table.write();
+
+        final List<Bundle> metadata = newTable().get(mContext, XML_RES_ID);
+
+        assertThat(metadata).hasSize(1);
+        final Bundle bundle = metadata.get(0);
+        assertThat(bundle.getString(METADATA_KEY)).isEqualTo("key");
+        assertThat(bundle.getString(METADATA_CONTROLLER)).isEqualTo("com.test.Controller");
+        assertThat(bundle.getString(METADATA_TITLE)).isNull();
+        assertThat(bundle.getInt(METADATA_ICON)).isEqualTo(7);
+        assertThat(bundle.getBoolean(METADATA_SEARCHABLE)).isFalse();
+    }
+
+    @Test
+    public void isSupported_overriddenConfiguration_shouldReturnFalse() {
+        final Configuration config = new Configuration(mContext.getResources().getConfiguration());
+        config.densityDpi = config.densityDpi * 2;
+        final Context configContext = mContext.createConfigurationContext(config);
+
+        assertThat(newTable().isSupported(configContext)).isFalse();
+    }
+
+    @Test
+    public void isSupported_applicationContext_shouldReturnTrue() {
+        assertThat(newTable().isSupported(mContext)).isTrue();
+    }
+
+    @Test
+    public void getInstance_noApplicationContext_shouldReturnNull() {
+        PreferenceXmlMetadataTable.resetInstance();
+        final Context context = mock(Context.class);
+
+        assertThat(PreferenceXmlMetadataTable.getInstance(context)).isNull();
+    }
+
+    @Test
+    public void get_overlayChanged_shouldNotReadStaleTable() {
+        final PreferenceXmlMetadataTable table = newTable();
+        table.put(mContext, XML_RES_ID, createMetadata());
+        table.write();
+        // A new ApplicationInfo instance, as the system publishes when the overlays change.
+        final ApplicationInfo overlaidInfo = new ApplicationInfo(mContext.getApplicationInfo());
+        overlaidInfo.resourceDirs = new String[]{"/vendor/overlay/SettingsOverlay.apk"};
+        final Context overlaidContext = new ContextWrapper(mContext) {
+            @Override
+            public ApplicationInfo getApplicationInfo() {
+                return overlaidInfo;
+            }
+        };
+
+        assertThat(newTable().get(overlaidContext, XML_RES_ID)).isNull();
+        assertThat(newTable().get(mContext, XML_RES_ID)).isNotNull();
+    }
+
+    @Test
+    public void buildOverlayKey_shouldContainOverlayPaths() {
+        final ApplicationInfo info = new ApplicationInfo();
+        info.resourceDirs = new String[]{"/vendor/overlay/SettingsOverlay.apk"};
+
+        assertThat(PreferenceXmlMetadataTable.buildOverlayKey(info))
+                .contains("/vendor/overlay/SettingsOverlay.apk");
+        assertThat(PreferenceXmlMetadataTable.buildOverlayKey(new ApplicationInfo())).isEmpty();
+    }
+
+    private PreferenceXmlMetadataTable newTable() {
+        return new PreferenceXmlMetadataTable(mFile, mContext.getPackageName());
+    }
+
+    private static List<Bundle> createMetadata() {
+        final Bundle bundle = new Bundle();
+        bundle.putString(METADATA_KEY, "key");
+        bundle.putString(METADATA_CONTROLLER, "com.test.Controller");
+        bundle.putInt(METADATA_ICON, 7);
+        bundle.putBoolean(METADATA_SEARCHABLE, false);
+        final List<Bundle> metadata = new ArrayList<>();
+        metadata.add(bundle);
+        return metadata;
+    }
+}
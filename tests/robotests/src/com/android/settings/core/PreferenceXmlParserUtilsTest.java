@@ -264,4 +264,42 @@ public class PreferenceXmlParserUtilsTest {
         assertThat(bundleWithKey2Found).isTrue();
     }
 
+    @Test
+    @Config(qualifiers = "mcc999")
+    public void filterMetadata_shouldMatchParseMetadataForEveryFlag() throws Exception {
+        final int[] xmlResIds = {R.xml.display_settings, R.xml.night_display_settings,
+                R.xml.location_settings, R.xml.top_level_settings};
+        for (int xmlResId : xmlResIds) {
+            final List<Bundle> allMetadata = PreferenceXmlParserUtils.parseMetadata(mContext,
+                    xmlResId, PreferenceXmlParserUtils.ALL_METADATA_FLAGS);
+            for (int bit = 0; bit < Integer.SIZE; bit++) {
+                final int flag = 1 << bit;
+                if ((PreferenceXmlParserUtils.ALL_METADATA_FLAGS & flag) == 0) {
+                    continue;
+                }
+                assertFilterMatchesParse(xmlResId, allMetadata, flag);
+                assertFilterMatchesParse(xmlResId, allMetadata,
+                        flag | MetadataFlag.FLAG_INCLUDE_PREF_SCREEN);
+            }
+            assertFilterMatchesParse(xmlResId, allMetadata,
+                    PreferenceXmlParserUtils.ALL_METADATA_FLAGS);
+        }
+    }
+
+    private void assertFilterMatchesParse(int xmlResId, List<Bundle> allMetadata, int flags)
+            throws Exception {
+        final List<Bundle> parsed =
+                PreferenceXmlParserUtils.parseMetadata(mContext, xmlResId, flags);
+        final List<Bundle> filtered = PreferenceXmlParserUtils.filterMetadata(allMetadata, flags);
+
+        assertThat(filtered).hasSize(parsed.size());
+        for (int i = 0; i < parsed.size(); i++) {
+            final Bundle expected = parsed.get(i);
+            final Bundle actual = filtered.get(i);
+            assertThat(actual.keySet()).containsExactlyElementsIn(expected.keySet());
+            for (String key : expected.keySet()) {
+                assertThat(actual.get(key)).isEqualTo(expected.get(key));
+            }
+        }
+    }
 }
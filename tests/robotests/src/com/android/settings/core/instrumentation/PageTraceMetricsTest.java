@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.instrumentation;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.os.SystemClock;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class PageTraceMetricsTest {
+
+    private static final String PAGE = "TestPage";
+
+    private PageTraceMetrics mMetrics;
+
+    @Before
+    public void setUp() {
+        mMetrics = new PageTraceMetrics();
+    }
+
+    @Test
+    public void end_shouldRecordElapsedTime() throws JSONException {
+        final long startTime = mMetrics.begin(PageTraceMetrics.STAGE_UPDATE_STATE, "Controller");
+        SystemClock.sleep(5);
+
+        mMetrics.end(PAGE, PageTraceMetrics.STAGE_UPDATE_STATE, "Controller", startTime);
+
+        final JSONObject item = getStage(mMetrics.dump(), 0).getJSONArray("items")
+                .getJSONObject(0);
+        assertThat(item.getString("name")).isEqualTo("Controller");
+        assertThat(item.getInt("count")).isEqualTo(1);
+        assertThat(item.getLong("maxUs")).isAtLeast(5000L);
+    }
+
+    @Test
+    public void end_noPage_shouldNotRecord() throws JSONException {
+        final long startTime = mMetrics.begin(PageTraceMetrics.STAGE_UPDATE_STATE, "Controller");
+
+        mMetrics.end(null, PageTraceMetrics.STAGE_UPDATE_STATE, "Controller", startTime);
+
+        assertThat(mMetrics.dump().getJSONArray("pages").length()).isEqualTo(0);
+    }
+
+    @Test
+    public void dump_shouldSortItemsBySlowestFirst() throws JSONException {
+        mMetrics.record(PAGE, PageTraceMetrics.STAGE_DISPLAY, "Fast", 10);
+        mMetrics.record(PAGE, PageTraceMetrics.STAGE_DISPLAY, "Slow", 300);
+        mMetrics.record(PAGE, PageTraceMetrics.STAGE_DISPLAY, "Slow", 100);
+
+        final JSONObject stage = getStage(mMetrics.dump(), 0);
+        final JSONArray items = stage.getJSONArray("items");
+        assertThat(stage.getString("stage")).isEqualTo(PageTraceMetrics.STAGE_DISPLAY);
+        assertThat(stage.getLong("totalUs")).isEqualTo(410);
+        assertThat(items.getJSONObject(0).getString("name")).isEqualTo("Slow");
+        assertThat(items.getJSONObject(0).getInt("count")).isEqualTo(2);
+        assertThat(items.getJSONObject(0).getLong("avgUs")).isEqualTo(200);
+        assertThat(items.getJSONObject(0).getLong("maxUs")).isEqualTo(300);
+        assertThat(items.getJSONObject(1).getString("name")).isEqualTo("Fast");
+    }
+
+    @Test
+    public void getName_anonymousClass_shouldUseClassName() {
+        final Object anonymous = new Object() {};
+
+        assertThat(PageTraceMetrics.getName(anonymous)).isEqualTo(anonymous.getClass().getName());
+        assertThat(PageTraceMetrics.getName("")).isEqualTo("String");
+    }
+
+    private static JSONObject getStage(JSONObject dump, int index) throws JSONException {
+        final JSONObject page = dump.getJSONArray("pages").getJSONObject(0);
+        assertThat(page.getString("page")).isEqualTo(PAGE);
+        return page.getJSONArray("stages").getJSONObject(index);
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.settings.core.BasePreferenceController;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class ControllerStateLoaderTest {
+
+    private static final String PAGE = "TestPage";
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+    }
+
+    @Test
+    public void start_noController_shouldReturnFalse() {
+        final ControllerStateLoader loader = new ControllerStateLoader(PAGE, new ArrayList<>());
+
+        assertThat(loader.start(mock(ControllerStateLoader.Callback.class))).isFalse();
+    }
+
+    @Test
+    public void start_shouldDeliverAvailabilityOfEveryController() {
+        final List<BasePreferenceController> controllers = new ArrayList<>();
+        controllers.add(new TestController(mContext, "key1", false /* throwOnLoad */));
+        controllers.add(new TestController(mContext, "key2", false /* throwOnLoad */));
+        final List<Map<BasePreferenceController, Boolean>> results = new ArrayList<>();
+
+        new ControllerStateLoader(PAGE, controllers).start(results::add);
+
+        assertThat(results).hasSize(1);
+        assertThat(results.get(0)).containsExactly(
+                controllers.get(0), true, controllers.get(1), true);
+    }
+
+    @Test
+    public void start_loadStateThrows_shouldDeliverUnavailable() {
+        final List<BasePreferenceController> controllers = new ArrayList<>();
+        controllers.add(new TestController(mContext, "key", true /* throwOnLoad */));
+        final List<Map<BasePreferenceController, Boolean>> results = new ArrayList<>();
+
+        new ControllerStateLoader(PAGE, controllers).start(results::add);
+
+        assertThat(results.get(0)).containsExactly(controllers.get(0), false);
+    }
+
+    @Test
+    public void start_cancelled_shouldNotDeliverResults() {
+        final List<BasePreferenceController> controllers = new ArrayList<>();
+        controllers.add(new TestController(mContext, "key", false /* throwOnLoad */));
+        final ControllerStateLoader.Callback callback = mock(ControllerStateLoader.Callback.class);
+        final ControllerStateLoader loader = new ControllerStateLoader(PAGE, controllers);
+
+        loader.cancel();
+        loader.start(callback);
+
+        verify(callback, never()).onStatesLoaded(any());
+    }
+
+    @Test
+    public void start_onBackgroundThreads_shouldDeliverLoadedStatesOnMainThread()
+            throws InterruptedException {
+        final List<BasePreferenceController> controllers = new ArrayList<>();
+        controllers.add(new TestController(mContext, "key1", false /* throwOnLoad */));
+        controllers.add(new TestController(mContext, "key2", false /* throwOnLoad */));
+        final List<Map<BasePreferenceController, Boolean>> results = new ArrayList<>();
+        final List<Thread> callbackThreads = new ArrayList<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(controllers.size());
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+        // Runs on real threads, as ShadowThreadUtils runs everything on the calling thread.
+        new ControllerStateLoader(PAGE, controllers, executor, mainHandler::post).start(
+                availabilities -> {
+                    callbackThreads.add(Thread.currentThread());
+                    results.add(availabilities);
+                });
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        shadowOf(Looper.getMainLooper()).idle();
+
+        assertThat(callbackThreads).containsExactly(Looper.getMainLooper().getThread());
+        assertThat(results.get(0)).containsExactly(
+                controllers.get(0), true, controllers.get(1), true);
+        for (BasePreferenceController controller : controllers) {
+            assertThat(((TestController) controller).mLoadThread)
+                    .isNotSameInstanceAs(Looper.getMainLooper().getThread());
+        }
+    }
+
+    private static class TestController extends BasePreferenceController
+            implements BasePreferenceController.BackgroundStateLoader {
+
+        private final boolean mThrowOnLoad;
+        private boolean mLoaded;
+        private Thread mLoadThread;
+
+        TestController(Context context, String key, boolean throwOnLoad) {
+            super(context, key);
+            mThrowOnLoad = throwOnLoad;
+        }
+
+        @Override
+        public void loadState() {
+            if (mThrowOnLoad) {
+                throw new IllegalStateException("error");
+            }
+            mLoaded = true;
+            mLoadThread = Thread.currentThread();
+        }
+
+        @Override
+        public int getAvailabilityStatus() {
+            return mLoaded ? AVAILABLE : CONDITIONALLY_UNAVAILABLE;
+        }
+    }
+}
@@ -54,6 +54,7 @@ import androidx.test.core.app.ApplicationProvider;
 
 import com.android.internal.logging.nano.MetricsProto.MetricsEvent;
 import com.android.settings.R;
+import com.android.settings.core.BasePreferenceController;
 import com.android.settings.core.PreferenceControllerMixin;
 import com.android.settings.slices.BlockingSlicePrefController;
 import com.android.settings.testutils.FakeFeatureFactory;
@@ -325,6 +326,66 @@ public class DashboardFragmentTest {
         verify(mockController2).getPreferenceKey();
     }
 
+    @Test
+    public void updatePreferenceStates_backgroundStateLoader_shouldApplyLoadedState() {
+        final TestBackgroundStateController controller =
+                spy(new TestBackgroundStateController(mContext, true /* available */));
+        final Preference preference = new Preference(mContext);
+        preference.setVisible(false);
+        when(mTestFragment.mScreen.findPreference(controller.getPreferenceKey()))
+                .thenReturn(preference);
+        mTestFragment.addPreferenceController(controller);
+
+        mTestFragment.updatePreferenceStates();
+
+        assertThat(controller.mLoaded).isTrue();
+        verify(controller).updateState(preference);
+        assertThat(preference.isVisible()).isTrue();
+    }
+
+    @Test
+    public void updatePreferenceStates_backgroundStateLoaderUnavailable_shouldHidePreference() {
+        final TestBackgroundStateController controller =
+                spy(new TestBackgroundStateController(mContext, false /* available */));
+        final Preference preference = new Preference(mContext);
+        when(mTestFragment.mScreen.findPreference(controller.getPreferenceKey()))
+                .thenReturn(preference);
+        mTestFragment.addPreferenceController(controller);
+
+        mTestFragment.updatePreferenceStates();
+
+        verify(controller, never()).updateState(preference);
+        assertThat(preference.isVisible()).isFalse();
+    }
+
+    @Test
+    public void addPreferenceController_backgroundStateLoader_shouldNotLoadOnMainThread() {
+        final TestBackgroundStateController controller =
+                new TestBackgroundStateController(mContext, true /* available */);
+        mTestFragment.addPreferenceController(controller);
+
+        controller.isAvailable();
+
+        assertThat(controller.mLoaded).isFalse();
+    }
+
+    @Test
+    public void applyPreferenceStates_availabilityUnchanged_shouldNotChangeVisibility() {
+        final TestBackgroundStateController controller =
+                new TestBackgroundStateController(mContext, true /* available */);
+        final Preference preference = new Preference(mContext);
+        when(mTestFragment.mScreen.findPreference(controller.getPreferenceKey()))
+                .thenReturn(preference);
+        mTestFragment.addPreferenceController(controller);
+        mTestFragment.applyPreferenceStates(Map.of(controller, true));
+        // Hidden by other code while the availability stays the same.
+        preference.setVisible(false);
+
+        mTestFragment.applyPreferenceStates(Map.of(controller, true));
+
+        assertThat(preference.isVisible()).isFalse();
+    }
+
     @Test
     public void onExpandButtonClick_shouldLogAdvancedButtonExpand() {
         final MetricsFeatureProvider metricsFeatureProvider
@@ -535,6 +596,28 @@ public class DashboardFragmentTest {
         }
     }
 
+    public static class TestBackgroundStateController extends BasePreferenceController
+            implements BasePreferenceController.BackgroundStateLoader {
+
+        private final boolean mAvailable;
+        private boolean mLoaded;
+
+        private TestBackgroundStateController(Context context, boolean available) {
+            super(context, "background_key");
+            mAvailable = available;
+        }
+
+        @Override
+        public void loadState() {
+            mLoaded = true;
+        }
+
+        @Override
+        public int getAvailabilityStatus() {
+            return mLoaded && mAvailable ? AVAILABLE : CONDITIONALLY_UNAVAILABLE;
+        }
+    }
+
     private static class TestFragment extends DashboardFragment {
 
         private final PreferenceManager mPreferenceManager;
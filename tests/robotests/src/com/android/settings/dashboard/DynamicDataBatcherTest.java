@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_SUMMARY;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Bundle;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class DynamicDataBatcherTest {
+
+    private static final String AUTHORITY = "com.android.settings.test.tiles";
+    private static final Uri URI_1 = Uri.parse("content://" + AUTHORITY + "/summary/key1");
+    private static final Uri URI_2 = Uri.parse("content://" + AUTHORITY + "/summary/key2");
+
+    private Context mContext;
+    private DynamicDataBatcher mBatcher;
+    private List<Bundle> mResults;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mBatcher = new DynamicDataBatcher(mContext);
+        mResults = new ArrayList<>();
+    }
+
+    @Test
+    public void loadBatch_supportedProvider_shouldLoadAllUrisInOneCall() {
+        final FakeTileProvider provider =
+                Robolectric.setupContentProvider(FakeTileProvider.class, AUTHORITY);
+        provider.mSupportsBatch = true;
+
+        mBatcher.loadBatch(createRequests());
+
+        assertThat(provider.mBatchCallCount).isEqualTo(1);
+        assertThat(mResults).hasSize(2);
+        assertThat(mResults.get(0).getString(META_DATA_PREFERENCE_SUMMARY))
+                .isEqualTo(URI_1.toString());
+        assertThat(mResults.get(1).getString(META_DATA_PREFERENCE_SUMMARY))
+                .isEqualTo(URI_2.toString());
+        assertThat(mBatcher.isUnsupported(AUTHORITY)).isFalse();
+    }
+
+    @Test
+    public void loadBatch_unsupportedProvider_shouldFallBackAndRememberAuthority() {
+        Robolectric.setupContentProvider(FakeTileProvider.class, AUTHORITY);
+
+        mBatcher.loadBatch(createRequests());
+
+        assertThat(mResults).hasSize(2);
+        assertThat(mResults.get(0)).isNull();
+        assertThat(mResults.get(1)).isNull();
+        assertThat(mBatcher.isUnsupported(AUTHORITY)).isTrue();
+    }
+
+    @Test
+    public void loadBatch_resultWithoutRequestedUris_shouldRememberAuthority() {
+        final FakeTileProvider provider =
+                Robolectric.setupContentProvider(FakeTileProvider.class, AUTHORITY);
+        provider.mReturnsEmptyBundle = true;
+
+        mBatcher.loadBatch(createRequests());
+
+        assertThat(mResults).hasSize(2);
+        assertThat(mResults.get(0)).isNull();
+        assertThat(mResults.get(1)).isNull();
+        assertThat(mBatcher.isUnsupported(AUTHORITY)).isTrue();
+    }
+
+    @Test
+    public void load_singleRequest_shouldFallBackToPerTileCall() {
+        final FakeTileProvider provider =
+                Robolectric.setupContentProvider(FakeTileProvider.class, AUTHORITY);
+        provider.mSupportsBatch = true;
+
+        mBatcher.load(URI_1, mResults::add);
+
+        assertThat(provider.mBatchCallCount).isEqualTo(0);
+        assertThat(mResults).hasSize(1);
+        assertThat(mResults.get(0)).isNull();
+    }
+
+    private List<DynamicDataBatcher.Request> createRequests() {
+        final List<DynamicDataBatcher.Request> requests = new ArrayList<>();
+        requests.add(new DynamicDataBatcher.Request(URI_1, mResults::add));
+        requests.add(new DynamicDataBatcher.Request(URI_2, mResults::add));
+        return requests;
+    }
+
+    public static class FakeTileProvider extends ContentProvider {
+
+        boolean mSupportsBatch;
+        boolean mReturnsEmptyBundle;
+        int mBatchCallCount;
+
+        @Override
+        public Bundle call(String method, String arg, Bundle extras) {
+            if (mReturnsEmptyBundle) {
+                // Like a provider which handles every call method with its own result.
+                return new Bundle();
+            }
+            if (!mSupportsBatch
+                    || !DynamicDataBatcher.METHOD_GET_DYNAMIC_DATA_BATCH.equals(method)) {
+                return null;
+            }
+            mBatchCallCount++;
+            final Bundle results = new Bundle();
+            for (String uri : extras.getStringArrayList(DynamicDataBatcher.EXTRA_URIS)) {
+                final Bundle result = new Bundle();
+                result.putString(META_DATA_PREFERENCE_SUMMARY, uri);
+                results.putBundle(uri, result);
+            }
+            return results;
+        }
+
+        @Override
+        public boolean onCreate() {
+            return true;
+        }
+
+        @Override
+        public Cursor query(Uri uri, String[] projection, String selection,
+                String[] selectionArgs, String sortOrder) {
+            return null;
+        }
+
+        @Override
+        public String getType(Uri uri) {
+            return null;
+        }
+
+        @Override
+        public Uri insert(Uri uri, ContentValues values) {
+            return null;
+        }
+
+        @Override
+        public int delete(Uri uri, String selection, String[] selectionArgs) {
+            return 0;
+        }
+
+        @Override
+        public int update(Uri uri, ContentValues values, String selection,
+                String[] selectionArgs) {
+            return 0;
+        }
+    }
+}
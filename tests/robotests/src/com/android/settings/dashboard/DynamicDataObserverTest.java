@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.net.Uri;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(RobolectricTestRunner.class)
+public class DynamicDataObserverTest {
+
+    @Test
+    public void post_beforeUpdateUi_shouldCompleteFutureAndDeferRunnable() {
+        final TestDynamicDataObserver observer = new TestDynamicDataObserver();
+        final AtomicInteger runCount = new AtomicInteger();
+
+        observer.post(runCount::incrementAndGet);
+
+        assertThat(observer.getFirstDataFuture().isDone()).isTrue();
+        assertThat(runCount.get()).isEqualTo(0);
+
+        observer.updateUi();
+
+        assertThat(runCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void post_afterUpdateUi_shouldRunOnMainThread() {
+        final TestDynamicDataObserver observer = new TestDynamicDataObserver();
+        final AtomicInteger runCount = new AtomicInteger();
+        observer.updateUi();
+
+        assertThat(observer.getFirstDataFuture().isDone()).isFalse();
+
+        observer.post(runCount::incrementAndGet);
+        ShadowLooper.idleMainLooper();
+
+        assertThat(observer.getFirstDataFuture().isDone()).isTrue();
+        assertThat(runCount.get()).isEqualTo(1);
+    }
+
+    private static class TestDynamicDataObserver extends DynamicDataObserver {
+
+        @Override
+        public Uri getUri() {
+            return Uri.parse("content://abc");
+        }
+
+        @Override
+        public void onDataChanged() {
+        }
+    }
+}
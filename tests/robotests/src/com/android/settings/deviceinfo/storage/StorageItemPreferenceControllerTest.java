@@ -358,6 +358,25 @@ public class StorageItemPreferenceControllerTest {
         assertThat(mController.mTrashPreference.getSummary().toString()).isEqualTo("100 kB");
     }
 
+    @Test
+    @Config(shadows = ShadowUserManager.class)
+    public void onPartialLoadFinished_updatesUserCategoriesButNotSystem() {
+        mController.displayPreference(mPreferenceScreen);
+        mController.setUsedSize(MEGABYTE_IN_BYTES * 970);
+        final CharSequence systemSummary = mController.mSystemPreference.getSummary();
+        final StorageAsyncLoader.StorageResult result = new StorageAsyncLoader.StorageResult();
+        result.imagesSize = MEGABYTE_IN_BYTES * 350;
+        result.allAppsExceptGamesSize = MEGABYTE_IN_BYTES * 90;
+        final SparseArray<StorageAsyncLoader.StorageResult> results = new SparseArray<>();
+        results.put(0, result);
+
+        mController.onPartialLoadFinished(results, 0);
+
+        assertThat(mController.mImagesPreference.getSummary().toString()).isEqualTo("350 MB");
+        assertThat(mController.mAppsPreference.getSummary().toString()).isEqualTo("90 MB");
+        assertThat(mController.mSystemPreference.getSummary()).isEqualTo(systemSummary);
+    }
+
     @Test
     public void settingUserIdAppliesNewIcons() {
         mController.displayPreference(mPreferenceScreen);
@@ -18,21 +18,32 @@ package com.android.settings.fuelgauge.batterytip;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.junit.Assert.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import android.content.Context;
 import android.content.Intent;
 import android.os.BatteryUsageStats;
+import android.os.OperationCanceledException;
 import android.os.PowerManager;
+import android.provider.Settings;
 
 import com.android.settings.fuelgauge.BatteryInfo;
 import com.android.settings.fuelgauge.BatteryUtils;
 import com.android.settings.fuelgauge.batterytip.tips.AppLabelPredicate;
 import com.android.settings.fuelgauge.batterytip.tips.AppRestrictionPredicate;
 import com.android.settings.fuelgauge.batterytip.tips.BatteryTip;
+import com.android.settings.testutils.FakeFeatureFactory;
 
+import org.json.JSONArray;
+import org.json.JSONObject;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -44,6 +55,7 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.util.ReflectionHelpers;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @RunWith(RobolectricTestRunner.class)
@@ -77,6 +89,7 @@ public class BatteryTipLoaderTest {
         doReturn(mBatteryInfo).when(mBatteryUtils).getBatteryInfo(any());
         mBatteryTipLoader = new BatteryTipLoader(mContext, mBatteryUsageStats);
         mBatteryTipLoader.mBatteryUtils = mBatteryUtils;
+        BatteryTipLoader.clearHighUsageCache();
     }
 
     @After
@@ -94,4 +107,88 @@ public class BatteryTipLoaderTest {
             assertThat(batteryTips.get(i).getType()).isEqualTo(TIP_ORDER[i]);
         }
     }
+
+    @Test
+    public void testLoadBackground_sameSnapshot_shouldNotParseBatteryHistoryAgain() {
+        mBatteryInfo.discharging = true;
+        when(mBatteryUsageStats.getStatsEndTimestamp()).thenReturn(1000L);
+
+        mBatteryTipLoader.loadInBackground();
+        final List<BatteryTip> batteryTips = mBatteryTipLoader.loadInBackground();
+
+        verify(mBatteryInfo, times(1)).parseBatteryHistory(any());
+        assertThat(batteryTips.size()).isEqualTo(TIP_ORDER.length);
+    }
+
+    @Test
+    public void testLoadBackground_newSnapshot_shouldParseBatteryHistoryAgain() {
+        mBatteryInfo.discharging = true;
+        when(mBatteryUsageStats.getStatsEndTimestamp()).thenReturn(1000L);
+        mBatteryTipLoader.loadInBackground();
+
+        when(mBatteryUsageStats.getStatsEndTimestamp()).thenReturn(2000L);
+        mBatteryTipLoader.loadInBackground();
+
+        verify(mBatteryInfo, times(2)).parseBatteryHistory(any());
+    }
+
+    @Test
+    public void testLoadBackground_policyChanged_shouldParseBatteryHistoryAgain() {
+        mBatteryInfo.discharging = true;
+        when(mBatteryUsageStats.getStatsEndTimestamp()).thenReturn(1000L);
+        mBatteryTipLoader.loadInBackground();
+
+        Settings.Global.putString(mContext.getContentResolver(),
+                Settings.Global.BATTERY_TIP_CONSTANTS, "high_usage_period_ms=1000");
+        mBatteryTipLoader.loadInBackground();
+
+        verify(mBatteryInfo, times(2)).parseBatteryHistory(any());
+    }
+
+    @Test
+    public void testLoadBackground_featureProvider_shouldGetDetectedTips() {
+        final FakeFeatureFactory featureFactory = FakeFeatureFactory.setupForTest();
+        final List<Integer> providerTipTypes = new ArrayList<>();
+        doAnswer(invocation -> {
+            final List<BatteryTip> tips = invocation.getArgument(1);
+            tips.forEach(tip -> providerTipTypes.add(tip.getType()));
+            return null;
+        }).when(featureFactory.batterySettingsFeatureProvider)
+                .addBatteryTipDetector(any(), anyList(), any(), any());
+
+        mBatteryTipLoader.loadInBackground();
+
+        assertThat(providerTipTypes).containsExactly(BatteryTip.TipType.HIGH_DEVICE_USAGE,
+                BatteryTip.TipType.BATTERY_DEFENDER, BatteryTip.TipType.INCOMPATIBLE_CHARGER);
+    }
+
+    @Test
+    public void testLoadBackground_shouldRecordDetectorLatencies() throws Exception {
+        BatteryTipDetectorMetrics.getInstance().clear();
+
+        mBatteryTipLoader.loadInBackground();
+
+        final JSONArray detectors =
+                BatteryTipDetectorMetrics.getInstance().dump().getJSONArray("detectors");
+        final List<String> names = new ArrayList<>();
+        for (int i = 0; i < detectors.length(); i++) {
+            final JSONObject detector = detectors.getJSONObject(i);
+            assertThat(detector.getInt("count")).isEqualTo(1);
+            names.add(detector.getString("name"));
+        }
+        assertThat(names).containsExactly("HighUsageDetector", "BatteryDefenderDetector",
+                "IncompatibleChargerDetector", "BatterySettingsFeatureProvider");
+    }
+
+    @Test
+    public void testLoadBackground_interrupted_shouldCancelLoad() {
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(OperationCanceledException.class,
+                    () -> mBatteryTipLoader.loadInBackground());
+            assertThat(Thread.currentThread().isInterrupted()).isTrue();
+        } finally {
+            Thread.interrupted();
+        }
+    }
 }
@@ -30,6 +30,7 @@ import androidx.test.core.app.ApplicationProvider;
 
 import com.android.settings.fuelgauge.batteryusage.db.AppUsageEventEntity;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryEventEntity;
+import com.android.settings.fuelgauge.batteryusage.db.BatterySnapshot;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryState;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryStateDatabase;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryUsageSlotEntity;
@@ -174,6 +175,34 @@ public final class BatteryUsageContentProviderTest {
         cursor.close();
     }
 
+    @Test
+    public void query_batteryState_keepsEncodedBatteryInformationColumn() throws Exception {
+        mProvider.onCreate();
+        final Duration currentTime = Duration.ofHours(52);
+        final long expiredTimeCutoff = currentTime.toMillis() - 1;
+
+        final Cursor cursor = insertBatteryState(currentTime, Long.toString(expiredTimeCutoff));
+
+        assertThat(cursor.getColumnNames()).asList().containsAtLeast(
+                "uid", "userId", "packageName", "timestamp", "consumerType",
+                "isFullChargeCycleStart", BatteryHistEntry.KEY_BATTERY_INFORMATION,
+                BatteryHistEntry.KEY_BATTERY_INFORMATION_DEBUG);
+        cursor.moveToFirst();
+        final int index = cursor.getColumnIndex(BatteryHistEntry.KEY_BATTERY_INFORMATION);
+        assertThat(cursor.getType(index)).isEqualTo(Cursor.FIELD_TYPE_STRING);
+        final ContentValues values = new ContentValues();
+        values.put(BatteryHistEntry.KEY_BATTERY_INFORMATION, cursor.getString(index));
+        final BatteryInformation batteryInformation =
+                ConvertUtils.getBatteryInformation(
+                        values, BatteryHistEntry.KEY_BATTERY_INFORMATION);
+        assertThat(batteryInformation.getAppLabel()).isEqualTo("Settings");
+        assertThat(batteryInformation.getZoneId()).isEqualTo("Europe/Paris");
+        assertThat(batteryInformation.getBootTimestamp())
+                .isEqualTo(currentTime.toMillis() - 1);
+        assertThat(batteryInformation.getDeviceBatteryState().getBatteryLevel()).isEqualTo(31);
+        cursor.close();
+    }
+
     @Test
     public void query_batteryStateTimestamp_returnsExpectedResult() throws Exception {
         mProvider.onCreate();
@@ -317,7 +346,11 @@ public final class BatteryUsageContentProviderTest {
         assertThat(states.get(0).timestamp).isEqualTo(2100021L);
         assertThat(states.get(0).consumerType).isEqualTo(2);
         assertThat(states.get(0).isFullChargeCycleStart).isTrue();
-        assertThat(states.get(0).batteryInformation).isEqualTo(expectedBatteryInformationString);
+        final BatterySnapshot snapshot =
+                BatteryStateDatabase.getInstance(mContext)
+                        .batteryStateDao()
+                        .getSnapshot(2100021L);
+        assertThat(states.get(0).toBatteryInformation(snapshot)).isEqualTo(batteryInformation);
     }
 
     @Test
@@ -347,7 +380,11 @@ public final class BatteryUsageContentProviderTest {
         assertThat(states).hasSize(1);
         assertThat(states.get(0).packageName).isEqualTo("fake_data");
         assertThat(states.get(0).timestamp).isEqualTo(2100022L);
-        assertThat(states.get(0).batteryInformation).isEqualTo(expectedBatteryInformationString);
+        final BatterySnapshot snapshot =
+                BatteryStateDatabase.getInstance(mContext)
+                        .batteryStateDao()
+                        .getSnapshot(2100022L);
+        assertThat(states.get(0).toBatteryInformation(snapshot)).isEqualTo(batteryInformation);
     }
 
     @Test
@@ -951,6 +951,113 @@ public final class DataProcessorTest {
         assertThat(batteryDiffData.getEndTimestamp()).isEqualTo(batteryHistoryKeys[2]);
     }
 
+    @Test
+    public void getBatteryDiffDataMap_cachedSlot_reuseCachedData() {
+        final long[] batteryHistoryKeys =
+                new long[] {
+                    1641045600000L, // 2022-01-01 22:00:00
+                    1641049200000L, // 2022-01-01 23:00:00
+                    1641052800000L, // 2022-01-02 00:00:00
+                };
+        final BatteryLevelData batteryLevelData = generateBatteryLevelData(batteryHistoryKeys);
+        final BatteryDiffData cachedBatteryDiffData =
+                new BatteryDiffData(
+                        mContext,
+                        batteryHistoryKeys[0],
+                        batteryHistoryKeys[2],
+                        /* startBatteryLevel= */ 100,
+                        /* endBatteryLevel= */ 98,
+                        /* screenOnTime= */ 0L,
+                        /* appDiffEntries= */ new ArrayList<>(),
+                        /* systemDiffEntries= */ new ArrayList<>(),
+                        Set.of(),
+                        Set.of(),
+                        /* isAccumulated= */ true);
+
+        final Map<Long, BatteryDiffData> batteryDiffDataMap =
+                DataProcessor.getBatteryDiffDataMap(
+                        mContext,
+                        batteryLevelData.getHourlyBatteryLevelsPerDay(),
+                        /* batteryHistoryMap= */ new HashMap<>(),
+                        /* appUsagePeriodMap= */ null,
+                        Set.of(),
+                        Set.of(),
+                        Map.of(batteryHistoryKeys[0], cachedBatteryDiffData));
+
+        assertThat(batteryDiffDataMap).hasSize(1);
+        assertThat(batteryDiffDataMap.get(batteryHistoryKeys[0]))
+                .isSameInstanceAs(cachedBatteryDiffData);
+    }
+
+    @Test
+    public void getBatteryDiffDataMap_reusedFinalizedSlots_matchRecomputedSlots() {
+        final long[] batteryHistoryKeys =
+                new long[] {
+                    1641045600000L, // 2022-01-01 22:00:00
+                    1641049200000L, // 2022-01-01 23:00:00
+                    1641052800000L, // 2022-01-02 00:00:00
+                    1641056400000L, // 2022-01-02 01:00:00
+                    1641060000000L, // 2022-01-02 02:00:00
+                };
+        final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap =
+                createGrowingHistoryMap(batteryHistoryKeys);
+        final BatteryLevelData batteryLevelData = generateBatteryLevelData(batteryHistoryKeys);
+        final Map<Long, BatteryDiffData> recomputedMap =
+                DataProcessor.getBatteryDiffDataMap(
+                        mContext,
+                        batteryLevelData.getHourlyBatteryLevelsPerDay(),
+                        batteryHistoryMap,
+                        /* appUsagePeriodMap= */ null,
+                        Set.of(),
+                        Set.of());
+        // Saves the closed slots, including the ones ending and starting at midnight, the same
+        // way as the usage page and the periodic job do, then loads them back.
+        final Map<Long, BatteryDiffData> closedSlots = new ArrayMap<>();
+        for (int index = 0; index < 3; index++) {
+            final long startTimestamp = batteryHistoryKeys[index];
+            closedSlots.put(startTimestamp, recomputedMap.get(startTimestamp));
+        }
+        final Map<Long, BatteryDiffData> cachedMap = new ArrayMap<>();
+        for (BatteryUsageSlot batteryUsageSlot :
+                ConvertUtils.convertToBatteryUsageSlotList(closedSlots)) {
+            cachedMap.put(
+                    batteryUsageSlot.getStartTimestamp(),
+                    ConvertUtils.convertToBatteryDiffData(
+                            mContext, batteryUsageSlot, Set.of(), Set.of()));
+        }
+
+        final Map<Long, BatteryDiffData> reusedMap =
+                DataProcessor.getBatteryDiffDataMap(
+                        mContext,
+                        batteryLevelData.getHourlyBatteryLevelsPerDay(),
+                        batteryHistoryMap,
+                        /* appUsagePeriodMap= */ null,
+                        Set.of(),
+                        Set.of(),
+                        cachedMap);
+
+        assertThat(reusedMap.keySet()).containsExactlyElementsIn(recomputedMap.keySet());
+        assertThat(reusedMap).hasSize(4);
+        for (int index = 0; index < 3; index++) {
+            assertThat(reusedMap.get(batteryHistoryKeys[index]))
+                    .isSameInstanceAs(cachedMap.get(batteryHistoryKeys[index]));
+        }
+        for (long startTimestamp : recomputedMap.keySet()) {
+            final BatteryDiffData reused = reusedMap.get(startTimestamp);
+            final BatteryDiffData recomputed = recomputedMap.get(startTimestamp);
+            assertThat(ConvertUtils.convertToBatteryUsageSlotList(Map.of(startTimestamp, reused)))
+                    .isEqualTo(
+                            ConvertUtils.convertToBatteryUsageSlotList(
+                                    Map.of(startTimestamp, recomputed)));
+            assertThat(reused.getEndTimestamp()).isEqualTo(recomputed.getEndTimestamp());
+            assertThat(reused.getAppDiffEntryList()).hasSize(1);
+            assertThat(reused.getAppDiffEntryList().get(0).mConsumePower)
+                    .isEqualTo(recomputed.getAppDiffEntryList().get(0).mConsumePower);
+            assertThat(reused.getAppDiffEntryList().get(0).mForegroundUsageTimeInMs)
+                    .isEqualTo(recomputed.getAppDiffEntryList().get(0).mForegroundUsageTimeInMs);
+        }
+    }
+
     @Test
     public void generateBatteryUsageMap_returnsExpectedResult() {
         final long[] batteryHistoryKeys =
@@ -2338,6 +2445,33 @@ public final class DataProcessorTest {
         return batteryHistoryMap;
     }
 
+    private Map<Long, Map<String, BatteryHistEntry>> createGrowingHistoryMap(
+            final long[] timestamps) {
+        final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap = new HashMap<>();
+        final int currentUserId = mContext.getUserId();
+        for (int index = 0; index < timestamps.length; index++) {
+            final Map<String, BatteryHistEntry> entryMap = new HashMap<>();
+            final BatteryHistEntry entry =
+                    createBatteryHistEntry(
+                            "package1",
+                            "label1",
+                            /* consumePower= */ 10.0 * index,
+                            /* foregroundUsageConsumePower= */ 4 * index,
+                            /* foregroundServiceUsageConsumePower= */ 2 * index,
+                            /* backgroundUsageConsumePower= */ 3 * index,
+                            /* cachedUsageConsumePower= */ index,
+                            /* uid= */ 1L,
+                            currentUserId,
+                            ConvertUtils.CONSUMER_TYPE_UID_BATTERY,
+                            /* foregroundUsageTimeInMs= */ 1000L * index,
+                            /* backgroundUsageTimeInMs= */ 500L * index,
+                            /* isHidden= */ false);
+            entryMap.put(entry.getKey(), entry);
+            batteryHistoryMap.put(timestamps[index], entryMap);
+        }
+        return batteryHistoryMap;
+    }
+
     private static ContentValues getContentValuesWithBatteryLevel(final int level) {
         final ContentValues values = new ContentValues();
         final DeviceBatteryState deviceBatteryState =
@@ -543,6 +543,25 @@ public final class DatabaseUtilsTest {
         assertThat(dumpContent.contains("LastUploadFullChargeTime")).isTrue();
     }
 
+    @Test
+    public void dump_batteryDiffDataLoads_dumpSlotCountsAndTimes() {
+        DatabaseUtils.recordBatteryDiffDataLoad(
+                mContext, /* reusedSlotCount= */ 20, /* computedSlotCount= */ 2, 30L);
+        DatabaseUtils.recordBatteryDiffDataLoad(
+                mContext, /* reusedSlotCount= */ 21, /* computedSlotCount= */ 1, 10L);
+        final StringWriter stringWriter = new StringWriter();
+        final PrintWriter printWriter = new PrintWriter(stringWriter);
+
+        DatabaseUtils.dump(mContext, printWriter);
+
+        final String dumpContent = stringWriter.toString();
+        assertThat(dumpContent).contains("LastBatteryDiffDataLoad");
+        assertThat(dumpContent).contains("reused=21 computed=1 in 10ms");
+        assertThat(dumpContent)
+                .contains("BatteryDiffDataLoads: loads=2 reusedSlots=41 computedSlots=3"
+                        + " totalTime=40ms");
+    }
+
     @Test
     public void loadFromContentProvider_workProfile_transferToUserProfile() throws Exception {
         // Test to verify b/297036263
@@ -23,6 +23,9 @@ import android.database.Cursor;
 
 import androidx.test.core.app.ApplicationProvider;
 
+import com.android.settings.fuelgauge.batteryusage.BatteryHistEntry;
+import com.android.settings.fuelgauge.batteryusage.BatteryInformation;
+import com.android.settings.fuelgauge.batteryusage.ConvertUtils;
 import com.android.settings.testutils.BatteryTestUtils;
 
 import org.junit.After;
@@ -36,7 +39,7 @@ import java.util.List;
 /** Tests for {@link BatteryStateDao}. */
 @RunWith(RobolectricTestRunner.class)
 public final class BatteryStateDaoTest {
-    private static final int CURSOR_COLUMN_SIZE = 9;
+    private static final int CURSOR_COLUMN_SIZE = 26;
     private static final long CURRENT = System.currentTimeMillis();
     private static final long TIMESTAMP1 = CURRENT;
     private static final long TIMESTAMP2 = CURRENT + 2;
@@ -79,6 +82,15 @@ public final class BatteryStateDaoTest {
         assertBatteryState(states.get(1), TIMESTAMP2, PACKAGE_NAME2);
     }
 
+    @Test
+    public void insertAll_withSnapshot_recordsSnapshotRow() {
+        final BatterySnapshot snapshot = mBatteryStateDao.getSnapshot(TIMESTAMP1);
+
+        assertThat(snapshot).isNotNull();
+        assertThat(snapshot.zoneId).isEqualTo("Europe/Paris");
+        assertThat(snapshot.batteryLevel).isEqualTo(31);
+    }
+
     @Test
     public void getLatestTimestamp_normalFlow_expectedBehavior() throws Exception {
         final Cursor cursor1 = mBatteryStateDao.getLatestTimestampBefore(TIMESTAMP1 - 1);
@@ -120,6 +132,23 @@ public final class BatteryStateDaoTest {
         assertThat(cursor2.getString(3 /*packageName*/)).isEqualTo(PACKAGE_NAME3);
     }
 
+    @Test
+    public void getBatteryStatesAfter_joinsSnapshot_returnsFullBatteryInformation() {
+        final Cursor cursor = mBatteryStateDao.getBatteryStatesAfter(TIMESTAMP3);
+        cursor.moveToFirst();
+
+        final BatteryInformation batteryInformation =
+                ConvertUtils.getBatteryInformation(
+                        cursor, BatteryHistEntry.KEY_BATTERY_INFORMATION);
+
+        assertThat(batteryInformation.getAppLabel()).isEqualTo("Settings");
+        assertThat(batteryInformation.getIsHidden()).isTrue();
+        assertThat(batteryInformation.getZoneId()).isEqualTo("Europe/Paris");
+        assertThat(batteryInformation.getBootTimestamp()).isEqualTo(TIMESTAMP3 - 1);
+        assertThat(batteryInformation.getForegroundUsageTimeInMs()).isEqualTo(60000);
+        assertThat(batteryInformation.getDeviceBatteryState().getBatteryLevel()).isEqualTo(31);
+    }
+
     @Test
     public void clearAllBefore_normalFlow_expectedBehavior() throws Exception {
         mBatteryStateDao.clearAllBefore(TIMESTAMP2);
@@ -128,6 +157,8 @@ public final class BatteryStateDaoTest {
         assertThat(states).hasSize(1);
         // Verifies the queried battery state.
         assertBatteryState(states.get(0), TIMESTAMP3, PACKAGE_NAME3);
+        assertThat(mBatteryStateDao.getSnapshot(TIMESTAMP2)).isNull();
+        assertThat(mBatteryStateDao.getSnapshot(TIMESTAMP3)).isNotNull();
     }
 
     @Test
@@ -135,6 +166,7 @@ public final class BatteryStateDaoTest {
         assertThat(mBatteryStateDao.getAllAfter(0)).hasSize(3);
         mBatteryStateDao.clearAll();
         assertThat(mBatteryStateDao.getAllAfter(0)).isEmpty();
+        assertThat(mBatteryStateDao.getSnapshot(TIMESTAMP3)).isNull();
     }
 
     @Test
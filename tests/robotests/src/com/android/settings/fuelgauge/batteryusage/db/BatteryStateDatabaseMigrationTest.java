@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage.db;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.junit.Assert.fail;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteConstraintException;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.android.settings.fuelgauge.batteryusage.BatteryHistEntry;
+import com.android.settings.fuelgauge.batteryusage.BatteryInformation;
+import com.android.settings.fuelgauge.batteryusage.ConvertUtils;
+import com.android.settings.fuelgauge.batteryusage.DeviceBatteryState;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/** Tests for the migrations of {@link BatteryStateDatabase}. */
+@RunWith(RobolectricTestRunner.class)
+public final class BatteryStateDatabaseMigrationTest {
+    private static final String DATABASE_NAME = "battery-usage-migration-test";
+    private static final long TIMESTAMP = 1700000000000L;
+    private static final String PACKAGE_NAME = "com.android.settings";
+
+    @Rule
+    public final MigrationTestHelper mHelper =
+            new MigrationTestHelper(
+                    InstrumentationRegistry.getInstrumentation(),
+                    BatteryStateDatabase.class.getCanonicalName());
+
+    @Test
+    public void migrate1To2_packsBase64BatteryInformation() throws Exception {
+        final BatteryInformation batteryInformation = createBatteryInformation();
+        try (SupportSQLiteDatabase database = mHelper.createDatabase(DATABASE_NAME, 1)) {
+            final ContentValues values = new ContentValues();
+            values.put(BatteryHistEntry.KEY_UID, 1001L);
+            values.put(BatteryHistEntry.KEY_USER_ID, 100L);
+            values.put(BatteryHistEntry.KEY_PACKAGE_NAME, PACKAGE_NAME);
+            values.put(BatteryHistEntry.KEY_TIMESTAMP, TIMESTAMP);
+            values.put(BatteryHistEntry.KEY_CONSUMER_TYPE, 2);
+            values.put(BatteryHistEntry.KEY_IS_FULL_CHARGE_CYCLE_START, true);
+            values.put(
+                    BatteryHistEntry.KEY_BATTERY_INFORMATION,
+                    ConvertUtils.convertBatteryInformationToString(batteryInformation));
+            values.put(BatteryHistEntry.KEY_BATTERY_INFORMATION_DEBUG, "debug");
+            database.insert("BatteryState", SQLiteDatabase.CONFLICT_REPLACE, values);
+        }
+
+        final SupportSQLiteDatabase database =
+                mHelper.runMigrationsAndValidate(
+                        DATABASE_NAME,
+                        /* version= */ 2,
+                        /* validateDroppedTables= */ true,
+                        BatteryStateDatabase.MIGRATION_1_2);
+
+        try (Cursor cursor = database.query("SELECT * FROM BatteryState")) {
+            assertThat(cursor.getCount()).isEqualTo(1);
+            cursor.moveToFirst();
+            assertThat(getString(cursor, BatteryHistEntry.KEY_PACKAGE_NAME))
+                    .isEqualTo(PACKAGE_NAME);
+            assertThat(getLong(cursor, BatteryHistEntry.KEY_TIMESTAMP)).isEqualTo(TIMESTAMP);
+            assertThat(getLong(cursor, BatteryHistEntry.KEY_IS_FULL_CHARGE_CYCLE_START))
+                    .isEqualTo(1);
+            assertThat(getLong(cursor, BatteryState.KEY_IS_HIDDEN)).isEqualTo(1);
+            assertThat(getLong(cursor, BatteryState.KEY_DRAIN_TYPE)).isEqualTo(1);
+            assertThat(getLong(cursor, BatteryState.KEY_FOREGROUND_USAGE_TIME_IN_MS))
+                    .isEqualTo(60000);
+            assertThat(getString(cursor, BatteryHistEntry.KEY_BATTERY_INFORMATION_DEBUG))
+                    .isEqualTo("debug");
+            final BatteryInformation remaining =
+                    BatteryInformation.parseFrom(
+                            cursor.getBlob(
+                                    cursor.getColumnIndexOrThrow(
+                                            BatteryHistEntry.KEY_BATTERY_INFORMATION)));
+            assertThat(remaining.getAppLabel()).isEqualTo("Settings");
+        }
+        try (Cursor cursor = database.query("SELECT * FROM BatterySnapshot")) {
+            assertThat(cursor.getCount()).isEqualTo(1);
+            cursor.moveToFirst();
+            assertThat(getLong(cursor, BatteryHistEntry.KEY_TIMESTAMP)).isEqualTo(TIMESTAMP);
+            assertThat(getLong(cursor, BatterySnapshot.KEY_BOOT_TIMESTAMP))
+                    .isEqualTo(TIMESTAMP - 1);
+            assertThat(getString(cursor, BatterySnapshot.KEY_ZONE_ID)).isEqualTo("Europe/Paris");
+            assertThat(getLong(cursor, BatterySnapshot.KEY_BATTERY_LEVEL)).isEqualTo(31);
+        }
+    }
+
+    @Test
+    public void migrate2To3_keepsLatestSlotPerTimestamp() throws Exception {
+        try (SupportSQLiteDatabase database = mHelper.createDatabase(DATABASE_NAME, 2)) {
+            insertSlot(database, TIMESTAMP, "old slot");
+            insertSlot(database, TIMESTAMP + 1, "other slot");
+            insertSlot(database, TIMESTAMP, "new slot");
+        }
+
+        final SupportSQLiteDatabase database =
+                mHelper.runMigrationsAndValidate(
+                        DATABASE_NAME,
+                        /* version= */ 3,
+                        /* validateDroppedTables= */ true,
+                        BatteryStateDatabase.MIGRATION_2_3);
+
+        try (Cursor cursor =
+                database.query(
+                        "SELECT * FROM BatteryUsageSlotEntity ORDER BY "
+                                + BatteryUsageSlotEntity.KEY_TIMESTAMP)) {
+            assertThat(cursor.getCount()).isEqualTo(2);
+            cursor.moveToFirst();
+            assertThat(getLong(cursor, BatteryUsageSlotEntity.KEY_TIMESTAMP)).isEqualTo(TIMESTAMP);
+            assertThat(getString(cursor, BatteryUsageSlotEntity.KEY_BATTERY_USAGE_SLOT))
+                    .isEqualTo("new slot");
+            cursor.moveToNext();
+            assertThat(getLong(cursor, BatteryUsageSlotEntity.KEY_TIMESTAMP))
+                    .isEqualTo(TIMESTAMP + 1);
+        }
+        try (Cursor cursor = database.query("PRAGMA index_list(`BatteryUsageSlotEntity`)")) {
+            assertThat(cursor.getCount()).isEqualTo(1);
+            cursor.moveToFirst();
+            assertThat(getString(cursor, "name"))
+                    .isEqualTo("index_BatteryUsageSlotEntity_timestamp");
+            assertThat(getLong(cursor, "unique")).isEqualTo(1);
+        }
+        try {
+            insertSlot(database, TIMESTAMP, "duplicate slot");
+            fail("A second slot with the same timestamp must be rejected");
+        } catch (SQLiteConstraintException e) {
+            // Expected, the timestamp index is unique.
+        }
+    }
+
+    private static void insertSlot(SupportSQLiteDatabase database, long timestamp, String slot) {
+        final ContentValues values = new ContentValues();
+        values.put(BatteryUsageSlotEntity.KEY_TIMESTAMP, timestamp);
+        values.put(BatteryUsageSlotEntity.KEY_BATTERY_USAGE_SLOT, slot);
+        database.insert("BatteryUsageSlotEntity", SQLiteDatabase.CONFLICT_ABORT, values);
+    }
+
+    private static BatteryInformation createBatteryInformation() {
+        final DeviceBatteryState deviceBatteryState =
+                DeviceBatteryState.newBuilder()
+                        .setBatteryLevel(31)
+                        .setBatteryStatus(0)
+                        .setBatteryHealth(0)
+                        .build();
+        return BatteryInformation.newBuilder()
+                .setDeviceBatteryState(deviceBatteryState)
+                .setIsHidden(true)
+                .setBootTimestamp(TIMESTAMP - 1)
+                .setZoneId("Europe/Paris")
+                .setAppLabel("Settings")
+                .setTotalPower(100f)
+                .setConsumePower(0.3f)
+                .setPercentOfTotal(10f)
+                .setDrainType(1)
+                .setForegroundUsageTimeInMs(60000)
+                .setBackgroundUsageTimeInMs(10000)
+                .build();
+    }
+
+    private static String getString(Cursor cursor, String columnName) {
+        return cursor.getString(cursor.getColumnIndexOrThrow(columnName));
+    }
+
+    private static long getLong(Cursor cursor, String columnName) {
+        return cursor.getLong(cursor.getColumnIndexOrThrow(columnName));
+    }
+}
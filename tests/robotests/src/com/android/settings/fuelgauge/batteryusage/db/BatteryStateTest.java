@@ -21,7 +21,6 @@ import static com.google.common.truth.Truth.assertThat;
 import android.os.BatteryManager;
 
 import com.android.settings.fuelgauge.batteryusage.BatteryInformation;
-import com.android.settings.fuelgauge.batteryusage.ConvertUtils;
 import com.android.settings.fuelgauge.batteryusage.DeviceBatteryState;
 
 import org.junit.Before;
@@ -76,8 +75,47 @@ public final class BatteryStateTest {
         assertThat(state.timestamp).isEqualTo(100001L);
         assertThat(state.consumerType).isEqualTo(2);
         assertThat(state.isFullChargeCycleStart).isTrue();
-        assertThat(state.batteryInformation)
-                .isEqualTo(ConvertUtils.convertBatteryInformationToString(mBatteryInformation));
+        // Verifies the packed battery usage columns.
+        assertThat(state.isHidden).isTrue();
+        assertThat(state.drainType).isEqualTo(1);
+        assertThat(state.consumePower).isEqualTo(3);
+        assertThat(state.percentOfTotal).isEqualTo(10);
+        assertThat(state.foregroundServiceUsageConsumePower).isEqualTo(1);
+        assertThat(state.backgroundUsageConsumePower).isEqualTo(2);
+        assertThat(state.cachedUsageConsumePower).isEqualTo(3);
+        assertThat(state.foregroundUsageTimeInMs).isEqualTo(60000);
+        assertThat(state.backgroundUsageTimeInMs).isEqualTo(10000);
+    }
+
+    @Test
+    public void testToBatteryInformation_withSnapshot_returnsOriginalInformation() {
+        final BatteryState state = create(mBatteryInformation);
+        final BatterySnapshot snapshot =
+                BatterySnapshot.create(state.timestamp, mBatteryInformation);
+
+        final BatteryInformation batteryInformation = state.toBatteryInformation(snapshot);
+
+        assertThat(batteryInformation.getAppLabel()).isEqualTo("Settings");
+        assertThat(batteryInformation.getBootTimestamp()).isEqualTo(101L);
+        assertThat(batteryInformation.getTotalPower()).isEqualTo(100);
+        assertThat(batteryInformation.getConsumePower()).isEqualTo(3);
+        assertThat(batteryInformation.getDeviceBatteryState().getBatteryLevel())
+                .isEqualTo(BATTERY_LEVEL);
+        assertThat(batteryInformation.getDeviceBatteryState().getBatteryStatus())
+                .isEqualTo(BATTERY_STATUS);
+        assertThat(batteryInformation.getDeviceBatteryState().getBatteryHealth())
+                .isEqualTo(BATTERY_HEALTH);
+    }
+
+    @Test
+    public void testBuilder_storesOnlyRemainingFieldsInBlob() throws Exception {
+        final BatteryState state = create(mBatteryInformation);
+
+        final BatteryInformation blob = BatteryInformation.parseFrom(state.batteryInformation);
+
+        assertThat(blob.getAppLabel()).isEqualTo("Settings");
+        assertThat(blob.hasConsumePower()).isFalse();
+        assertThat(blob.hasDeviceBatteryState()).isFalse();
     }
 
     private static BatteryState create(BatteryInformation batteryInformation) {
@@ -88,8 +126,7 @@ public final class BatteryStateTest {
                 .setTimestamp(100001L)
                 .setConsumerType(2)
                 .setIsFullChargeCycleStart(true)
-                .setBatteryInformation(
-                        ConvertUtils.convertBatteryInformationToString(batteryInformation))
+                .setBatteryInformation(batteryInformation)
                 .build();
     }
 }
@@ -60,6 +60,7 @@ public class ContextualCardLoaderTest {
         mContext = RuntimeEnvironment.application;
         mContextualCardLoader = spy(new ContextualCardLoader(mContext));
         mFakeFeatureFactory = FakeFeatureFactory.setupForTest();
+        EligibleCardChecker.clearBindResults();
     }
 
     @Test
@@ -70,6 +71,27 @@ public class ContextualCardLoaderTest {
         assertThat(mContextualCardLoader.loadInBackground()).isEmpty();
     }
 
+    @Test
+    public void onChange_cardDataChanged_shouldBindCardsAgain() {
+        final ContextualCard card = new ContextualCard.Builder()
+                .setName("test_card")
+                .setRankingScore(0.5)
+                .setCardType(ContextualCard.CardType.SLICE)
+                .setSliceUri(CustomSliceRegistry.FLASHLIGHT_SLICE_URI)
+                .build();
+        final EligibleCardChecker checker = spy(new EligibleCardChecker(mContext, card));
+        doReturn(null).when(checker).bindSlice(any(Uri.class));
+        checker.isCardEligibleToDisplay(card);
+
+        mContextualCardLoader.mObserver.onChange(false /* selfChange */,
+                CardContentProvider.REFRESH_CARD_URI);
+        final EligibleCardChecker otherChecker = spy(new EligibleCardChecker(mContext, card));
+        doReturn(null).when(otherChecker).bindSlice(any(Uri.class));
+        otherChecker.isCardEligibleToDisplay(card);
+
+        verify(otherChecker).bindSlice(card.getSliceUri());
+    }
+
     @Test
     public void getDisplayableCards_twoEligibleCards_shouldShowAll() {
         final List<ContextualCard> cards = getContextualCardList().stream().limit(2)
@@ -21,14 +21,18 @@ import static android.app.slice.Slice.HINT_ERROR;
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 
 import android.app.Activity;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
+import android.os.SystemClock;
 
 import androidx.core.graphics.drawable.IconCompat;
 import androidx.slice.Slice;
@@ -63,6 +67,7 @@ public class EligibleCardCheckerTest {
                 spy(new EligibleCardChecker(mContext, getContextualCard(TEST_SLICE_URI)));
         SliceProvider.setSpecs(SliceLiveData.SUPPORTED_SPECS);
         mActivity = Robolectric.buildActivity(Activity.class).create().get();
+        EligibleCardChecker.clearBindResults();
     }
 
     @Test
@@ -131,6 +136,52 @@ public class EligibleCardCheckerTest {
         assertThat(mEligibleCardChecker.mCard.getSlice()).isNotNull();
     }
 
+    @Test
+    public void isCardEligibleToDisplay_recentlyBound_reuseBindResult() {
+        final Slice slice = buildSlice();
+        doReturn(slice).when(mEligibleCardChecker).bindSlice(any(Uri.class));
+        mEligibleCardChecker.isCardEligibleToDisplay(getContextualCard(TEST_SLICE_URI));
+        final EligibleCardChecker checker =
+                spy(new EligibleCardChecker(mContext, getContextualCard(TEST_SLICE_URI)));
+
+        assertThat(checker.isCardEligibleToDisplay(getContextualCard(TEST_SLICE_URI))).isTrue();
+        verify(checker, never()).bindSlice(any(Uri.class));
+        assertThat(checker.mCard.getSlice()).isSameInstanceAs(slice);
+    }
+
+    @Test
+    public void isCardEligibleToDisplay_resultExpired_bindAgain() {
+        doReturn(null).when(mEligibleCardChecker).bindSlice(any(Uri.class));
+        mEligibleCardChecker.isCardEligibleToDisplay(getContextualCard(TEST_SLICE_URI));
+        final EligibleCardChecker checker =
+                spy(new EligibleCardChecker(mContext, getContextualCard(TEST_SLICE_URI)));
+        doReturn(buildSlice()).when(checker).bindSlice(any(Uri.class));
+
+        // Advances the fake clock of Robolectric.
+        SystemClock.sleep(EligibleCardChecker.INELIGIBLE_RESULT_TTL_MS);
+
+        assertThat(checker.isCardEligibleToDisplay(getContextualCard(TEST_SLICE_URI))).isTrue();
+    }
+
+    @Test
+    public void isCardEligibleToDisplay_checkCancelled_notRemembered() {
+        doAnswer(invocation -> {
+            // The loader cancels the checks which time out by interrupting them.
+            Thread.currentThread().interrupt();
+            return null;
+        }).when(mEligibleCardChecker).bindSlice(any(Uri.class));
+        try {
+            mEligibleCardChecker.isCardEligibleToDisplay(getContextualCard(TEST_SLICE_URI));
+        } finally {
+            Thread.interrupted();
+        }
+        final EligibleCardChecker checker =
+                spy(new EligibleCardChecker(mContext, getContextualCard(TEST_SLICE_URI)));
+        doReturn(buildSlice()).when(checker).bindSlice(any(Uri.class));
+
+        assertThat(checker.isCardEligibleToDisplay(getContextualCard(TEST_SLICE_URI))).isTrue();
+    }
+
     private ContextualCard getContextualCard(Uri sliceUri) {
         return new ContextualCard.Builder()
                 .setName("test_card")
@@ -23,6 +23,10 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 import android.app.INotificationManager;
@@ -32,13 +36,18 @@ import android.bluetooth.BluetoothAdapter;
 import android.companion.AssociationInfo;
 import android.companion.ICompanionDeviceManager;
 import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.net.MacAddress;
+import android.net.Uri;
 import android.os.Build;
 import android.os.Parcel;
+import android.os.UserHandle;
 
+import com.android.settings.notification.NotificationBackend.AppBlockState;
 import com.android.settings.notification.NotificationBackend.AppRow;
 import com.android.settingslib.bluetooth.CachedBluetoothDevice;
 import com.android.settingslib.bluetooth.CachedBluetoothDeviceManager;
@@ -57,6 +66,7 @@ import org.robolectric.RuntimeEnvironment;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 @RunWith(RobolectricTestRunner.class)
 public class NotificationBackendTest {
@@ -78,6 +88,7 @@ public class NotificationBackendTest {
         when(mBm.getCachedDeviceManager()).thenReturn(mCbm);
         mNotificationBackend = new NotificationBackend();
         mNotificationBackend.setNm(mInm);
+        NotificationBackend.clearAppBlockStates();
     }
 
     @Test
@@ -268,6 +279,172 @@ public class NotificationBackendTest {
                 mCdm, mBm, mCn.getPackageName(), 0).toString()).isEqualTo("Device 1, Device 2");
     }
 
+    @Test
+    public void loadAppBlockStates_shouldReadPermissionsInOneCall() throws Exception {
+        final PackageManager pm = mock(PackageManager.class);
+        final PackageInfo info1 = createPackageInfo("pkg1", 123,
+                new String[] {android.Manifest.permission.POST_NOTIFICATIONS});
+        final PackageInfo info2 = createPackageInfo("pkg2", 124, null /* permissions */);
+        final PackageInfo unlistedInfo = createPackageInfo("pkg4", 126, null /* permissions */);
+        when(pm.getInstalledPackagesAsUser(PackageManager.GET_PERMISSIONS, 0))
+                .thenReturn(List.of(info1, info2, unlistedInfo));
+        when(mInm.areNotificationsEnabledForPackage("pkg1", 123)).thenReturn(false);
+        when(mInm.areNotificationsEnabledForPackage("pkg2", 124)).thenReturn(true);
+
+        final Map<String, AppBlockState> states = mNotificationBackend.loadAppBlockStates(
+                mockContext(pm), 0,
+                List.of(info1.applicationInfo, info2.applicationInfo,
+                        createApp("pkg3", 125, Build.VERSION_CODES.TIRAMISU)),
+                null /* callback */);
+
+        assertThat(states.keySet()).containsExactly("pkg1", "pkg2");
+        assertTrue(states.get("pkg1").banned);
+        assertTrue(states.get("pkg1").blockable);
+        assertFalse(states.get("pkg2").banned);
+        assertFalse(states.get("pkg2").blockable);
+        verify(pm, never()).getPackageInfoAsUser(anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void loadAppBlockStates_singlePackageToRead_shouldNotListInstalledPackages()
+            throws Exception {
+        final PackageManager pm = mock(PackageManager.class);
+        final PackageInfo info = createPackageInfo("pkg1", 123,
+                new String[] {android.Manifest.permission.POST_NOTIFICATIONS});
+        when(pm.getPackageInfoAsUser("pkg1", PackageManager.GET_PERMISSIONS, 0))
+                .thenReturn(info);
+
+        final Map<String, AppBlockState> states = mNotificationBackend.loadAppBlockStates(
+                mockContext(pm), 0, List.of(info.applicationInfo), null /* callback */);
+
+        assertThat(states.keySet()).containsExactly("pkg1");
+        verify(pm, never()).getInstalledPackagesAsUser(anyInt(), anyInt());
+    }
+
+    @Test
+    public void loadAppBlockStates_targetBeforeT_shouldNotReadPackageInfo() {
+        final PackageManager pm = mock(PackageManager.class);
+
+        final Map<String, AppBlockState> states = mNotificationBackend.loadAppBlockStates(
+                mockContext(pm), 0, List.of(createApp("pkg1", 123, Build.VERSION_CODES.S)),
+                null /* callback */);
+
+        assertThat(states.keySet()).containsExactly("pkg1");
+        assertTrue(states.get("pkg1").blockable);
+        verifyNoMoreInteractions(pm);
+    }
+
+    @Test
+    public void loadAppBlockStates_shouldDeliverStatesByBatches() {
+        final List<ApplicationInfo> apps = new ArrayList<>();
+        for (int i = 0; i <= NotificationBackend.APP_BLOCK_STATE_BATCH_SIZE; i++) {
+            apps.add(createApp("pkg" + i, 123, Build.VERSION_CODES.S));
+        }
+        final List<Integer> batchSizes = new ArrayList<>();
+
+        mNotificationBackend.loadAppBlockStates(mockContext(mock(PackageManager.class)), 0, apps,
+                (userId, states) -> batchSizes.add(states.size()));
+
+        assertThat(batchSizes).containsExactly(NotificationBackend.APP_BLOCK_STATE_BATCH_SIZE, 1)
+                .inOrder();
+    }
+
+    @Test
+    public void loadAppBlockStates_cached_shouldNotQueryAgainUntilChanged() throws Exception {
+        final Context context = mockContext(mock(PackageManager.class));
+        final List<ApplicationInfo> apps = List.of(createApp("pkg1", 123, Build.VERSION_CODES.S));
+
+        mNotificationBackend.loadAppBlockStates(context, 0, apps, null);
+        mNotificationBackend.loadAppBlockStates(context, 0, apps, null);
+        verify(mInm, times(1)).areNotificationsEnabledForPackage("pkg1", 123);
+
+        mNotificationBackend.setNotificationsEnabledForPackage("pkg1", 123, true);
+        mNotificationBackend.loadAppBlockStates(context, 0, apps, null);
+        verify(mInm, times(2)).areNotificationsEnabledForPackage("pkg1", 123);
+    }
+
+    @Test
+    public void loadAppBlockStates_otherUser_shouldQueryAgain() throws Exception {
+        final Context context = mockContext(mock(PackageManager.class));
+        final int otherUid = UserHandle.getUid(10, 123);
+
+        mNotificationBackend.loadAppBlockStates(context, 0,
+                List.of(createApp("pkg1", 123, Build.VERSION_CODES.S)), null);
+        mNotificationBackend.loadAppBlockStates(context, 10,
+                List.of(createApp("pkg1", otherUid, Build.VERSION_CODES.S)), null);
+
+        verify(mInm).areNotificationsEnabledForPackage("pkg1", 123);
+        verify(mInm).areNotificationsEnabledForPackage("pkg1", otherUid);
+    }
+
+    @Test
+    public void loadAppBlockStates_packageRemoved_shouldQueryAgain() throws Exception {
+        final Context context = mockContext(mock(PackageManager.class));
+        final List<ApplicationInfo> apps = List.of(createApp("pkg1", 123, Build.VERSION_CODES.S));
+        final Intent intent = new Intent(Intent.ACTION_PACKAGE_REMOVED,
+                Uri.fromParts("package", "pkg1", null /* fragment */));
+
+        mNotificationBackend.loadAppBlockStates(context, 0, apps, null);
+        NotificationBackend.onAppBlockStateBroadcast(intent, 10);
+        mNotificationBackend.loadAppBlockStates(context, 0, apps, null);
+        verify(mInm, times(1)).areNotificationsEnabledForPackage("pkg1", 123);
+
+        NotificationBackend.onAppBlockStateBroadcast(intent, 0);
+        mNotificationBackend.loadAppBlockStates(context, 0, apps, null);
+        verify(mInm, times(2)).areNotificationsEnabledForPackage("pkg1", 123);
+    }
+
+    @Test
+    public void loadAppBlockStates_packageReplaced_shouldQueryAgain() throws Exception {
+        final Context context = mockContext(mock(PackageManager.class));
+        final List<ApplicationInfo> apps = List.of(createApp("pkg1", 123, Build.VERSION_CODES.S));
+
+        mNotificationBackend.loadAppBlockStates(context, 0, apps, null);
+        NotificationBackend.onAppBlockStateBroadcast(new Intent(Intent.ACTION_PACKAGE_REPLACED,
+                Uri.fromParts("package", "pkg1", null /* fragment */)), 0);
+        mNotificationBackend.loadAppBlockStates(context, 0, apps, null);
+
+        verify(mInm, times(2)).areNotificationsEnabledForPackage("pkg1", 123);
+    }
+
+    @Test
+    public void loadAppBlockStates_userRemoved_shouldQueryAgain() throws Exception {
+        final Context context = mockContext(mock(PackageManager.class));
+        final List<ApplicationInfo> apps = List.of(createApp("pkg1", 123, Build.VERSION_CODES.S));
+        final Intent intent = new Intent(Intent.ACTION_USER_REMOVED)
+                .putExtra(Intent.EXTRA_USER_HANDLE, 0);
+
+        mNotificationBackend.loadAppBlockStates(context, 0, apps, null);
+        NotificationBackend.onAppBlockStateBroadcast(intent, UserHandle.USER_SYSTEM);
+        mNotificationBackend.loadAppBlockStates(context, 0, apps, null);
+
+        verify(mInm, times(2)).areNotificationsEnabledForPackage("pkg1", 123);
+    }
+
+    private static ApplicationInfo createApp(String packageName, int uid, int targetSdkVersion) {
+        final ApplicationInfo app = new ApplicationInfo();
+        app.packageName = packageName;
+        app.uid = uid;
+        app.targetSdkVersion = targetSdkVersion;
+        return app;
+    }
+
+    private static PackageInfo createPackageInfo(String packageName, int uid,
+            String[] requestedPermissions) {
+        final PackageInfo info = new PackageInfo();
+        info.packageName = packageName;
+        info.applicationInfo = createApp(packageName, uid, Build.VERSION_CODES.TIRAMISU);
+        info.requestedPermissions = requestedPermissions;
+        return info;
+    }
+
+    private static Context mockContext(PackageManager pm) {
+        final Context context = mock(Context.class);
+        when(context.getApplicationContext()).thenReturn(context);
+        when(context.getPackageManager()).thenReturn(pm);
+        return context;
+    }
+
     private ImmutableList<AssociationInfo> mockAssociations(String... macAddresses) {
         final AssociationInfo[] associations = new AssociationInfo[macAddresses.length];
         for (int index = 0; index < macAddresses.length; index++) {
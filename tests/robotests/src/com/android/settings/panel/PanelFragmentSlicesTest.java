@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.panel;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Bundle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.settings.slices.SettingsSliceProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Tests for the slice prefetch path of {@link PanelFragment}. */
+@RunWith(RobolectricTestRunner.class)
+public class PanelFragmentSlicesTest {
+
+    private static final Uri SETTINGS_URI = new Uri.Builder()
+            .scheme("content")
+            .authority(SettingsSliceProvider.SLICE_AUTHORITY)
+            .appendPath("action")
+            .appendPath("key")
+            .build();
+    private static final Uri OTHER_URI = Uri.parse("content://com.example.slices/action/key");
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+    }
+
+    @Test
+    public void prefetchSlices_shouldCallSettingsProviderOnly() {
+        final FakeSliceProvider settingsProvider = Robolectric.setupContentProvider(
+                FakeSliceProvider.class, SettingsSliceProvider.SLICE_AUTHORITY);
+        final FakeSliceProvider otherProvider = Robolectric.setupContentProvider(
+                FakeSliceProvider.class, OTHER_URI.getAuthority());
+
+        PanelFragment.prefetchSlices(mContext, List.of(SETTINGS_URI, OTHER_URI));
+
+        assertThat(settingsProvider.mPrefetchedUris).containsExactly(SETTINGS_URI);
+        assertThat(otherProvider.mPrefetchedUris).isEmpty();
+    }
+
+    /** Records the uris of the prefetch calls. */
+    public static class FakeSliceProvider extends ContentProvider {
+
+        final List<Uri> mPrefetchedUris = new ArrayList<>();
+
+        @Override
+        public boolean onCreate() {
+            return true;
+        }
+
+        @Override
+        public Bundle call(@NonNull String method, @Nullable String arg,
+                @Nullable Bundle extras) {
+            if (SettingsSliceProvider.METHOD_PREFETCH_SLICES.equals(method) && extras != null) {
+                mPrefetchedUris.addAll(
+                        extras.getParcelableArrayList(SettingsSliceProvider.EXTRA_SLICE_URIS,
+                                Uri.class));
+            }
+            return new Bundle();
+        }
+
+        @Override
+        public Cursor query(@NonNull Uri uri, @Nullable String[] projection,
+                @Nullable String selection, @Nullable String[] selectionArgs,
+                @Nullable String sortOrder) {
+            return null;
+        }
+
+        @Override
+        public String getType(@NonNull Uri uri) {
+            return null;
+        }
+
+        @Override
+        public Uri insert(@NonNull Uri uri, @Nullable ContentValues values) {
+            return null;
+        }
+
+        @Override
+        public int delete(@NonNull Uri uri, @Nullable String selection,
+                @Nullable String[] selectionArgs) {
+            return 0;
+        }
+
+        @Override
+        public int update(@NonNull Uri uri, @Nullable ContentValues values,
+                @Nullable String selection, @Nullable String[] selectionArgs) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.search;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(RobolectricTestRunner.class)
+public class SearchIndexableSnapshotTest {
+
+    private Context mContext;
+    private File mFile;
+    private AtomicInteger mComputeCount;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mFile = new File(mContext.getCacheDir(), SearchIndexableSnapshot.SNAPSHOT_FILE_NAME);
+        mComputeCount = new AtomicInteger();
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Test
+    public void getOrComputeRows_secondCall_shouldReturnCachedRows() {
+        final SearchIndexableSnapshot snapshot = new SearchIndexableSnapshot(mFile);
+        snapshot.ensureLoaded(mContext);
+
+        computeRows(snapshot);
+        final List<Object[]> rows = computeRows(snapshot);
+
+        assertThat(mComputeCount.get()).isEqualTo(1);
+        assertThat(rows).hasSize(1);
+        assertThat(rows.get(0)[1]).isEqualTo("title");
+    }
+
+    @Test
+    public void getOrComputeRows_afterPersist_shouldReadFromDisk() {
+        final SearchIndexableSnapshot snapshot = new SearchIndexableSnapshot(mFile);
+        snapshot.ensureLoaded(mContext);
+        computeRows(snapshot);
+        snapshot.persistIfNeeded();
+
+        final SearchIndexableSnapshot restored = new SearchIndexableSnapshot(mFile);
+        restored.ensureLoaded(mContext);
+        final List<Object[]> rows = computeRows(restored);
+
+        assertThat(mComputeCount.get()).isEqualTo(1);
+        assertThat(rows.get(0)[0]).isEqualTo(42);
+        assertThat(rows.get(0)[1]).isEqualTo("title");
+        assertThat(rows.get(0)[2]).isNull();
+    }
+
+    @Test
+    public void invalidate_shouldRecompute() {
+        final SearchIndexableSnapshot snapshot = new SearchIndexableSnapshot(mFile);
+        snapshot.ensureLoaded(mContext);
+        computeRows(snapshot);
+        snapshot.persistIfNeeded();
+
+        snapshot.invalidate();
+        computeRows(snapshot);
+
+        assertThat(mComputeCount.get()).isEqualTo(2);
+        assertThat(mFile.exists()).isFalse();
+    }
+
+    @Test
+    public void getOrComputeRows_whileComputing_shouldNotBlockOtherProviders() throws Exception {
+        final SearchIndexableSnapshot snapshot = new SearchIndexableSnapshot(mFile);
+        snapshot.ensureLoaded(mContext);
+        final Thread otherProvider = new Thread(() -> snapshot.recordUncached(
+                SearchIndexableSnapshot.SECTION_RAW, FakeSettingsFragment.class, 1L));
+
+        snapshot.getOrComputeRows(SearchIndexableSnapshot.SECTION_XML_RESOURCES,
+                FakeSettingsFragment.class, () -> {
+                    otherProvider.start();
+                    try {
+                        otherProvider.join(5000L);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return new ArrayList<>();
+                });
+
+        assertThat(otherProvider.isAlive()).isFalse();
+    }
+
+    @Test
+    public void getOrComputeRows_invalidatedWhileComputing_shouldNotCacheRows() {
+        final SearchIndexableSnapshot snapshot = new SearchIndexableSnapshot(mFile);
+        snapshot.ensureLoaded(mContext);
+        snapshot.getOrComputeRows(SearchIndexableSnapshot.SECTION_XML_RESOURCES,
+                FakeSettingsFragment.class, () -> {
+                    mComputeCount.incrementAndGet();
+                    snapshot.invalidate();
+                    return new ArrayList<>();
+                });
+
+        computeRows(snapshot);
+
+        assertThat(mComputeCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void dump_shouldReportHitsAndMisses() throws Exception {
+        final SearchIndexableSnapshot snapshot = new SearchIndexableSnapshot(mFile);
+        snapshot.ensureLoaded(mContext);
+        computeRows(snapshot);
+        computeRows(snapshot);
+
+        final JSONObject provider = snapshot.dump().getJSONArray("providers").getJSONObject(0);
+
+        assertThat(provider.getString("provider")).contains(FakeSettingsFragment.class.getName());
+        assertThat(provider.getInt("hits")).isEqualTo(1);
+        assertThat(provider.getInt("misses")).isEqualTo(1);
+    }
+
+    private List<Object[]> computeRows(SearchIndexableSnapshot snapshot) {
+        return snapshot.getOrComputeRows(SearchIndexableSnapshot.SECTION_XML_RESOURCES,
+                FakeSettingsFragment.class, () -> {
+                    mComputeCount.incrementAndGet();
+                    final List<Object[]> rows = new ArrayList<>();
+                    rows.add(new Object[]{42, "title", null});
+                    return rows;
+                });
+    }
+}
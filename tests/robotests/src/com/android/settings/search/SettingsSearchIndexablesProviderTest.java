@@ -5,6 +5,8 @@ import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_TITL
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
@@ -16,6 +18,7 @@ import android.content.pm.ProviderInfo;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.provider.SearchIndexablesContract;
 
 import com.android.settings.R;
@@ -29,6 +32,7 @@ import com.android.settingslib.drawer.CategoryKey;
 import com.android.settingslib.drawer.DashboardCategory;
 import com.android.settingslib.search.SearchIndexableData;
 
+import org.json.JSONObject;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -40,8 +44,10 @@ import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
 import org.robolectric.annotation.Resetter;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 @RunWith(RobolectricTestRunner.class)
@@ -54,6 +60,7 @@ public class SettingsSearchIndexablesProviderTest {
     private Context mContext;
     private SettingsSearchIndexablesProvider mProvider;
     private FakeFeatureFactory mFakeFeatureFactory;
+    private SearchIndexableSnapshot mSnapshot;
 
     @Before
     public void setUp() {
@@ -65,6 +72,9 @@ public class SettingsSearchIndexablesProviderTest {
         info.authority = PACKAGE_NAME;
         info.readPermission = Manifest.permission.READ_SEARCH_INDEXABLES;
         mProvider.attachInfo(RuntimeEnvironment.application, info);
+        mSnapshot = new SearchIndexableSnapshot(
+                new File(mContext.getCacheDir(), SearchIndexableSnapshot.SNAPSHOT_FILE_NAME));
+        doReturn(mSnapshot).when(mProvider).getSnapshot(any(Context.class));
 
         final SearchFeatureProvider featureProvider = new SearchFeatureProviderImpl();
         featureProvider.getSearchIndexableResources().getProviderValues().clear();
@@ -88,6 +98,7 @@ public class SettingsSearchIndexablesProviderTest {
 
     @After
     public void cleanUp() {
+        new File(mContext.getCacheDir(), SearchIndexableSnapshot.SNAPSHOT_FILE_NAME).delete();
         ShadowCategoryManager.reset();
         mFakeFeatureFactory.searchFeatureProvider = mock(SearchFeatureProvider.class);
     }
@@ -114,6 +125,24 @@ public class SettingsSearchIndexablesProviderTest {
         assertThat(cursor.getString(12)).isEqualTo(FakeSettingsFragment.KEY);
     }
 
+    @Test
+    public void testRawColumnFetched_twice_shouldNotUseSnapshot() throws Exception {
+        final Uri rawUri = Uri.parse(BASE_AUTHORITY + SearchIndexablesContract.INDEXABLES_RAW_PATH);
+
+        mProvider.query(rawUri, SearchIndexablesContract.INDEXABLES_RAW_COLUMNS, null, null,
+                null).close();
+        mProvider.query(rawUri, SearchIndexablesContract.INDEXABLES_RAW_COLUMNS, null, null,
+                null).close();
+
+        final JSONObject provider =
+                mSnapshot.dump().getJSONArray("providers").getJSONObject(0);
+        assertThat(provider.getString("provider")).isEqualTo(
+                SearchIndexableSnapshot.SECTION_RAW + "/" + FakeSettingsFragment.class.getName());
+        assertThat(provider.getInt("hits")).isEqualTo(0);
+        assertThat(new File(mContext.getCacheDir(), SearchIndexableSnapshot.SNAPSHOT_FILE_NAME)
+                .exists()).isFalse();
+    }
+
     @Test
     public void testResourcesColumnFetched() {
         Uri rawUri = Uri.parse(BASE_AUTHORITY + SearchIndexablesContract.INDEXABLES_XML_RES_PATH);
@@ -131,6 +160,61 @@ public class SettingsSearchIndexablesProviderTest {
         assertThat(cursor.getString(6)).isNull();
     }
 
+    @Test
+    public void testResourcesColumnFetched_twice_shouldReuseSnapshot() throws Exception {
+        final Collection<SearchIndexableData> bundles = mFakeFeatureFactory.searchFeatureProvider
+                .getSearchIndexableResources().getProviderValues();
+        bundles.clear();
+        bundles.add(new SearchIndexableData(FakeSettingsFragment.class,
+                new BaseSearchIndexProvider(R.xml.display_settings)));
+        final Uri rawUri = Uri.parse(
+                BASE_AUTHORITY + SearchIndexablesContract.INDEXABLES_XML_RES_PATH);
+
+        mProvider.query(rawUri, SearchIndexablesContract.INDEXABLES_XML_RES_COLUMNS, null, null,
+                null).close();
+        final Cursor cursor = mProvider.query(rawUri,
+                SearchIndexablesContract.INDEXABLES_XML_RES_COLUMNS, null, null, null);
+
+        cursor.moveToFirst();
+        assertThat(cursor.getCount()).isEqualTo(1);
+        assertThat(cursor.getInt(1)).isEqualTo(R.xml.display_settings);
+        assertThat(cursor.getString(2)).isEqualTo(FakeSettingsFragment.CLASS_NAME);
+        final JSONObject provider =
+                mSnapshot.dump().getJSONArray("providers").getJSONObject(0);
+        assertThat(provider.getInt("hits")).isEqualTo(1);
+    }
+
+    @Test
+    public void testResourcesColumnFetched_twice_xmlResourcesPickedInCode_shouldNotUseSnapshot()
+            throws Exception {
+        final Uri rawUri = Uri.parse(
+                BASE_AUTHORITY + SearchIndexablesContract.INDEXABLES_XML_RES_PATH);
+
+        mProvider.query(rawUri, SearchIndexablesContract.INDEXABLES_XML_RES_COLUMNS, null, null,
+                null).close();
+        mProvider.query(rawUri, SearchIndexablesContract.INDEXABLES_XML_RES_COLUMNS, null, null,
+                null).close();
+
+        final JSONObject provider =
+                mSnapshot.dump().getJSONArray("providers").getJSONObject(0);
+        assertThat(provider.getInt("hits")).isEqualTo(0);
+        assertThat(provider.getInt("misses")).isEqualTo(2);
+        assertThat(new File(mContext.getCacheDir(), SearchIndexableSnapshot.SNAPSHOT_FILE_NAME)
+                .exists()).isFalse();
+    }
+
+    @Test
+    public void hasStaticXmlResources_createdWithXmlResource_shouldReturnTrue() {
+        assertThat(SettingsSearchIndexablesProvider.hasStaticXmlResources(
+                new BaseSearchIndexProvider(R.xml.display_settings))).isTrue();
+    }
+
+    @Test
+    public void hasStaticXmlResources_xmlResourcesPickedInCode_shouldReturnFalse() {
+        assertThat(SettingsSearchIndexablesProvider.hasStaticXmlResources(
+                FakeSettingsFragment.SEARCH_INDEX_DATA_PROVIDER)).isFalse();
+    }
+
     @Test
     @Config(qualifiers = "mcc999")
     public void testNonIndexablesColumnFetched() {
@@ -150,6 +234,43 @@ public class SettingsSearchIndexablesProviderTest {
         assertThat(keys).containsAtLeast("pref_key_1", "pref_key_3", "pref_key_5");
     }
 
+    @Test
+    @Config(qualifiers = "mcc999")
+    public void testNonIndexablesColumnFetched_parallel_shouldMatchSerialOrder() {
+        final Uri rawUri = Uri.parse(
+                BASE_AUTHORITY + SearchIndexablesContract.NON_INDEXABLES_KEYS_PATH);
+        final List<String> serialKeys = queryNonIndexableKeys(rawUri);
+        doReturn(true).when(mProvider).isParallelNonIndexableKeysEnabled();
+
+        final List<String> parallelKeys = queryNonIndexableKeys(rawUri);
+
+        assertThat(parallelKeys).containsExactlyElementsIn(serialKeys).inOrder();
+    }
+
+    @Test
+    @Config(qualifiers = "mcc999")
+    public void getNonIndexableKeysInParallel_providerOverBudget_shouldKeepItsKeys()
+            throws Exception {
+        final Collection<SearchIndexableData> bundles = new ArrayList<>();
+        bundles.add(new SearchIndexableData(FakeSettingsFragment.class,
+                FakeSettingsFragment.SEARCH_INDEX_DATA_PROVIDER));
+        bundles.add(new SearchIndexableData(NetworkDashboardFragment.class,
+                new BaseSearchIndexProvider() {
+                    @Override
+                    public List<String> getNonIndexableKeys(Context context) {
+                        SystemClock.sleep(
+                                SettingsSearchIndexablesProvider.NON_INDEXABLE_KEYS_BUDGET_MS + 50);
+                        return new ArrayList<>(Arrays.asList("slow_key"));
+                    }
+                }));
+
+        final List<String> keys =
+                mProvider.getNonIndexableKeysInParallel(mContext, bundles, mSnapshot);
+
+        assertThat(keys).containsAtLeast("pref_key_1", "pref_key_3", "pref_key_5", "slow_key");
+        assertThat(mSnapshot.dump().toString()).contains("\"overBudget\":1");
+    }
+
     @Test
     public void refreshSearchEnabledState_classNotFoundInCategoryMap_hasInjectionRawData() {
         mProvider.refreshSearchEnabledState(mContext,
@@ -219,6 +340,17 @@ public class SettingsSearchIndexablesProviderTest {
         assertThat(mProvider.isEligibleForIndexing(PACKAGE_NAME, activityTile)).isFalse();
     }
 
+    private List<String> queryNonIndexableKeys(Uri uri) {
+        final List<String> keys = new ArrayList<>();
+        try (Cursor cursor = mProvider.query(uri,
+                SearchIndexablesContract.NON_INDEXABLES_KEYS_COLUMNS, null, null, null)) {
+            while (cursor.moveToNext()) {
+                keys.add(cursor.getString(0));
+            }
+        }
+        return keys;
+    }
+
     @Implements(CategoryManager.class)
     public static class ShadowCategoryManager {
 
@@ -33,6 +33,7 @@ import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -41,6 +42,7 @@ import android.app.slice.SliceManager;
 import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.res.Resources.Theme;
 import android.net.Uri;
 import android.os.StrictMode;
@@ -86,7 +88,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -149,7 +150,7 @@ public class SettingsSliceProviderTest {
 
         mProvider = spy(new SettingsSliceProvider());
         ShadowStrictMode.reset();
-        mProvider.mSliceWeakDataCache = new HashMap<>();
+        mProvider.mSliceDataCache = new SliceDataCache(mContext, Integer.MAX_VALUE);
         mProvider.mSlicesDatabaseAccessor = new SlicesDatabaseAccessor(mContext);
         when(mProvider.getContext()).thenReturn(mContext);
 
@@ -185,12 +186,23 @@ public class SettingsSliceProviderTest {
         SliceTestUtils.insertSliceToDb(mContext, KEY);
 
         mProvider.loadSlice(INTENT_SLICE_URI);
-        SliceData data = mProvider.mSliceWeakDataCache.get(INTENT_SLICE_URI);
+        SliceData data = mProvider.mSliceDataCache.get(INTENT_SLICE_URI);
 
         assertThat(data.getKey()).isEqualTo(KEY);
         assertThat(data.getTitle()).isEqualTo(SliceTestUtils.FAKE_TITLE);
     }
 
+    @Test
+    public void loadSlice_afterBindMiss_shouldCountSingleMiss() {
+        SliceTestUtils.insertSliceToDb(mContext, KEY);
+        mProvider.onBindSlice(INTENT_SLICE_URI);
+
+        mProvider.loadSlice(INTENT_SLICE_URI);
+
+        assertThat(mProvider.mSliceDataCache.getMissCount()).isEqualTo(1);
+        assertThat(mProvider.mSliceDataCache.getHitCount()).isEqualTo(0);
+    }
+
     @Test
     public void loadSlice_registersIntentFilter() {
         SliceTestUtils.insertSliceToDb(mContext, KEY);
@@ -216,15 +228,49 @@ public class SettingsSliceProviderTest {
     }
 
     @Test
-    public void testLoadSlice_cachedEntryRemovedOnUnpinned() {
-        SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
-        mProvider.onSliceUnpinned(data.getUri());
-        SliceTestUtils.insertSliceToDb(mContext, data.getKey());
+    public void testLoadSlice_cachedEntryKeptOnUnpinned() {
+        SliceTestUtils.insertSliceToDb(mContext, KEY);
+        mProvider.loadSlice(INTENT_SLICE_URI);
+        final SliceData data = mProvider.mSliceDataCache.get(INTENT_SLICE_URI);
+
+        mProvider.onSliceUnpinned(INTENT_SLICE_URI);
+
+        assertThat(mProvider.mLoadedUris).doesNotContain(INTENT_SLICE_URI);
+        assertThat(mProvider.mSliceDataCache.get(INTENT_SLICE_URI)).isSameInstanceAs(data);
+    }
+
+    @Test
+    public void loadSlice_cachedAfterUnpinned_registersIntentFilterAgain() {
+        SliceTestUtils.insertSliceToDb(mContext, KEY);
+        mProvider.loadSlice(INTENT_SLICE_URI);
+        mProvider.onSliceUnpinned(INTENT_SLICE_URI);
+
+        mProvider.loadSlice(INTENT_SLICE_URI);
+
+        verify(mProvider, times(2))
+                .registerIntentToUri(eq(FakeToggleController.INTENT_FILTER), eq(INTENT_SLICE_URI));
+        assertThat(mProvider.mLoadedUris).contains(INTENT_SLICE_URI);
+    }
+
+    @Test
+    public void prefetchSliceData_shouldCacheDataWithoutRegistering() {
+        SliceTestUtils.insertSliceToDb(mContext, KEY);
+
+        mProvider.prefetchSliceData(Collections.singletonList(INTENT_SLICE_URI));
+
+        assertThat(mProvider.mSliceDataCache.get(INTENT_SLICE_URI).getKey()).isEqualTo(KEY);
+        assertThat(mProvider.mLoadedUris).isEmpty();
+        verify(mProvider, never()).registerIntentToUri(any(IntentFilter.class), any(Uri.class));
+    }
+
+    @Test
+    public void onBindSlice_afterPrefetch_shouldNotReturnStub() {
+        SliceTestUtils.insertSliceToDb(mContext, KEY);
+        mProvider.prefetchSliceData(Collections.singletonList(INTENT_SLICE_URI));
 
-        SliceData cachedData = mProvider.mSliceWeakDataCache.get(data.getUri());
+        final Slice slice = mProvider.onBindSlice(INTENT_SLICE_URI);
 
-        assertThat(cachedData).isNull();
+        assertThat(slice.getItems()).isNotEmpty();
     }
 
     @Test
@@ -232,7 +278,7 @@ public class SettingsSliceProviderTest {
         ShadowThreadUtils.setIsMainThread(true);
         final StrictMode.ThreadPolicy oldThreadPolicy = StrictMode.getThreadPolicy();
         SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onBindSlice(data.getUri());
 
         final StrictMode.ThreadPolicy newThreadPolicy = StrictMode.getThreadPolicy();
@@ -246,7 +292,7 @@ public class SettingsSliceProviderTest {
         ShadowThreadUtils.setIsMainThread(false);
 
         SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onBindSlice(data.getUri());
 
         assertThat(ShadowStrictMode.isThreadPolicyOverridden()).isTrue();
@@ -274,7 +320,7 @@ public class SettingsSliceProviderTest {
     public void onBindSlice_nightModeChanged_shouldReloadTheme() {
         mContext.getResources().getConfiguration().uiMode = UI_MODE_NIGHT_NO;
         final SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onBindSlice(data.getUri());
 
         mContext.getResources().getConfiguration().uiMode = UI_MODE_NIGHT_YES;
@@ -287,7 +333,7 @@ public class SettingsSliceProviderTest {
     public void onBindSlice_nightModeNotChanged_shouldNotReloadTheme() {
         mContext.getResources().getConfiguration().uiMode = UI_MODE_NIGHT_NO;
         SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onBindSlice(data.getUri());
 
         mContext.getResources().getConfiguration().uiMode = UI_MODE_NIGHT_NO;
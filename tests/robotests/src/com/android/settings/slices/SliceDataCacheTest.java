@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.slices;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.settings.testutils.DatabaseTestUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class SliceDataCacheTest {
+
+    private static final String KEY = "KEY";
+    private static final Uri URI = Uri.parse("content://com.android.settings.slices/test");
+
+    private Context mContext;
+    private SliceDataCache mCache;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mCache = new SliceDataCache(mContext, Integer.MAX_VALUE);
+    }
+
+    @After
+    public void cleanUp() {
+        DatabaseTestUtils.clearDb(mContext);
+    }
+
+    @Test
+    public void get_cachedData_shouldCountHit() {
+        final SliceData data = getMockData();
+        mCache.put(URI, data);
+
+        assertThat(mCache.get(URI)).isSameInstanceAs(data);
+        assertThat(mCache.get(Uri.parse("content://abc"))).isNull();
+        assertThat(mCache.getHitCount()).isEqualTo(1);
+        assertThat(mCache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void get_sliceDataReindexed_shouldInvalidate() {
+        mCache.put(URI, getMockData());
+
+        SlicesDatabaseHelper.getInstance(mContext).setIndexedState();
+
+        assertThat(mCache.get(URI)).isNull();
+    }
+
+    @Test
+    public void put_overMaxSize_shouldEvictLeastRecentlyUsed() {
+        // Large enough for a single entry only.
+        final SliceDataCache cache = new SliceDataCache(mContext, 400);
+        final Uri otherUri = Uri.parse("content://com.android.settings.slices/other");
+        cache.put(URI, getMockData());
+
+        cache.put(otherUri, getMockData());
+
+        assertThat(cache.get(URI)).isNull();
+        assertThat(cache.get(otherUri)).isNotNull();
+    }
+
+    @Test
+    public void peek_shouldNotCountHitOrMiss() {
+        final SliceData data = getMockData();
+        mCache.put(URI, data);
+
+        assertThat(mCache.peek(URI)).isSameInstanceAs(data);
+        assertThat(mCache.peek(Uri.parse("content://abc"))).isNull();
+        assertThat(mCache.getHitCount()).isEqualTo(0);
+        assertThat(mCache.getMissCount()).isEqualTo(0);
+    }
+
+    private static SliceData getMockData() {
+        return new SliceData.Builder()
+                .setKey(KEY)
+                .setUri(URI)
+                .setTitle(SliceTestUtils.FAKE_TITLE)
+                .setPreferenceControllerClassName(SliceTestUtils.FAKE_CONTROLLER_NAME)
+                .build();
+    }
+}
@@ -40,6 +40,7 @@ import org.robolectric.RuntimeEnvironment;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 @RunWith(RobolectricTestRunner.class)
 public class SlicesIndexerTest {
@@ -61,15 +62,18 @@ public class SlicesIndexerTest {
 
     private SlicesIndexer mManager;
 
+    private Locale mDefaultLocale;
 
     @Before
     public void setUp() {
         mContext = RuntimeEnvironment.application;
         mManager = spy(new SlicesIndexer(mContext));
+        mDefaultLocale = Locale.getDefault();
     }
 
     @After
     public void cleanUp() {
+        Locale.setDefault(mDefaultLocale);
         DatabaseTestUtils.clearDb(mContext);
     }
 
@@ -205,6 +209,73 @@ public class SlicesIndexerTest {
         }
     }
 
+    @Test
+    public void indexSliceData_dataChanged_onlyChangedRowsApplied() {
+        final SlicesDatabaseHelper helper = SlicesDatabaseHelper.getInstance(mContext);
+        final List<SliceData> sliceData = getMockIndexableData(false);
+        doReturn(sliceData).when(mManager).getSliceData();
+        mManager.run();
+        final List<SliceData> newSliceData = new ArrayList<>();
+        newSliceData.add(sliceData.get(0));
+        newSliceData.add(new SliceData.Builder()
+                .setKey(KEYS[1])
+                .setTitle("new title")
+                .setUri(URI)
+                .setPreferenceControllerClassName(PREF_CONTROLLER)
+                .build());
+        doReturn(newSliceData).when(mManager).getSliceData();
+
+        // A locale change invalidates the index state.
+        Locale.setDefault(new Locale("ca"));
+        mManager.run();
+
+        final SQLiteDatabase db = helper.getReadableDatabase();
+        try (Cursor cursor = db.rawQuery(
+                "SELECT key, title FROM slices_index ORDER BY key", null)) {
+            assertThat(cursor.getCount()).isEqualTo(2);
+            cursor.moveToFirst();
+            assertThat(cursor.getString(0)).isEqualTo(KEYS[0]);
+            assertThat(cursor.getString(1)).isEqualTo(TITLES[0]);
+            cursor.moveToNext();
+            assertThat(cursor.getString(0)).isEqualTo(KEYS[1]);
+            assertThat(cursor.getString(1)).isEqualTo("new title");
+        }
+    }
+
+    @Test
+    public void indexSliceData_duplicatedKeys_everyRowKept() {
+        final List<SliceData> sliceData = getMockIndexableData(false);
+        sliceData.add(sliceData.get(0));
+        doReturn(sliceData).when(mManager).getSliceData();
+        mManager.run();
+
+        Locale.setDefault(new Locale("ca"));
+        mManager.run();
+
+        final SQLiteDatabase db = SlicesDatabaseHelper.getInstance(mContext).getReadableDatabase();
+        try (Cursor cursor = db.rawQuery(
+                "SELECT key FROM slices_index WHERE key = ?", new String[]{KEYS[0]})) {
+            assertThat(cursor.getCount()).isEqualTo(2);
+        }
+        try (Cursor cursor = db.rawQuery("SELECT key FROM slices_index", null)) {
+            assertThat(cursor.getCount()).isEqualTo(sliceData.size());
+        }
+    }
+
+    @Test
+    public void insertSliceData_existingRows_rowsKept() {
+        final SlicesDatabaseHelper helper = SlicesDatabaseHelper.getInstance(mContext);
+        insertSpecialCase("newKey", "newTitle");
+        final List<SliceData> sliceData = getMockIndexableData(false);
+
+        final SQLiteDatabase db = helper.getWritableDatabase();
+        mManager.insertSliceData(db, sliceData);
+
+        try (Cursor cursor = db.rawQuery("SELECT key FROM slices_index", null)) {
+            assertThat(cursor.getCount()).isEqualTo(sliceData.size() + 1);
+        }
+    }
+
     private void insertSpecialCase(String key, String title) {
         final ContentValues values = new ContentValues();
         values.put(IndexColumns.KEY, key);
@@ -32,7 +32,6 @@ import androidx.room.Room;
 import com.android.settings.DisplaySettings;
 import com.android.settings.display.ScreenTimeoutSettings;
 import com.android.settings.fuelgauge.batteryusage.BatteryInformation;
-import com.android.settings.fuelgauge.batteryusage.ConvertUtils;
 import com.android.settings.fuelgauge.batteryusage.DeviceBatteryState;
 import com.android.settings.fuelgauge.batteryusage.PowerAnomalyEvent;
 import com.android.settings.fuelgauge.batteryusage.PowerAnomalyEventList;
@@ -42,6 +41,7 @@ import com.android.settings.fuelgauge.batteryusage.WarningBannerInfo;
 import com.android.settings.fuelgauge.batteryusage.WarningItemInfo;
 import com.android.settings.fuelgauge.batteryusage.db.AppUsageEventDao;
 import com.android.settings.fuelgauge.batteryusage.db.AppUsageEventEntity;
+import com.android.settings.fuelgauge.batteryusage.db.BatterySnapshot;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryState;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryStateDao;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryStateDatabase;
@@ -144,21 +144,23 @@ public class BatteryTestUtils {
                         .build();
 
         final BatteryState state =
-                new BatteryState(
-                        /*uid=*/ 1001L,
-                        /*userId=*/ 100L,
-                        packageName,
-                        timestamp,
-                        /*consumerType=*/ 2,
-                        isFullChargeStart,
-                        ConvertUtils.convertBatteryInformationToString(batteryInformation),
-                        "");
+                BatteryState.newBuilder()
+                        .setUid(1001L)
+                        .setUserId(100L)
+                        .setPackageName(packageName)
+                        .setTimestamp(timestamp)
+                        .setConsumerType(2)
+                        .setIsFullChargeCycleStart(isFullChargeStart)
+                        .setBatteryInformation(batteryInformation)
+                        .setBatteryInformationDebug("")
+                        .build();
         BatteryStateDao dao =
                 BatteryStateDatabase.getInstance(context).batteryStateDao();
+        final BatterySnapshot snapshot = BatterySnapshot.create(timestamp, batteryInformation);
         if (multiple) {
-            dao.insertAll(ImmutableList.of(state));
+            dao.insertAll(ImmutableList.of(state), snapshot);
         } else {
-            dao.insert(state);
+            dao.insert(state, snapshot);
         }
     }
 
@@ -26,9 +26,12 @@ import com.google.common.truth.Truth.assertThat
 import kotlinx.coroutines.runBlocking
 import org.junit.Test
 import org.junit.runner.RunWith
+import org.mockito.kotlin.any
+import org.mockito.kotlin.doAnswer
 import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.eq
 import org.mockito.kotlin.mock
-import org.mockito.kotlin.stub
+import org.mockito.kotlin.whenever
 import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.Bucket
 
 @RunWith(AndroidJUnit4::class)
@@ -45,24 +48,24 @@ class AppDataUsageDetailsRepositoryTest {
 
     @Test
     fun queryDetailsForCycles_hasCycles(): Unit = runBlocking {
-        networkStatsRepository.stub {
-            on { queryBuckets(CYCLE1_START_TIME, CYCLE1_END_TIME) } doReturn listOf(
-                Bucket(
-                    uid = UID,
-                    bytes = BACKGROUND_USAGE,
-                    state = NetworkStats.Bucket.STATE_DEFAULT,
-                    startTimeStamp = 0L,
-                    endTimeStamp = 0L,
-                ),
-                Bucket(
-                    uid = UID,
-                    bytes = FOREGROUND_USAGE,
-                    state = NetworkStats.Bucket.STATE_FOREGROUND,
-                    startTimeStamp = 0L,
-                    endTimeStamp = 0L,
-                ),
-            )
-        }
+        networkStatsRepository.stubBuckets(
+            startTime = CYCLE1_START_TIME,
+            endTime = CYCLE1_END_TIME,
+            Bucket(
+                uid = UID,
+                bytes = BACKGROUND_USAGE,
+                state = NetworkStats.Bucket.STATE_DEFAULT,
+                startTimeStamp = 0L,
+                endTimeStamp = 0L,
+            ),
+            Bucket(
+                uid = UID,
+                bytes = FOREGROUND_USAGE,
+                state = NetworkStats.Bucket.STATE_FOREGROUND,
+                startTimeStamp = 0L,
+                endTimeStamp = 0L,
+            ),
+        )
         val repository = AppDataUsageDetailsRepository(
             context = context,
             cycles = listOf(CYCLE1_END_TIME, CYCLE1_START_TIME),
@@ -86,24 +89,24 @@ class AppDataUsageDetailsRepositoryTest {
 
     @Test
     fun queryDetailsForCycles_defaultCycles(): Unit = runBlocking {
-        networkStatsRepository.stub {
-            on { queryBuckets(CYCLE1_END_TIME, CYCLE2_END_TIME) } doReturn listOf(
-                Bucket(
-                    uid = UID,
-                    bytes = BACKGROUND_USAGE,
-                    state = NetworkStats.Bucket.STATE_DEFAULT,
-                    startTimeStamp = 0L,
-                    endTimeStamp = 0L,
-                ),
-                Bucket(
-                    uid = UID,
-                    bytes = FOREGROUND_USAGE,
-                    state = NetworkStats.Bucket.STATE_FOREGROUND,
-                    startTimeStamp = 0L,
-                    endTimeStamp = 0L,
-                ),
-            )
-        }
+        networkStatsRepository.stubBuckets(
+            startTime = CYCLE1_END_TIME,
+            endTime = CYCLE2_END_TIME,
+            Bucket(
+                uid = UID,
+                bytes = BACKGROUND_USAGE,
+                state = NetworkStats.Bucket.STATE_DEFAULT,
+                startTimeStamp = 0L,
+                endTimeStamp = 0L,
+            ),
+            Bucket(
+                uid = UID,
+                bytes = FOREGROUND_USAGE,
+                state = NetworkStats.Bucket.STATE_FOREGROUND,
+                startTimeStamp = 0L,
+                endTimeStamp = 0L,
+            ),
+        )
         val repository = AppDataUsageDetailsRepository(
             context = context,
             cycles = null,
@@ -125,6 +128,51 @@ class AppDataUsageDetailsRepositoryTest {
         )
     }
 
+    @Test
+    fun queryDetailsForCycles_queryFailed_omitsCycle(): Unit = runBlocking {
+        doAnswer {
+            it.getArgument<NetworkStatsRepository.BucketVisitor>(2)
+                .visit(UID, NetworkStats.Bucket.STATE_DEFAULT, BACKGROUND_USAGE, 0L, 0L)
+            false
+        }.whenever(networkStatsRepository).forEachBucket(
+            eq(CYCLE1_START_TIME),
+            eq(CYCLE1_END_TIME),
+            any(),
+        )
+        val repository = AppDataUsageDetailsRepository(
+            context = context,
+            cycles = listOf(CYCLE1_END_TIME, CYCLE1_START_TIME),
+            template = template,
+            uids = listOf(UID),
+            networkCycleDataRepository = networkCycleDataRepository,
+            networkStatsRepository = networkStatsRepository,
+        )
+
+        val detailsForCycles = repository.queryDetailsForCycles()
+
+        assertThat(detailsForCycles).isEmpty()
+    }
+
+    private fun NetworkStatsRepository.stubBuckets(
+        startTime: Long,
+        endTime: Long,
+        vararg buckets: Bucket,
+    ) {
+        doAnswer {
+            val visitor = it.getArgument<NetworkStatsRepository.BucketVisitor>(2)
+            for (bucket in buckets) {
+                visitor.visit(
+                    bucket.uid,
+                    bucket.state,
+                    bucket.bytes,
+                    bucket.startTimeStamp,
+                    bucket.endTimeStamp,
+                )
+            }
+            true
+        }.whenever(this).forEachBucket(eq(startTime), eq(endTime), any())
+    }
+
     private companion object {
         const val CYCLE1_START_TIME = 1694444444000L
         const val CYCLE1_END_TIME = 1695555555000L
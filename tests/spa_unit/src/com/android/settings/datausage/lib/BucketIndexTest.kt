@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage.lib
+
+import android.util.Range
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.Bucket
+import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.aggregate
+import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.filterTime
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class BucketIndexTest {
+
+    @Test
+    fun timeRange_noBucket_isNull() {
+        val bucketIndex = BucketIndex(emptyList())
+
+        assertThat(bucketIndex.timeRange).isNull()
+        assertThat(bucketIndex.sumBytes(Long.MIN_VALUE, Long.MAX_VALUE)).isEqualTo(0)
+    }
+
+    @Test
+    fun timeRange_coversAllBuckets() {
+        val bucketIndex = BucketIndex(listOf(bucket(3, 4, 1), bucket(1, 2, 1)))
+
+        assertThat(bucketIndex.timeRange).isEqualTo(Range(1L, 4L))
+    }
+
+    @Test
+    fun sumBytes_onlyCountsBucketsInsideRange() {
+        val bucketIndex = BucketIndex(
+            listOf(bucket(0, 10, 1), bucket(10, 20, 2), bucket(20, 30, 4), bucket(30, 40, 8))
+        )
+
+        assertThat(bucketIndex.sumBytes(10, 30)).isEqualTo(6)
+        assertThat(bucketIndex.sumBytes(5, 35)).isEqualTo(6)
+        assertThat(bucketIndex.sumBytes(11, 19)).isEqualTo(0)
+        assertThat(bucketIndex.sumBytes(Long.MIN_VALUE, Long.MAX_VALUE)).isEqualTo(15)
+    }
+
+    @Test
+    fun sumBytes_overlappingBuckets_sameAsFilterTime() {
+        val buckets = listOf(
+            bucket(0, 100, 1), bucket(10, 20, 2), bucket(10, 20, 4), bucket(15, 50, 8),
+            bucket(20, 30, 16),
+        )
+        val bucketIndex = BucketIndex(buckets)
+
+        for (startTime in 0L..100L step 5) {
+            for (endTime in startTime..100L step 5) {
+                assertThat(bucketIndex.sumBytes(startTime, endTime)).isEqualTo(
+                    buckets.filterTime(startTime, endTime).aggregate()?.usage ?: 0
+                )
+            }
+        }
+    }
+
+    @Test
+    fun builder_unsortedBuckets_sameAsList() {
+        val buckets = (0L until 200L).map { bucket(it * 10, it * 10 + 10, it) }.shuffled()
+        val builder = BucketIndex.Builder()
+        for (bucket in buckets) {
+            builder.add(bucket.startTimeStamp, bucket.endTimeStamp, bucket.bytes)
+        }
+
+        val bucketIndex = builder.build()
+
+        assertThat(bucketIndex.timeRange).isEqualTo(Range(0L, 2000L))
+        for (startTime in 0L..2000L step 50) {
+            assertThat(bucketIndex.sumBytes(startTime, startTime + 500)).isEqualTo(
+                BucketIndex(buckets).sumBytes(startTime, startTime + 500)
+            )
+        }
+        assertThat(bucketIndex.sumBytes(0, 2000)).isEqualTo((0L until 200L).sum())
+    }
+
+    private fun bucket(startTime: Long, endTime: Long, bytes: Long) = Bucket(
+        uid = 0,
+        bytes = bytes,
+        startTimeStamp = startTime,
+        endTimeStamp = endTime,
+    )
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage.lib
+
+import android.content.Context
+import android.net.NetworkTemplate
+import android.util.Range
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.google.common.truth.Truth.assertThat
+import org.junit.After
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.kotlin.mock
+
+@RunWith(AndroidJUnit4::class)
+class CycleUsageCacheTest {
+    private val context: Context = ApplicationProvider.getApplicationContext()
+
+    private val template = mock<NetworkTemplate>()
+
+    private val cache = CycleUsageCache(context) { NOW }
+
+    private var queryCount = 0
+
+    @After
+    fun tearDown() {
+        context.getSharedPreferences(CycleUsageCache.PREFERENCES_NAME, Context.MODE_PRIVATE)
+            .edit().clear().commit()
+    }
+
+    @Test
+    fun getDeviceUsage_closedCycle_queriedOnce() {
+        val range = Range(0L, NOW - CycleUsageCache.FINALIZED_DELAY)
+
+        cache.getDeviceUsage(template, range) { query(range) }
+        val usage = cache.getDeviceUsage(template, range) { query(range) }
+
+        assertThat(usage).isEqualTo(NetworkUsageData(range.lower, range.upper, USAGE))
+        assertThat(queryCount).isEqualTo(1)
+    }
+
+    @Test
+    fun getDeviceUsage_closedCycle_persisted() {
+        val range = Range(0L, NOW - CycleUsageCache.FINALIZED_DELAY)
+        cache.getDeviceUsage(template, range) { query(range) }
+
+        val usage = CycleUsageCache(context) { NOW }.getDeviceUsage(template, range) {
+            query(range)
+        }
+
+        assertThat(usage).isEqualTo(NetworkUsageData(range.lower, range.upper, USAGE))
+        assertThat(queryCount).isEqualTo(1)
+    }
+
+    @Test
+    fun getDeviceUsage_openCycle_notPersisted() {
+        val range = Range(0L, NOW)
+        cache.getDeviceUsage(template, range) { query(range) }
+
+        CycleUsageCache(context) { NOW }.getDeviceUsage(template, range) { query(range) }
+
+        assertThat(queryCount).isEqualTo(2)
+    }
+
+    @Test
+    fun getDeviceUsage_queryFailed_notCached() {
+        val range = Range(0L, 1L)
+
+        val usage = cache.getDeviceUsage(template, range) { failedQuery() }
+        cache.getDeviceUsage(template, range) { query(range) }
+
+        assertThat(usage).isNull()
+        assertThat(queryCount).isEqualTo(2)
+    }
+
+    @Test
+    fun getDeviceUsage_queryFailed_notPersisted() {
+        val range = Range(0L, 1L)
+        cache.getDeviceUsage(template, range) { failedQuery() }
+
+        CycleUsageCache(context) { NOW }.getDeviceUsage(template, range) { query(range) }
+
+        assertThat(queryCount).isEqualTo(2)
+    }
+
+    @Test
+    fun getDeviceUsage_openCycle_queriedEveryTime() {
+        val range = Range(0L, NOW)
+
+        cache.getDeviceUsage(template, range) { query(range) }
+        cache.getDeviceUsage(template, range) { query(range) }
+
+        assertThat(queryCount).isEqualTo(2)
+    }
+
+    @Test
+    fun getDeviceUsage_otherCycle_queriedAgain() {
+        val range = Range(0L, 1L)
+        val otherRange = Range(0L, 2L)
+
+        cache.getDeviceUsage(template, range) { query(range) }
+        cache.getDeviceUsage(template, otherRange) { query(otherRange) }
+
+        assertThat(queryCount).isEqualTo(2)
+    }
+
+    @Test
+    fun getUidDetails_otherUids_queriedAgain() {
+        val range = Range(0L, 1L)
+
+        cache.getUidDetails(template, listOf(UID), range) { queryDetails(range) }
+        cache.getUidDetails(template, listOf(UID), range) { queryDetails(range) }
+        cache.getUidDetails(template, listOf(UID + 1), range) { queryDetails(range) }
+
+        assertThat(queryCount).isEqualTo(2)
+    }
+
+    @Test
+    fun getUidDetails_queryFailed_notCached() {
+        val range = Range(0L, 1L)
+
+        val details = cache.getUidDetails(template, listOf(UID), range) { failedQuery() }
+        cache.getUidDetails(template, listOf(UID), range) { queryDetails(range) }
+
+        assertThat(details).isNull()
+        assertThat(queryCount).isEqualTo(2)
+    }
+
+    @Test
+    fun invalidate_persisted_queriedAgain() {
+        val range = Range(0L, 1L)
+        cache.getDeviceUsage(template, range) { query(range) }
+
+        cache.invalidate(template)
+        CycleUsageCache(context) { NOW }.getDeviceUsage(template, range) { query(range) }
+
+        assertThat(queryCount).isEqualTo(2)
+    }
+
+    @Test
+    fun invalidate_queriedAgain() {
+        val range = Range(0L, 1L)
+        cache.getDeviceUsage(template, range) { query(range) }
+        cache.getUidDetails(template, listOf(UID), range) { queryDetails(range) }
+
+        cache.invalidate(template)
+        cache.getDeviceUsage(template, range) { query(range) }
+        cache.getUidDetails(template, listOf(UID), range) { queryDetails(range) }
+
+        assertThat(queryCount).isEqualTo(4)
+    }
+
+    private fun query(range: Range<Long>): NetworkUsageData {
+        queryCount++
+        return NetworkUsageData(range.lower, range.upper, USAGE)
+    }
+
+    private fun <T> failedQuery(): T? {
+        queryCount++
+        return null
+    }
+
+    private fun queryDetails(range: Range<Long>): NetworkUsageDetailsData {
+        queryCount++
+        return NetworkUsageDetailsData(
+            range = range,
+            totalUsage = USAGE,
+            foregroundUsage = USAGE,
+            backgroundUsage = 0,
+        )
+    }
+
+    private companion object {
+        const val NOW = 1700000000000L
+        const val UID = 10000
+        const val USAGE = 100L
+    }
+}
@@ -94,6 +94,17 @@ class NetworkCycleDataRepositoryTest {
         )
     }
 
+    @Test
+    fun queryUsage_queryFailed_noUsage() {
+        val range = Range(CYCLE4_END_TIME, CYCLE4_END_TIME + DateUtils.DAY_IN_MILLIS)
+
+        val usage = repository.queryUsage(range)
+
+        assertThat(usage).isEqualTo(
+            NetworkUsageData(startTime = range.lower, endTime = range.upper, usage = 0),
+        )
+    }
+
     private companion object {
         const val CYCLE1_START_TIME = 1L
         const val CYCLE1_END_TIME = 2L
@@ -20,14 +20,22 @@ import android.app.usage.NetworkStats
 import android.app.usage.NetworkStatsManager
 import android.content.Context
 import android.net.NetworkTemplate
+import android.util.Range
+import android.util.SparseLongArray
 import androidx.test.core.app.ApplicationProvider
 import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.Bucket
 import com.google.common.truth.Truth.assertThat
 import org.junit.Test
 import org.junit.runner.RunWith
+import org.mockito.kotlin.any
+import org.mockito.kotlin.doAnswer
 import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.doThrow
 import org.mockito.kotlin.mock
 import org.mockito.kotlin.spy
+import org.mockito.kotlin.stub
+import org.mockito.kotlin.verify
 
 @RunWith(AndroidJUnit4::class)
 class NetworkStatsRepositoryTest {
@@ -50,9 +58,238 @@ class NetworkStatsRepositoryTest {
         assertThat(bytes).isEqualTo(11)
     }
 
+    @Test
+    fun querySummaryForDevice_queryThrows_null() {
+        mockNetworkStatsManager.stub {
+            on { querySummaryForDevice(template, START_TIME, END_TIME) } doThrow RuntimeException()
+        }
+
+        val bytes = repository.querySummaryForDevice(START_TIME, END_TIME)
+
+        assertThat(bytes).isNull()
+    }
+
+    @Test
+    fun forEachBucket_visitsEveryBucketAndCloses() {
+        val networkStats = mockNetworkStats(
+            Bucket(uid = UID, bytes = 1, startTimeStamp = START_TIME, endTimeStamp = END_TIME),
+            Bucket(
+                uid = OTHER_UID,
+                bytes = 2,
+                state = NetworkStats.Bucket.STATE_FOREGROUND,
+                startTimeStamp = START_TIME,
+                endTimeStamp = END_TIME,
+            ),
+        )
+        mockNetworkStatsManager.stub {
+            on { querySummary(template, START_TIME, END_TIME) } doReturn networkStats
+        }
+        val buckets = mutableListOf<Bucket>()
+
+        val completed =
+            repository.forEachBucket(START_TIME, END_TIME) { uid, state, bytes, start, end ->
+                buckets += Bucket(uid, bytes, state, start, end)
+            }
+
+        assertThat(completed).isTrue()
+        assertThat(buckets).containsExactly(
+            Bucket(uid = UID, bytes = 1, startTimeStamp = START_TIME, endTimeStamp = END_TIME),
+            Bucket(
+                uid = OTHER_UID,
+                bytes = 2,
+                state = NetworkStats.Bucket.STATE_FOREGROUND,
+                startTimeStamp = START_TIME,
+                endTimeStamp = END_TIME,
+            ),
+        ).inOrder()
+        verify(networkStats).close()
+    }
+
+    @Test
+    fun forEachBucket_queryThrows_visitsNothing() {
+        mockNetworkStatsManager.stub {
+            on { querySummary(template, START_TIME, END_TIME) } doThrow RuntimeException()
+        }
+        var visited = false
+
+        val completed =
+            repository.forEachBucket(START_TIME, END_TIME) { _, _, _, _, _ -> visited = true }
+
+        assertThat(completed).isFalse()
+        assertThat(visited).isFalse()
+    }
+
+    @Test
+    fun forEachBucket_iterationThrows_reportsFailureAndCloses() {
+        val networkStats = mockNetworkStats(
+            Bucket(uid = UID, bytes = 1, startTimeStamp = START_TIME, endTimeStamp = END_TIME),
+            failAtEnd = true,
+        )
+        mockNetworkStatsManager.stub {
+            on { querySummary(template, START_TIME, END_TIME) } doReturn networkStats
+        }
+        val uids = mutableListOf<Int>()
+
+        val completed =
+            repository.forEachBucket(START_TIME, END_TIME) { uid, _, _, _, _ -> uids += uid }
+
+        assertThat(completed).isFalse()
+        assertThat(uids).containsExactly(UID)
+        verify(networkStats).close()
+    }
+
+    @Test
+    fun forEachDeviceBucket_visitsBucketsOfAllTime() {
+        val networkStats = mockNetworkStats(
+            Bucket(uid = UID, bytes = 1, startTimeStamp = START_TIME, endTimeStamp = END_TIME),
+        )
+        mockNetworkStatsManager.stub {
+            on {
+                queryDetailsForDevice(template, Long.MIN_VALUE, Long.MAX_VALUE)
+            } doReturn networkStats
+        }
+        val buckets = mutableListOf<Bucket>()
+
+        val completed = repository.forEachDeviceBucket { uid, state, bytes, start, end ->
+            buckets += Bucket(uid, bytes, state, start, end)
+        }
+
+        assertThat(completed).isTrue()
+        assertThat(buckets).containsExactly(
+            Bucket(uid = UID, bytes = 1, startTimeStamp = START_TIME, endTimeStamp = END_TIME),
+        )
+        verify(networkStats).close()
+    }
+
+    @Test
+    fun forEachDeviceBucket_queryThrows_visitsNothing() {
+        mockNetworkStatsManager.stub {
+            on {
+                queryDetailsForDevice(template, Long.MIN_VALUE, Long.MAX_VALUE)
+            } doThrow RuntimeException()
+        }
+        var visited = false
+
+        val completed = repository.forEachDeviceBucket { _, _, _, _, _ -> visited = true }
+
+        assertThat(completed).isFalse()
+        assertThat(visited).isFalse()
+    }
+
+    @Test
+    fun sumBytesByUid_addsToExistingSums() {
+        val networkStats = mockNetworkStats(
+            Bucket(uid = UID, bytes = 1, startTimeStamp = START_TIME, endTimeStamp = END_TIME),
+            Bucket(
+                uid = OTHER_UID,
+                bytes = 2,
+                startTimeStamp = START_TIME,
+                endTimeStamp = END_TIME,
+            ),
+            Bucket(uid = UID, bytes = 4, startTimeStamp = START_TIME, endTimeStamp = END_TIME),
+        )
+        mockNetworkStatsManager.stub {
+            on { querySummary(template, START_TIME, END_TIME) } doReturn networkStats
+        }
+        val bytesByUid = SparseLongArray().apply { put(UID, 8) }
+
+        val completed = repository.sumBytesByUid(START_TIME, END_TIME, bytesByUid)
+
+        assertThat(completed).isTrue()
+        assertThat(bytesByUid.size()).isEqualTo(2)
+        assertThat(bytesByUid.get(UID)).isEqualTo(13)
+        assertThat(bytesByUid.get(OTHER_UID)).isEqualTo(2)
+    }
+
+    @Test
+    fun sumBytesByUid_queryThrows_keepsSums() {
+        mockNetworkStatsManager.stub {
+            on { querySummary(template, START_TIME, END_TIME) } doThrow RuntimeException()
+        }
+        val bytesByUid = SparseLongArray().apply { put(UID, 8) }
+
+        val completed = repository.sumBytesByUid(START_TIME, END_TIME, bytesByUid)
+
+        assertThat(completed).isFalse()
+        assertThat(bytesByUid.size()).isEqualTo(1)
+        assertThat(bytesByUid.get(UID)).isEqualTo(8)
+    }
+
+    @Test
+    fun queryDeviceBucketIndex() {
+        val networkStats = mockNetworkStats(
+            Bucket(uid = UID, bytes = 1, startTimeStamp = 0, endTimeStamp = 10),
+            Bucket(uid = UID, bytes = 2, startTimeStamp = 10, endTimeStamp = 20),
+        )
+        mockNetworkStatsManager.stub {
+            on {
+                queryDetailsForDevice(template, Long.MIN_VALUE, Long.MAX_VALUE)
+            } doReturn networkStats
+        }
+
+        val index = repository.queryDeviceBucketIndex()
+
+        assertThat(index.timeRange).isEqualTo(Range(0L, 20L))
+        assertThat(index.sumBytes(0, 20)).isEqualTo(3)
+        assertThat(index.sumBytes(10, 20)).isEqualTo(2)
+    }
+
+    @Test
+    fun queryDeviceBucketIndex_queryThrows_empty() {
+        mockNetworkStatsManager.stub {
+            on {
+                queryDetailsForDevice(template, Long.MIN_VALUE, Long.MAX_VALUE)
+            } doThrow RuntimeException()
+        }
+
+        val index = repository.queryDeviceBucketIndex()
+
+        assertThat(index.timeRange).isNull()
+        assertThat(index.sumBytes(Long.MIN_VALUE, Long.MAX_VALUE)).isEqualTo(0)
+    }
+
+    /**
+     * Mocks a [NetworkStats] returning [buckets], then throwing if [failAtEnd], as the real one
+     * may when the service dies.
+     */
+    private fun mockNetworkStats(vararg buckets: Bucket, failAtEnd: Boolean = false): NetworkStats {
+        var index = 0
+        return mock<NetworkStats> {
+            on { getNextBucket(any()) } doAnswer {
+                when {
+                    index < buckets.size -> {
+                        it.getArgument<NetworkStats.Bucket>(0).setTo(buckets[index++])
+                        true
+                    }
+                    failAtEnd -> throw IllegalStateException()
+                    else -> false
+                }
+            }
+        }
+    }
+
+    /** Fills the fields that NetworkStats fills when iterating, which have no setters. */
+    private fun NetworkStats.Bucket.setTo(bucket: Bucket) {
+        setField("mUid", bucket.uid)
+        setField("mState", bucket.state)
+        setField("mRxBytes", bucket.bytes)
+        setField("mTxBytes", 0L)
+        setField("mBeginTimeStamp", bucket.startTimeStamp)
+        setField("mEndTimeStamp", bucket.endTimeStamp)
+    }
+
+    private fun NetworkStats.Bucket.setField(name: String, value: Any) {
+        NetworkStats.Bucket::class.java.getDeclaredField(name).apply {
+            isAccessible = true
+            set(this@setField, value)
+        }
+    }
+
     private companion object {
         const val START_TIME = 1L
         const val END_TIME = 2L
+        const val UID = 10000
+        const val OTHER_UID = 10001
 
         val BUCKET = mock<NetworkStats.Bucket> {
             on { rxBytes } doReturn 1
@@ -24,6 +24,7 @@ import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.Mockito.when;
 
+import android.content.ComponentName;
 import android.content.Context;
 import android.content.pm.ActivityInfo;
 import android.content.pm.ApplicationInfo;
@@ -47,7 +48,10 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RunWith(AndroidJUnit4.class)
@@ -408,6 +412,71 @@ public class CategoryManagerTest {
         assertThat(category.getTilesCount()).isEqualTo(1);
     }
 
+    @Test
+    public void getTilesByCategory_shouldOnlyFinalizeRequestedCategory() {
+        final String testPackage = mContext.getPackageName();
+        final DashboardCategory requested = new DashboardCategory(CategoryKey.CATEGORY_ACCOUNT);
+        requested.addTile(createActivityTile(requested.key, testPackage, "class1", 100));
+        requested.addTile(createActivityTile(requested.key, testPackage, "class1", 100));
+        final DashboardCategory other = new DashboardCategory(CategoryKey.CATEGORY_NETWORK);
+        other.addTile(createActivityTile(other.key, testPackage, "class2", 100));
+        other.addTile(createActivityTile(other.key, testPackage, "class2", 100));
+        final CategoryManager categoryManager = new CategoryManager(mContext);
+        categoryManager.setCategories(Arrays.asList(requested, other));
+
+        final DashboardCategory category =
+                categoryManager.getTilesByCategory(mContext, CategoryKey.CATEGORY_ACCOUNT);
+
+        assertThat(category).isSameInstanceAs(requested);
+        assertThat(requested.getTilesCount()).isEqualTo(1);
+        assertThat(other.getTilesCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void getCategories_shouldFinalizeAllCategories() {
+        final String testPackage = mContext.getPackageName();
+        final DashboardCategory category1 = new DashboardCategory(CategoryKey.CATEGORY_ACCOUNT);
+        category1.addTile(createActivityTile(category1.key, testPackage, "class1", 100));
+        category1.addTile(createActivityTile(category1.key, testPackage, "class1", 100));
+        final DashboardCategory category2 = new DashboardCategory(CategoryKey.CATEGORY_NETWORK);
+        category2.addTile(createActivityTile(category2.key, testPackage, "class2", 50));
+        category2.addTile(createActivityTile(category2.key, testPackage, "class3", 100));
+        final CategoryManager categoryManager = new CategoryManager(mContext);
+        categoryManager.setCategories(Arrays.asList(category1, category2));
+
+        final List<DashboardCategory> categories = categoryManager.getCategories(mContext);
+
+        assertThat(categories).containsExactly(category1, category2).inOrder();
+        assertThat(category1.getTilesCount()).isEqualTo(1);
+        assertThat(category2.getTile(0).getOrder()).isEqualTo(100);
+    }
+
+    @Test
+    public void updateCategoryFromDenylist_shouldPublishNewSnapshot() {
+        final String testPackage = mContext.getPackageName();
+        final DashboardCategory category = new DashboardCategory(CategoryKey.CATEGORY_ACCOUNT);
+        category.addTile(createActivityTile(category.key, testPackage, "class1", 100));
+        category.addTile(createActivityTile(category.key, testPackage, "class2", 50));
+        final CategoryManager categoryManager = new CategoryManager(mContext);
+        categoryManager.setCategories(Arrays.asList(category));
+        final DashboardCategory previous =
+                categoryManager.getTilesByCategory(mContext, CategoryKey.CATEGORY_ACCOUNT);
+
+        categoryManager.updateCategoryFromDenylist(
+                Collections.singleton(new ComponentName(testPackage, "class1")));
+        final DashboardCategory updated =
+                categoryManager.getTilesByCategory(mContext, CategoryKey.CATEGORY_ACCOUNT);
+
+        // Readers of the previous snapshot are not affected.
+        assertThat(previous.getTilesCount()).isEqualTo(2);
+        assertThat(updated).isNotSameInstanceAs(previous);
+        assertThat(updated.getTilesCount()).isEqualTo(1);
+        assertThat(updated.getTile(0).getIntent().getComponent().getClassName())
+                .isEqualTo("class2");
+        assertThat(categoryManager.getTileByComponentMap())
+                .doesNotContainKey(new ComponentName(testPackage, "class1"));
+    }
+
     private Tile createActivityTile(String categoryKey, String packageName, String className,
             int order) {
         final ActivityInfo activityInfo = new ActivityInfo();
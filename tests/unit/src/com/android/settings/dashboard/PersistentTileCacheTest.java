@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.content.pm.ActivityInfo;
+import android.content.pm.ApplicationInfo;
+import android.os.Parcel;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.android.settingslib.drawer.ActivityTile;
+import com.android.settingslib.drawer.CategoryKey;
+import com.android.settingslib.drawer.DashboardCategory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(AndroidJUnit4.class)
+public class PersistentTileCacheTest {
+
+    private Context mContext;
+    private File mFile;
+    private PersistentTileCache mCache;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mFile = new File(mContext.getCacheDir(), PersistentTileCache.CACHE_FILE_NAME);
+        mCache = new PersistentTileCache(mFile);
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Test
+    public void load_noFile_shouldReturnNull() {
+        assertThat(mCache.load(mContext)).isNull();
+    }
+
+    @Test
+    public void load_afterWrite_shouldRestoreCategories() {
+        writeCategories(PersistentTileCache.buildKey(mContext));
+
+        final List<DashboardCategory> categories = mCache.load(mContext);
+
+        assertThat(categories).hasSize(1);
+        assertThat(categories.get(0).key).isEqualTo(CategoryKey.CATEGORY_ACCOUNT);
+        assertThat(categories.get(0).getTilesCount()).isEqualTo(1);
+        assertThat(categories.get(0).getTile(0).getPackageName()).isEqualTo("pkg");
+    }
+
+    @Test
+    public void load_keyChanged_shouldReturnNull() {
+        writeCategories("stale key");
+
+        assertThat(mCache.load(mContext)).isNull();
+    }
+
+    @Test
+    public void load_truncatedPayload_shouldReturnNullAndDeleteFile() {
+        // Claims one category but ends right after the count.
+        final Parcel parcel = Parcel.obtain();
+        parcel.writeInt(1);
+        final byte[] data = parcel.marshall();
+        parcel.recycle();
+        mCache.write(PersistentTileCache.buildKey(mContext),
+                PersistentTileCache.getSequenceNumber(mContext), data);
+
+        assertThat(mCache.load(mContext)).isNull();
+        assertThat(mFile.exists()).isFalse();
+    }
+
+    @Test
+    public void load_trailingBytes_shouldReturnNull() {
+        final byte[] data = marshallCategories();
+        final byte[] padded = Arrays.copyOf(data, data.length + Integer.BYTES);
+        mCache.write(PersistentTileCache.buildKey(mContext),
+                PersistentTileCache.getSequenceNumber(mContext), padded);
+
+        assertThat(mCache.load(mContext)).isNull();
+    }
+
+    @Test
+    public void invalidate_shouldDeleteFile() {
+        writeCategories(PersistentTileCache.buildKey(mContext));
+
+        mCache.invalidate();
+
+        assertThat(mFile.exists()).isFalse();
+        assertThat(mCache.load(mContext)).isNull();
+    }
+
+    private void writeCategories(String key) {
+        mCache.write(key, PersistentTileCache.getSequenceNumber(mContext), marshallCategories());
+    }
+
+    private static byte[] marshallCategories() {
+        final ActivityInfo activityInfo = new ActivityInfo();
+        activityInfo.packageName = "pkg";
+        activityInfo.name = "class";
+        activityInfo.applicationInfo = new ApplicationInfo();
+        final DashboardCategory category = new DashboardCategory(CategoryKey.CATEGORY_ACCOUNT);
+        category.addTile(new ActivityTile(activityInfo, category.key));
+        final List<DashboardCategory> categories = new ArrayList<>();
+        categories.add(category);
+
+        final Parcel parcel = Parcel.obtain();
+        parcel.writeTypedList(categories);
+        final byte[] data = parcel.marshall();
+        parcel.recycle();
+        return data;
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.deviceinfo.storage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.provider.MediaStore;
+import android.test.mock.MockContentProvider;
+import android.test.mock.MockContentResolver;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.filters.SmallTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.android.settings.deviceinfo.storage.StorageAsyncLoader.StorageResult;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public class StorageAsyncLoaderMediaSizesTest {
+    private static final long IMAGES_SIZE = 1L;
+    private static final long VIDEOS_SIZE = 2L;
+    private static final long AUDIO_SIZE = 3L;
+    private static final long DOCUMENTS_AND_OTHER_SIZE = 4L;
+    private static final long TRASH_SIZE = 5L;
+
+    private Context mContext;
+    private FakeMediaProvider mProvider;
+    private Context mUserContext;
+
+    @Before
+    public void setUp() {
+        StorageAsyncLoader.setQueryMediaSizesSeparately(false);
+        mContext = ApplicationProvider.getApplicationContext();
+        mProvider = new FakeMediaProvider();
+        final MockContentResolver resolver = new MockContentResolver(mContext);
+        resolver.addProvider(MediaStore.AUTHORITY, mProvider);
+        mUserContext = mock(Context.class);
+        when(mUserContext.getContentResolver()).thenReturn(resolver);
+    }
+
+    @After
+    public void tearDown() {
+        StorageAsyncLoader.setQueryMediaSizesSeparately(false);
+    }
+
+    @Test
+    public void queryMediaSizes_sameSizesAsEachCategoryQuery() {
+        final StorageResult result = new StorageResult();
+        assumeTrue("The media provider rejects the combined query",
+                StorageAsyncLoader.queryMediaSizes(mContext, result));
+        final StorageResult separateResult = new StorageResult();
+
+        StorageAsyncLoader.queryMediaSizesSeparately(mContext, separateResult);
+
+        assertThat(result.imagesSize).isEqualTo(separateResult.imagesSize);
+        assertThat(result.videosSize).isEqualTo(separateResult.videosSize);
+        assertThat(result.audioSize).isEqualTo(separateResult.audioSize);
+        assertThat(result.documentsAndOtherSize).isEqualTo(separateResult.documentsAndOtherSize);
+        assertThat(result.trashSize).isEqualTo(separateResult.trashSize);
+    }
+
+    @Test
+    public void loadMediaSizes_combinedQuerySupported_shouldQueryOnce() {
+        final StorageResult result = new StorageResult();
+
+        StorageAsyncLoader.loadMediaSizes(mUserContext, result);
+
+        assertMediaSizes(result);
+        assertThat(mProvider.mQueries).containsExactly(MediaStore.Files.getContentUri(
+                MediaStore.VOLUME_EXTERNAL_PRIMARY));
+        assertThat(StorageAsyncLoader.isQueryingMediaSizesSeparately()).isFalse();
+    }
+
+    @Test
+    public void loadMediaSizes_combinedQueryRejected_shouldQueryEachCategory() {
+        mProvider.mCombinedQueryException = new IllegalArgumentException("Invalid column");
+        final StorageResult result = new StorageResult();
+
+        StorageAsyncLoader.loadMediaSizes(mUserContext, result);
+
+        assertMediaSizes(result);
+        assertThat(mProvider.mQueries).hasSize(6);
+        assertThat(StorageAsyncLoader.isQueryingMediaSizesSeparately()).isTrue();
+    }
+
+    @Test
+    public void loadMediaSizes_combinedQueryRejected_shouldNotTryItAgain() {
+        mProvider.mCombinedQueryException = new IllegalArgumentException("Invalid column");
+        StorageAsyncLoader.loadMediaSizes(mUserContext, new StorageResult());
+        mProvider.mCombinedQueryException = null;
+        mProvider.mQueries.clear();
+        final StorageResult result = new StorageResult();
+
+        StorageAsyncLoader.loadMediaSizes(mUserContext, result);
+
+        assertMediaSizes(result);
+        assertThat(mProvider.mCombinedQueryCount).isEqualTo(1);
+        assertThat(mProvider.mQueries).hasSize(5);
+    }
+
+    @Test
+    public void loadMediaSizes_combinedQueryFailed_shouldTryItAgainLater() {
+        mProvider.mCombinedQueryException = new IllegalStateException("Provider is updating");
+        final StorageResult result = new StorageResult();
+
+        StorageAsyncLoader.loadMediaSizes(mUserContext, result);
+        mProvider.mCombinedQueryException = null;
+        StorageAsyncLoader.loadMediaSizes(mUserContext, new StorageResult());
+
+        assertMediaSizes(result);
+        assertThat(StorageAsyncLoader.isQueryingMediaSizesSeparately()).isFalse();
+        assertThat(mProvider.mCombinedQueryCount).isEqualTo(2);
+    }
+
+    @Test
+    public void loadMediaSizes_categoryQueryFailed_shouldReportItEmpty() {
+        StorageAsyncLoader.setQueryMediaSizesSeparately(true);
+        mProvider.mFailingUri = MediaStore.Images.Media.EXTERNAL_CONTENT_URI;
+        final StorageResult result = new StorageResult();
+
+        StorageAsyncLoader.loadMediaSizes(mUserContext, result);
+
+        assertThat(result.imagesSize).isEqualTo(0L);
+        assertThat(result.videosSize).isEqualTo(VIDEOS_SIZE);
+        assertThat(result.audioSize).isEqualTo(AUDIO_SIZE);
+        assertThat(result.documentsAndOtherSize).isEqualTo(DOCUMENTS_AND_OTHER_SIZE);
+        assertThat(result.trashSize).isEqualTo(TRASH_SIZE);
+    }
+
+    private static void assertMediaSizes(StorageResult result) {
+        assertThat(result.imagesSize).isEqualTo(IMAGES_SIZE);
+        assertThat(result.videosSize).isEqualTo(VIDEOS_SIZE);
+        assertThat(result.audioSize).isEqualTo(AUDIO_SIZE);
+        assertThat(result.documentsAndOtherSize).isEqualTo(DOCUMENTS_AND_OTHER_SIZE);
+        assertThat(result.trashSize).isEqualTo(TRASH_SIZE);
+    }
+
+    /** Answers the combined query and the query of each category with fixed sizes. */
+    private static class FakeMediaProvider extends MockContentProvider {
+        private final List<Uri> mQueries = new ArrayList<>();
+        private int mCombinedQueryCount;
+        private RuntimeException mCombinedQueryException;
+        private Uri mFailingUri;
+
+        @Override
+        public Cursor query(Uri uri, String[] projection, Bundle queryArgs,
+                CancellationSignal cancellationSignal) {
+            mQueries.add(uri);
+            if (uri.equals(mFailingUri)) {
+                throw new IllegalStateException("Provider is updating");
+            }
+            final MatrixCursor cursor = new MatrixCursor(projection);
+            if (projection.length > 1) {
+                mCombinedQueryCount++;
+                if (mCombinedQueryException != null) {
+                    throw mCombinedQueryException;
+                }
+                cursor.addRow(new Object[] {IMAGES_SIZE, VIDEOS_SIZE, AUDIO_SIZE,
+                        DOCUMENTS_AND_OTHER_SIZE, TRASH_SIZE});
+            } else {
+                cursor.addRow(new Object[] {getCategorySize(uri, queryArgs)});
+            }
+            return cursor;
+        }
+
+        private static long getCategorySize(Uri uri, Bundle queryArgs) {
+            if (uri.equals(MediaStore.Images.Media.EXTERNAL_CONTENT_URI)) {
+                return IMAGES_SIZE;
+            } else if (uri.equals(MediaStore.Video.Media.EXTERNAL_CONTENT_URI)) {
+                return VIDEOS_SIZE;
+            } else if (uri.equals(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI)) {
+                return AUDIO_SIZE;
+            } else if (queryArgs.getInt(MediaStore.QUERY_ARG_MATCH_TRASHED)
+                    == MediaStore.MATCH_ONLY) {
+                return TRASH_SIZE;
+            }
+            return DOCUMENTS_AND_OTHER_SIZE;
+        }
+    }
+}
@@ -18,13 +18,17 @@ package com.android.settings.deviceinfo.storage;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.junit.Assert.fail;
+
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.content.Context;
@@ -33,6 +37,7 @@ import android.content.pm.PackageManager;
 import android.content.pm.PackageManager.NameNotFoundException;
 import android.content.pm.UserInfo;
 import android.content.res.Resources;
+import android.os.OperationCanceledException;
 import android.os.UserHandle;
 import android.os.UserManager;
 import android.util.DataUnit;
@@ -40,6 +45,7 @@ import android.util.SparseArray;
 
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.filters.SmallTest;
+import androidx.test.platform.app.InstrumentationRegistry;
 import androidx.test.runner.AndroidJUnit4;
 
 import com.android.settings.R;
@@ -53,12 +59,15 @@ import org.mockito.MockitoAnnotations;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @RunWith(AndroidJUnit4.class)
 @SmallTest
 public class StorageAsyncLoaderTest {
     private static final int PRIMARY_USER_ID = 0;
     private static final int SECONDARY_USER_ID = 10;
+    private static final int THIRD_USER_ID = 11;
     private static final String PACKAGE_NAME_1 = "com.blah.test";
     private static final String PACKAGE_NAME_2 = "com.blah.test2";
     private static final String PACKAGE_NAME_3 = "com.blah.test3";
@@ -159,6 +168,70 @@ public class StorageAsyncLoaderTest {
         assertThat(result.get(SECONDARY_USER_ID).externalStats.totalBytes).isEqualTo(10L);
     }
 
+    @Test
+    public void testMultipleUsers_sameResultsAsSerialLoad() throws Exception {
+        addUser(SECONDARY_USER_ID);
+        addUser(THIRD_USER_ID);
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        addPackage(PACKAGE_NAME_2, 0, 100, 1000, ApplicationInfo.CATEGORY_GAME);
+        final ExecutorService parallelExecutor = Executors.newFixedThreadPool(mUsers.size());
+        final ExecutorService serialExecutor = Executors.newSingleThreadExecutor();
+        final List<Integer> partialResultSizes = new ArrayList<>();
+        try {
+            final StorageAsyncLoader loader = spy(new StorageAsyncLoader(mContext, mUserManager,
+                    "id", mSource, mPackageManager, parallelExecutor));
+            doReturn(true).when(loader).isStarted();
+            loader.setPartialResultListener(results -> partialResultSizes.add(results.size()));
+            final StorageAsyncLoader serialLoader = new StorageAsyncLoader(mContext,
+                    mUserManager, "id", mSource, mPackageManager, serialExecutor);
+
+            final SparseArray<StorageAsyncLoader.StorageResult> result =
+                    loader.loadInBackground();
+            final SparseArray<StorageAsyncLoader.StorageResult> serialResult =
+                    serialLoader.loadInBackground();
+            InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+            // Once per user loaded before the last one.
+            assertThat(partialResultSizes).containsExactly(1, 2);
+            assertThat(result.size()).isEqualTo(3);
+            for (int i = 0; i < serialResult.size(); i++) {
+                final StorageAsyncLoader.StorageResult expected = serialResult.valueAt(i);
+                final StorageAsyncLoader.StorageResult actual = result.get(serialResult.keyAt(i));
+                assertThat(actual.gamesSize).isEqualTo(expected.gamesSize);
+                assertThat(actual.allAppsExceptGamesSize)
+                        .isEqualTo(expected.allAppsExceptGamesSize);
+                assertThat(actual.imagesSize).isEqualTo(expected.imagesSize);
+                assertThat(actual.videosSize).isEqualTo(expected.videosSize);
+                assertThat(actual.audioSize).isEqualTo(expected.audioSize);
+                assertThat(actual.documentsAndOtherSize)
+                        .isEqualTo(expected.documentsAndOtherSize);
+                assertThat(actual.trashSize).isEqualTo(expected.trashSize);
+            }
+            // Which user is charged for the code of an app depends on the load order, but not the
+            // total of the duplicate code sizes.
+            assertThat(getDuplicateCodeSize(result)).isEqualTo(getDuplicateCodeSize(serialResult));
+            assertThat(getDuplicateCodeSize(result)).isEqualTo(2 * (1 + 100));
+        } finally {
+            parallelExecutor.shutdown();
+            serialExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void testInterrupted_loadIsCanceled() throws Exception {
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+
+        Thread.currentThread().interrupt();
+        try {
+            mLoader.loadInBackground();
+            fail("The interrupted load should be canceled");
+        } catch (OperationCanceledException expected) {
+            assertThat(Thread.currentThread().isInterrupted()).isTrue();
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
     @Test
     public void testUpdatedSystemAppCodeSizeIsCounted() throws Exception {
         ApplicationInfo systemApp =
@@ -196,6 +269,16 @@ public class StorageAsyncLoaderTest {
                 .isEqualTo(DEFAULT_QUOTA + 11);
     }
 
+    @Test
+    public void testCacheQuotaIsOnlyQueriedForAppsWithCache() throws Exception {
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+
+        SparseArray<StorageAsyncLoader.StorageResult> result = mLoader.loadInBackground();
+
+        assertThat(result.get(PRIMARY_USER_ID).allAppsExceptGamesSize).isEqualTo(11L);
+        verify(mSource, never()).getCacheQuotaBytes(anyString(), anyInt());
+    }
+
     @Test
     public void testAppsAreFiltered() throws Exception {
         addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_IMAGE);
@@ -208,6 +291,21 @@ public class StorageAsyncLoaderTest {
         assertThat(result.get(PRIMARY_USER_ID).allAppsExceptGamesSize).isEqualTo(33L);
     }
 
+    private void addUser(int userId) {
+        final UserInfo info = new UserInfo();
+        info.id = userId;
+        mUsers.add(info);
+    }
+
+    private static long getDuplicateCodeSize(
+            SparseArray<StorageAsyncLoader.StorageResult> results) {
+        long duplicateCodeSize = 0;
+        for (int i = 0; i < results.size(); i++) {
+            duplicateCodeSize += results.valueAt(i).duplicateCodeSize;
+        }
+        return duplicateCodeSize;
+    }
+
     private ApplicationInfo addPackage(String packageName, long cacheSize, long codeSize,
             long dataSize, int category) throws Exception {
         StorageStatsSource.AppStorageStats storageStats =